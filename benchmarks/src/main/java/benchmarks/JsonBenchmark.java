@@ -0,0 +1,99 @@
+package benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import common.dto.ApiResponse;
+import common.model.Card;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.handler.ReportHandler.PointsRecord;
+import server.handler.ReportHandler.PointsReportData;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация типичных ответов API тем же ObjectMapper, что и в AbstractRequestHandler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<List<Card>> cardsResponse;
+    private PointsReportData pointsReport;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        LocalDateTime issued = LocalDateTime.of(2024, 1, 15, 10, 30);
+        List<Card> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Card card = new Card();
+            card.setId((long) i);
+            card.setCardNumber(String.valueOf(1_000_000_000L + i));
+            card.setUserId((long) (i % 50));
+            card.setPoints(i * 10);
+            card.setLevel(1 + i % 4);
+            card.setStatus("ACTIVE");
+            card.setIssueDate(issued);
+            card.setLastUsed(issued.plusDays(i % 30));
+            cards.add(card);
+        }
+        cardsResponse = ApiResponse.success(cards);
+
+        List<PointsRecord> records = new ArrayList<>(size);
+        Map<String, Integer> pointsByDay = new LinkedHashMap<>();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < size; i++) {
+            String date = day.plusDays(i % 90).toString();
+            records.add(new PointsRecord(date, String.valueOf(1_000_000_000L + i), "user" + (i % 50),
+                    i % 7 == 0 ? -50 : 100, "Начисление за игровую сессию", i % 7 == 0 ? "WITHDRAW" : "DEPOSIT",
+                    "Сессия"));
+            pointsByDay.merge(date, i % 7 == 0 ? -50 : 100, Integer::sum);
+        }
+        pointsReport = new PointsReportData(records, pointsByDay);
+    }
+
+    @Benchmark
+    public byte[] cardsResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cardsResponse);
+    }
+
+    @Benchmark
+    public String cardsResponseAsString() throws JsonProcessingException {
+        // Так ответ формируется сейчас в обработчиках: строка, затем копирование в ByteBuf
+        return objectMapper.writeValueAsString(cardsResponse);
+    }
+
+    @Benchmark
+    public byte[] pointsReport() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success(pointsReport));
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import benchmarks.support.RowResultSet;
+import common.model.Card;
+import common.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.db.mapper.CardMapper;
+import server.db.mapper.TransactionMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование строки ResultSet в модели.
+ * Варианты "sparse" не содержат необязательных столбцов - так выглядят
+ * результаты запросов с неполным списком столбцов в DAO.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private ResultSet fullCardRow;
+    private ResultSet sparseCardRow;
+    private ResultSet fullTransactionRow;
+    private ResultSet sparseTransactionRow;
+
+    @Setup
+    public void setUp() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2024, 3, 1, 12, 0));
+
+        Map<String, Object> card = new LinkedHashMap<>();
+        card.put("id", 42L);
+        card.put("number", "1000000042");
+        card.put("user_id", 7L);
+        card.put("points", 1250);
+        card.put("tier_id", 2);
+        card.put("issue_date", now);
+        card.put("last_used", now);
+        card.put("is_active", true);
+        fullCardRow = RowResultSet.of(card);
+
+        Map<String, Object> sparseCard = new LinkedHashMap<>();
+        sparseCard.put("id", 42L);
+        sparseCard.put("number", "1000000042");
+        sparseCard.put("points", 1250);
+        sparseCardRow = RowResultSet.of(sparseCard);
+
+        Map<String, Object> transaction = new LinkedHashMap<>();
+        transaction.put("id", 1001L);
+        transaction.put("card_id", 42L);
+        transaction.put("type", "DEPOSIT");
+        transaction.put("points", 100);
+        transaction.put("timestamp", now);
+        transaction.put("description", "Начисление за сессию");
+        transaction.put("card_number", "1000000042");
+        fullTransactionRow = RowResultSet.of(transaction);
+
+        Map<String, Object> sparseTransaction = new LinkedHashMap<>();
+        sparseTransaction.put("id", 1001L);
+        sparseTransaction.put("type", "DEPOSIT");
+        sparseTransaction.put("points", 100);
+        sparseTransaction.put("timestamp", now);
+        sparseTransactionRow = RowResultSet.of(sparseTransaction);
+    }
+
+    @Benchmark
+    public Card cardFullRow() throws SQLException {
+        return CardMapper.map(fullCardRow);
+    }
+
+    @Benchmark
+    public Card cardSparseRow() throws SQLException {
+        return CardMapper.map(sparseCardRow);
+    }
+
+    @Benchmark
+    public Transaction transactionFullRow() throws SQLException {
+        return TransactionMapper.map(fullTransactionRow);
+    }
+
+    @Benchmark
+    public Transaction transactionSparseRow() throws SQLException {
+        return TransactionMapper.map(sparseTransactionRow);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import common.util.PasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хеширование и проверка паролей при входе
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordUtilBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private String salt;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        salt = PasswordUtil.generateSalt();
+        hash = PasswordUtil.hashPassword(PASSWORD, salt);
+    }
+
+    @Benchmark
+    public String generateSalt() {
+        return PasswordUtil.generateSalt();
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return PasswordUtil.hashPassword(PASSWORD, salt);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordUtil.verifyPassword(PASSWORD, salt, hash);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import benchmarks.support.CloseSuppressor;
+import benchmarks.support.Handlers;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.ServerChannelInitializer;
+import server.util.NettyConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный путь запроса через конвейер сервера из ServerChannelInitializer (его же использует ServerMain):
+ * разбор байтов HTTP, агрегация, сжатие, если оно включено, метрики, проверка WebSocket,
+ * маршрутизация и кодирование ответа. Лимит тела запроса берется из config.properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final ServerChannelInitializer INITIALIZER =
+            new ServerChannelInitializer(NettyConfig.load().getMaxContentLength(), Handlers::newServerHandler);
+    private static final byte[] SCHEDULE_REQUEST = (
+            "GET /api/schedule HTTP/1.1\r\n" +
+            "Host: localhost:8090\r\n" +
+            "Accept: application/json\r\n" +
+            "\r\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] POST_REQUEST = (
+            "POST /api/schedule HTTP/1.1\r\n" +
+            "Host: localhost:8090\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Content-Length: 58\r\n" +
+            "\r\n" +
+            "{\"computerName\":\"PC-1\",\"startTime\":\"2024-03-01T12:00:00\"}").getBytes(StandardCharsets.US_ASCII);
+
+    private EmbeddedChannel keepAliveChannel;
+
+    @Setup
+    public void setUp() {
+        keepAliveChannel = newChannel();
+    }
+
+    @TearDown
+    public void tearDown() {
+        keepAliveChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int getRequest() {
+        return roundTrip(keepAliveChannel, SCHEDULE_REQUEST);
+    }
+
+    @Benchmark
+    public int postRequest() {
+        return roundTrip(keepAliveChannel, POST_REQUEST);
+    }
+
+    @Benchmark
+    public int connectionPerRequest() {
+        // Сервер закрывает соединение после каждого ответа, поэтому клиенты платят и за сборку конвейера
+        EmbeddedChannel channel = newChannel();
+        try {
+            return roundTrip(channel, SCHEDULE_REQUEST);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(CloseSuppressor.INSTANCE, INITIALIZER);
+    }
+
+    private static int roundTrip(EmbeddedChannel channel, byte[] request) {
+        channel.writeInbound(Unpooled.wrappedBuffer(request));
+        int bytes = 0;
+        Object out;
+        while ((out = channel.readOutbound()) != null) {
+            if (out instanceof ByteBuf) {
+                bytes += ((ByteBuf) out).readableBytes();
+            }
+            ReferenceCountUtil.release(out);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import benchmarks.support.CloseSuppressor;
+import benchmarks.support.Handlers;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.handler.HttpServerHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск обработчика в цепочке HttpServerHandler.
+ * Используются маршруты, не обращающиеся к БД: /api/schedule - последний из таких обработчиков
+ * (за ним только обработчики копий и синхронизации справочников), а неизвестный путь проходит
+ * цепочку целиком и завершается ответом 404.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+    private EmbeddedChannel channel;
+    private FullHttpRequest scheduleRequest;
+    private FullHttpRequest unknownRequest;
+
+    @Setup
+    public void setUp() {
+        channel = new EmbeddedChannel(CloseSuppressor.INSTANCE, Handlers.newServerHandler());
+        scheduleRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/api/schedule",
+                Unpooled.EMPTY_BUFFER);
+        unknownRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/api/unknown/15",
+                Unpooled.EMPTY_BUFFER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public Object routeToLastHandler() {
+        return dispatch(scheduleRequest);
+    }
+
+    @Benchmark
+    public Object routeNotFound() {
+        return dispatch(unknownRequest);
+    }
+
+    @Benchmark
+    public HttpServerHandler createHandlerChain() {
+        // HttpServerHandler со всеми обработчиками и сервисами создается на каждое соединение
+        return Handlers.newServerHandler();
+    }
+
+    private Object dispatch(FullHttpRequest request) {
+        channel.writeInbound(request.retainedDuplicate());
+        Object response = channel.readOutbound();
+        ReferenceCountUtil.release(response);
+        return response;
+    }
+}
@@ -0,0 +1,23 @@
+package benchmarks.support;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Не дает обработчикам закрыть EmbeddedChannel после ответа (сервер отвечает с Connection: close),
+ * чтобы один канал можно было использовать во всех итерациях замера
+ */
+@ChannelHandler.Sharable
+public final class CloseSuppressor extends ChannelOutboundHandlerAdapter {
+    public static final CloseSuppressor INSTANCE = new CloseSuppressor();
+
+    private CloseSuppressor() {
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        promise.setSuccess();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks.support;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import server.handler.BackupHandler;
+import server.handler.HttpServerHandler;
+import server.handler.RequestHandler;
+import server.handler.SettingsHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Цепочка обработчиков сервера из HttpServerHandler.createHandlers. Обработчики, которым БД нужна
+ * уже при создании (SettingsHandler записывает обязательные настройки, BackupHandler сверяет каталог
+ * копий), заменены заглушками на их месте в цепочке: замеры идут без базы, а порядок проверки
+ * остальных обработчиков совпадает с сервером.
+ */
+public final class Handlers {
+
+    private Handlers() {
+    }
+
+    public static HttpServerHandler newServerHandler() {
+        return new HttpServerHandler(withoutDatabase());
+    }
+
+    public static List<RequestHandler> withoutDatabase() {
+        return HttpServerHandler.createHandlers(Map.of(
+                SettingsHandler.class, () -> new Stub("/api/settings"),
+                BackupHandler.class, () -> new Stub("/api/backup")));
+    }
+
+    /**
+     * Заглушка обработчика: принимает запросы своего префикса и отвечает 503
+     */
+    private static final class Stub implements RequestHandler {
+        private final String prefix;
+
+        private Stub(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean handle(ChannelHandlerContext ctx, FullHttpRequest request) {
+            if (!request.uri().startsWith(prefix)) {
+                return false;
+            }
+            sendErrorResponse(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, "Недоступно в замерах");
+            return true;
+        }
+
+        @Override
+        public boolean canHandle(String path, String method) {
+            return path.startsWith(prefix);
+        }
+
+        @Override
+        public void sendErrorResponse(ChannelHandlerContext ctx, HttpResponseStatus status, String message) {
+            write(ctx, status, "{\"success\":false,\"errorMessage\":\"" + message + "\"}");
+        }
+
+        @Override
+        public void sendSuccessResponse(ChannelHandlerContext ctx, String content) {
+            write(ctx, HttpResponseStatus.OK, content);
+        }
+
+        private static void write(ChannelHandlerContext ctx, HttpResponseStatus status, String content) {
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                    Unpooled.copiedBuffer(content, StandardCharsets.UTF_8));
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+            ctx.writeAndFlush(response);
+        }
+    }
+}
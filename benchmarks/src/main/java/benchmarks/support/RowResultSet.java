@@ -0,0 +1,127 @@
+package benchmarks.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet с одной строкой в памяти для замеров мапперов без базы данных.
+ * Как и драйвер PostgreSQL, бросает SQLException при обращении к отсутствующему столбцу,
+ * поэтому стоимость "проб" столбцов через исключения в мапперах видна в результатах.
+ */
+public final class RowResultSet implements InvocationHandler {
+    private final List<String> columns;
+    private final List<Object> values;
+    private final ResultSetMetaData metaData;
+    private boolean wasNull;
+
+    private RowResultSet(Map<String, Object> row) {
+        this.columns = new ArrayList<>(row.keySet());
+        this.values = new ArrayList<>(row.values());
+        this.metaData = createMetaData();
+    }
+
+    /**
+     * @param row значения строки в порядке столбцов
+     * @return ResultSet, уже установленный на эту строку
+     */
+    public static ResultSet of(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(RowResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new RowResultSet(new LinkedHashMap<>(row)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "next":
+                return true;
+            case "wasNull":
+                return wasNull;
+            case "close":
+                return null;
+            case "isClosed":
+                return false;
+            case "getMetaData":
+                return metaData;
+            case "findColumn":
+                return indexOf((String) args[0]) + 1;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "RowResultSet" + columns;
+            default:
+                break;
+        }
+
+        if (name.startsWith("get") && args != null && args.length >= 1) {
+            int index = args[0] instanceof Integer
+                    ? (Integer) args[0] - 1
+                    : indexOf((String) args[0]);
+            if (index < 0 || index >= values.size()) {
+                throw new SQLException("The column index is out of range: " + (index + 1));
+            }
+            Object value = values.get(index);
+            wasNull = value == null;
+            return convert(value, method.getReturnType());
+        }
+
+        throw new UnsupportedOperationException(name);
+    }
+
+    private int indexOf(String column) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        throw new SQLException("The column name " + column + " was not found in this ResultSet.");
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == long.class) {
+            return value == null ? 0L : ((Number) value).longValue();
+        }
+        if (type == int.class) {
+            return value == null ? 0 : ((Number) value).intValue();
+        }
+        if (type == double.class) {
+            return value == null ? 0d : ((Number) value).doubleValue();
+        }
+        if (type == boolean.class) {
+            return value != null && (Boolean) value;
+        }
+        if (type == String.class) {
+            return value == null ? null : value.toString();
+        }
+        if (type == BigDecimal.class && value instanceof Number) {
+            return new BigDecimal(value.toString());
+        }
+        return value;
+    }
+
+    private ResultSetMetaData createMetaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(RowResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return columns.size();
+                        case "getColumnName":
+                        case "getColumnLabel":
+                            return columns.get((Integer) args[0] - 1);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
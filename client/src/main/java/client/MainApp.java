@@ -1,6 +1,8 @@
 package client;
 
 import client.service.AuthService;
+import client.service.HttpTransport;
+import client.service.ReferenceCache;
 import client.ui.LoginViewController;
 import client.ui.MainViewController;
 import common.dto.AuthResponse;
@@ -25,6 +27,8 @@ public class MainApp extends Application {
         try {
             this.primaryStage = primaryStage;
             this.authService = new AuthService();
+            // Справочники читаются с диска, пока пользователь вводит пароль
+            ReferenceCache.getInstance().preload();
             
             // Запуск окна логина
             showLoginView();
@@ -73,6 +77,8 @@ public class MainApp extends Application {
             controller.setMainApp(this);
             controller.setAuthResponse(authResponse);
             controller.init();
+            // Окна справочников, открытые позже, получат уже синхронизированные данные
+            ReferenceCache.getInstance().syncAll(authResponse.getToken());
             
             primaryStage.setScene(scene);
             primaryStage.setMaximized(true);
@@ -90,6 +96,12 @@ public class MainApp extends Application {
         primaryStage.sizeToScene();
     }
     
+    @Override
+    public void stop() {
+        // Время ответа сервера по адресам за сеанс работы
+        HttpTransport.getInstance().logStatistics();
+    }
+    
     public Stage getPrimaryStage() {
         return primaryStage;
     }
@@ -7,7 +7,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.LocalDateTime;
@@ -27,14 +26,12 @@ import static client.service.ServiceUtils.*;
 public class AuditService {
     private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final String authToken;
     
     public AuditService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .build();
+        this.transport = HttpTransport.getInstance();
     }
     
     /**
@@ -47,16 +44,18 @@ public class AuditService {
                 HttpRequest request = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/audit"))
                         .header("Authorization", "Bearer " + authToken)
+                        .header("Accept", ACCEPT_BINARY)
+                        .header("Accept-Encoding", ACCEPT_ENCODING)
                         .GET()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = transport.sendSync(request, HttpTransport.BYTES);
                 int statusCode = response.statusCode();
                 
                 if (statusCode == 200) {
                     try {
-                        ApiResponse<List<AuditLog>> apiResponse = OBJECT_MAPPER.readValue(
-                                response.body(), 
+                        ApiResponse<List<AuditLog>> apiResponse = readBody(
+                                response, OBJECT_MAPPER,
                                 new TypeReference<ApiResponse<List<AuditLog>>>() {});
                         
                         if (apiResponse.isSuccess()) {
@@ -79,7 +78,7 @@ public class AuditService {
                 logger.error("Ошибка при обращении к API аудита", e);
                 return Collections.emptyList();
             }
-        });
+        }, transport.executor());
     }
     
     /**
@@ -99,21 +98,22 @@ public class AuditService {
                 HttpRequest request = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/audit?from=" + fromStr + "&to=" + toStr))
                         .header("Authorization", "Bearer " + authToken)
+                        .header("Accept", ACCEPT_BINARY)
+                        .header("Accept-Encoding", ACCEPT_ENCODING)
                         .GET()
                         .build();
                 
                 logger.debug("URL запроса: {}", request.uri().toString());
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = transport.sendSync(request, HttpTransport.BYTES);
                 int statusCode = response.statusCode();
                 
                 if (statusCode == 200) {
-                    String responseBody = response.body();
-                    logger.debug("Получен ответ от сервера: {}", responseBody);
+                    logger.debug("Получен ответ от сервера: {} байт", response.body().length);
                     
                     // Парсим ответ как ApiResponse с массивом AuditLog
-                    ApiResponse<List<AuditLog>> apiResponse = OBJECT_MAPPER.readValue(
-                            responseBody, 
+                    ApiResponse<List<AuditLog>> apiResponse = readBody(
+                            response, OBJECT_MAPPER,
                             new TypeReference<ApiResponse<List<AuditLog>>>() {}
                     );
                     
@@ -133,7 +133,7 @@ public class AuditService {
                 logger.error("Ошибка при получении аудита", e);
                 return new ArrayList<>();
             }
-        });
+        }, transport.executor());
     }
     
     /**
@@ -147,16 +147,18 @@ public class AuditService {
                 HttpRequest request = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/audit/user/" + userId))
                         .header("Authorization", "Bearer " + authToken)
+                        .header("Accept", ACCEPT_BINARY)
+                        .header("Accept-Encoding", ACCEPT_ENCODING)
                         .GET()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = transport.sendSync(request, HttpTransport.BYTES);
                 int statusCode = response.statusCode();
                 
                 if (statusCode == 200) {
                     try {
-                        ApiResponse<List<AuditLog>> apiResponse = OBJECT_MAPPER.readValue(
-                                response.body(), 
+                        ApiResponse<List<AuditLog>> apiResponse = readBody(
+                                response, OBJECT_MAPPER,
                                 new TypeReference<ApiResponse<List<AuditLog>>>() {});
                         
                         if (apiResponse.isSuccess()) {
@@ -179,7 +181,7 @@ public class AuditService {
                 logger.error("Ошибка при обращении к API аудита", e);
                 return Collections.emptyList();
             }
-        });
+        }, transport.executor());
     }
     
     /**
@@ -193,16 +195,18 @@ public class AuditService {
                 HttpRequest request = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/audit/action/" + actionType))
                         .header("Authorization", "Bearer " + authToken)
+                        .header("Accept", ACCEPT_BINARY)
+                        .header("Accept-Encoding", ACCEPT_ENCODING)
                         .GET()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = transport.sendSync(request, HttpTransport.BYTES);
                 int statusCode = response.statusCode();
                 
                 if (statusCode == 200) {
                     try {
-                        ApiResponse<List<AuditLog>> apiResponse = OBJECT_MAPPER.readValue(
-                                response.body(), 
+                        ApiResponse<List<AuditLog>> apiResponse = readBody(
+                                response, OBJECT_MAPPER,
                                 new TypeReference<ApiResponse<List<AuditLog>>>() {});
                         
                         if (apiResponse.isSuccess()) {
@@ -225,6 +229,6 @@ public class AuditService {
                 logger.error("Ошибка при обращении к API аудита", e);
                 return Collections.emptyList();
             }
-        });
+        }, transport.executor());
     }
 } 
\ No newline at end of file
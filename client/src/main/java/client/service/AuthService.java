@@ -7,8 +7,9 @@ import common.util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -16,10 +17,12 @@ import java.util.concurrent.CompletableFuture;
  */
 public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String baseUrl;
     
     public AuthService() {
+        this.transport = HttpTransport.getInstance();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.findAndRegisterModules(); // Register all modules including Java 8 date/time
         this.baseUrl = String.format("http://%s:%d", Constants.SERVER_HOST, Constants.SERVER_PORT);
@@ -32,34 +35,37 @@ public class AuthService {
      * @return CompletableFuture с результатом аутентификации
      */
     public CompletableFuture<AuthResponse> authenticate(String login, String password) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                AuthRequest authRequest = new AuthRequest(login, password);
-                
-                URL url = new URL(baseUrl + "/api/auth");
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("POST");
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setDoOutput(true);
-                
-                // Отправляем запрос
-                connection.getOutputStream().write(objectMapper.writeValueAsBytes(authRequest));
-                
-                // Читаем ответ
-                int responseCode = connection.getResponseCode();
-                if (responseCode == 200) {
-                    AuthResponse response = objectMapper.readValue(connection.getInputStream(), AuthResponse.class);
-                    logger.info("Пользователь успешно аутентифицирован: {}", login);
-                    return response;
-                } else {
-                    AuthResponse errorResponse = objectMapper.readValue(connection.getErrorStream(), AuthResponse.class);
-                    logger.warn("Ошибка аутентификации пользователя {}: {}", login, errorResponse.getErrorMessage());
-                    return errorResponse;
-                }
-            } catch (Exception e) {
-                logger.error("Ошибка при аутентификации", e);
-                return AuthResponse.error("Ошибка соединения с сервером");
-            }
-        });
+        try {
+            AuthRequest authRequest = new AuthRequest(login, password);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(authRequest)))
+                    .header("Content-Type", "application/json")
+                    .uri(URI.create(baseUrl + "/api/auth"))
+                    .build();
+            
+            return transport.send(request, HttpTransport.BYTES)
+                    .thenApply(response -> {
+                        try {
+                            AuthResponse authResponse = objectMapper.readValue(response.body(), AuthResponse.class);
+                            if (response.statusCode() == 200) {
+                                logger.info("Пользователь успешно аутентифицирован: {}", login);
+                            } else {
+                                logger.warn("Ошибка аутентификации пользователя {}: {}", login,
+                                        authResponse.getErrorMessage());
+                            }
+                            return authResponse;
+                        } catch (IOException e) {
+                            logger.error("Ошибка при разборе ответа аутентификации", e);
+                            return AuthResponse.error("Ошибка соединения с сервером");
+                        }
+                    })
+                    .exceptionally(e -> {
+                        logger.error("Ошибка при аутентификации", e);
+                        return AuthResponse.error("Ошибка соединения с сервером");
+                    });
+        } catch (IOException e) {
+            logger.error("Ошибка при аутентификации", e);
+            return CompletableFuture.completedFuture(AuthResponse.error("Ошибка соединения с сервером"));
+        }
     }
 } 
\ No newline at end of file
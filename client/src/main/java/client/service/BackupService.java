@@ -11,12 +11,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -30,14 +30,12 @@ import static client.service.ServiceUtils.*;
 public class BackupService {
     private static final Logger logger = LoggerFactory.getLogger(BackupService.class);
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final String authToken;
     
     public BackupService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .build();
+        this.transport = HttpTransport.getInstance();
     }
     
     /**
@@ -53,7 +51,7 @@ public class BackupService {
                         .GET()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = transport.sendSync(request, HttpTransport.STRING);
                 int statusCode = response.statusCode();
                 
                 if (statusCode == 200) {
@@ -82,7 +80,7 @@ public class BackupService {
                 logger.error("Ошибка при обращении к API резервных копий", e);
                 return Collections.emptyList();
             }
-        });
+        }, transport.executor());
     }
     
     /**
@@ -111,7 +109,7 @@ public class BackupService {
                     .timeout(Duration.ofMinutes(5)) // Увеличиваем таймаут для создания бэкапа
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -139,7 +137,7 @@ public class BackupService {
                             logger.error("Ошибка при создании резервной копии, код: {}, ответ: {}", statusCode, responseBody);
                             return false;
                         }
-                    })
+                    }, transport.executor())
                     .exceptionally(ex -> {
                         logger.error("Исключение при создании резервной копии: {}", ex.getMessage(), ex);
                         return false;
@@ -164,10 +162,11 @@ public class BackupService {
                 HttpRequest request = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/backup/" + backupId + "/restore"))
                         .header("Authorization", "Bearer " + authToken)
+                        .timeout(HttpTransport.LONG_TIMEOUT)
                         .POST(HttpRequest.BodyPublishers.noBody())
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = transport.sendSync(request, HttpTransport.STRING);
                 int statusCode = response.statusCode();
                 
                 boolean success = statusCode == 200;
@@ -182,11 +181,13 @@ public class BackupService {
                 logger.error("Ошибка при обращении к API резервных копий", e);
                 return false;
             }
-        });
+        }, transport.executor());
     }
     
     /**
-     * Скачивает резервную копию
+     * Скачивает резервную копию. Данные пишутся во временный файл backup_{id}.part; если он остался
+     * от прерванной загрузки, запрашивается только недостающая часть (Range). Архивы на сервере
+     * не перезаписываются, поэтому продолжать загрузку с места обрыва безопасно.
      * @param backupId ID резервной копии
      * @param destinationFolder папка для сохранения
      * @return путь к файлу резервной копии или null в случае ошибки
@@ -194,19 +195,40 @@ public class BackupService {
     public CompletableFuture<String> downloadBackup(Long backupId, String destinationFolder) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpRequest request = HttpRequest.newBuilder()
+                // Создаем директорию, если она не существует
+                Path directory = Paths.get(destinationFolder);
+                if (!Files.exists(directory)) {
+                    Files.createDirectories(directory);
+                }
+                
+                Path partFile = directory.resolve("backup_" + backupId + ".part");
+                long downloaded = Files.exists(partFile) ? Files.size(partFile) : 0;
+                
+                HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                         .uri(URI.create(getApiUrl() + "/backup/" + backupId + "/download"))
                         .header("Authorization", "Bearer " + authToken)
-                        .GET()
-                        .build();
+                        .timeout(HttpTransport.LONG_TIMEOUT)
+                        .GET();
+                if (downloaded > 0) {
+                    requestBuilder.header("Range", "bytes=" + downloaded + "-");
+                }
                 
-                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                HttpResponse<InputStream> response = transport.sendSync(requestBuilder.build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
                 int statusCode = response.statusCode();
                 
-                if (statusCode == 200) {
+                if (statusCode == 416) {
+                    // Временный файл не меньше архива: он поврежден, загружаем заново
+                    response.body().close();
+                    Files.deleteIfExists(partFile);
+                    logger.warn("Временный файл {} не соответствует архиву, загрузка начнется заново", partFile);
+                    return downloadBackup(backupId, destinationFolder).join();
+                }
+                
+                if (statusCode == 200 || statusCode == 206) {
                     // Получаем имя файла из заголовка
                     String contentDisposition = response.headers().firstValue("Content-Disposition").orElse("");
-                    String filename = "backup_" + backupId + ".sql";
+                    String filename = "backup_" + backupId + ".zip";
                     
                     if (contentDisposition.contains("filename=")) {
                         filename = contentDisposition.substring(contentDisposition.indexOf("filename=") + 9);
@@ -215,35 +237,29 @@ public class BackupService {
                         }
                     }
                     
-                    // Создаем директорию, если она не существует
-                    Path directory = Paths.get(destinationFolder);
-                    if (!Files.exists(directory)) {
-                        Files.createDirectories(directory);
+                    // 200 - сервер отдал архив целиком, временный файл перезаписывается
+                    boolean append = statusCode == 206;
+                    try (InputStream inputStream = response.body();
+                         FileOutputStream outputStream = new FileOutputStream(partFile.toFile(), append)) {
+                        inputStream.transferTo(outputStream);
                     }
                     
-                    // Сохраняем файл
-                    File file = new File(directory.toFile(), filename);
-                    try (FileOutputStream outputStream = new FileOutputStream(file)) {
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        InputStream inputStream = response.body();
-                        
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                        }
-                    }
+                    File file = new File(directory.toFile(), new File(filename).getName());
+                    Files.move(partFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
                     
-                    logger.debug("Резервная копия успешно скачана: {}", file.getAbsolutePath());
+                    logger.debug("Резервная копия успешно скачана: {}{}", file.getAbsolutePath(),
+                            append ? " (продолжена с " + downloaded + " байт)" : "");
                     return file.getAbsolutePath();
                 } else {
                     logger.error("Ошибка при скачивании резервной копии, код: {}", statusCode);
                     return null;
                 }
             } catch (Exception e) {
+                // Временный файл сохраняется: следующая попытка продолжит загрузку
                 logger.error("Ошибка при обращении к API резервных копий", e);
                 return null;
             }
-        });
+        }, transport.executor());
     }
     
     /**
@@ -260,7 +276,7 @@ public class BackupService {
                         .DELETE()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = transport.sendSync(request, HttpTransport.STRING);
                 int statusCode = response.statusCode();
                 
                 boolean success = statusCode == 200 || statusCode == 204;
@@ -275,6 +291,6 @@ public class BackupService {
                 logger.error("Ошибка при обращении к API резервных копий", e);
                 return false;
             }
-        });
+        }, transport.executor());
     }
 } 
\ No newline at end of file
@@ -11,17 +11,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Сервис для работы с картами лояльности
@@ -30,7 +27,7 @@ public class CardService {
     private static final Logger logger = LoggerFactory.getLogger(CardService.class);
     private static final String API_URL = ServiceUtils.getApiUrl();
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String authToken;
     private final Executor executor;
@@ -41,16 +38,13 @@ public class CardService {
      */
     public CardService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.transport = HttpTransport.getInstance();
         
         this.objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         
-        this.executor = Executors.newFixedThreadPool(5);
+        this.executor = transport.executor();
     }
     
     /**
@@ -63,18 +57,20 @@ public class CardService {
         HttpRequest request = HttpRequest.newBuilder()
                 .GET()
                 .header("Authorization", "Bearer " + authToken)
+                .header("Accept", ServiceUtils.ACCEPT_BINARY)
+                .header("Accept-Encoding", ServiceUtils.ACCEPT_ENCODING)
                 .uri(URI.create(API_URL + "/cards"))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.BYTES)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Received response for cards request, status: {}", statusCode);
                     
                     if (statusCode == 200) {
                         try {
-                            ApiResponse<List<Card>> apiResponse = objectMapper.readValue(
-                                    response.body(),
+                            ApiResponse<List<Card>> apiResponse = ServiceUtils.readBody(
+                                    response, objectMapper,
                                     new TypeReference<ApiResponse<List<Card>>>() {}
                             );
                             if (apiResponse.isSuccess() && apiResponse.getData() != null) {
@@ -109,7 +105,7 @@ public class CardService {
                 .uri(URI.create(API_URL + "/cards/" + cardId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос карты, статус: {}", statusCode);
@@ -150,7 +146,7 @@ public class CardService {
                     .uri(URI.create(API_URL + "/cards"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         logger.debug("Received card creation response, status: {}", statusCode);
@@ -203,7 +199,7 @@ public class CardService {
                     .uri(URI.create(API_URL + "/cards/" + card.getId()))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         logger.debug("Получен ответ на обновление карты, статус: {}", statusCode);
@@ -246,7 +242,7 @@ public class CardService {
                 .uri(URI.create(API_URL + "/cards/" + cardId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на удаление карты, статус: {}", statusCode);
@@ -284,7 +280,7 @@ public class CardService {
                     .uri(URI.create(API_URL + "/cards/" + cardId + "/add"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -359,7 +355,7 @@ public class CardService {
                     .uri(URI.create(API_URL + "/cards/" + cardId + "/deduct"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -418,7 +414,7 @@ public class CardService {
                 .uri(URI.create(API_URL + "/cards/number/" + cardNumber))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос карты по номеру, статус: {}", statusCode);
@@ -461,7 +457,7 @@ public class CardService {
                 .uri(URI.create(API_URL + "/cards/user/" + userId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос карт пользователя, статус: {}", statusCode);
@@ -0,0 +1,182 @@
+package client.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import common.dto.ChangeEvent;
+import common.dto.ChangeEvent.Topic;
+import common.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис получения событий об изменениях с сервера по WebSocket (/api/events).
+ * При обрыве соединения переподключается с нарастающей задержкой; после
+ * переподключения вызывается обработчик ресинхронизации, так как часть событий могла быть пропущена.
+ */
+public class EventStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamService.class);
+    private static final String EVENTS_PATH = "/api/events";
+    private static final long MIN_RECONNECT_DELAY_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    private final HttpClient httpClient;
+    private final Set<Topic> topics;
+    private final Map<Topic, List<Consumer<ChangeEvent>>> listeners = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    private volatile WebSocket webSocket;
+    private volatile boolean closed;
+    private volatile Runnable resyncHandler;
+    private volatile long reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+    private volatile boolean connectedBefore;
+
+    /**
+     * @param topics темы, на которые подписывается клиент
+     */
+    public EventStreamService(Set<Topic> topics) {
+        this.topics = EnumSet.copyOf(topics);
+        this.httpClient = HttpTransport.getInstance().client();
+        this.executor = HttpTransport.getInstance().executor();
+    }
+
+    /**
+     * Регистрирует обработчик событий темы. Обработчик вызывается не в потоке JavaFX.
+     * @param topic тема
+     * @param listener обработчик
+     */
+    public void addListener(Topic topic, Consumer<ChangeEvent> listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Задает действие, выполняемое после восстановления соединения
+     * @param resyncHandler обработчик, например полная перезагрузка списка
+     */
+    public void setResyncHandler(Runnable resyncHandler) {
+        this.resyncHandler = resyncHandler;
+    }
+
+    /**
+     * Открывает соединение с сервером
+     */
+    public void connect() {
+        closed = false;
+        executor.execute(this::openSocket);
+    }
+
+    /**
+     * Закрывает соединение и прекращает переподключения
+     */
+    public void close() {
+        closed = true;
+        WebSocket current = webSocket;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "logout");
+        }
+    }
+
+    private void openSocket() {
+        if (closed) {
+            return;
+        }
+        String topicList = topics.stream().map(Enum::name).collect(Collectors.joining(","));
+        URI uri = URI.create("ws://" + Constants.SERVER_HOST + ":" + Constants.SERVER_PORT
+                + EVENTS_PATH + "?topics=" + topicList);
+
+        httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, new Listener())
+                .whenComplete((socket, error) -> {
+                    if (error != null) {
+                        logger.debug("Не удалось подключиться к каналу событий: {}", error.getMessage());
+                        scheduleReconnect();
+                        return;
+                    }
+                    webSocket = socket;
+                    reconnectDelayMs = MIN_RECONNECT_DELAY_MS;
+                    logger.info("Подключен канал событий, темы: {}", topicList);
+
+                    Runnable resync = resyncHandler;
+                    if (connectedBefore && resync != null) {
+                        resync.run();
+                    }
+                    connectedBefore = true;
+                });
+    }
+
+    private void scheduleReconnect() {
+        webSocket = null;
+        if (closed) {
+            return;
+        }
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(MAX_RECONNECT_DELAY_MS, reconnectDelayMs * 2);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor).execute(this::openSocket);
+    }
+
+    private void dispatch(String json) {
+        try {
+            List<ChangeEvent> events = ServiceUtils.OBJECT_MAPPER.readValue(json, new TypeReference<List<ChangeEvent>>() {});
+            for (ChangeEvent event : events) {
+                List<Consumer<ChangeEvent>> topicListeners = listeners.get(event.getTopic());
+                if (topicListeners == null) {
+                    continue;
+                }
+                for (Consumer<ChangeEvent> listener : topicListeners) {
+                    try {
+                        listener.accept(event);
+                    } catch (Exception e) {
+                        logger.error("Ошибка в обработчике события {}", event, e);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при разборе событий сервера", e);
+        }
+    }
+
+    private class Listener implements WebSocket.Listener {
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                String message = buffer.toString();
+                buffer.setLength(0);
+                dispatch(message);
+            }
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            logger.info("Канал событий закрыт сервером: {} {}", statusCode, reason);
+            scheduleReconnect();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            logger.warn("Ошибка канала событий: {}", error.getMessage());
+            scheduleReconnect();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package client.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Общий сетевой слой клиента: один HttpClient (и один пул соединений) и один пул потоков
+ * на все сервисы вместо своих в каждом сервисе.
+ * <ul>
+ *     <li>одинаковые GET-запросы, отправленные, пока первый еще выполняется, получают его ответ
+ *     (объединяются запросы с телом {@link #STRING} или {@link #BYTES}, одним адресом, Accept и токеном);</li>
+ *     <li>запрос без своего таймаута получает таймаут по умолчанию;</li>
+ *     <li>идемпотентные запросы (GET, HEAD, PUT, DELETE) повторяются при сетевой ошибке, таймауте
+ *     и ответах 502, 503, 504 с экспоненциальной задержкой и случайным разбросом, чтобы клиенты
+ *     не повторяли запросы к перезапущенному серверу одновременно; POST не повторяется никогда;</li>
+ *     <li>время каждого запроса пишется в журнал и накапливается по адресам, в которых ID заменены
+ *     на {id}; сводка выводится {@link #logStatistics()}.</li>
+ * </ul>
+ */
+public final class HttpTransport {
+    private static final Logger logger = LoggerFactory.getLogger(HttpTransport.class);
+
+    /** Обработчики тела ответа, при которых одинаковые GET-запросы объединяются */
+    public static final HttpResponse.BodyHandler<String> STRING = HttpResponse.BodyHandlers.ofString();
+    public static final HttpResponse.BodyHandler<byte[]> BYTES = HttpResponse.BodyHandlers.ofByteArray();
+
+    /** Таймаут для долгих операций: выгрузок отчетов и копий, восстановления из копии */
+    public static final Duration LONG_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MS = 200;
+    private static final long RETRY_MAX_DELAY_MS = 2000;
+    private static final long SLOW_REQUEST_MS = 1000;
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE");
+    private static final Set<Integer> RETRY_STATUSES = Set.of(502, 503, 504);
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final HttpTransport INSTANCE = new HttpTransport();
+
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final Map<List<Object>, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> statistics = new ConcurrentHashMap<>();
+
+    private HttpTransport() {
+        AtomicInteger threads = new AtomicInteger();
+        // Потоки создаются по мере надобности и завершаются после минуты простоя: блокирующие вызовы
+        // сервисов и обработка ответов HttpClient не ждут друг друга, а простаивающий клиент не держит потоков
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "client-io-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Сервер отвечает по HTTP/1.1: без попытки перехода на HTTP/2 в каждом запросе
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(executor)
+                .build();
+    }
+
+    public static HttpTransport getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return общий HttpClient (например, для WebSocket)
+     */
+    public HttpClient client() {
+        return httpClient;
+    }
+
+    /**
+     * @return общий пул потоков для обработки ответов и фоновых операций сервисов
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Отправляет запрос асинхронно
+     * @param request запрос
+     * @param handler обработчик тела ответа
+     * @return ответ; при ошибке после всех попыток future завершается исключением последней попытки
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        if (!"GET".equals(request.method()) || (handler != STRING && handler != BYTES)) {
+            return execute(request, handler);
+        }
+        List<Object> key = Arrays.asList(request.uri(), request.headers().firstValue("Accept").orElse(""),
+                request.headers().firstValue("Authorization").orElse(""), handler);
+        CompletableFuture<HttpResponse<T>> started = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<T>> running =
+                (CompletableFuture<HttpResponse<T>>) inFlight.putIfAbsent(key, started);
+        if (running != null) {
+            logger.debug("Запрос {} уже выполняется, используется его ответ", request.uri());
+            return running.copy();
+        }
+        execute(request, handler).whenComplete((response, error) -> {
+            // Запросы, отправленные после получения ответа, идут на сервер заново
+            inFlight.remove(key, started);
+            if (error != null) {
+                started.completeExceptionally(error);
+            } else {
+                started.complete(response);
+            }
+        });
+        return started.copy();
+    }
+
+    /**
+     * Отправляет запрос и ждет ответа (для кода, уже выполняемого в фоновом потоке)
+     * @param request запрос
+     * @param handler обработчик тела ответа
+     * @return ответ
+     * @throws IOException при сетевой ошибке после всех попыток
+     * @throws InterruptedException если ожидание прервано
+     */
+    public <T> HttpResponse<T> sendSync(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        try {
+            return send(request, handler).get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Выводит в журнал число запросов, ошибок и время ответа по каждому адресу
+     */
+    public void logStatistics() {
+        statistics.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    EndpointStats stats = entry.getValue();
+                    long count = stats.count.sum();
+                    logger.info("{}: запросов {}, ошибок {}, повторов {}, среднее {} мс, максимум {} мс",
+                            entry.getKey(), count, stats.errors.sum(), stats.retries.sum(),
+                            count > 0 ? stats.totalMs.sum() / count : 0, stats.maxMs.get());
+                });
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        HttpRequest timed = request.timeout().isPresent() ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(DEFAULT_TIMEOUT).build();
+        int attempts = IDEMPOTENT_METHODS.contains(request.method()) ? MAX_ATTEMPTS : 1;
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        attempt(timed, handler, attempts, 1, endpointOf(request), result);
+        return result;
+    }
+
+    private <T> void attempt(HttpRequest request, HttpResponse.BodyHandler<T> handler, int attempts, int attempt,
+                             String endpoint, CompletableFuture<HttpResponse<T>> result) {
+        long started = System.nanoTime();
+        httpClient.sendAsync(request, handler).whenComplete((response, error) -> {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            Throwable cause = unwrap(error);
+            boolean retry = attempt < attempts && (cause instanceof IOException
+                    || (response != null && RETRY_STATUSES.contains(response.statusCode())));
+            record(endpoint, elapsedMs, response, cause, attempt, retry);
+            if (retry) {
+                discard(response);
+                long delay = retryDelay(attempt);
+                logger.info("{}: {}, повтор через {} мс (попытка {} из {})", endpoint,
+                        cause != null ? cause.toString() : "код " + response.statusCode(), delay, attempt + 1, attempts);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor)
+                        .execute(() -> attempt(request, handler, attempts, attempt + 1, endpoint, result));
+            } else if (cause != null) {
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(response);
+            }
+        });
+    }
+
+    private void record(String endpoint, long elapsedMs, HttpResponse<?> response, Throwable cause,
+                        int attempt, boolean retry) {
+        EndpointStats stats = statistics.computeIfAbsent(endpoint, e -> new EndpointStats());
+        stats.count.increment();
+        stats.totalMs.add(elapsedMs);
+        stats.maxMs.accumulate(elapsedMs);
+        if (cause != null || response.statusCode() >= 500) {
+            stats.errors.increment();
+        }
+        if (retry) {
+            stats.retries.increment();
+        }
+        String outcome = cause != null ? cause.getClass().getSimpleName() : String.valueOf(response.statusCode());
+        if (elapsedMs >= SLOW_REQUEST_MS) {
+            logger.info("Медленный запрос {}: {} за {} мс (попытка {})", endpoint, outcome, elapsedMs, attempt);
+        } else {
+            logger.debug("{}: {} за {} мс (попытка {})", endpoint, outcome, elapsedMs, attempt);
+        }
+    }
+
+    /**
+     * Задержка перед повтором: удваивается с каждой попыткой, случайна во второй половине интервала
+     */
+    private static long retryDelay(int attempt) {
+        long ceiling = Math.min(RETRY_MAX_DELAY_MS, RETRY_BASE_DELAY_MS << (attempt - 1));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static void discard(HttpResponse<?> response) {
+        // Поток тела неудачной попытки нужно закрыть, иначе соединение не вернется в пул
+        if (response != null && response.body() instanceof Closeable) {
+            try {
+                ((Closeable) response.body()).close();
+            } catch (IOException e) {
+                logger.debug("Не удалось закрыть тело ответа", e);
+            }
+        }
+    }
+
+    private static String endpointOf(HttpRequest request) {
+        URI uri = request.uri();
+        return request.method() + " " + ID_SEGMENT.matcher(uri.getPath()).replaceAll("/{id}");
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static final class EndpointStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder totalMs = new LongAdder();
+        final LongAccumulator maxMs = new LongAccumulator(Math::max, 0);
+    }
+}
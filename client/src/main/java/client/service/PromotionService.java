@@ -13,19 +13,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import common.dto.PromotionStatisticsDTO;
@@ -46,74 +43,38 @@ public class PromotionService {
     private static final Logger logger = LoggerFactory.getLogger(PromotionService.class);
     
     private static final String API_URL = ServiceUtils.getApiUrl();
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String authToken;
     private final Executor executor;
     
     public PromotionService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.transport = HttpTransport.getInstance();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
         this.objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         this.objectMapper.configure(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         this.objectMapper.findAndRegisterModules();
-        this.executor = Executors.newFixedThreadPool(5);
+        this.executor = transport.executor();
     }
     
     /**
-     * Получает список всех акций
+     * Получает список всех акций: синхронизирует локальный кэш справочника с сервером
+     * и возвращает его содержимое (при недоступности сервера - сохраненную копию)
      * @return список акций
      */
     public CompletableFuture<List<Promotion>> getAllPromotions() {
         logger.debug("Запрос на получение всех акций");
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .header("Authorization", "Bearer " + authToken)
-                .uri(URI.create(API_URL + "/promotions"))
-                .build();
-        
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
-                    logger.debug("Получен ответ от сервера с кодом: {}", response.statusCode());
-                    
-                    if (response.statusCode() == 200) {
-                        try {
-                    String responseBody = response.body();
-                            logger.debug("Тело ответа: {}", responseBody);
-                    
-                            ApiResponse<List<Promotion>> apiResponse = objectMapper.readValue(
-                                    responseBody,
-                                    new TypeReference<ApiResponse<List<Promotion>>>() {}
-                            );
-                            
-                            if (apiResponse.isSuccess() && apiResponse.getData() != null) {
-                                List<Promotion> promotions = apiResponse.getData();
-                                logger.debug("Успешно получено {} акций", promotions.size());
-                                return promotions;
-                            } else {
-                                logger.error("Ошибка при получении акций: {}", 
-                                    apiResponse.getErrorMessage() != null ? apiResponse.getErrorMessage() : "Неизвестная ошибка");
-                                return new ArrayList<Promotion>();
-                            }
-                        } catch (Exception e) {
-                            logger.error("Ошибка при обработке ответа сервера: {}", e.getMessage(), e);
-                            return new ArrayList<Promotion>();
-                        }
-                    } else {
-                        logger.error("Ошибка при получении акций. Код ответа: {}", response.statusCode());
-                        return new ArrayList<Promotion>();
-                    }
-                })
-                .exceptionally(e -> {
-                    logger.error("Ошибка при выполнении запроса на получение акций: {}", e.getMessage(), e);
-                    return new ArrayList<Promotion>();
-                });
+        return ReferenceCache.getInstance().sync(ReferenceCache.PROMOTIONS, authToken);
+    }
+    
+    /**
+     * Возвращает акции из локального кэша без обращения к серверу (для мгновенного показа окна)
+     * @return сохраненный список акций или пустой список
+     */
+    public List<Promotion> getCachedPromotions() {
+        return ReferenceCache.getInstance().getCached(ReferenceCache.PROMOTIONS);
     }
     
     /**
@@ -136,7 +97,7 @@ public class PromotionService {
                     .timeout(Duration.ofSeconds(30))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -221,7 +182,7 @@ public class PromotionService {
                     .uri(URI.create(API_URL + "/promotions/" + promotion.getId()))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -282,7 +243,7 @@ public class PromotionService {
                 .uri(URI.create(API_URL + "/promotions/" + promotionId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос удаления акции, статус: {}", statusCode);
@@ -298,48 +259,21 @@ public class PromotionService {
     }
     
     /**
-     * Получает список всех промокодов
+     * Получает список всех промокодов: синхронизирует локальный кэш справочника с сервером
+     * и возвращает его содержимое (при недоступности сервера - сохраненную копию)
      * @return список промокодов
      */
     public CompletableFuture<List<PromoCode>> getAllPromoCodes() {
         logger.debug("Запрос на получение всех промокодов");
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .header("Authorization", "Bearer " + authToken)
-                .uri(URI.create(API_URL + "/promo-codes"))
-                .build();
-        
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApplyAsync(response -> {
-                    int statusCode = response.statusCode();
-                    String responseBody = response.body();
-                    logger.debug("Получен ответ на запрос всех промокодов, статус: {}, body: {}", statusCode, responseBody);
-                    
-                    if (statusCode == 200) {
-                        try {
-                            ApiResponse<List<PromoCode>> apiResponse = objectMapper.readValue(
-                                    responseBody,
-                                    new TypeReference<ApiResponse<List<PromoCode>>>() {}
-                            );
-                            
-                            if (apiResponse.isSuccess()) {
-                                List<PromoCode> promoCodes = apiResponse.getData();
-                                logger.info("Успешно получено {} промокодов", promoCodes.size());
-                                return promoCodes;
-                            } else {
-                                logger.error("Ошибка при получении промокодов: {}", apiResponse.getErrorMessage());
-                                return Collections.emptyList();
-                            }
-                        } catch (Exception e) {
-                            logger.error("Ошибка при разборе ответа", e);
-                            return Collections.emptyList();
-                        }
-                    } else {
-                        logger.error("Ошибка при получении промокодов, код: {}", statusCode);
-                        return Collections.emptyList();
-                    }
-                }, executor);
+        return ReferenceCache.getInstance().sync(ReferenceCache.PROMO_CODES, authToken);
+    }
+    
+    /**
+     * Возвращает промокоды из локального кэша без обращения к серверу
+     * @return сохраненный список промокодов или пустой список
+     */
+    public List<PromoCode> getCachedPromoCodes() {
+        return ReferenceCache.getInstance().getCached(ReferenceCache.PROMO_CODES);
     }
     
     /**
@@ -367,7 +301,7 @@ public class PromotionService {
                     .uri(URI.create(API_URL + "/promo-codes"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -397,7 +331,7 @@ public class PromotionService {
                             logger.error("Ошибка создания промокода. Код: {}", statusCode);
                             throw new CompletionException(new RuntimeException("Ошибка создания промокода. Код ошибки: " + statusCode));
                         }
-                    })
+                    }, executor)
                     .exceptionally(e -> {
                         logger.error("Ошибка создания промокода: {}", e.getMessage());
                         throw new CompletionException(e);
@@ -434,7 +368,7 @@ public class PromotionService {
                     .uri(URI.create(API_URL + "/promo-codes/" + promoCode.getId()))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -511,7 +445,7 @@ public class PromotionService {
                 .uri(URI.create(API_URL + "/promo-codes/" + promoCodeId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     String responseBody = response.body();
@@ -585,7 +519,7 @@ public class PromotionService {
                 .uri(URI.create(API_URL + "/promotions/statistics"))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     String responseBody = response.body();
@@ -668,7 +602,7 @@ public class PromotionService {
                         logger.error("Ошибка получения статистики акций. Код ошибки: {}", statusCode);
                         throw new CompletionException(new RuntimeException("Ошибка получения статистики. Код ошибки: " + statusCode));
                     }
-                });
+                }, executor);
     }
     
     /**
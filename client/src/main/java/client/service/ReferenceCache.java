@@ -0,0 +1,281 @@
+package client.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.dto.ApiResponse;
+import common.dto.ReferenceDelta;
+import common.model.PromoCode;
+import common.model.Promotion;
+import common.model.Setting;
+import common.model.User;
+import common.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Локальный кэш справочников (акции, промокоды, пользователи, настройки) на диске.
+ * Каждый справочник хранится в своем файле вместе с версией, выданной сервером, поэтому при запуске
+ * окна показывают сохраненные данные сразу, а синхронизация запрашивает у сервера
+ * (GET /api/sync/{entity}?updated_since=) только строки, измененные после этой версии.
+ * Файлы лежат в домашнем каталоге пользователя, отдельно для каждого сервера, и заменяются
+ * атомарно: прерванная запись не портит сохраненную копию.
+ */
+public final class ReferenceCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceCache.class);
+    /** Версия формата файлов; файлы другой версии не читаются, а справочник загружается заново */
+    private static final int FORMAT_VERSION = 1;
+    private static final String API_URL = ServiceUtils.getApiUrl();
+
+    public static final Entity<Promotion> PROMOTIONS = new Entity<>("promotions", Promotion.class, Promotion::getId);
+    public static final Entity<PromoCode> PROMO_CODES = new Entity<>("promocodes", PromoCode.class, PromoCode::getId);
+    public static final Entity<User> USERS = new Entity<>("users", User.class, User::getId);
+    // Настройки клиент различает по ключу; об удалении настройки сервер сообщает полной загрузкой
+    public static final Entity<Setting> SETTINGS = new Entity<>("settings", Setting.class, Setting::getKey);
+    private static final List<Entity<?>> ENTITIES = List.of(PROMOTIONS, PROMO_CODES, USERS, SETTINGS);
+    private static final ReferenceCache INSTANCE = new ReferenceCache();
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final HttpTransport transport;
+    private final Executor executor;
+    private final Map<String, Snapshot<?>> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<?>> running = new ConcurrentHashMap<>();
+
+    private ReferenceCache() {
+        this.directory = Paths.get(System.getProperty("user.home"), Constants.CLIENT_CACHE_DIR,
+                Constants.SERVER_HOST + "_" + Constants.SERVER_PORT);
+        this.objectMapper = ServiceUtils.OBJECT_MAPPER.copy()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.transport = HttpTransport.getInstance();
+        this.executor = transport.executor();
+    }
+
+    public static ReferenceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Читает все сохраненные справочники с диска в фоне, чтобы первые окна не ждали диска
+     */
+    public void preload() {
+        executor.execute(() -> ENTITIES.forEach(this::snapshot));
+    }
+
+    /**
+     * Синхронизирует все справочники в фоне (после входа в систему)
+     * @param authToken токен авторизации
+     */
+    public void syncAll(String authToken) {
+        ENTITIES.forEach(entity -> sync(entity, authToken));
+    }
+
+    /**
+     * Возвращает сохраненную копию справочника без обращения к серверу
+     * @param entity справочник
+     * @return строки справочника или пустой список, если он еще не загружался
+     */
+    public <T> List<T> getCached(Entity<T> entity) {
+        return new ArrayList<>(snapshot(entity).items);
+    }
+
+    /**
+     * Получает с сервера изменения справочника после сохраненной версии, применяет их и сохраняет результат.
+     * Одновременные запросы одного справочника объединяются в один.
+     * При ошибке возвращается сохраненная копия
+     * @param entity справочник
+     * @param authToken токен авторизации
+     * @return актуальные строки справочника
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<List<T>> sync(Entity<T> entity, String authToken) {
+        CompletableFuture<List<T>> started = new CompletableFuture<>();
+        CompletableFuture<?> existing = running.putIfAbsent(entity.name, started);
+        if (existing != null) {
+            return (CompletableFuture<List<T>>) existing;
+        }
+        CompletableFuture.supplyAsync(() -> snapshot(entity), executor)
+                .thenCompose(snapshot -> request(entity, snapshot.version, authToken)
+                        .thenApplyAsync(response -> apply(entity, snapshot, response), executor))
+                .whenComplete((items, e) -> {
+                    running.remove(entity.name, started);
+                    if (e != null) {
+                        logger.warn("Не удалось синхронизировать справочник {}, используется сохраненная копия: {}",
+                                entity.name, e.getMessage());
+                        started.complete(getCached(entity));
+                    } else {
+                        started.complete(items);
+                    }
+                });
+        return started;
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> request(Entity<?> entity, String version, String authToken) {
+        String uri = API_URL + "/sync/" + entity.name;
+        if (version != null) {
+            uri += "?updated_since=" + URLEncoder.encode(version, StandardCharsets.UTF_8);
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .GET()
+                .header("Authorization", "Bearer " + authToken)
+                .header("Accept", ServiceUtils.ACCEPT_BINARY)
+                .header("Accept-Encoding", ServiceUtils.ACCEPT_ENCODING)
+                .uri(URI.create(uri))
+                .build();
+        return transport.send(request, HttpTransport.BYTES);
+    }
+
+    private <T> List<T> apply(Entity<T> entity, Snapshot<T> snapshot, HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("код ответа " + response.statusCode());
+        }
+        ApiResponse<ReferenceDelta<T>> apiResponse;
+        try {
+            apiResponse = ServiceUtils.readBody(response, objectMapper, entity.deltaType(objectMapper));
+        } catch (IOException e) {
+            throw new IllegalStateException("ошибка разбора ответа: " + e.getMessage(), e);
+        }
+        ReferenceDelta<T> delta = apiResponse.getData();
+        if (!apiResponse.isSuccess() || delta == null) {
+            throw new IllegalStateException(apiResponse.getErrorMessage());
+        }
+        if (!delta.isFull() && delta.getItems().isEmpty() && delta.getDeleted().isEmpty()
+                && delta.getVersion().equals(snapshot.version)) {
+            logger.debug("Справочник {} не изменился", entity.name);
+            return new ArrayList<>(snapshot.items);
+        }
+
+        Map<Object, T> rows = new LinkedHashMap<>();
+        if (!delta.isFull()) {
+            for (T item : snapshot.items) {
+                rows.put(entity.key.apply(item), item);
+            }
+            for (Long id : delta.getDeleted()) {
+                rows.remove(id);
+            }
+        }
+        for (T item : delta.getItems()) {
+            rows.put(entity.key.apply(item), item);
+        }
+        Snapshot<T> updated = new Snapshot<>(FORMAT_VERSION, delta.getVersion(), new ArrayList<>(rows.values()));
+        snapshots.put(entity.name, updated);
+        logger.info("Справочник {} синхронизирован: {}, изменено {}, удалено {}, всего {}", entity.name,
+                delta.isFull() ? "полная загрузка" : "изменения", delta.getItems().size(),
+                delta.getDeleted().size(), updated.items.size());
+        write(entity, updated);
+        return new ArrayList<>(updated.items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Snapshot<T> snapshot(Entity<T> entity) {
+        return (Snapshot<T>) snapshots.computeIfAbsent(entity.name, name -> read(entity));
+    }
+
+    private <T> Snapshot<T> read(Entity<T> entity) {
+        Path file = fileOf(entity);
+        if (Files.isRegularFile(file)) {
+            try {
+                Snapshot<T> snapshot = objectMapper.readValue(file.toFile(), entity.snapshotType(objectMapper));
+                if (snapshot.formatVersion == FORMAT_VERSION && snapshot.items != null) {
+                    logger.debug("Справочник {} прочитан из кэша: {} строк", entity.name, snapshot.items.size());
+                    return snapshot;
+                }
+                logger.info("Кэш справочника {} другого формата, справочник будет загружен заново", entity.name);
+            } catch (IOException e) {
+                logger.warn("Кэш справочника {} поврежден, справочник будет загружен заново", entity.name, e);
+            }
+        }
+        return new Snapshot<>(FORMAT_VERSION, null, Collections.emptyList());
+    }
+
+    private void write(Entity<?> entity, Snapshot<?> snapshot) {
+        Path file = fileOf(entity);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, entity.name, ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), snapshot);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Данные в памяти уже обновлены; при следующем запуске справочник загрузится заново
+            logger.warn("Не удалось сохранить кэш справочника {}", entity.name, e);
+        }
+    }
+
+    private Path fileOf(Entity<?> entity) {
+        return directory.resolve(entity.name + ".json");
+    }
+
+    /**
+     * Справочник, хранимый в кэше
+     * @param <T> тип строк
+     */
+    public static final class Entity<T> {
+        final String name;
+        final Class<T> type;
+        final Function<T, Object> key;
+
+        private Entity(String name, Class<T> type, Function<T, Object> key) {
+            this.name = name;
+            this.type = type;
+            this.key = key;
+        }
+
+        JavaType deltaType(ObjectMapper mapper) {
+            JavaType delta = mapper.getTypeFactory().constructParametricType(ReferenceDelta.class, type);
+            return mapper.getTypeFactory().constructParametricType(ApiResponse.class, delta);
+        }
+
+        JavaType snapshotType(ObjectMapper mapper) {
+            return mapper.getTypeFactory().constructParametricType(Snapshot.class, type);
+        }
+    }
+
+    /**
+     * Содержимое файла кэша: версия формата, версия справочника на сервере и строки
+     * @param <T> тип строк
+     */
+    static final class Snapshot<T> {
+        public int formatVersion;
+        public String version;
+        public List<T> items;
+
+        // Default constructor for Jackson
+        Snapshot() {
+        }
+
+        Snapshot(int formatVersion, String version, List<T> items) {
+            this.formatVersion = formatVersion;
+            this.version = version;
+            this.items = items;
+        }
+    }
+}
@@ -3,18 +3,21 @@ package client.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import common.dto.ApiResponse;
+import common.model.ReportJob;
 import common.util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -23,7 +26,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Сервис для работы с отчетами
@@ -31,8 +33,11 @@ import java.util.concurrent.Executors;
 public class ReportService {
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
     private static final String API_URL = ServiceUtils.getApiUrl();
+    // Опрос состояния задания на отчет: первый через полсекунды, затем реже, но не реже раза в 5 секунд
+    private static final long JOB_POLL_INITIAL_MILLIS = 500;
+    private static final long JOB_POLL_MAX_MILLIS = 5_000;
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String authToken;
     private final Executor executor;
@@ -43,13 +48,10 @@ public class ReportService {
      */
     public ReportService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.transport = HttpTransport.getInstance();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.findAndRegisterModules();
-        this.executor = Executors.newFixedThreadPool(5);
+        this.executor = transport.executor();
     }
     
     /**
@@ -61,20 +63,13 @@ public class ReportService {
     public CompletableFuture<PointsReportData> getPointsReport(LocalDate fromDate, LocalDate toDate) {
         logger.debug("Запрос отчета о начисленных баллах с {} по {}", fromDate, toDate);
         
-        String url = API_URL + "/reports/points?from=" + fromDate + "&to=" + toDate;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = runReportJob("points", fromDate, toDate);
                 
                 if (response.statusCode() == 200) {
-                    ApiResponse<PointsReportData> apiResponse = objectMapper.readValue(
-                            response.body(),
+                    ApiResponse<PointsReportData> apiResponse = ServiceUtils.readBody(
+                            response, objectMapper,
                             new TypeReference<ApiResponse<PointsReportData>>() {}
                     );
                     
@@ -88,7 +83,7 @@ public class ReportService {
                     }
                 } else {
                     logger.error("Ошибка запроса отчета о начисленных баллах. Код: {}, Ответ: {}", 
-                            response.statusCode(), response.body());
+                            response.statusCode(), ServiceUtils.bodyAsString(response));
                     return createEmptyPointsReport();
                 }
             } catch (Exception e) {
@@ -108,53 +103,7 @@ public class ReportService {
     public CompletableFuture<Boolean> exportPointsReportToCsv(LocalDate fromDate, LocalDate toDate, String filePath) {
         logger.debug("Экспорт отчета о начисленных баллах в CSV");
         
-        return getPointsReport(fromDate, toDate)
-            .thenApply(reportData -> {
-                try {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    
-                    try (FileWriter writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-                        // Заголовок с BOM для корректной работы с кириллицей
-                        writer.write("\uFEFF"); // BOM для UTF-8
-                        writer.write("Отчет о начисленных баллах\n");
-                        writer.write("Период: " + fromDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + 
-                                " - " + toDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + "\n\n");
-                        
-                        // Заголовок таблицы
-                        writer.write("Дата;Номер карты;Имя пользователя;Баллы;Описание\n");
-                        
-                        // Данные
-                        for (PointsRecord record : reportData.getRecords()) {
-                            writer.write(record.getDate() + ";");
-                            writer.write(record.getCardNumber() + ";");
-                            writer.write(record.getUserName() + ";");
-                            writer.write(record.getPoints() + ";");
-                            writer.write(record.getDescription() + "\n");
-                        }
-                        
-                        // Статистика по дням
-                        writer.write("\nСтатистика по дням\n");
-                        writer.write("Дата;Количество баллов\n");
-                        for (Map.Entry<String, Integer> entry : reportData.getPointsByDay().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue() + "\n");
-                        }
-                        
-                        logger.info("Файл отчета о начисленных баллах успешно создан: {}", filePath);
-                        return true;
-                    }
-                } catch (IOException e) {
-                    logger.error("Ошибка при экспорте отчета о начисленных баллах в CSV", e);
-                    return false;
-                }
-            })
-            .exceptionally(e -> {
-                logger.error("Ошибка при получении данных для отчета о начисленных баллах", e);
-                return false;
-            });
+        return exportReportToCsv("points", fromDate, toDate, filePath);
     }
     
     /**
@@ -166,20 +115,13 @@ public class ReportService {
     public CompletableFuture<UserActivityReportData> getUserActivityReport(LocalDate fromDate, LocalDate toDate) {
         logger.debug("Запрос отчета по активности пользователей с {} по {}", fromDate, toDate);
         
-        String url = API_URL + "/reports/activity?from=" + fromDate + "&to=" + toDate;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = runReportJob("activity", fromDate, toDate);
                 
                 if (response.statusCode() == 200) {
-                    ApiResponse<UserActivityReportData> apiResponse = objectMapper.readValue(
-                            response.body(),
+                    ApiResponse<UserActivityReportData> apiResponse = ServiceUtils.readBody(
+                            response, objectMapper,
                             new TypeReference<ApiResponse<UserActivityReportData>>() {}
                     );
                     
@@ -194,7 +136,7 @@ public class ReportService {
                     }
                 } else {
                     logger.error("Ошибка запроса отчета по активности пользователей. Код: {}, Ответ: {}", 
-                            response.statusCode(), response.body());
+                            response.statusCode(), ServiceUtils.bodyAsString(response));
                     // Возвращаем заглушку в случае ошибки
                     return createMockUserActivityReport();
                 }
@@ -215,20 +157,13 @@ public class ReportService {
     public CompletableFuture<PromotionsReportData> getPromotionsReport(LocalDate fromDate, LocalDate toDate) {
         logger.debug("Запрос отчета по акциям с {} по {}", fromDate, toDate);
         
-        String url = API_URL + "/reports/promotions?from=" + fromDate + "&to=" + toDate;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = runReportJob("promotions", fromDate, toDate);
                 
                 if (response.statusCode() == 200) {
-                    ApiResponse<PromotionsReportData> apiResponse = objectMapper.readValue(
-                            response.body(),
+                    ApiResponse<PromotionsReportData> apiResponse = ServiceUtils.readBody(
+                            response, objectMapper,
                             new TypeReference<ApiResponse<PromotionsReportData>>() {}
                     );
                     
@@ -243,7 +178,7 @@ public class ReportService {
                     }
                 } else {
                     logger.error("Ошибка запроса отчета по акциям. Код: {}, Ответ: {}", 
-                            response.statusCode(), response.body());
+                            response.statusCode(), ServiceUtils.bodyAsString(response));
                     // Возвращаем заглушку в случае ошибки
                     return createMockPromotionsReport();
                 }
@@ -264,20 +199,13 @@ public class ReportService {
     public CompletableFuture<PromoCodesReportData> getPromoCodesReport(LocalDate fromDate, LocalDate toDate) {
         logger.debug("Запрос отчета по промокодам с {} по {}", fromDate, toDate);
         
-        String url = API_URL + "/reports/promocodes?from=" + fromDate + "&to=" + toDate;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = runReportJob("promocodes", fromDate, toDate);
                 
                 if (response.statusCode() == 200) {
-                    ApiResponse<PromoCodesReportData> apiResponse = objectMapper.readValue(
-                            response.body(),
+                    ApiResponse<PromoCodesReportData> apiResponse = ServiceUtils.readBody(
+                            response, objectMapper,
                             new TypeReference<ApiResponse<PromoCodesReportData>>() {}
                     );
                     
@@ -292,7 +220,7 @@ public class ReportService {
                     }
                 } else {
                     logger.error("Ошибка запроса отчета по промокодам. Код: {}, Ответ: {}", 
-                            response.statusCode(), response.body());
+                            response.statusCode(), ServiceUtils.bodyAsString(response));
                     // Возвращаем заглушку в случае ошибки
                     return createMockPromoCodesReport();
                 }
@@ -313,20 +241,13 @@ public class ReportService {
     public CompletableFuture<FinancialReportData> getFinancialReport(LocalDate fromDate, LocalDate toDate) {
         logger.debug("Запрос финансового отчета с {} по {}", fromDate, toDate);
         
-        String url = API_URL + "/reports/financial?from=" + fromDate + "&to=" + toDate;
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + authToken)
-                .GET()
-                .build();
-        
         return CompletableFuture.supplyAsync(() -> {
             try {
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<byte[]> response = runReportJob("financial", fromDate, toDate);
                 
                 if (response.statusCode() == 200) {
-                    ApiResponse<FinancialReportData> apiResponse = objectMapper.readValue(
-                            response.body(),
+                    ApiResponse<FinancialReportData> apiResponse = ServiceUtils.readBody(
+                            response, objectMapper,
                             new TypeReference<ApiResponse<FinancialReportData>>() {}
                     );
                     
@@ -341,7 +262,7 @@ public class ReportService {
                     }
                 } else {
                     logger.error("Ошибка запроса финансового отчета. Код: {}, Ответ: {}", 
-                            response.statusCode(), response.body());
+                            response.statusCode(), ServiceUtils.bodyAsString(response));
                     // Возвращаем заглушку в случае ошибки
                     return createMockFinancialReport();
                 }
@@ -363,65 +284,7 @@ public class ReportService {
     public CompletableFuture<Boolean> exportFinancialReportToCsv(LocalDate fromDate, LocalDate toDate, String filePath) {
         logger.debug("Экспорт финансового отчета в CSV");
         
-        return getFinancialReport(fromDate, toDate)
-            .thenApply(reportData -> {
-                try {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    
-                    try (FileWriter writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-                        // Заголовок
-                        writer.write("\uFEFF"); // BOM для UTF-8
-                        writer.write("Финансовый отчет\n");
-                        writer.write("Период: " + fromDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + 
-                                " - " + toDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + "\n\n");
-                        
-                        // Общие показатели
-                        writer.write("Общие показатели\n");
-                        writer.write("Общая выручка;");
-                        writer.write(String.format("%.2f", reportData.getTotalRevenue()) + "\n");
-                        writer.write("Количество транзакций;");
-                        writer.write(reportData.getTotalTransactions() + "\n");
-                        writer.write("Средний чек;");
-                        writer.write(String.format("%.2f", reportData.getAverageTransactionAmount()) + "\n");
-                        writer.write("Чистая прибыль;");
-                        writer.write(String.format("%.2f", reportData.getNetProfit()) + "\n\n");
-                        
-                        // Транзакции по дням
-                        writer.write("Транзакции по дням\n");
-                        writer.write("Дата;Количество;Сумма\n");
-                        
-                        for (Map.Entry<String, TransactionsByDay> entry : reportData.getTransactionsByDay().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue().getCount() + ";");
-                            writer.write(String.format("%.2f", entry.getValue().getAmount()) + "\n");
-                        }
-                        writer.write("\n");
-                        
-                        // Транзакции по типам
-                        writer.write("Транзакции по типам\n");
-                        writer.write("Тип;Количество;Сумма\n");
-                        
-                        for (Map.Entry<String, TransactionsByType> entry : reportData.getTransactionsByType().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue().getCount() + ";");
-                            writer.write(String.format("%.2f", entry.getValue().getAmount()) + "\n");
-                        }
-                        
-                        logger.info("Файл финансового отчета успешно создан: {}", filePath);
-                        return true;
-                    }
-                } catch (IOException e) {
-                    logger.error("Ошибка при экспорте финансового отчета в CSV", e);
-                    return false;
-                }
-            })
-            .exceptionally(e -> {
-                logger.error("Ошибка при получении данных для финансового отчета", e);
-                return false;
-            });
+        return exportReportToCsv("financial", fromDate, toDate, filePath);
     }
     
     /**
@@ -434,59 +297,7 @@ public class ReportService {
     public CompletableFuture<Boolean> exportPromoCodesReportToCsv(LocalDate fromDate, LocalDate toDate, String filePath) {
         logger.debug("Экспорт отчета по промокодам в CSV");
         
-        return getPromoCodesReport(fromDate, toDate)
-            .thenApply(reportData -> {
-                try {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    
-                    try (FileWriter writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-                        // Заголовок с BOM для корректной работы с кириллицей
-                        writer.write("\uFEFF"); // BOM для UTF-8
-                        writer.write("Отчет по промокодам\n");
-                        writer.write("Период: " + fromDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + 
-                                " - " + toDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + "\n\n");
-                        
-                        // Общие показатели
-                        writer.write("Общие показатели\n");
-                        writer.write("Всего промокодов;");
-                        writer.write(reportData.getTotalPromoCodes() + "\n");
-                        writer.write("Активные промокоды;");
-                        writer.write(reportData.getActivePromoCodes() + "\n");
-                        writer.write("Использовано промокодов;");
-                        writer.write(reportData.getUsedPromoCodes() + "\n");
-                        writer.write("Коэффициент конверсии;");
-                        writer.write(String.format("%.2f%%", reportData.getConversionRate() * 100) + "\n\n");
-                        
-                        // Список промокодов
-                        writer.write("Список промокодов\n");
-                        writer.write("Код;Описание;Дата начала;Дата окончания;Использований;Скидка\n");
-                        
-                        for (PromoCodeRecord record : reportData.getPromoCodeRecords()) {
-                            writer.write(record.getCode() + ";");
-                            writer.write(record.getDescription() + ";");
-                            writer.write(record.getValidFrom() + ";");
-                            writer.write(record.getValidTo() + ";");
-                            writer.write(record.getUsageCount() + ";");
-                            writer.write(record.getDiscountValue() != null ? 
-                                    String.format("%.2f", record.getDiscountValue()) : "0.00");
-                            writer.write("\n");
-                        }
-                        
-                        logger.info("Файл отчета по промокодам успешно создан: {}", filePath);
-                        return true;
-                    }
-                } catch (IOException e) {
-                    logger.error("Ошибка при экспорте отчета по промокодам в CSV", e);
-                    return false;
-                }
-            })
-            .exceptionally(e -> {
-                logger.error("Ошибка при получении данных для отчета по промокодам", e);
-                return false;
-            });
+        return exportReportToCsv("promocodes", fromDate, toDate, filePath);
     }
     
     /**
@@ -499,62 +310,7 @@ public class ReportService {
     public CompletableFuture<Boolean> exportUserActivityReportToCsv(LocalDate fromDate, LocalDate toDate, String filePath) {
         logger.debug("Экспорт отчета по активности пользователей в CSV");
         
-        return getUserActivityReport(fromDate, toDate)
-            .thenApply(reportData -> {
-                try {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    
-                    try (FileWriter writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-                        // Заголовок с BOM для корректной работы с кириллицей
-                        writer.write("\uFEFF"); // BOM для UTF-8
-                        writer.write("Отчет по активности пользователей\n");
-                        writer.write("Период: " + fromDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + 
-                                " - " + toDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + "\n\n");
-                        
-                        // Заголовок таблицы
-                        writer.write("Имя пользователя;Последний вход;Количество сессий;Общее время (мин.);Заработано баллов;Потрачено баллов\n");
-                        
-                        // Данные
-                        for (UserActivityRecord record : reportData.getRecords()) {
-                            writer.write(record.getUsername() + ";");
-                            writer.write(record.getLastLogin() + ";");
-                            writer.write(record.getSessionsCount() + ";");
-                            writer.write(record.getTotalMinutes() + ";");
-                            writer.write(record.getPointsEarned() + ";");
-                            writer.write(record.getPointsSpent() + "\n");
-                        }
-                        
-                        // Активность по дням
-                        writer.write("\nАктивность по дням\n");
-                        writer.write("Дата;Количество сессий\n");
-                        for (Map.Entry<String, Integer> entry : reportData.getActivityByDay().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue() + "\n");
-                        }
-                        
-                        // Сессии по пользователям
-                        writer.write("\nСессии по пользователям\n");
-                        writer.write("Пользователь;Количество сессий\n");
-                        for (Map.Entry<String, Integer> entry : reportData.getSessionsByUser().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue() + "\n");
-                        }
-                        
-                        logger.info("Файл отчета по активности пользователей успешно создан: {}", filePath);
-                        return true;
-                    }
-                } catch (IOException e) {
-                    logger.error("Ошибка при экспорте отчета по активности пользователей в CSV", e);
-                    return false;
-                }
-            })
-            .exceptionally(e -> {
-                logger.error("Ошибка при получении данных для отчета по активности пользователей", e);
-                return false;
-            });
+        return exportReportToCsv("activity", fromDate, toDate, filePath);
     }
     
     /**
@@ -567,62 +323,122 @@ public class ReportService {
     public CompletableFuture<Boolean> exportPromotionsReportToCsv(LocalDate fromDate, LocalDate toDate, String filePath) {
         logger.debug("Экспорт отчета по акциям в CSV");
         
-        return getPromotionsReport(fromDate, toDate)
-            .thenApply(reportData -> {
-                try {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    
-                    try (FileWriter writer = new FileWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-                        // Заголовок с BOM для корректной работы с кириллицей
-                        writer.write("\uFEFF"); // BOM для UTF-8
-                        writer.write("Отчет по акциям\n");
-                        writer.write("Период: " + fromDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + 
-                                " - " + toDate.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")) + "\n\n");
-                        
-                        // Заголовок таблицы
-                        writer.write("Название;Описание;Дата начала;Дата окончания;Количество участников;Эффективность\n");
-                        
-                        // Данные
-                        for (PromotionRecord record : reportData.getRecords()) {
-                            writer.write(record.getName() + ";");
-                            writer.write(record.getDescription() + ";");
-                            writer.write(record.getStartDate() + ";");
-                            writer.write(record.getEndDate() + ";");
-                            writer.write(record.getParticipantsCount() + ";");
-                            writer.write(String.format("%.2f", record.getEffectiveness()) + "\n");
-                        }
-                        
-                        // Популярность по акциям
-                        writer.write("\nПопулярность по акциям\n");
-                        writer.write("Акция;Количество участников\n");
-                        for (Map.Entry<String, Integer> entry : reportData.getPopularityByPromotion().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(entry.getValue() + "\n");
-                        }
-                        
-                        // Эффективность по типам
-                        writer.write("\nЭффективность по типам\n");
-                        writer.write("Тип акции;Эффективность\n");
-                        for (Map.Entry<String, Double> entry : reportData.getEffectivenessByType().entrySet()) {
-                            writer.write(entry.getKey() + ";");
-                            writer.write(String.format("%.2f", entry.getValue()) + "\n");
-                        }
-                        
-                        logger.info("Файл отчета по акциям успешно создан: {}", filePath);
-                        return true;
+        return exportReportToCsv("promotions", fromDate, toDate, filePath);
+    }
+    
+    /**
+     * Выгружает отчет в CSV: сервер формирует его построчно, а тело ответа пишется прямо в файл,
+     * поэтому выгрузка за любой период не требует памяти под весь отчет.
+     * Данные сначала пишутся в файл с расширением .part и переименовываются после полной загрузки,
+     * чтобы оборванная выгрузка не оставила неполный отчет под выбранным именем.
+     * @param type тип отчета на сервере (points, activity, promotions, promocodes, financial)
+     * @param fromDate начальная дата
+     * @param toDate конечная дата
+     * @param filePath путь к файлу
+     * @return результат операции
+     */
+    private CompletableFuture<Boolean> exportReportToCsv(String type, LocalDate fromDate, LocalDate toDate,
+                                                         String filePath) {
+        String url = API_URL + "/reports/" + type + ".csv?from=" + fromDate + "&to=" + toDate;
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Authorization", "Bearer " + authToken)
+                .header("Accept-Encoding", ServiceUtils.ACCEPT_ENCODING)
+                .timeout(HttpTransport.LONG_TIMEOUT)
+                .GET()
+                .build();
+        
+        return CompletableFuture.supplyAsync(() -> {
+            Path target = Paths.get(filePath).toAbsolutePath();
+            Path partFile = target.resolveSibling(target.getFileName() + ".part");
+            try {
+                HttpResponse<InputStream> response = transport.sendSync(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = ServiceUtils.openStream(response)) {
+                    if (response.statusCode() != 200) {
+                        logger.error("Ошибка выгрузки отчета {} в CSV. Код: {}, Ответ: {}", type,
+                                response.statusCode(), new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                        return false;
                     }
-                } catch (IOException e) {
-                    logger.error("Ошибка при экспорте отчета по акциям в CSV", e);
-                    return false;
+                    Files.createDirectories(target.getParent());
+                    Files.copy(body, partFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+                
+                logger.info("Файл отчета {} успешно создан: {}", type, filePath);
+                return true;
+            } catch (Exception e) {
+                logger.error("Ошибка при экспорте отчета {} в CSV", type, e);
+                try {
+                    Files.deleteIfExists(partFile);
+                } catch (IOException ex) {
+                    logger.warn("Не удалось удалить временный файл {}", partFile, ex);
                 }
-            })
-            .exceptionally(e -> {
-                logger.error("Ошибка при получении данных для отчета по акциям", e);
                 return false;
-            });
+            }
+        }, executor);
+    }
+    
+    /**
+     * Формирует отчет фоновым заданием сервера: ставит задание в очередь, опрашивает его состояние
+     * с растущим интервалом и скачивает результат. Пока отчет формируется, запрос не занимает
+     * поток и соединение сервера.
+     * @param type тип отчета на сервере (points, activity, promotions, promocodes, financial)
+     * @param fromDate начальная дата
+     * @param toDate конечная дата
+     * @return ответ с результатом (ApiResponse с данными отчета) или ответ сервера с ошибкой
+     * @throws IOException если задание завершилось ошибкой или отменено
+     * @throws InterruptedException если ожидание прервано
+     */
+    private HttpResponse<byte[]> runReportJob(String type, LocalDate fromDate, LocalDate toDate)
+            throws IOException, InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("type", type);
+        body.put("format", ReportJob.FORMAT_JSON);
+        body.put("from", fromDate.toString());
+        body.put("to", toDate.toString());
+        HttpRequest submit = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL + "/reports/jobs"))
+                .header("Authorization", "Bearer " + authToken)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        
+        HttpResponse<byte[]> response = transport.sendSync(submit, HttpTransport.BYTES);
+        if (response.statusCode() != 202) {
+            return response;
+        }
+        ReportJob job = ServiceUtils.readBody(response, objectMapper, new TypeReference<ApiResponse<ReportJob>>() {})
+                .getData();
+        logger.debug("Задание на отчет {} поставлено в очередь: {}", type, job.getId());
+        
+        HttpRequest status = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL + "/reports/jobs/" + job.getId()))
+                .header("Authorization", "Bearer " + authToken)
+                .GET()
+                .build();
+        long delay = JOB_POLL_INITIAL_MILLIS;
+        while (!job.isFinished()) {
+            Thread.sleep(delay);
+            delay = Math.min(delay * 2, JOB_POLL_MAX_MILLIS);
+            response = transport.sendSync(status, HttpTransport.BYTES);
+            if (response.statusCode() != 200) {
+                return response;
+            }
+            job = ServiceUtils.readBody(response, objectMapper, new TypeReference<ApiResponse<ReportJob>>() {})
+                    .getData();
+        }
+        if (!ReportJob.STATUS_DONE.equals(job.getStatus())) {
+            throw new IOException("Задание на отчет " + job.getId() + " не выполнено (" + job.getStatus() + "): "
+                    + job.getErrorMessage());
+        }
+        
+        HttpRequest result = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL + "/reports/jobs/" + job.getId() + "/result"))
+                .header("Authorization", "Bearer " + authToken)
+                .header("Accept-Encoding", ServiceUtils.ACCEPT_ENCODING)
+                .GET()
+                .build();
+        return transport.sendSync(result, HttpTransport.BYTES);
     }
     
     // Вспомогательные методы для создания заглушек отчетов
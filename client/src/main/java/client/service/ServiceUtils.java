@@ -1,9 +1,24 @@
 package client.service;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import common.util.Constants;
+import common.util.WireFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Утилитарный класс для сервисных классов
@@ -14,6 +29,22 @@ public class ServiceUtils {
      */
     public static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
     
+    /**
+     * Значение заголовка Accept для запросов больших списков: сервер отвечает в Smile, если поддерживает его
+     */
+    public static final String ACCEPT_BINARY = WireFormat.ACCEPT_BINARY;
+    
+    /**
+     * Значение заголовка Accept-Encoding: HttpClient не распаковывает ответы сам, это делает {@link #readBody}
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+    
+    /**
+     * Двоичные ObjectMapper, построенные на основе JSON-маппера сервиса (с теми же настройками)
+     */
+    private static final Map<ObjectMapper, Map<WireFormat, ObjectMapper>> BINARY_MAPPERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    
     /**
      * Приватный конструктор для запрета инстанцирования
      */
@@ -37,6 +68,101 @@ public class ServiceUtils {
         return mapper;
     }
     
+    /**
+     * Разбирает тело ответа в формате, указанном сервером в Content-Type (JSON, Smile или CBOR),
+     * предварительно распаковав его по Content-Encoding
+     * @param response ответ с телом в виде массива байт
+     * @param jsonMapper маппер сервиса, настройки которого используются для любого формата
+     * @param type тип результата
+     * @return разобранное тело ответа
+     * @throws IOException при ошибке разбора
+     */
+    public static <T> T readBody(HttpResponse<byte[]> response, ObjectMapper jsonMapper, TypeReference<T> type)
+            throws IOException {
+        WireFormat format = WireFormat.fromContentType(
+                response.headers().firstValue("Content-Type").orElse(null));
+        try (InputStream body = openBody(response)) {
+            return mapperFor(jsonMapper, format).readValue(body, type);
+        }
+    }
+    
+    /**
+     * То же, что {@link #readBody(HttpResponse, ObjectMapper, TypeReference)}, для типа, построенного
+     * во время выполнения (например, обобщенного DTO с параметром-классом)
+     * @param response ответ с телом в виде массива байт
+     * @param jsonMapper маппер сервиса, настройки которого используются для любого формата
+     * @param type тип результата
+     * @return разобранное тело ответа
+     * @throws IOException при ошибке разбора
+     */
+    public static <T> T readBody(HttpResponse<byte[]> response, ObjectMapper jsonMapper, JavaType type)
+            throws IOException {
+        WireFormat format = WireFormat.fromContentType(
+                response.headers().firstValue("Content-Type").orElse(null));
+        try (InputStream body = openBody(response)) {
+            return mapperFor(jsonMapper, format).readValue(body, type);
+        }
+    }
+    
+    /**
+     * Возвращает тело ответа строкой (для журналирования ошибок)
+     * @param response ответ с телом в виде массива байт
+     * @return распакованное тело ответа в UTF-8
+     */
+    public static String bodyAsString(HttpResponse<byte[]> response) {
+        try (InputStream body = openBody(response)) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "<" + response.body().length + " байт: " + e.getMessage() + ">";
+        }
+    }
+    
+    /**
+     * Открывает тело ответа с учетом Content-Encoding (gzip, deflate)
+     * @param response ответ с телом в виде массива байт
+     * @return поток распакованного тела
+     * @throws IOException если тело повреждено
+     */
+    public static InputStream openBody(HttpResponse<byte[]> response) throws IOException {
+        return decode(new ByteArrayInputStream(response.body()), response);
+    }
+    
+    /**
+     * Открывает потоковое тело ответа с учетом Content-Encoding (gzip, deflate)
+     * @param response ответ с телом в виде потока
+     * @return поток распакованного тела
+     * @throws IOException если тело повреждено
+     */
+    public static InputStream openStream(HttpResponse<InputStream> response) throws IOException {
+        return decode(response.body(), response);
+    }
+    
+    private static InputStream decode(InputStream raw, HttpResponse<?> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim();
+        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(raw);
+        } else if (encoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(raw);
+        }
+        return raw;
+    }
+    
+    /**
+     * Возвращает маппер для указанного формата с настройками JSON-маппера
+     * @param jsonMapper исходный JSON-маппер
+     * @param format формат тела
+     * @return маппер для формата
+     */
+    public static ObjectMapper mapperFor(ObjectMapper jsonMapper, WireFormat format) {
+        if (!format.isBinary()) {
+            return jsonMapper;
+        }
+        synchronized (BINARY_MAPPERS) {
+            return BINARY_MAPPERS.computeIfAbsent(jsonMapper, m -> new EnumMap<>(WireFormat.class))
+                    .computeIfAbsent(format, f -> f.mapperFrom(jsonMapper));
+        }
+    }
+    
     /**
      * Возвращает базовый URL API
      * @return базовый URL API
@@ -8,17 +8,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Сервис для работы с настройками системы
@@ -27,7 +25,7 @@ public class SettingsService {
     private static final Logger logger = LoggerFactory.getLogger(SettingsService.class);
     private static final String API_URL = ServiceUtils.getApiUrl();
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String authToken;
     private final Executor executor;
@@ -70,48 +68,37 @@ public class SettingsService {
      */
     public SettingsService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.transport = HttpTransport.getInstance();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.findAndRegisterModules();
-        this.executor = Executors.newFixedThreadPool(5);
+        this.executor = transport.executor();
     }
     
     /**
-     * Получает все настройки системы
+     * Получает все настройки системы: синхронизирует локальный кэш справочника с сервером
+     * и возвращает его содержимое (при недоступности сервера - сохраненную копию)
      * @return карта с ключами и значениями настроек
      */
     public CompletableFuture<Map<String, SettingValue>> getAllSettings() {
         logger.debug("Запрос всех настроек системы");
-        
-                HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                        .header("Authorization", "Bearer " + authToken)
-                .uri(URI.create(API_URL + "/settings"))
-                        .build();
-                
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApplyAsync(response -> {
-                int statusCode = response.statusCode();
-                    logger.debug("Получен ответ на запрос настроек, статус: {}", statusCode);
-                
-                if (statusCode == 200) {
-                    try {
-                            return objectMapper.readValue(
-                                response.body(), 
-                                    new TypeReference<Map<String, SettingValue>>() {}
-                            );
-                        } catch (Exception e) {
-                            logger.error("Ошибка при разборе ответа", e);
-                            return Collections.emptyMap();
-                        }
-                    } else {
-                        logger.error("Ошибка при получении настроек, код: {}", statusCode);
-                        return Collections.emptyMap();
-                    }
-                }, executor);
+        return ReferenceCache.getInstance().sync(ReferenceCache.SETTINGS, authToken)
+                .thenApply(SettingsService::toSettingValues);
+    }
+    
+    /**
+     * Возвращает настройки из локального кэша без обращения к серверу
+     * @return карта с ключами и значениями настроек или пустая карта
+     */
+    public Map<String, SettingValue> getCachedSettings() {
+        return toSettingValues(ReferenceCache.getInstance().getCached(ReferenceCache.SETTINGS));
+    }
+    
+    private static Map<String, SettingValue> toSettingValues(List<Setting> settings) {
+        Map<String, SettingValue> values = new HashMap<>();
+        for (Setting setting : settings) {
+            values.put(setting.getKey(), new SettingValue(setting.getValue(), setting.getDescription()));
+        }
+        return values;
     }
     
     /**
@@ -128,7 +115,7 @@ public class SettingsService {
                 .uri(URI.create(API_URL + "/settings/" + key))
                         .build();
                 
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                 int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос настройки, статус: {}", statusCode);
@@ -176,7 +163,7 @@ public class SettingsService {
                     .timeout(Duration.ofSeconds(30))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         String responseBody = response.body();
@@ -204,7 +191,7 @@ public class SettingsService {
                             logger.error("Ошибка при сохранении настройки, код: {}, ответ: {}", statusCode, responseBody);
                             return false;
                         }
-                    })
+                    }, executor)
                     .exceptionally(ex -> {
                         logger.error("Исключение при сохранении настройки: {}", ex.getMessage(), ex);
                         return false;
@@ -231,7 +218,7 @@ public class SettingsService {
                 .uri(URI.create(API_URL + "/settings/" + key))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на удаление настройки, статус: {}", statusCode);
@@ -275,7 +262,7 @@ public class SettingsService {
                 .uri(URI.create(API_URL + "/settings/" + key))
                         .build();
                 
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                 int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос настройки, статус: {}", statusCode);
@@ -320,7 +307,7 @@ public class SettingsService {
                     .uri(URI.create(API_URL + "/settings"))
                         .build();
                 
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                 int statusCode = response.statusCode();
                         logger.debug("Получен ответ на создание настройки, статус: {}", statusCode);
@@ -367,7 +354,7 @@ public class SettingsService {
                     .uri(URI.create(API_URL + "/settings/" + setting.getKey()))
                         .build();
                 
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                 int statusCode = response.statusCode();
                         logger.debug("Получен ответ на обновление настройки, статус: {}", statusCode);
@@ -8,15 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.Map;
 import java.nio.charset.StandardCharsets;
 
@@ -27,7 +23,7 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private static final String API_URL = ServiceUtils.getApiUrl();
     
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
     private final ObjectMapper objectMapper;
     private final String authToken;
     private final Executor executor;
@@ -38,49 +34,28 @@ public class UserService {
      */
     public UserService(String authToken) {
         this.authToken = authToken;
-        this.httpClient = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_2)
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.transport = HttpTransport.getInstance();
         this.objectMapper = new ObjectMapper();
         this.objectMapper.findAndRegisterModules();
-        this.executor = Executors.newFixedThreadPool(5);
+        this.executor = transport.executor();
     }
     
     /**
-     * Получает список всех пользователей
-     * @return список пользователей
+     * Получает список всех пользователей: синхронизирует локальный кэш справочника с сервером
+     * и возвращает его содержимое (при недоступности сервера - сохраненную копию)
+     * @return список пользователей (без паролей)
      */
     public CompletableFuture<List<User>> getAllUsers() {
         logger.debug("Запрос списка всех пользователей");
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .GET()
-                .header("Authorization", "Bearer " + authToken)
-                .uri(URI.create(API_URL + "/users"))
-                .build();
-        
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApplyAsync(response -> {
-                    int statusCode = response.statusCode();
-                    logger.debug("Получен ответ на запрос пользователей, статус: {}", statusCode);
-                    
-                    if (statusCode == 200) {
-                        try {
-                            ApiResponse<List<User>> apiResponse = objectMapper.readValue(
-                                    response.body(),
-                                    new TypeReference<ApiResponse<List<User>>>() {}
-                            );
-                            return apiResponse.getData();
-                        } catch (Exception e) {
-                            logger.error("Ошибка при разборе ответа", e);
-                            return Collections.emptyList();
-                        }
-                    } else {
-                        logger.error("Ошибка при получении пользователей, код: {}", statusCode);
-                        return Collections.emptyList();
-                    }
-                }, executor);
+        return ReferenceCache.getInstance().sync(ReferenceCache.USERS, authToken);
+    }
+    
+    /**
+     * Возвращает пользователей из локального кэша без обращения к серверу
+     * @return сохраненный список пользователей или пустой список
+     */
+    public List<User> getCachedUsers() {
+        return ReferenceCache.getInstance().getCached(ReferenceCache.USERS);
     }
     
     /**
@@ -97,7 +72,7 @@ public class UserService {
                 .uri(URI.create(API_URL + "/users/" + userId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на запрос пользователя, статус: {}", statusCode);
@@ -139,7 +114,7 @@ public class UserService {
                     .uri(URI.create(API_URL + "/users"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         logger.debug("Получен ответ на создание пользователя, статус: {}", statusCode);
@@ -194,7 +169,7 @@ public class UserService {
                     .uri(URI.create(API_URL + "/users/" + user.getId()))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         logger.debug("Получен ответ на обновление пользователя, статус: {}", statusCode);
@@ -237,7 +212,7 @@ public class UserService {
                 .uri(URI.create(API_URL + "/users/" + userId))
                 .build();
         
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return transport.send(request, HttpTransport.STRING)
                 .thenApplyAsync(response -> {
                     int statusCode = response.statusCode();
                     logger.debug("Получен ответ на удаление пользователя, статус: {}", statusCode);
@@ -267,7 +242,7 @@ public class UserService {
                     .uri(URI.create(API_URL + "/users/" + userId + "/change-password"))
                     .build();
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            return transport.send(request, HttpTransport.STRING)
                     .thenApplyAsync(response -> {
                         int statusCode = response.statusCode();
                         logger.debug("Получен ответ на смену пароля, статус: {}", statusCode);
@@ -4,6 +4,7 @@ import client.MainApp;
 import client.model.ProductItem;
 import client.model.Session;
 import client.service.CardService;
+import client.service.EventStreamService;
 import client.service.ScheduleService;
 import client.service.SessionService;
 import client.ui.admin.BackupViewController;
@@ -16,6 +17,7 @@ import client.ui.admin.reports.PromoCodesReportController;
 import client.ui.admin.reports.PromotionsReportController;
 import client.ui.admin.reports.UserActivityReportController;
 import common.dto.AuthResponse;
+import common.dto.ChangeEvent;
 import common.model.Card;
 import common.model.User;
 import javafx.application.Platform;
@@ -57,6 +59,7 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -152,6 +155,7 @@ public class MainViewController {
     private CardService cardService;
     private SessionService sessionService;
     private ScheduleService scheduleService;
+    private EventStreamService eventStreamService;
     private ObservableList<Card> cardsList = FXCollections.observableArrayList();
     private String authToken;
     
@@ -216,6 +220,69 @@ public class MainViewController {
         
         // Загрузка карт пользователя
         loadCards();
+        
+        // Дальнейшие изменения баланса приходят с сервера событиями
+        startEventStream();
+    }
+    
+    /**
+     * Подключается к каналу событий сервера и применяет изменения карт к уже загруженному списку
+     */
+    private void startEventStream() {
+        eventStreamService = new EventStreamService(EnumSet.of(ChangeEvent.Topic.CARDS));
+        eventStreamService.addListener(ChangeEvent.Topic.CARDS,
+                event -> Platform.runLater(() -> applyCardEvent(event)));
+        // После обрыва соединения события могли быть пропущены - перечитываем список целиком
+        eventStreamService.setResyncHandler(() -> Platform.runLater(this::loadCards));
+        eventStreamService.connect();
+    }
+    
+    /**
+     * Применяет событие изменения баланса к карте в списке
+     * @param event событие POINTS_CHANGED
+     */
+    private void applyCardEvent(ChangeEvent event) {
+        if (event.getType() != ChangeEvent.Type.POINTS_CHANGED) {
+            return;
+        }
+        
+        for (int i = 0; i < cardsList.size(); i++) {
+            Card card = cardsList.get(i);
+            if (!card.getId().equals(event.getEntityId())) {
+                continue;
+            }
+            
+            Object points = event.getData().get("points");
+            Object level = event.getData().get("level");
+            if (points instanceof Number) {
+                card.setPoints(((Number) points).intValue());
+                if (level instanceof Number) {
+                    card.setLevel(((Number) level).intValue());
+                }
+                cardsTable.refresh();
+            } else {
+                // Сервер не передал баланс: перечитываем только эту карту
+                cardService.getCardById(card.getId())
+                        .thenAccept(updated -> Platform.runLater(() -> replaceCardInList(updated)));
+            }
+            return;
+        }
+    }
+    
+    /**
+     * Заменяет карту в списке без изменения выделения
+     * @param updatedCard обновленная карта
+     */
+    private void replaceCardInList(Card updatedCard) {
+        if (updatedCard == null) {
+            return;
+        }
+        for (int i = 0; i < cardsList.size(); i++) {
+            if (cardsList.get(i).getId().equals(updatedCard.getId())) {
+                cardsList.set(i, updatedCard);
+                break;
+            }
+        }
     }
     
     /**
@@ -659,6 +726,9 @@ public class MainViewController {
      */
     @FXML
     private void handleLogout() {
+        if (eventStreamService != null) {
+            eventStreamService.close();
+        }
         mainApp.logout();
     }
     
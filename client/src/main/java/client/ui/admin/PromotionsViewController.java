@@ -300,14 +300,15 @@ public class PromotionsViewController {
      * Загружает список акций
      */
     private void loadPromotions() {
+        // Сохраненный список показывается сразу, с сервера приходят только изменения
+        List<Promotion> cached = promotionService.getCachedPromotions();
+        if (!cached.isEmpty()) {
+            showPromotions(cached);
+        }
         statusLabel.setText("Загрузка акций...");
         promotionService.getAllPromotions()
                 .thenAccept(promotions -> {
-                    Platform.runLater(() -> {
-                        promotionsList.clear();
-                        promotionsList.addAll(promotions);
-                        statusLabel.setText("Загружено акций: " + promotions.size());
-                    });
+                    Platform.runLater(() -> showPromotions(promotions));
                 })
                 .exceptionally(e -> {
                     Platform.runLater(() -> {
@@ -323,14 +324,14 @@ public class PromotionsViewController {
      * Загружает список промокодов
      */
     private void loadPromoCodes() {
+        List<PromoCode> cached = promotionService.getCachedPromoCodes();
+        if (!cached.isEmpty()) {
+            showPromoCodes(cached);
+        }
         statusLabel.setText("Загрузка промокодов...");
         promotionService.getAllPromoCodes()
                 .thenAccept(promoCodes -> {
-                    Platform.runLater(() -> {
-                        promoCodesList.clear();
-                        promoCodesList.addAll(promoCodes);
-                        statusLabel.setText("Загружено промокодов: " + promoCodes.size());
-                    });
+                    Platform.runLater(() -> showPromoCodes(promoCodes));
                 })
                 .exceptionally(e -> {
                     Platform.runLater(() -> {
@@ -342,6 +343,18 @@ public class PromotionsViewController {
                 });
     }
     
+    private void showPromotions(List<Promotion> promotions) {
+        promotionsList.clear();
+        promotionsList.addAll(promotions);
+        statusLabel.setText("Загружено акций: " + promotions.size());
+    }
+    
+    private void showPromoCodes(List<PromoCode> promoCodes) {
+        promoCodesList.clear();
+        promoCodesList.addAll(promoCodes);
+        statusLabel.setText("Загружено промокодов: " + promoCodes.size());
+    }
+    
     /**
      * Загружает статистику
      */
@@ -21,6 +21,7 @@ import java.io.File;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -182,23 +183,16 @@ public class SettingsViewController {
      * Загружает настройки системы
      */
     private void loadSettings() {
+        // Сохраненные настройки показываются сразу, с сервера приходят только изменения
+        Map<String, SettingsService.SettingValue> cached = settingsService.getCachedSettings();
+        if (!cached.isEmpty()) {
+            showSettings(cached);
+        }
         statusLabel.setText("Загрузка настроек...");
         
         settingsService.getAllSettings()
                 .thenAccept(settings -> {
-                    Platform.runLater(() -> {
-                        settingsList.clear();
-                        
-                        settings.forEach((key, value) -> {
-                            settingsList.add(new Setting(
-                                    key, 
-                                    value.getValue(), 
-                                    value.getDescription()
-                            ));
-                        });
-                        
-                        statusLabel.setText("Загружено настроек: " + settingsList.size());
-                    });
+                    Platform.runLater(() -> showSettings(settings));
                 })
                 .exceptionally(e -> {
                     Platform.runLater(() -> {
@@ -215,6 +209,20 @@ public class SettingsViewController {
                 });
     }
     
+    private void showSettings(Map<String, SettingsService.SettingValue> settings) {
+        settingsList.clear();
+        
+        settings.forEach((key, value) -> {
+            settingsList.add(new Setting(
+                    key, 
+                    value.getValue(), 
+                    value.getDescription()
+            ));
+        });
+        
+        statusLabel.setText("Загружено настроек: " + settingsList.size());
+    }
+    
     /**
      * Обрабатывает нажатие кнопки "Добавить настройку"
      */
@@ -138,16 +138,16 @@ public class UsersViewController {
      * Loads all users
      */
     private void loadUsers() {
+        // Show the cached list right away, the server only sends what changed since
+        List<User> cached = userService.getCachedUsers();
+        if (!cached.isEmpty()) {
+            showUsers(cached);
+        }
         statusLabel.setText("Loading users...");
         
         userService.getAllUsers()
                 .thenAccept(users -> {
-                    Platform.runLater(() -> {
-                        usersList.clear();
-                        usersList.addAll(users);
-                        filterUsers(searchField.getText());
-                        statusLabel.setText("Total users: " + users.size());
-                    });
+                    Platform.runLater(() -> showUsers(users));
                 })
                 .exceptionally(e -> {
                     Platform.runLater(() -> {
@@ -164,6 +164,13 @@ public class UsersViewController {
                 });
     }
     
+    private void showUsers(List<User> users) {
+        usersList.clear();
+        usersList.addAll(users);
+        filterUsers(searchField.getText());
+        statusLabel.setText("Total users: " + users.size());
+    }
+    
     /**
      * Handles search button click
      */
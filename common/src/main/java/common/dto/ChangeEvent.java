@@ -0,0 +1,136 @@
+package common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Событие об изменении данных, рассылаемое сервером подписанным клиентам
+ */
+public class ChangeEvent {
+
+    /**
+     * Тема подписки
+     */
+    public enum Topic {
+        SESSIONS,
+        CARDS,
+        BOOKINGS,
+        PROMOTIONS,
+        REPORTS
+    }
+
+    /**
+     * Тип изменения
+     */
+    public enum Type {
+        SESSION_STARTED(Topic.SESSIONS),
+        SESSION_FINISHED(Topic.SESSIONS),
+        POINTS_CHANGED(Topic.CARDS),
+        // Брони пока не хранятся на сервере и не имеют своих ID: каждое событие доставляется отдельно
+        BOOKING_CREATED(Topic.BOOKINGS, false),
+        PROMOTION_TOGGLED(Topic.PROMOTIONS),
+        REPORT_JOB_FINISHED(Topic.REPORTS);
+
+        private final Topic topic;
+        private final boolean coalesced;
+
+        Type(Topic topic) {
+            this(topic, true);
+        }
+
+        Type(Topic topic, boolean coalesced) {
+            this.topic = topic;
+            this.coalesced = coalesced;
+        }
+
+        public Topic getTopic() {
+            return topic;
+        }
+
+        /**
+         * @return true, если повторные события этого типа об одной сущности в окне рассылки
+         * схлопываются до последнего
+         */
+        public boolean isCoalesced() {
+            return coalesced;
+        }
+    }
+
+    private Type type;
+    private Long entityId;
+    private Map<String, Object> data = new HashMap<>();
+    private LocalDateTime timestamp;
+
+    // Default constructor for Jackson
+    public ChangeEvent() {
+    }
+
+    public ChangeEvent(Type type, Long entityId) {
+        this.type = type;
+        this.entityId = entityId;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    /**
+     * Добавляет значение в данные события
+     * @param key ключ
+     * @param value значение
+     * @return это же событие
+     */
+    public ChangeEvent with(String key, Object value) {
+        data.put(key, value);
+        return this;
+    }
+
+    /**
+     * @return тема, к которой относится событие
+     */
+    @JsonIgnore
+    public Topic getTopic() {
+        return type != null ? type.getTopic() : null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+
+    public void setData(Map<String, Object> data) {
+        this.data = data;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "type=" + type +
+                ", entityId=" + entityId +
+                ", data=" + data +
+                '}';
+    }
+}
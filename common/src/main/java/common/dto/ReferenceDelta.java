@@ -0,0 +1,71 @@
+package common.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменения справочника после версии, уже полученной клиентом (ответ на GET /api/sync/{entity}).
+ * Версия непрозрачна для клиента: он сохраняет ее вместе с данными и передает в updated_since
+ * следующего запроса. Если full = true, items содержит справочник целиком и заменяет сохраненные данные,
+ * иначе - только добавленные и измененные строки, а deleted - ID удаленных.
+ * @param <T> тип строк справочника
+ */
+public class ReferenceDelta<T> {
+    private String entity;
+    private String version;
+    private boolean full;
+    private List<T> items = new ArrayList<>();
+    private List<Long> deleted = new ArrayList<>();
+
+    // Default constructor for Jackson
+    public ReferenceDelta() {
+    }
+
+    public ReferenceDelta(String entity, String version, boolean full, List<T> items, List<Long> deleted) {
+        this.entity = entity;
+        this.version = version;
+        this.full = full;
+        this.items = items;
+        this.deleted = deleted;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+}
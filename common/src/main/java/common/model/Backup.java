@@ -15,6 +15,14 @@ public class Backup implements Serializable {
     private String hash;
     private Boolean isValid;
     private String description;
+    private String kind = KIND_FULL;
+    private Long parentId;
+    private Long baseId;
+    
+    /** Полная копия */
+    public static final String KIND_FULL = "FULL";
+    /** Инкрементная копия: изменения после родительской копии */
+    public static final String KIND_INCREMENTAL = "INCREMENTAL";
     
     public Backup() {
     }
@@ -92,6 +100,39 @@ public class Backup implements Serializable {
         this.description = description;
     }
     
+    /**
+     * @return вид копии: {@link #KIND_FULL} или {@link #KIND_INCREMENTAL}
+     */
+    public String getKind() {
+        return kind;
+    }
+    
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+    
+    /**
+     * @return ID копии, изменения после которой содержит инкрементная копия
+     */
+    public Long getParentId() {
+        return parentId;
+    }
+    
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+    
+    /**
+     * @return ID полной копии, с которой начинается цепочка
+     */
+    public Long getBaseId() {
+        return baseId;
+    }
+    
+    public void setBaseId(Long baseId) {
+        this.baseId = baseId;
+    }
+    
     /**
      * Получает размер в мегабайтах
      * @return размер файла в мегабайтах
@@ -122,6 +163,8 @@ public class Backup implements Serializable {
                 ", hash='" + hash + '\'' +
                 ", isValid=" + isValid +
                 ", description='" + description + '\'' +
+                ", kind=" + kind +
+                ", parentId=" + parentId +
                 '}';
     }
 } 
\ No newline at end of file
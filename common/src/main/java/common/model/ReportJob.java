@@ -0,0 +1,197 @@
+package common.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Модель задания на формирование отчета в фоне.
+ * Задание ставится в очередь, выполняется рабочим потоком сервера, а результат сохраняется в файл,
+ * который можно скачать до истечения срока хранения.
+ */
+public class ReportJob implements Serializable {
+    private Long id;
+    private String reportType;
+    private String format = FORMAT_JSON;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private String status;
+    private Integer priority;
+    private Long requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String resultFile;
+    private Long resultSize;
+    private String errorMessage;
+    private LocalDateTime expiresAt;
+
+    /** Результат - данные отчета в JSON, как у GET /api/reports/{type} */
+    public static final String FORMAT_JSON = "JSON";
+    /** Результат - выгрузка CSV, как у GET /api/reports/{type}.csv */
+    public static final String FORMAT_CSV = "CSV";
+    /** Результат - документ PDF, как у GET /api/reports/{type}.pdf */
+    public static final String FORMAT_PDF = "PDF";
+
+    /** Задание ждет свободного рабочего потока */
+    public static final String STATUS_QUEUED = "QUEUED";
+    /** Отчет формируется */
+    public static final String STATUS_RUNNING = "RUNNING";
+    /** Результат готов к скачиванию */
+    public static final String STATUS_DONE = "DONE";
+    /** Отчет сформировать не удалось, причина в errorMessage */
+    public static final String STATUS_FAILED = "FAILED";
+    /** Задание отменено до начала выполнения */
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    public ReportJob() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return тип отчета: points, activity, promotions, promocodes, financial
+     */
+    public String getReportType() {
+        return reportType;
+    }
+
+    public void setReportType(String reportType) {
+        this.reportType = reportType;
+    }
+
+    /**
+     * @return формат результата: {@link #FORMAT_JSON}, {@link #FORMAT_CSV} или {@link #FORMAT_PDF}
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * @return приоритет: задания с большим значением выполняются раньше
+     */
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return ID пользователя, поставившего задание
+     */
+    public Long getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(Long requestedBy) {
+        this.requestedBy = requestedBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * @return имя файла результата в директории отчетов или null, пока результата нет
+     */
+    public String getResultFile() {
+        return resultFile;
+    }
+
+    public void setResultFile(String resultFile) {
+        this.resultFile = resultFile;
+    }
+
+    public Long getResultSize() {
+        return resultSize;
+    }
+
+    public void setResultSize(Long resultSize) {
+        this.resultSize = resultSize;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * @return время, после которого результат удаляется
+     */
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return true, если задание завершено (успешно, с ошибкой или отменено)
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status) || STATUS_CANCELLED.equals(status);
+    }
+}
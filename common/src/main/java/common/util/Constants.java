@@ -23,6 +23,7 @@ public class Constants {
     public static final String BACKUP_DIR = "backups"; // Директория для резервных копий
     public static final String REPORTS_DIR = "reports"; // Директория для отчетов
     public static final String PDF_DIR = "pdf"; // Директория для PDF-файлов
+    public static final String CLIENT_CACHE_DIR = ".loyalty-client/cache"; // Кэш справочников клиента (в домашнем каталоге)
     
     // Роли пользователей
     public static final String ROLE_ADMIN = "ADMIN";
@@ -0,0 +1,132 @@
+package common.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.util.Locale;
+
+/**
+ * Формат тела запросов и ответов API, выбираемый по заголовкам Accept и Content-Type.
+ * Двоичные форматы передают ту же модель данных Jackson, что и JSON, но компактнее:
+ * Smile заменяет повторяющиеся имена полей и короткие строки ссылками на уже переданные,
+ * поэтому выигрыш особенно заметен на больших списках карт, транзакций и записей аудита.
+ */
+public enum WireFormat {
+    JSON("application/json"),
+    SMILE("application/x-jackson-smile"),
+    CBOR("application/cbor");
+
+    /**
+     * Значение Accept для клиентов, понимающих двоичный формат: Smile, а при его отсутствии JSON
+     */
+    public static final String ACCEPT_BINARY = SMILE.mediaType + ", " + JSON.mediaType + ";q=0.5";
+
+    private final String mediaType;
+
+    WireFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return значение Content-Type для ответа в этом формате
+     */
+    public String getContentType() {
+        return this == JSON ? mediaType + "; charset=UTF-8" : mediaType;
+    }
+
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Создает фабрику парсеров и генераторов этого формата
+     */
+    public JsonFactory createFactory() {
+        switch (this) {
+            case SMILE:
+                return SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build();
+            case CBOR:
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    /**
+     * Копия настроенного JSON-маппера (модули, формат дат, включение null) для этого формата
+     * @param jsonMapper маппер JSON
+     * @return маппер для этого формата или сам jsonMapper для JSON
+     */
+    public ObjectMapper mapperFrom(ObjectMapper jsonMapper) {
+        return this == JSON ? jsonMapper : jsonMapper.copyWith(createFactory());
+    }
+
+    /**
+     * Выбирает формат ответа по заголовку Accept с учетом весов q.
+     * При равных весах побеждает указанный раньше; без подходящих типов - JSON.
+     * @param accept значение заголовка Accept или null
+     * @return формат ответа
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return JSON;
+        }
+        WireFormat best = JSON;
+        double bestQuality = -1;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            WireFormat format = forMediaType(parts[0]);
+            if (format == null) {
+                continue;
+            }
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality > 0 && quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Определяет формат тела по заголовку Content-Type
+     * @param contentType значение заголовка или null
+     * @return формат тела; JSON для неизвестных и отсутствующих типов
+     */
+    public static WireFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        WireFormat format = forMediaType(contentType.split(";")[0]);
+        return format != null ? format : JSON;
+    }
+
+    private static WireFormat forMediaType(String mediaType) {
+        String normalized = mediaType.trim().toLowerCase(Locale.ROOT);
+        for (WireFormat format : values()) {
+            if (format.mediaType.equals(normalized)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
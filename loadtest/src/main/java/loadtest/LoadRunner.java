@@ -0,0 +1,264 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Выполняет прогон в замкнутой, открытой модели или по записанной трассе.
+ * В открытой модели и при воспроизведении задержка считается от запланированного момента отправки,
+ * а не от фактического: если сервер не успевает, ожидание в очереди тоже попадает в перцентили.
+ */
+public class LoadRunner {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final ExecutorService httpExecutor;
+    private final Workload workload;
+    private final TraceFile trace;
+    private final LoadStats stats = new LoadStats();
+    private final AtomicLong seq = new AtomicLong();
+    // Номер стартового запроса -> идентификатор сессии на сервере (null, если старт не удался)
+    private final Map<Long, CompletableFuture<Long>> sessionIds = new ConcurrentHashMap<>();
+
+    private long startNanos;
+    private long measureFromNanos;
+    private double elapsedSeconds;
+
+    public LoadRunner(LoadTestConfig config, Workload workload, TraceFile trace) {
+        this.config = config;
+        this.workload = workload;
+        this.trace = trace;
+        this.httpExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .executor(httpExecutor)
+                .build();
+    }
+
+    public LoadStats getStats() {
+        return stats;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * Загружает идентификаторы карт, по которым будет идти нагрузка
+     */
+    public static List<Long> fetchCardIds(LoadTestConfig config) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.getBaseUrl() + "/api/cards"))
+                .timeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Сервер вернул " + response.statusCode() + " на запрос списка карт");
+        }
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode card : MAPPER.readTree(response.body()).path("data")) {
+            if (card.hasNonNull("id")) {
+                ids.add(card.get("id").asLong());
+            }
+        }
+        return ids;
+    }
+
+    public void run() throws InterruptedException, IOException {
+        try {
+            switch (config.getMode()) {
+                case CLOSED -> runClosed();
+                case OPEN -> runOpen();
+                case REPLAY -> runReplay(TraceFile.read(config.getReplayPath()));
+            }
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void runClosed() throws InterruptedException {
+        start();
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < config.getConcurrency(); i++) {
+            Thread worker = new Thread(() -> {
+                long now;
+                while ((now = System.nanoTime()) < endNanos && !Thread.currentThread().isInterrupted()) {
+                    TraceEntry entry = workload.next(seq.incrementAndGet(), offsetMillis(now));
+                    try {
+                        send(entry, now).join();
+                    } catch (RuntimeException e) {
+                        // Ошибка уже учтена в статистике
+                    }
+                }
+            }, "load-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        finish();
+    }
+
+    private void runOpen() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        start();
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getRate();
+        double intended = startNanos;
+        while (intended < endNanos) {
+            long intendedNanos = (long) intended;
+            parkUntil(intendedNanos);
+            inFlight.acquire();
+            TraceEntry entry = workload.next(seq.incrementAndGet(), offsetMillis(intendedNanos));
+            send(entry, intendedNanos).whenComplete((r, e) -> inFlight.release());
+            intended += config.isPoisson()
+                    ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+        }
+        awaitInFlight(inFlight);
+        finish();
+    }
+
+    private void runReplay(List<TraceEntry> entries) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        start();
+        for (TraceEntry entry : entries) {
+            long intendedNanos = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(entry.getOffsetMs()) / config.getSpeed());
+            parkUntil(intendedNanos);
+            inFlight.acquire();
+            send(entry, intendedNanos).whenComplete((r, e) -> inFlight.release());
+        }
+        awaitInFlight(inFlight);
+        finish();
+    }
+
+    private CompletableFuture<Void> send(TraceEntry entry, long intendedNanos) {
+        if (entry.getOp() != Operation.SESSION_FINISH) {
+            return send(entry, entry.getPath(), intendedNanos);
+        }
+        // При воспроизведении завершение может наступить раньше ответа на старт - ждем его
+        CompletableFuture<Long> sessionId = entry.getSessionOf() != null ? sessionIds.remove(entry.getSessionOf()) : null;
+        if (sessionId == null) {
+            recordUnresolved(intendedNanos);
+            return CompletableFuture.completedFuture(null);
+        }
+        return sessionId.thenCompose(id -> {
+            if (id == null) {
+                recordUnresolved(intendedNanos);
+                return CompletableFuture.completedFuture(null);
+            }
+            return send(entry, "/api/sessions/" + id + "/finish", intendedNanos);
+        });
+    }
+
+    private CompletableFuture<Void> send(TraceEntry entry, String path, long intendedNanos) {
+        if (trace != null) {
+            trace.append(entry);
+        }
+        CompletableFuture<Long> sessionId = null;
+        if (entry.getOp() == Operation.SESSION_START) {
+            sessionId = new CompletableFuture<>();
+            sessionIds.put(entry.getSeq(), sessionId);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(config.getBaseUrl() + path))
+                .timeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .header("Accept", "application/json")
+                .header("Authorization", "Bearer loadtest");
+        if (entry.getBody() != null) {
+            builder.header("Content-Type", "application/json")
+                    .method(entry.getMethod(), HttpRequest.BodyPublishers.ofString(entry.getBody()));
+        } else {
+            builder.method(entry.getMethod(), HttpRequest.BodyPublishers.noBody());
+        }
+
+        CompletableFuture<Long> started = sessionId;
+        return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    boolean success = error == null && response.statusCode() < 400;
+                    if (intendedNanos >= measureFromNanos) {
+                        stats.record(entry.getOp(), System.nanoTime() - intendedNanos, success);
+                    }
+                    if (started != null) {
+                        Long id = success ? parseSessionId(response.body()) : null;
+                        started.complete(id);
+                        if (id != null && workload != null) {
+                            workload.sessionStarted(entry.getSeq());
+                        } else if (id == null) {
+                            sessionIds.remove(entry.getSeq());
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private static Long parseSessionId(String body) {
+        try {
+            JsonNode id = MAPPER.readTree(body).path("data").path("id");
+            return id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            // Ответ без идентификатора: завершение этой сессии будет пропущено
+            return null;
+        }
+    }
+
+    private void recordUnresolved(long intendedNanos) {
+        if (intendedNanos >= measureFromNanos) {
+            stats.recordUnresolved();
+        }
+    }
+
+    private void start() {
+        startNanos = System.nanoTime();
+        measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+    }
+
+    private void finish() {
+        elapsedSeconds = Math.max(0, System.nanoTime() - measureFromNanos) / 1e9;
+    }
+
+    private long offsetMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos - startNanos);
+    }
+
+    private void awaitInFlight(Semaphore inFlight) throws InterruptedException {
+        if (!inFlight.tryAcquire(config.getMaxInFlight(), config.getTimeoutSeconds() * 2L, TimeUnit.SECONDS)) {
+            System.err.println("Не дождались ответа на " + (config.getMaxInFlight() - inFlight.availablePermits())
+                    + " запросов");
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
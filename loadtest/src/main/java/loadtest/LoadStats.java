@@ -0,0 +1,114 @@
+package loadtest;
+
+import server.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и ошибки по видам операций за измеряемую часть прогона
+ */
+public class LoadStats {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LongAdder totalErrors = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+
+    public LoadStats() {
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            errors.put(op, new LongAdder());
+        }
+    }
+
+    public void record(Operation op, long latencyNanos, boolean success) {
+        latencies.get(op).recordNanos(latencyNanos);
+        total.recordNanos(latencyNanos);
+        if (!success) {
+            errors.get(op).increment();
+            totalErrors.increment();
+        }
+    }
+
+    /**
+     * Завершение сессии из трассы, старт которой не удался или еще не получил ответ
+     */
+    public void recordUnresolved() {
+        unresolved.increment();
+    }
+
+    /**
+     * Печатает таблицу перцентилей и пропускной способности
+     *
+     * @param elapsedSeconds длительность измеряемой части прогона
+     */
+    public String format(double elapsedSeconds) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-15s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation op : Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies.get(op).snapshot();
+            if (snapshot.getCount() > 0) {
+                appendRow(sb, op.name(), snapshot, errors.get(op).sum(), elapsedSeconds);
+            }
+        }
+        appendRow(sb, "TOTAL", total.snapshot(), totalErrors.sum(), elapsedSeconds);
+        if (unresolved.sum() > 0) {
+            sb.append("Пропущено завершений сессий без идентификатора: ").append(unresolved.sum())
+                    .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Итоговые показатели для сохранения в JSON и сравнения прогонов
+     */
+    public Map<String, Object> summary(double elapsedSeconds) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsed_seconds", elapsedSeconds);
+        for (Operation op : Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies.get(op).snapshot();
+            if (snapshot.getCount() > 0) {
+                result.put(op.name().toLowerCase(Locale.ROOT),
+                        summaryOf(snapshot, errors.get(op).sum(), elapsedSeconds));
+            }
+        }
+        result.put("total", summaryOf(total.snapshot(), totalErrors.sum(), elapsedSeconds));
+        result.put("unresolved", unresolved.sum());
+        return result;
+    }
+
+    private static Map<String, Object> summaryOf(LatencyHistogram.Snapshot snapshot, long errorCount,
+                                                 double elapsedSeconds) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", snapshot.getCount());
+        row.put("errors", errorCount);
+        row.put("throughput_rps", elapsedSeconds > 0 ? snapshot.getCount() / elapsedSeconds : 0);
+        for (double q : QUANTILES) {
+            row.put("p" + formatQuantile(q) + "_ms", snapshot.quantileMicros(q) / 1000.0);
+        }
+        row.put("max_ms", snapshot.getMaxMicros() / 1000.0);
+        return row;
+    }
+
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram.Snapshot snapshot,
+                                  long errorCount, double elapsedSeconds) {
+        sb.append(String.format(Locale.ROOT, "%-15s %9d %7d %9.1f", name, snapshot.getCount(), errorCount,
+                elapsedSeconds > 0 ? snapshot.getCount() / elapsedSeconds : 0));
+        for (double q : QUANTILES) {
+            sb.append(String.format(Locale.ROOT, " %9.2f", snapshot.quantileMicros(q) / 1000.0));
+        }
+        sb.append(String.format(Locale.ROOT, " %9.2f%n", snapshot.getMaxMicros() / 1000.0));
+    }
+
+    private static String formatQuantile(double q) {
+        String s = String.format(Locale.ROOT, "%.1f", q * 100);
+        return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s.replace('.', '_');
+    }
+}
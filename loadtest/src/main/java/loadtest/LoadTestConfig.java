@@ -0,0 +1,213 @@
+package loadtest;
+
+import common.util.Constants;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона, разобранные из командной строки
+ */
+public class LoadTestConfig {
+
+    /**
+     * CLOSED - фиксированное число потоков, каждый ждет ответа перед следующим запросом;
+     * OPEN - запросы поступают с заданной частотой независимо от скорости ответов;
+     * REPLAY - воспроизведение записанной трассы с исходными интервалами.
+     */
+    public enum Mode {
+        CLOSED, OPEN, REPLAY
+    }
+
+    private String baseUrl = "http://" + Constants.SERVER_HOST + ":" + Constants.SERVER_PORT;
+    private Mode mode = Mode.CLOSED;
+    private int concurrency = 16;
+    private double rate = 100;
+    private boolean poisson;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int timeoutSeconds = 10;
+    private int maxInFlight = 1000;
+    private double speed = 1.0;
+    private int reportDays = 30;
+    private Map<String, Integer> mix = parseMix("lookup=50,session=20,points=20,report=10");
+    private Path recordPath;
+    private Path replayPath;
+    private Path summaryPath;
+    private boolean seed;
+
+    public static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.isEmpty()) {
+                continue;
+            }
+            if (arg.equals("--seed")) {
+                config.seed = true;
+                continue;
+            }
+            if (arg.equals("--poisson")) {
+                config.poisson = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не указано значение для " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--url" -> config.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "--mode" -> config.mode = Mode.valueOf(value.toUpperCase());
+                case "--concurrency" -> config.concurrency = positive(arg, Integer.parseInt(value));
+                case "--rate" -> config.rate = positive(arg, Double.parseDouble(value));
+                case "--duration" -> config.durationSeconds = positive(arg, Integer.parseInt(value));
+                case "--warmup" -> config.warmupSeconds = Math.max(0, Integer.parseInt(value));
+                case "--timeout" -> config.timeoutSeconds = positive(arg, Integer.parseInt(value));
+                case "--max-in-flight" -> config.maxInFlight = positive(arg, Integer.parseInt(value));
+                case "--speed" -> config.speed = positive(arg, Double.parseDouble(value));
+                case "--report-days" -> config.reportDays = positive(arg, Integer.parseInt(value));
+                case "--mix" -> config.mix = parseMix(value);
+                case "--record" -> config.recordPath = Path.of(value);
+                case "--replay" -> {
+                    config.replayPath = Path.of(value);
+                    config.mode = Mode.REPLAY;
+                }
+                case "--summary" -> config.summaryPath = Path.of(value);
+                default -> throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+        if (config.mode == Mode.REPLAY && config.replayPath == null) {
+            throw new IllegalArgumentException("Для режима REPLAY нужен --replay <файл трассы>");
+        }
+        return config;
+    }
+
+    /**
+     * Разбирает веса операций вида "lookup=50,session=20,points=20,report=10"
+     */
+    static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Неверный формат --mix: " + value);
+            }
+            String key = kv[0].trim();
+            boolean known = false;
+            for (Operation op : Operation.values()) {
+                known |= op.getMixKey().equals(key);
+            }
+            if (!known) {
+                throw new IllegalArgumentException("Неизвестная операция в --mix: " + key);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес операции не может быть отрицательным: " + part);
+            }
+            mix.put(key, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Сумма весов --mix должна быть больше нуля");
+        }
+        return mix;
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " должен быть больше нуля");
+        }
+        return value;
+    }
+
+    private static double positive(String name, double value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " должен быть больше нуля");
+        }
+        return value;
+    }
+
+    public static String usage() {
+        return String.join(System.lineSeparator(),
+                "Параметры:",
+                "  --url <адрес>          адрес сервера (по умолчанию http://localhost:8090)",
+                "  --mode closed|open     замкнутая (потоки) или открытая (частота) модель нагрузки",
+                "  --concurrency <n>      число потоков в замкнутой модели (16)",
+                "  --rate <n>             запросов в секунду в открытой модели (100)",
+                "  --poisson              экспоненциальные интервалы вместо равномерных",
+                "  --max-in-flight <n>    предел одновременных запросов в открытой модели (1000)",
+                "  --duration <сек>       длительность прогона без прогрева (60)",
+                "  --warmup <сек>         прогрев, не попадающий в статистику (10)",
+                "  --timeout <сек>        таймаут одного запроса (10)",
+                "  --mix k=v,...          веса операций lookup, session, points, report",
+                "  --report-days <n>      период отчетов в днях (30)",
+                "  --record <файл>        записать трассу запросов в JSON Lines",
+                "  --replay <файл>        воспроизвести трассу (--speed ускоряет воспроизведение)",
+                "  --summary <файл>       сохранить итоговые показатели в JSON",
+                "  --seed                 заполнить БД через DataGenerator перед прогоном");
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public boolean isPoisson() {
+        return poisson;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public int getReportDays() {
+        return reportDays;
+    }
+
+    public Map<String, Integer> getMix() {
+        return mix;
+    }
+
+    public Path getRecordPath() {
+        return recordPath;
+    }
+
+    public Path getReplayPath() {
+        return replayPath;
+    }
+
+    public Path getSummaryPath() {
+        return summaryPath;
+    }
+
+    public boolean isSeed() {
+        return seed;
+    }
+}
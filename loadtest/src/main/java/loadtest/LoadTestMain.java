@@ -0,0 +1,85 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import server.util.DataGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Нагрузочный тест сервера по HTTP.
+ * Сервер запускается отдельно (gradle :server:run) на локальной PostgreSQL;
+ * с параметром --seed база предварительно заполняется через DataGenerator.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) {
+        LoadTestConfig config;
+        try {
+            config = LoadTestConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestConfig.usage());
+            System.exit(2);
+            return;
+        }
+
+        try {
+            if (config.isSeed()) {
+                DataGenerator.main(new String[0]);
+            }
+
+            Workload workload = null;
+            if (config.getMode() != LoadTestConfig.Mode.REPLAY) {
+                List<Long> cardIds = LoadRunner.fetchCardIds(config);
+                workload = new Workload(cardIds, config.getMix(), config.getReportDays());
+                System.out.println("Карт для нагрузки: " + cardIds.size());
+            }
+
+            System.out.println(describe(config));
+            LoadRunner runner;
+            TraceFile trace = config.getRecordPath() != null ? TraceFile.create(config.getRecordPath()) : null;
+            try {
+                runner = new LoadRunner(config, workload, trace);
+                runner.run();
+            } finally {
+                if (trace != null) {
+                    trace.close();
+                }
+            }
+
+            System.out.println();
+            System.out.print(runner.getStats().format(runner.getElapsedSeconds()));
+            if (config.getSummaryPath() != null) {
+                writeSummary(config.getSummaryPath(), runner);
+            }
+        } catch (Exception e) {
+            System.err.println("Ошибка нагрузочного теста: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static String describe(LoadTestConfig config) {
+        String load = switch (config.getMode()) {
+            case CLOSED -> config.getConcurrency() + " потоков";
+            case OPEN -> config.getRate() + " запросов/с" + (config.isPoisson() ? " (пуассоновский поток)" : "");
+            case REPLAY -> "трасса " + config.getReplayPath() + ", скорость x" + config.getSpeed();
+        };
+        return "Сервер " + config.getBaseUrl() + ", режим " + config.getMode() + ": " + load
+                + ", прогрев " + config.getWarmupSeconds() + " с"
+                + (config.getMode() != LoadTestConfig.Mode.REPLAY ? ", замер " + config.getDurationSeconds() + " с" : "");
+    }
+
+    private static void writeSummary(Path path, LoadRunner runner) throws java.io.IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(path.toFile(), runner.getStats().summary(runner.getElapsedSeconds()));
+        System.out.println("Итоги сохранены в " + path);
+    }
+}
@@ -0,0 +1,25 @@
+package loadtest;
+
+/**
+ * Виды запросов нагрузочного теста
+ */
+public enum Operation {
+    CARD_LOOKUP("lookup"),
+    SESSION_START("session"),
+    SESSION_FINISH("session"),
+    POINTS_ADD("points"),
+    REPORT("report");
+
+    private final String mixKey;
+
+    Operation(String mixKey) {
+        this.mixKey = mixKey;
+    }
+
+    /**
+     * Ключ в параметре --mix; старт и завершение сессии делят один вес
+     */
+    public String getMixKey() {
+        return mixKey;
+    }
+}
@@ -0,0 +1,91 @@
+package loadtest;
+
+/**
+ * Один запрос трассы. Трасса хранится построчно в JSON (как requests.jsonl):
+ * {"seq":12,"offset_ms":340,"op":"POINTS_ADD","method":"POST","path":"/api/cards/7/add","body":"{\"points\":50}"}
+ * Для завершения сессии путь не записывается: идентификатор сессии известен только
+ * после ответа на старт, поэтому хранится номер стартового запроса в session_of.
+ */
+public class TraceEntry {
+    private long seq;
+    private long offsetMs;
+    private Operation op;
+    private String method;
+    private String path;
+    private String body;
+    private Long sessionOf;
+
+    public TraceEntry() {
+    }
+
+    public TraceEntry(long seq, long offsetMs, Operation op, String method, String path, String body) {
+        this.seq = seq;
+        this.offsetMs = offsetMs;
+        this.op = op;
+        this.method = method;
+        this.path = path;
+        this.body = body;
+    }
+
+    public static TraceEntry finish(long seq, long offsetMs, long sessionOf) {
+        TraceEntry entry = new TraceEntry(seq, offsetMs, Operation.SESSION_FINISH, "POST", null, "{}");
+        entry.setSessionOf(sessionOf);
+        return entry;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getOffsetMs() {
+        return offsetMs;
+    }
+
+    public void setOffsetMs(long offsetMs) {
+        this.offsetMs = offsetMs;
+    }
+
+    public Operation getOp() {
+        return op;
+    }
+
+    public void setOp(Operation op) {
+        this.op = op;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public Long getSessionOf() {
+        return sessionOf;
+    }
+
+    public void setSessionOf(Long sessionOf) {
+        this.sessionOf = sessionOf;
+    }
+}
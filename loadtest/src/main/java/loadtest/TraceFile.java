@@ -0,0 +1,78 @@
+package loadtest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Запись и чтение трасс запросов в формате JSON Lines
+ */
+public class TraceFile implements Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final BufferedWriter writer;
+
+    private TraceFile(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Открывает файл для записи трассы (существующий файл перезаписывается)
+     */
+    public static TraceFile create(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new TraceFile(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Записывает запрос; вызывается из разных потоков
+     */
+    public synchronized void append(TraceEntry entry) {
+        try {
+            writer.write(MAPPER.writeValueAsString(entry));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось записать трассу", e);
+        }
+    }
+
+    /**
+     * Читает трассу, упорядочивая запросы по смещению от начала прогона
+     */
+    public static List<TraceEntry> read(Path path) throws IOException {
+        List<TraceEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries.add(MAPPER.readValue(line, TraceEntry.class));
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(TraceEntry::getOffsetMs).thenComparingLong(TraceEntry::getSeq));
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
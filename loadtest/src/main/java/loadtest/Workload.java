@@ -0,0 +1,95 @@
+package loadtest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генератор смешанной нагрузки стойки администратора: просмотр карт, старт и завершение сессий,
+ * начисление баллов и выгрузка отчетов в пропорциях из --mix
+ */
+public class Workload {
+    private static final String[] REPORT_TYPES = {"points", "activity", "promotions"};
+    private static final int[] SESSION_MINUTES = {30, 60, 60, 120, 180};
+
+    private final List<Long> cardIds;
+    private final String[] keys;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+    private final int reportDays;
+    // Номера успешно стартовавших сессий, которые еще не завершались
+    private final Queue<Long> startedSessions = new ConcurrentLinkedQueue<>();
+
+    public Workload(List<Long> cardIds, Map<String, Integer> mix, int reportDays) {
+        if (cardIds.isEmpty()) {
+            throw new IllegalStateException("На сервере нет карт: заполните БД (--seed)");
+        }
+        this.cardIds = cardIds;
+        this.reportDays = reportDays;
+        this.keys = mix.keySet().toArray(new String[0]);
+        this.cumulativeWeights = new int[keys.length];
+        int sum = 0;
+        for (int i = 0; i < keys.length; i++) {
+            sum += mix.get(keys[i]);
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    /**
+     * Формирует следующий запрос
+     *
+     * @param seq порядковый номер запроса в прогоне
+     * @param offsetMs смещение запланированного момента отправки от начала прогона
+     */
+    public TraceEntry next(long seq, long offsetMs) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long cardId = cardIds.get(random.nextInt(cardIds.size()));
+        switch (pickKey(random)) {
+            case "session": {
+                Long startSeq = startedSessions.poll();
+                if (startSeq != null) {
+                    return TraceEntry.finish(seq, offsetMs, startSeq);
+                }
+                String body = "{\"cardId\":" + cardId
+                        + ",\"minutes\":" + SESSION_MINUTES[random.nextInt(SESSION_MINUTES.length)]
+                        + ",\"computerInfo\":\"PC-" + (1 + random.nextInt(40)) + "\"}";
+                return new TraceEntry(seq, offsetMs, Operation.SESSION_START, "POST", "/api/sessions", body);
+            }
+            case "points": {
+                String body = "{\"points\":" + (10 + random.nextInt(20) * 10) + "}";
+                return new TraceEntry(seq, offsetMs, Operation.POINTS_ADD, "POST",
+                        "/api/cards/" + cardId + "/add", body);
+            }
+            case "report": {
+                LocalDate to = LocalDate.now();
+                LocalDate from = to.minusDays(reportDays);
+                String path = "/api/reports/" + REPORT_TYPES[random.nextInt(REPORT_TYPES.length)]
+                        + "?from=" + from + "&to=" + to;
+                return new TraceEntry(seq, offsetMs, Operation.REPORT, "GET", path, null);
+            }
+            default:
+                return new TraceEntry(seq, offsetMs, Operation.CARD_LOOKUP, "GET", "/api/cards/" + cardId, null);
+        }
+    }
+
+    /**
+     * Сессия, открытая запросом с номером seq, может быть завершена следующими запросами
+     */
+    public void sessionStarted(long seq) {
+        startedSessions.add(seq);
+    }
+
+    private String pickKey(ThreadLocalRandom random) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < keys.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return keys[i];
+            }
+        }
+        return keys[keys.length - 1];
+    }
+}
@@ -0,0 +1,69 @@
+package server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import server.handler.EventStreamHandler;
+import server.handler.HttpServerHandler;
+import server.handler.ResponseCompression;
+import server.handler.WireFormatHandler;
+import server.metrics.HttpMetricsHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Конвейер обработчиков принятого соединения. Его же собирают замеры производительности,
+ * чтобы измерять тот конвейер, который работает на сервере
+ */
+public class ServerChannelInitializer extends ChannelInitializer<Channel> {
+    private static final int READ_TIMEOUT_SECONDS = 60;
+    private static final String READ_TIMEOUT_HANDLER = "readTimeout";
+
+    private final int maxContentLength;
+    private final Supplier<HttpServerHandler> serverHandlerFactory;
+
+    /**
+     * @param maxContentLength максимальный размер тела запроса в байтах
+     */
+    public ServerChannelInitializer(int maxContentLength) {
+        this(maxContentLength, HttpServerHandler::new);
+    }
+
+    /**
+     * @param maxContentLength максимальный размер тела запроса в байтах
+     * @param serverHandlerFactory создает обработчик запросов для каждого соединения
+     */
+    public ServerChannelInitializer(int maxContentLength, Supplier<HttpServerHandler> serverHandlerFactory) {
+        this.maxContentLength = maxContentLength;
+        this.serverHandlerFactory = serverHandlerFactory;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline pipeline = ch.pipeline()
+                .addLast(READ_TIMEOUT_HANDLER, new ReadTimeoutHandler(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .addLast(new HttpServerCodec())
+                .addLast(new HttpObjectAggregator(maxContentLength))
+                // Отдача файлов частями (ChunkedFile), если sendfile недоступен
+                .addLast(new ChunkedWriteHandler());
+        if (ResponseCompression.isEnabled()) {
+            // Сжатие ответов по Accept-Encoding; при переходе на WebSocket обработчик удаляется
+            pipeline.addLast(ResponseCompression.newCompressor());
+        }
+        pipeline
+                .addLast(new HttpMetricsHandler())
+                // Формат ответа (JSON, Smile, CBOR) по заголовку Accept
+                .addLast(new WireFormatHandler())
+                // Канал событий: запросы на /api/events переводятся на WebSocket, остальные идут дальше
+                .addLast(new WebSocketServerProtocolHandler(EventStreamHandler.PATH, null, false,
+                        maxContentLength, false, true))
+                .addLast(new EventStreamHandler(READ_TIMEOUT_HANDLER))
+                .addLast(serverHandlerFactory.get());
+    }
+}
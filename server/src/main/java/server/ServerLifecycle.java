@@ -0,0 +1,210 @@
+package server;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.DatabaseConfig;
+import server.util.ServerConfig;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Порядок остановки сервера.
+ * По SIGTERM (или при выходе из ServerMain) сервер перестает принимать соединения и ждет, пока
+ * уже принятые HTTP-соединения получат ответы: сервер закрывает соединение после каждого ответа,
+ * поэтому закрытие соединения означает завершение запроса. Затем останавливаются фоновые задачи
+ * с дозаписью их данных, завершаются event loop, и только после этого закрывается пул HikariCP. Все шаги укладываются в общий срок
+ * server.shutdown.timeout.seconds; по его истечении оставшиеся шаги выполняются без ожидания.
+ */
+public final class ServerLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ServerLifecycle.class);
+    private static final ServerLifecycle INSTANCE = new ServerLifecycle();
+    private static final long POLL_MILLIS = 50;
+    private static final AttributeKey<Boolean> TRACKED = AttributeKey.valueOf("lifecycleTracked");
+
+    private final long timeoutMillis;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final List<NamedStep> steps = new CopyOnWriteArrayList<>();
+    private volatile Channel serverChannel;
+    private volatile EventLoopGroup bossGroup;
+    private volatile EventLoopGroup workerGroup;
+
+    private ServerLifecycle() {
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(
+                Math.max(1, ServerConfig.getInt("server.shutdown.timeout.seconds", 30)));
+    }
+
+    public static ServerLifecycle getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Шаг остановки фоновой работы
+     */
+    @FunctionalInterface
+    public interface StopStep {
+        /**
+         * @param timeoutMillis сколько осталось до общего срока остановки
+         */
+        void stop(long timeoutMillis) throws Exception;
+    }
+
+    /**
+     * Запоминает группы потоков Netty, которые нужно завершить перед закрытием пула соединений
+     */
+    public void setEventLoopGroups(EventLoopGroup bossGroup, EventLoopGroup workerGroup) {
+        this.bossGroup = bossGroup;
+        this.workerGroup = workerGroup;
+    }
+
+    /**
+     * Запоминает слушающий канал и регистрирует обработчик SIGTERM
+     * @param serverChannel канал, принимающий соединения
+     */
+    public void started(Channel serverChannel) {
+        this.serverChannel = serverChannel;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "server-shutdown"));
+    }
+
+    /**
+     * Добавляет шаг остановки фоновой работы; шаги выполняются в порядке добавления
+     * после завершения запросов, пока event loop и пул соединений еще работают
+     * @param name имя шага для журнала
+     * @param step действие
+     */
+    public void onShutdown(String name, StopStep step) {
+        steps.add(new NamedStep(name, step));
+    }
+
+    /**
+     * Обработчик слушающего канала, учитывающий принятые соединения.
+     * Соединение учитывается сразу при приеме, еще до того как рабочий поток прочитает запрос.
+     */
+    public ChannelHandler connectionTracker() {
+        return new ConnectionTracker();
+    }
+
+    /**
+     * Перестает учитывать соединение, например после перехода на WebSocket
+     * @param channel соединение
+     */
+    public void connectionReleased(Channel channel) {
+        Boolean tracked = channel.attr(TRACKED).getAndSet(Boolean.FALSE);
+        if (Boolean.TRUE.equals(tracked)) {
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private void connectionAccepted(Channel channel) {
+        channel.attr(TRACKED).set(Boolean.TRUE);
+        openConnections.incrementAndGet();
+        channel.closeFuture().addListener(future -> connectionReleased(channel));
+    }
+
+    /**
+     * Останавливает сервер. Повторный вызов ждет завершения уже начатой остановки.
+     */
+    public void shutdown() {
+        if (!stopping.compareAndSet(false, true)) {
+            try {
+                stopped.await(timeoutMillis + TimeUnit.SECONDS.toMillis(5), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            Channel channel = serverChannel;
+            if (channel != null) {
+                channel.close().awaitUninterruptibly(remainingMillis(deadline));
+                logger.info("Прием соединений остановлен, соединений в обработке: {}", openConnections.get());
+            }
+            awaitConnections(deadline);
+
+            for (NamedStep step : steps) {
+                try {
+                    step.step.stop(remainingMillis(deadline));
+                    logger.debug("Остановлено: {}", step.name);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Остановка прервана на шаге: {}", step.name);
+                } catch (Exception e) {
+                    logger.error("Ошибка при остановке: {}", step.name, e);
+                }
+            }
+
+            shutdownGroup(workerGroup, deadline);
+            shutdownGroup(bossGroup, deadline);
+        } finally {
+            DatabaseConfig.closeDataSource();
+            stopped.countDown();
+        }
+    }
+
+    private void awaitConnections(long deadline) {
+        try {
+            while (openConnections.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int remaining = openConnections.get();
+        if (remaining > 0) {
+            logger.warn("Срок остановки истек, не завершено соединений: {}", remaining);
+        } else {
+            logger.info("Все запросы в обработке завершены");
+        }
+    }
+
+    private static void shutdownGroup(EventLoopGroup group, long deadline) {
+        if (group == null) {
+            return;
+        }
+        long timeout = remainingMillis(deadline);
+        // Запросы уже завершены, поэтому тихий период не нужен
+        Future<?> terminated = group.shutdownGracefully(0, timeout, TimeUnit.MILLISECONDS);
+        if (!terminated.awaitUninterruptibly(timeout + POLL_MILLIS)) {
+            logger.warn("Потоки Netty не завершились в срок");
+        }
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    @ChannelHandler.Sharable
+    private final class ConnectionTracker extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof Channel) {
+                connectionAccepted((Channel) msg);
+            }
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    private static final class NamedStep {
+        private final String name;
+        private final StopStep step;
+
+        private NamedStep(String name, StopStep step) {
+            this.name = name;
+            this.step = step;
+        }
+    }
+}
@@ -3,29 +3,30 @@ package server;
 import common.util.Constants;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
-import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.cluster.ClusterBus;
+import server.cluster.ClusterNode;
+import server.cluster.LeaderElection;
 import server.db.DatabaseConfig;
-import server.handler.HttpServerHandler;
-
-import java.util.concurrent.TimeUnit;
+import server.db.dao.AuthTokenDaoImpl;
+import server.event.EventBus;
+import server.handler.PrecompressedBody;
+import server.handler.ResponseCompression;
+import server.job.PointsExpiryJob;
+import server.job.ReportJobWorker;
+import server.job.SessionExpiryManager;
+import server.job.TokenCleanupJob;
+import server.metrics.EventLoopLagMonitor;
+import server.util.NettyConfig;
+import server.util.ServerConfig;
 
 /**
  * Главный класс сервера системы лояльности
  */
 public class ServerMain {
     private static final Logger logger = LoggerFactory.getLogger(ServerMain.class);
-    private static final int MAX_CONTENT_LENGTH = 1024 * 1024; // 1MB
-    private static final int READ_TIMEOUT_SECONDS = 60;
     
     private final int port;
     
@@ -42,44 +43,98 @@ public class ServerMain {
         logger.info("Инициализация базы данных...");
         DatabaseConfig.getDataSource(); // Инициализация пула соединений
         
-        // Настройка групп потоков для Netty
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
+        // Фоновые задачи: ночное сгорание баллов, завершение просроченных сессий, очистка токенов.
+        // При нескольких экземплярах они работают только на лидере
+        PointsExpiryJob pointsExpiryJob = new PointsExpiryJob();
+        SessionExpiryManager sessionExpiryManager = SessionExpiryManager.getInstance();
+        TokenCleanupJob tokenCleanupJob = new TokenCleanupJob();
+        LeaderElection leaderElection = null;
+        ClusterBus clusterBus = ClusterBus.getInstance();
+        if (ClusterNode.isEnabled()) {
+            // Токены входа узлы хранят в общей таблице: без нее не удался бы ни один вход
+            if (!new AuthTokenDaoImpl().isAvailable()) {
+                throw new IllegalStateException("Для режима нескольких экземпляров нужна таблица auth_tokens: "
+                        + "выполните migration_auth_tokens.sql");
+            }
+            clusterBus.subscribe(EventBus.CLUSTER_TOPIC, EventBus.getInstance()::onClusterMessage);
+            clusterBus.subscribe(PrecompressedBody.CLUSTER_TOPIC, PrecompressedBody::onClusterMessage);
+            clusterBus.subscribe(SessionExpiryManager.CLUSTER_TOPIC, sessionExpiryManager::onClusterMessage);
+            clusterBus.onReconnect(PrecompressedBody::invalidateAll);
+            clusterBus.start();
+            
+            leaderElection = new LeaderElection();
+            if (ServerConfig.getBoolean("points.expiry.enabled", true)) {
+                leaderElection.addTask("сгорание баллов", pointsExpiryJob::start, pointsExpiryJob::stop);
+            }
+            if (ServerConfig.getBoolean("sessions.expiry.enabled", true)) {
+                leaderElection.addTask("завершение сессий", sessionExpiryManager::start,
+                        timeout -> sessionExpiryManager.stop());
+            }
+            leaderElection.addTask("очистка токенов", tokenCleanupJob::start, tokenCleanupJob::stop);
+            leaderElection.start();
+            logger.info("Режим нескольких экземпляров: узел {}", ClusterNode.getId());
+        } else {
+            if (ServerConfig.getBoolean("points.expiry.enabled", true)) {
+                pointsExpiryJob.start();
+            }
+            if (ServerConfig.getBoolean("sessions.expiry.enabled", true)) {
+                sessionExpiryManager.start();
+            }
+            tokenCleanupJob.start();
+        }
+        
+        // Задания на отчеты выполняет любой экземпляр: очередь в БД, задание забирает один поток
+        ReportJobWorker reportJobWorker = ReportJobWorker.getInstance();
+        if (ServerConfig.getBoolean("report.jobs.enabled", true)) {
+            reportJobWorker.start();
+        }
+        
+        // Настройка транспорта и групп потоков для Netty
+        NettyConfig nettyConfig = NettyConfig.load();
+        EventLoopGroup bossGroup = nettyConfig.newBossGroup();
+        EventLoopGroup workerGroup = nettyConfig.newWorkerGroup();
+        
+        // Порядок остановки: запросы -> каналы событий и фоновые задачи -> event loop -> пул соединений
+        ServerLifecycle lifecycle = ServerLifecycle.getInstance();
+        lifecycle.setEventLoopGroups(bossGroup, workerGroup);
+        lifecycle.onShutdown("каналы событий", EventBus.getInstance()::closeAll);
+        if (leaderElection != null) {
+            // Освобождение блокировки сразу передает фоновые задачи другому экземпляру
+            lifecycle.onShutdown("лидерство", leaderElection::stop);
+        }
+        lifecycle.onShutdown("сгорание баллов", pointsExpiryJob::stop);
+        lifecycle.onShutdown("завершение сессий", timeout -> sessionExpiryManager.stop());
+        lifecycle.onShutdown("очистка токенов", tokenCleanupJob::stop);
+        lifecycle.onShutdown("задания на отчеты", reportJobWorker::stop);
+        lifecycle.onShutdown("обмен сообщениями", clusterBus::stop);
         
         try {
             logger.info("Запуск HTTP сервера на порту {}...", port);
+            logger.info("Сетевые параметры: {}", nettyConfig.describe(workerGroup));
+            logger.info("Сжатие ответов: {}", ResponseCompression.describe());
+            
+            // Замер задержки event loop для /api/metrics
+            EventLoopLagMonitor.start(workerGroup);
             
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .childHandler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    public void initChannel(SocketChannel ch) {
-                        ch.pipeline().addLast(
-                                new ReadTimeoutHandler(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS),
-                                new HttpServerCodec(),
-                                new HttpObjectAggregator(MAX_CONTENT_LENGTH),
-                                new HttpServerHandler()
-                        );
-                    }
-                })
-                .option(ChannelOption.SO_BACKLOG, 128)
-                .childOption(ChannelOption.SO_KEEPALIVE, true);
+                .channel(nettyConfig.serverChannelClass())
+                // Учет принятых соединений, чтобы при остановке дождаться их ответов
+                .handler(lifecycle.connectionTracker())
+                .childHandler(new ServerChannelInitializer(nettyConfig.getMaxContentLength()));
+            nettyConfig.apply(b);
             
             // Запуск сервера
             ChannelFuture f = b.bind(port).sync();
+            lifecycle.started(f.channel());
             logger.info("Сервер запущен. Порт: {}", port);
             
             // Ждем завершения работы сервера
             f.channel().closeFuture().sync();
         } finally {
-            // Корректное завершение работы
+            // Корректное завершение работы; при остановке по SIGTERM ждет уже начатую остановку
             logger.info("Завершение работы сервера...");
-            workerGroup.shutdownGracefully();
-            bossGroup.shutdownGracefully();
-            
-            // Закрываем соединения с базой данных
-            DatabaseConfig.closeDataSource();
+            lifecycle.shutdown();
             logger.info("Сервер остановлен");
         }
     }
@@ -0,0 +1,428 @@
+package server.backup;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.DatabaseConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Восстановление из архива {@link BackupArchiveWriter}.
+ * Порядок: очистка таблиц архива, снятие внешних ключей и обычных индексов, отключение
+ * пользовательских триггеров (например, пересчета уровня карты), параллельная загрузка таблиц
+ * командой COPY ... FROM STDIN, затем построение индексов, возврат внешних ключей с проверкой,
+ * включение триггеров, установка последовательностей и ANALYZE.
+ * Каждая таблица загружается в своей транзакции, а SHA-256 ее данных проверяется по мере чтения:
+ * при несовпадении транзакция откатывается и восстановление прекращается.
+ * Индексы и ключи берутся из текущей схемы БД, поэтому архив восстанавливается в схему,
+ * созданную init_full_database.sql и миграциями. На время восстановления запись в БД
+ * должна быть остановлена.
+ */
+public class BackupArchiveRestorer {
+    private static final Logger logger = LoggerFactory.getLogger(BackupArchiveRestorer.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SCHEMA = "public";
+    private static final String SELECT_TABLES =
+            "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "WHERE n.nspname = '" + SCHEMA + "' AND c.relkind = 'r'";
+    private static final String SELECT_FOREIGN_KEYS =
+            "SELECT c.conrelid::regclass::text, c.conname, pg_get_constraintdef(c.oid) FROM pg_constraint c " +
+            "WHERE c.connamespace = '" + SCHEMA + "'::regnamespace AND c.contype = 'f' " +
+            "ORDER BY c.conrelid::regclass::text, c.conname";
+    private static final String SELECT_INDEXES =
+            "SELECT t.relname, i.relname, pg_get_indexdef(ix.indexrelid) FROM pg_index ix " +
+            "JOIN pg_class i ON i.oid = ix.indexrelid " +
+            "JOIN pg_class t ON t.oid = ix.indrelid " +
+            "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+            "WHERE n.nspname = '" + SCHEMA + "' " +
+            "  AND NOT EXISTS (SELECT 1 FROM pg_constraint con WHERE con.conindid = ix.indexrelid) " +
+            "ORDER BY i.relname";
+    private static final String SELECT_SEQUENCES =
+            "SELECT sequencename FROM pg_sequences WHERE schemaname = '" + SCHEMA + "'";
+
+    private final int parallelJobs;
+
+    /**
+     * Ход восстановления
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param stage этап восстановления
+         * @param done выполнено шагов этапа
+         * @param total всего шагов этапа
+         * @param detail таблица или индекс, обработанные последними
+         */
+        void onProgress(String stage, int done, int total, String detail);
+    }
+
+    /**
+     * @param parallelJobs число соединений, загружающих таблицы и строящих индексы одновременно
+     */
+    public BackupArchiveRestorer(int parallelJobs) {
+        this.parallelJobs = Math.max(1, parallelJobs);
+    }
+
+    /**
+     * Восстанавливает данные из архива
+     * @param archive путь к архиву
+     * @param progress получатель хода восстановления
+     * @return число загруженных строк
+     * @throws SQLException при ошибке БД
+     * @throws IOException при ошибке чтения архива или несовпадении контрольной суммы таблицы
+     */
+    public long restore(Path archive, ProgressListener progress)
+            throws SQLException, IOException, InterruptedException {
+        long started = System.nanoTime();
+        BackupManifest manifest;
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            manifest = readManifest(zip);
+        }
+        if (manifest.getFormatVersion() > BackupManifest.FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата архива: " + manifest.getFormatVersion());
+        }
+        if (manifest.isIncremental()) {
+            throw new IOException("Инкрементная копия восстанавливается после сборки цепочки BackupChainMerger");
+        }
+
+        try (Connection coordinator = DatabaseConfig.openDirectConnection();
+             Statement statement = coordinator.createStatement()) {
+            statement.execute("SET statement_timeout = 0");
+            Set<String> existing = queryStrings(statement, SELECT_TABLES);
+            List<BackupManifest.TableEntry> tables = new ArrayList<>();
+            for (BackupManifest.TableEntry table : manifest.getTables()) {
+                if (BackupArchiveWriter.EXCLUDED_TABLES.contains(table.getName())) {
+                    // Копии первого формата содержали каталог копий
+                    continue;
+                }
+                if (existing.contains(table.getName())) {
+                    tables.add(table);
+                } else {
+                    logger.warn("Таблица {} из архива отсутствует в БД и пропускается", table.getName());
+                }
+            }
+
+            List<ForeignKey> foreignKeys = readForeignKeys(statement);
+            List<Index> indexes = readIndexes(statement, tables);
+            Set<String> sequences = queryStrings(statement, SELECT_SEQUENCES);
+            // Копии первого формата содержали и последовательности каталога копий
+            sequences.removeAll(queryStrings(statement, BackupArchiveWriter.SELECT_EXCLUDED_SEQUENCES));
+
+            prepare(coordinator, tables, foreignKeys, indexes);
+            long rows;
+            try {
+                rows = loadTables(archive, tables, progress);
+            } finally {
+                // Схема возвращается в исходное состояние и после неудачной загрузки
+                finish(coordinator, tables, foreignKeys, indexes, progress);
+            }
+            restoreSequences(statement, manifest.getSequences(), sequences);
+            if (existing.contains("reference_deletions")) {
+                // Клиенты, синхронизированные с данными до восстановления, загрузят справочники заново
+                statement.execute("SELECT reset_reference_sync()");
+            }
+            for (BackupManifest.TableEntry table : tables) {
+                statement.execute("ANALYZE " + qualified(table.getName()));
+            }
+            logger.info("Восстановление из {} завершено за {} мс: таблиц {}, строк {}", archive.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000, tables.size(), rows);
+            return rows;
+        }
+    }
+
+    /**
+     * Читает оглавление архива
+     * @param zip открытый архив
+     * @return оглавление
+     * @throws IOException если оглавление отсутствует или повреждено
+     */
+    public static BackupManifest readManifest(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry(BackupManifest.ENTRY_NAME);
+        if (entry == null) {
+            throw new IOException("В архиве нет оглавления " + BackupManifest.ENTRY_NAME);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return BackupManifest.readFrom(in);
+        }
+    }
+
+    private void prepare(Connection coordinator, List<BackupManifest.TableEntry> tables,
+                         List<ForeignKey> foreignKeys, List<Index> indexes) throws SQLException {
+        coordinator.setAutoCommit(false);
+        try (Statement statement = coordinator.createStatement()) {
+            // Очистка до снятия ключей: CASCADE очищает и таблицы вне архива, ссылающиеся на восстанавливаемые
+            StringBuilder truncate = new StringBuilder("TRUNCATE ");
+            for (int i = 0; i < tables.size(); i++) {
+                truncate.append(i > 0 ? ", " : "").append(qualified(tables.get(i).getName()));
+            }
+            statement.execute(truncate.append(" CASCADE").toString());
+            for (ForeignKey foreignKey : foreignKeys) {
+                statement.execute("ALTER TABLE " + foreignKey.table + " DROP CONSTRAINT "
+                        + BackupArchiveWriter.quote(foreignKey.name));
+            }
+            for (Index index : indexes) {
+                statement.execute("DROP INDEX " + qualified(index.name));
+            }
+            for (BackupManifest.TableEntry table : tables) {
+                statement.execute("ALTER TABLE " + qualified(table.getName()) + " DISABLE TRIGGER USER");
+            }
+            coordinator.commit();
+        } catch (SQLException e) {
+            coordinator.rollback();
+            throw e;
+        } finally {
+            coordinator.setAutoCommit(true);
+        }
+        logger.info("Подготовка к загрузке: очищено таблиц {}, снято внешних ключей {} и индексов {}",
+                tables.size(), foreignKeys.size(), indexes.size());
+    }
+
+    private long loadTables(Path archive, List<BackupManifest.TableEntry> tables, ProgressListener progress)
+            throws SQLException, IOException, InterruptedException {
+        AtomicInteger done = new AtomicInteger();
+        AtomicLong rows = new AtomicLong();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (BackupManifest.TableEntry table : tables) {
+            tasks.add(() -> {
+                rows.addAndGet(loadTable(archive, table));
+                progress.onProgress("загрузка", done.incrementAndGet(), tables.size(), table.getName());
+                return null;
+            });
+        }
+        runAll(tasks, "backup-restore");
+        return rows.get();
+    }
+
+    private long loadTable(Path archive, BackupManifest.TableEntry table) throws SQLException, IOException {
+        // Каждый поток открывает архив сам: чтение разных записей не мешает друг другу
+        try (ZipFile zip = new ZipFile(archive.toFile());
+             Connection connection = DatabaseConfig.openDirectConnection()) {
+            ZipEntry entry = zip.getEntry(table.getEntry());
+            if (entry == null) {
+                throw new IOException("В архиве нет данных таблицы " + table.getName());
+            }
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL statement_timeout = 0");
+                statement.execute("SET LOCAL synchronous_commit = off");
+            }
+            MessageDigest digest = BackupChecksums.newSha256();
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            long rows;
+            try (DigestInputStream raw = new DigestInputStream(zip.getInputStream(entry), digest);
+                 InputStream data = new GZIPInputStream(raw, BUFFER_SIZE)) {
+                rows = copyManager.copyIn(copyStatement(table), data, BUFFER_SIZE);
+                // Дочитываем запись до конца, чтобы хэш охватил все сжатые байты
+                raw.transferTo(OutputStream.nullOutputStream());
+            } catch (SQLException | IOException e) {
+                connection.rollback();
+                throw e;
+            }
+            String actual = BackupChecksums.hex(digest.digest());
+            if (!actual.equals(table.getSha256())) {
+                connection.rollback();
+                throw new IOException("Контрольная сумма таблицы " + table.getName() + " не совпадает");
+            }
+            connection.commit();
+            logger.debug("Таблица {} загружена: строк {}", table.getName(), rows);
+            return rows;
+        }
+    }
+
+    private void finish(Connection coordinator, List<BackupManifest.TableEntry> tables,
+                        List<ForeignKey> foreignKeys, List<Index> indexes, ProgressListener progress)
+            throws SQLException, InterruptedException, IOException {
+        AtomicInteger built = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Index index : indexes) {
+            tasks.add(() -> {
+                try (Connection connection = DatabaseConfig.openDirectConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("SET statement_timeout = 0");
+                    statement.execute(index.definition);
+                }
+                progress.onProgress("индексы", built.incrementAndGet(), indexes.size(), index.name);
+                return null;
+            });
+        }
+        try {
+            runAll(tasks, "backup-index");
+        } finally {
+            try (Statement statement = coordinator.createStatement()) {
+                int restored = 0;
+                for (ForeignKey foreignKey : foreignKeys) {
+                    String addConstraint = "ALTER TABLE " + foreignKey.table + " ADD CONSTRAINT "
+                            + BackupArchiveWriter.quote(foreignKey.name) + " " + foreignKey.definition;
+                    try {
+                        statement.execute(addConstraint);
+                    } catch (SQLException e) {
+                        // После неудачной загрузки данные могут нарушать ключ; определение сохраняется
+                        // без проверки существующих строк, иначе следующее восстановление его не увидит
+                        logger.error("Внешний ключ {} не прошел проверку и возвращен как NOT VALID: {}",
+                                foreignKey.name, e.getMessage());
+                        try {
+                            statement.execute(addConstraint + " NOT VALID");
+                        } catch (SQLException notValid) {
+                            logger.error("Не удалось вернуть внешний ключ {}: {}", foreignKey.name,
+                                    notValid.getMessage());
+                        }
+                    }
+                    progress.onProgress("внешние ключи", ++restored, foreignKeys.size(), foreignKey.name);
+                }
+                for (BackupManifest.TableEntry table : tables) {
+                    statement.execute("ALTER TABLE " + qualified(table.getName()) + " ENABLE TRIGGER USER");
+                }
+            }
+        }
+    }
+
+    private static void restoreSequences(Statement statement, Map<String, Long> values, Set<String> existing)
+            throws SQLException {
+        for (Map.Entry<String, Long> sequence : values.entrySet()) {
+            if (!existing.contains(sequence.getKey())) {
+                continue;
+            }
+            Long value = sequence.getValue();
+            String name = "'" + qualified(sequence.getKey()).replace("'", "''") + "'";
+            // Последовательность, из которой значений не выдавалось, начинает заново
+            statement.execute(value != null && value > 0
+                    ? "SELECT setval(" + name + ", " + value + ", true)"
+                    : "SELECT setval(" + name + ", 1, false)");
+        }
+    }
+
+    private void runAll(List<Callable<Void>> tasks, String threadName)
+            throws SQLException, IOException, InterruptedException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelJobs, tasks.size()), r -> {
+            Thread thread = new Thread(r, threadName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Ошибка восстановления", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<ForeignKey> readForeignKeys(Statement statement) throws SQLException {
+        List<ForeignKey> foreignKeys = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_FOREIGN_KEYS)) {
+            while (rs.next()) {
+                // Ключ, оставшийся непроверенным после прошлой неудачи, проверяется заново на новых данных
+                String definition = rs.getString(3);
+                if (definition.endsWith(" NOT VALID")) {
+                    definition = definition.substring(0, definition.length() - " NOT VALID".length());
+                }
+                foreignKeys.add(new ForeignKey(rs.getString(1), rs.getString(2), definition));
+            }
+        }
+        return foreignKeys;
+    }
+
+    /**
+     * @return обычные индексы восстанавливаемых таблиц
+     */
+    private static List<Index> readIndexes(Statement statement, List<BackupManifest.TableEntry> tables)
+            throws SQLException {
+        Set<String> names = new LinkedHashSet<>();
+        for (BackupManifest.TableEntry table : tables) {
+            names.add(table.getName());
+        }
+        List<Index> indexes = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_INDEXES)) {
+            while (rs.next()) {
+                if (names.contains(rs.getString(1))) {
+                    indexes.add(new Index(rs.getString(2), rs.getString(3)));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static Set<String> queryStrings(Statement statement, String sql) throws SQLException {
+        Set<String> values = new LinkedHashSet<>();
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+
+    private static String copyStatement(BackupManifest.TableEntry table) {
+        return BackupArchiveWriter.copyStatement(table, "FROM STDIN");
+    }
+
+    private static String qualified(String name) {
+        return SCHEMA + "." + BackupArchiveWriter.quote(name);
+    }
+
+    private static final class ForeignKey {
+        // Имя таблицы в виде regclass::text (с кавычками, если нужны)
+        private final String table;
+        private final String name;
+        private final String definition;
+
+        private ForeignKey(String table, String name, String definition) {
+            this.table = table;
+            this.name = name;
+            this.definition = definition;
+        }
+    }
+
+    private static final class Index {
+        private final String name;
+        private final String definition;
+
+        private Index(String name, String definition) {
+            this.name = name;
+            this.definition = definition;
+        }
+    }
+}
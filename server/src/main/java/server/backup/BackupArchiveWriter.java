@@ -0,0 +1,522 @@
+package server.backup;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.DatabaseConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Логическая резервная копия без pg_dump: данные всех таблиц схемы public выгружаются командой
+ * COPY ... TO STDOUT по нескольким соединениям параллельно.
+ * Согласованность обеспечивает экспортированный снимок: управляющее соединение открывает транзакцию
+ * REPEATABLE READ и экспортирует ее снимок, а каждое рабочее соединение импортирует его через
+ * SET TRANSACTION SNAPSHOT, так что все таблицы выгружаются на один и тот же момент.
+ * Каждая таблица сжимается gzip во временный файл с одновременным подсчетом SHA-256 и CRC32,
+ * затем файлы собираются в ZIP-архив без повторного сжатия вместе с оглавлением {@link BackupManifest}.
+ * Данные нигде не держатся в памяти целиком.
+ * Инкрементная копия берет из журнала backup_changes (заполняется триггерами log_backup_change)
+ * ключи строк, изменения которых не были видны в снимке родительской копии, и выгружает текущие
+ * версии этих строк. Таблицы без триггеров журнала выгружаются целиком.
+ */
+public class BackupArchiveWriter {
+    private static final Logger logger = LoggerFactory.getLogger(BackupArchiveWriter.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SCHEMA = "public";
+    // Выгружаются обычные таблицы; вычисляемые столбцы при восстановлении заполнит сам сервер БД
+    private static final String SELECT_COLUMNS =
+            "SELECT c.relname, a.attname FROM pg_class c " +
+            "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "JOIN pg_attribute a ON a.attrelid = c.oid " +
+            "WHERE n.nspname = '" + SCHEMA + "' AND c.relkind = 'r' " +
+            "  AND a.attnum > 0 AND NOT a.attisdropped AND a.attgenerated = '' " +
+            "ORDER BY pg_total_relation_size(c.oid) DESC, c.relname, a.attnum";
+    private static final String SELECT_INDEXES =
+            "SELECT i.relname, pg_get_indexdef(ix.indexrelid) FROM pg_index ix " +
+            "JOIN pg_class i ON i.oid = ix.indexrelid " +
+            "JOIN pg_class t ON t.oid = ix.indrelid " +
+            "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+            "WHERE n.nspname = '" + SCHEMA + "' " +
+            "  AND NOT EXISTS (SELECT 1 FROM pg_constraint con WHERE con.conindid = ix.indexrelid) " +
+            "ORDER BY i.relname";
+    /**
+     * Каталог копий, журнал изменений, очередь заданий на отчеты с результатами и журнал удалений справочников
+     * не входят в копию: восстановление не должно их перезаписывать
+     */
+    static final Set<String> EXCLUDED_TABLES = Set.of("backups", "backup_changes", "report_jobs",
+            "report_job_results", "reference_deletions");
+    /** Последовательности столбцов SERIAL исключенных таблиц */
+    static final String SELECT_EXCLUDED_SEQUENCES =
+            "SELECT s.relname FROM pg_class s " +
+            "JOIN pg_depend d ON d.classid = 'pg_class'::regclass AND d.objid = s.oid AND d.deptype IN ('a', 'i') " +
+            "JOIN pg_class t ON t.oid = d.refobjid " +
+            "WHERE s.relkind = 'S' AND t.relname IN ('" + String.join("', '", EXCLUDED_TABLES) + "')";
+    private static final String SELECT_SEQUENCES =
+            "SELECT sequencename, last_value FROM pg_sequences WHERE schemaname = '" + SCHEMA + "' " +
+            "AND sequencename NOT IN (" + SELECT_EXCLUDED_SEQUENCES + ") ORDER BY sequencename";
+    private static final String SELECT_PRIMARY_KEYS =
+            "SELECT c.relname, a.attname, format_type(a.atttypid, a.atttypmod) FROM pg_index ix " +
+            "JOIN pg_class c ON c.oid = ix.indrelid " +
+            "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum = ix.indkey[0] " +
+            "WHERE n.nspname = '" + SCHEMA + "' AND ix.indisprimary AND ix.indnatts = 1";
+    // Журнал ведется для таблицы, если на ней включены оба триггера: строк (INSERT, UPDATE, DELETE) и TRUNCATE
+    private static final String SELECT_TRACKED_TABLES =
+            "SELECT c.relname FROM pg_trigger t " +
+            "JOIN pg_class c ON c.oid = t.tgrelid " +
+            "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "JOIN pg_proc p ON p.oid = t.tgfoid " +
+            "WHERE n.nspname = '" + SCHEMA + "' AND p.proname = 'log_backup_change' " +
+            "  AND NOT t.tgisinternal AND t.tgenabled <> 'D' " +
+            "GROUP BY c.relname " +
+            "HAVING bool_or(t.tgtype & 29 = 29) AND bool_or(t.tgtype & 32 = 32)";
+    // Строка без ключа означает TRUNCATE таблицы
+    private static final String SELECT_CHANGED_TABLES =
+            "SELECT table_name, bool_or(row_key IS NULL) FROM " + SCHEMA + ".backup_changes " +
+            "WHERE NOT txid_visible_in_snapshot(txid, ?::txid_snapshot) GROUP BY table_name";
+    private static final String SNAPSHOT_TRANSACTION = "SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY";
+    // Формат txid_snapshot: xmin:xmax:xip_list
+    private static final Pattern TX_SNAPSHOT = Pattern.compile("\\d+:\\d+:[\\d,]*");
+
+    private final int parallelJobs;
+    private final int compressionLevel;
+
+    /**
+     * @param parallelJobs число соединений, выгружающих таблицы одновременно
+     * @param compressionLevel уровень сжатия gzip (1-9)
+     */
+    public BackupArchiveWriter(int parallelJobs, int compressionLevel) {
+        this.parallelJobs = Math.max(1, parallelJobs);
+        this.compressionLevel = Math.min(Deflater.BEST_COMPRESSION, Math.max(Deflater.BEST_SPEED, compressionLevel));
+    }
+
+    /**
+     * Результат создания архива
+     */
+    public static final class Result {
+        private final BackupManifest manifest;
+        private final String sha256;
+        private final long size;
+
+        private Result(BackupManifest manifest, String sha256, long size) {
+            this.manifest = manifest;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public BackupManifest getManifest() {
+            return manifest;
+        }
+
+        /**
+         * @return SHA-256 всего архива
+         */
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Создает архив полной резервной копии. Архив сначала пишется во временный файл и переименовывается
+     * только после успешного завершения, поэтому прерванная копия не оставляет битого архива.
+     * @param archive путь к создаваемому архиву
+     * @return оглавление, SHA-256 и размер архива
+     * @throws SQLException при ошибке выгрузки
+     * @throws IOException при ошибке записи
+     */
+    public Result write(Path archive) throws SQLException, IOException, InterruptedException {
+        return write(archive, null, null, null);
+    }
+
+    /**
+     * Создает архив инкрементной копии с изменениями после родительской копии
+     * @param archive путь к создаваемому архиву
+     * @param parentTxSnapshot снимок транзакций родительской копии (полной или инкрементной)
+     * @param parentFile имя файла родительской копии
+     * @param parentSha256 SHA-256 архива родительской копии
+     * @return оглавление, SHA-256 и размер архива
+     * @throws IOException если снимок родительской копии не задан или поврежден
+     */
+    public Result writeIncremental(Path archive, String parentTxSnapshot, String parentFile, String parentSha256)
+            throws SQLException, IOException, InterruptedException {
+        if (parentTxSnapshot == null || !TX_SNAPSHOT.matcher(parentTxSnapshot).matches()) {
+            throw new IOException("Нет снимка транзакций родительской копии " + parentFile);
+        }
+        return write(archive, parentTxSnapshot, parentFile, parentSha256);
+    }
+
+    private Result write(Path archive, String since, String parentFile, String parentSha256)
+            throws SQLException, IOException, InterruptedException {
+        long started = System.nanoTime();
+        Path parts = archive.resolveSibling(archive.getFileName() + ".parts");
+        Files.createDirectories(parts);
+        try (Connection coordinator = DatabaseConfig.openDirectConnection()) {
+            coordinator.setAutoCommit(false);
+            BackupManifest manifest = new BackupManifest();
+            manifest.setCreatedAt(LocalDateTime.now());
+            Map<String, String> keyTypes = new HashMap<>();
+            try (Statement statement = coordinator.createStatement()) {
+                statement.execute(SNAPSHOT_TRANSACTION);
+                manifest.setSnapshotId(queryString(statement, "SELECT pg_export_snapshot()"));
+                manifest.setTxSnapshot(queryString(statement, "SELECT txid_current_snapshot()::text"));
+                manifest.setServerVersion(queryString(statement, "SHOW server_version"));
+                manifest.setTables(readTables(statement, keyTypes));
+                manifest.setIndexes(readIndexes(statement));
+                manifest.setSequences(readSequences(statement));
+                if (since != null) {
+                    manifest.setKind(BackupManifest.KIND_INCREMENTAL);
+                    manifest.setParentFile(parentFile);
+                    manifest.setParentSha256(parentSha256);
+                    manifest.setTables(selectChanged(coordinator, statement, manifest.getTables(), since));
+                }
+            }
+            logger.info("Резервное копирование ({}): таблиц {}, снимок {}, потоков {}", manifest.getKind(),
+                    manifest.getTables().size(), manifest.getSnapshotId(), parallelJobs);
+
+            // Снимок действует, пока открыта транзакция управляющего соединения
+            Map<String, TableParts> dumped = dumpTables(manifest, parts, since, keyTypes);
+            coordinator.rollback();
+
+            Result result = assemble(archive, manifest, dumped);
+            logger.info("Архив {} создан за {} мс: {} байт, строк {}", archive.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000, result.getSize(),
+                    manifest.getTables().stream().mapToLong(BackupManifest.TableEntry::getRows).sum());
+            return result;
+        } finally {
+            deleteRecursively(parts);
+        }
+    }
+
+    /**
+     * Оставляет в оглавлении инкрементной копии только измененные таблицы. Таблица без журнала
+     * изменений или очищенная TRUNCATE выгружается целиком.
+     */
+    private static List<BackupManifest.TableEntry> selectChanged(Connection coordinator, Statement statement,
+            List<BackupManifest.TableEntry> tables, String since) throws SQLException {
+        Set<String> tracked = new HashSet<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_TRACKED_TABLES)) {
+            while (rs.next()) {
+                tracked.add(rs.getString(1));
+            }
+        }
+        Map<String, Boolean> changed = new HashMap<>();
+        try (PreparedStatement query = coordinator.prepareStatement(SELECT_CHANGED_TABLES)) {
+            query.setString(1, since);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    changed.put(rs.getString(1), rs.getBoolean(2));
+                }
+            }
+        }
+        List<BackupManifest.TableEntry> selected = new ArrayList<>();
+        for (BackupManifest.TableEntry table : tables) {
+            if (!tracked.contains(table.getName()) || table.getKey() == null) {
+                logger.warn("Для таблицы {} нет журнала изменений, она выгружается целиком", table.getName());
+                selected.add(table);
+            } else if (changed.containsKey(table.getName())) {
+                boolean truncated = changed.get(table.getName());
+                table.setComplete(truncated);
+                if (!truncated) {
+                    table.setKeysEntry("keys/" + table.getName() + ".keys.gz");
+                }
+                selected.add(table);
+            }
+        }
+        return selected;
+    }
+
+    private Map<String, TableParts> dumpTables(BackupManifest manifest, Path parts, String since,
+                                               Map<String, String> keyTypes)
+            throws SQLException, IOException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelJobs, Math.max(1, manifest.getTables().size())), r -> {
+                    Thread thread = new Thread(r, "backup-copy-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<String, Future<TableParts>> futures = new LinkedHashMap<>();
+            for (BackupManifest.TableEntry table : manifest.getTables()) {
+                futures.put(table.getName(), executor.submit(() -> dumpTable(table, manifest.getSnapshotId(),
+                        parts, since, keyTypes.get(table.getName()))));
+            }
+            Map<String, TableParts> dumped = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<TableParts>> future : futures.entrySet()) {
+                dumped.put(future.getKey(), future.getValue().get());
+            }
+            return dumped;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Ошибка выгрузки таблицы", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TableParts dumpTable(BackupManifest.TableEntry table, String snapshotId, Path parts,
+                                 String since, String keyType) throws SQLException, IOException {
+        try (Connection connection = DatabaseConfig.openDirectConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(SNAPSHOT_TRANSACTION);
+                statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                // Выгрузка большой таблицы не должна упираться в таймаут запросов
+                statement.execute("SET LOCAL statement_timeout = 0");
+            }
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            TableParts dumped = new TableParts();
+            if (table.isComplete()) {
+                dumped.data = copyOut(copyManager, copyStatement(table, "TO STDOUT"),
+                        parts.resolve(table.getName() + ".copy.gz"));
+                table.setRows(dumped.data.rows);
+            } else {
+                String changes = changesSince(table, since);
+                dumped.keys = copyOut(copyManager, "COPY (SELECT DISTINCT c.row_key " + changes + ") TO STDOUT",
+                        parts.resolve(table.getName() + ".keys.gz"));
+                dumped.data = copyOut(copyManager, "COPY (SELECT " + columnList(table) + " FROM " + SCHEMA + "."
+                        + quote(table.getName()) + " WHERE " + quote(table.getKey()) + " IN (SELECT c.row_key::"
+                        + keyType + " " + changes + ")) TO STDOUT", parts.resolve(table.getName() + ".copy.gz"));
+                table.setRows(dumped.data.rows);
+                table.setChangedKeys(dumped.keys.rows);
+                table.setKeysSha256(dumped.keys.part.getSha256());
+            }
+            connection.rollback();
+            table.setBytes(dumped.data.part.getSize());
+            table.setSha256(dumped.data.part.getSha256());
+            logger.debug("Таблица {} выгружена: строк {}, {} байт", table.getName(), table.getRows(), table.getBytes());
+            return dumped;
+        }
+    }
+
+    private DumpedPart copyOut(CopyManager copyManager, String sql, Path file) throws SQLException, IOException {
+        TablePart part = new TablePart(file, compressionLevel);
+        long rows;
+        try (part) {
+            rows = copyManager.copyOut(sql, part.out());
+        }
+        return new DumpedPart(part, rows);
+    }
+
+    /**
+     * Записи журнала о строках таблицы, изменения которых не были видны в снимке родительской копии.
+     * Значения подставляются в текст запроса, так как COPY не принимает параметров.
+     */
+    private static String changesSince(BackupManifest.TableEntry table, String since) {
+        return "FROM " + SCHEMA + ".backup_changes c " +
+                "WHERE c.table_name = '" + table.getName().replace("'", "''") + "' AND c.row_key IS NOT NULL " +
+                "AND NOT txid_visible_in_snapshot(c.txid, '" + since + "'::txid_snapshot)";
+    }
+
+    /**
+     * Собирает архив из выгруженных частей: оглавление первым, затем данные без повторного сжатия
+     * @param archive путь к архиву
+     * @param manifest оглавление
+     * @param dumped части по именам таблиц
+     * @return оглавление, SHA-256 и размер архива
+     */
+    static Result assemble(Path archive, BackupManifest manifest, Map<String, TableParts> dumped) throws IOException {
+        Path temporary = archive.resolveSibling(archive.getFileName() + ".tmp");
+        MessageDigest digest = BackupChecksums.newSha256();
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE);
+             ZipOutputStream zip = new ZipOutputStream(new DigestOutputStream(fileOut, digest))) {
+            zip.putNextEntry(new ZipEntry(BackupManifest.ENTRY_NAME));
+            manifest.writeTo(zip);
+            zip.closeEntry();
+
+            for (BackupManifest.TableEntry table : manifest.getTables()) {
+                TableParts parts = dumped.get(table.getName());
+                putStored(zip, table.getEntry(), parts.data.part);
+                if (parts.keys != null) {
+                    putStored(zip, table.getKeysEntry(), parts.keys.part);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, archive, StandardCopyOption.ATOMIC_MOVE);
+        return new Result(manifest, BackupChecksums.hex(digest.digest()), Files.size(archive));
+    }
+
+    private static void putStored(ZipOutputStream zip, String name, TablePart part) throws IOException {
+        // Данные уже сжаты gzip: в архив они кладутся без повторного сжатия
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(part.getSize());
+        entry.setCompressedSize(part.getSize());
+        entry.setCrc(part.getCrc());
+        zip.putNextEntry(entry);
+        try (InputStream in = Files.newInputStream(part.getFile())) {
+            in.transferTo(zip);
+        }
+        zip.closeEntry();
+    }
+
+    private static List<BackupManifest.TableEntry> readTables(Statement statement, Map<String, String> keyTypes)
+            throws SQLException {
+        Map<String, BackupManifest.TableEntry> tables = new LinkedHashMap<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_COLUMNS)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (EXCLUDED_TABLES.contains(name)) {
+                    continue;
+                }
+                BackupManifest.TableEntry table = tables.computeIfAbsent(name, key -> {
+                    BackupManifest.TableEntry entry = new BackupManifest.TableEntry();
+                    entry.setName(key);
+                    entry.setEntry("data/" + key + ".copy.gz");
+                    return entry;
+                });
+                table.getColumns().add(rs.getString(2));
+            }
+        }
+        try (ResultSet rs = statement.executeQuery(SELECT_PRIMARY_KEYS)) {
+            while (rs.next()) {
+                BackupManifest.TableEntry table = tables.get(rs.getString(1));
+                if (table != null) {
+                    table.setKey(rs.getString(2));
+                    keyTypes.put(table.getName(), rs.getString(3));
+                }
+            }
+        }
+        return new ArrayList<>(tables.values());
+    }
+
+    private static Map<String, String> readIndexes(Statement statement) throws SQLException {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_INDEXES)) {
+            while (rs.next()) {
+                indexes.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        return indexes;
+    }
+
+    private static Map<String, Long> readSequences(Statement statement) throws SQLException {
+        Map<String, Long> sequences = new LinkedHashMap<>();
+        try (ResultSet rs = statement.executeQuery(SELECT_SEQUENCES)) {
+            while (rs.next()) {
+                long value = rs.getLong(2);
+                sequences.put(rs.getString(1), rs.wasNull() ? null : value);
+            }
+        }
+        return sequences;
+    }
+
+    private static String queryString(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    /**
+     * @param direction TO STDOUT или FROM STDIN
+     * @return COPY с явным списком столбцов, чтобы порядок совпадал с оглавлением
+     */
+    static String copyStatement(BackupManifest.TableEntry table, String direction) {
+        return "COPY " + SCHEMA + "." + quote(table.getName()) + " (" + columnList(table) + ") " + direction;
+    }
+
+    private static String columnList(BackupManifest.TableEntry table) {
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < table.getColumns().size(); i++) {
+            if (i > 0) {
+                columns.append(", ");
+            }
+            columns.append(quote(table.getColumns().get(i)));
+        }
+        return columns.toString();
+    }
+
+    static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    logger.warn("Не удалось удалить временный файл {}", path);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить временную директорию {}", directory);
+        }
+    }
+
+    /**
+     * Выгруженные части таблицы: данные и, для изменений, ключи измененных строк
+     */
+    static final class TableParts {
+        private DumpedPart data;
+        private DumpedPart keys;
+
+        TableParts() {
+        }
+
+        TableParts(TablePart data, long rows, TablePart keys, long keyRows) {
+            this.data = new DumpedPart(data, rows);
+            this.keys = keys != null ? new DumpedPart(keys, keyRows) : null;
+        }
+    }
+
+    private static final class DumpedPart {
+        private final TablePart part;
+        private final long rows;
+
+        private DumpedPart(TablePart part, long rows) {
+            this.part = part;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package server.backup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Сборка полной копии из цепочки: полная копия и следующие за ней инкрементные.
+ * Копии просматриваются от новой к старой, и строка с данным ключом берется из самой новой копии,
+ * в которой она менялась; ключ, измененный в копии без строки с данными, означает удаление.
+ * Более старые копии таблицы не просматриваются после копии, где таблица выгружена целиком.
+ * В памяти держатся только ключи измененных строк, поэтому объем памяти зависит от числа изменений
+ * в цепочке, а не от размера таблиц. Результат - обычный архив полной копии, который восстанавливает
+ * {@link BackupArchiveRestorer}; БД при сборке не используется.
+ */
+public class BackupChainMerger {
+    private static final Logger logger = LoggerFactory.getLogger(BackupChainMerger.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int parallelJobs;
+    private final int compressionLevel;
+
+    /**
+     * @param parallelJobs число таблиц, собираемых одновременно
+     * @param compressionLevel уровень сжатия gzip (1-9)
+     */
+    public BackupChainMerger(int parallelJobs, int compressionLevel) {
+        this.parallelJobs = Math.max(1, parallelJobs);
+        this.compressionLevel = Math.min(Deflater.BEST_COMPRESSION, Math.max(Deflater.BEST_SPEED, compressionLevel));
+    }
+
+    /**
+     * Собирает полную копию на момент последней копии цепочки
+     * @param chain архивы от полной копии к последней инкрементной
+     * @param target путь к создаваемому архиву
+     * @return оглавление, SHA-256 и размер архива
+     * @throws IOException если цепочка разорвана, архив поврежден или изменилась схема таблицы
+     */
+    public BackupArchiveWriter.Result merge(List<Path> chain, Path target) throws IOException, InterruptedException {
+        if (chain.isEmpty()) {
+            throw new IOException("Пустая цепочка резервных копий");
+        }
+        long started = System.nanoTime();
+        List<ZipFile> archives = new ArrayList<>();
+        Path parts = target.resolveSibling(target.getFileName() + ".parts");
+        try {
+            List<BackupManifest> manifests = new ArrayList<>();
+            for (int i = 0; i < chain.size(); i++) {
+                ZipFile zip = new ZipFile(chain.get(i).toFile());
+                archives.add(zip);
+                BackupManifest manifest = BackupArchiveRestorer.readManifest(zip);
+                checkLink(chain, i, manifest);
+                manifests.add(manifest);
+            }
+
+            BackupManifest last = manifests.get(manifests.size() - 1);
+            BackupManifest merged = new BackupManifest();
+            merged.setCreatedAt(last.getCreatedAt());
+            merged.setSnapshotId(last.getSnapshotId());
+            merged.setTxSnapshot(last.getTxSnapshot());
+            merged.setServerVersion(last.getServerVersion());
+            merged.setIndexes(last.getIndexes());
+            merged.setSequences(last.getSequences());
+            merged.setTables(mergedTables(manifests));
+
+            Files.createDirectories(parts);
+            Map<String, BackupArchiveWriter.TableParts> dumped = mergeTables(merged, manifests, archives, parts);
+            BackupArchiveWriter.Result result = BackupArchiveWriter.assemble(target, merged, dumped);
+            logger.info("Цепочка из {} копий собрана в {} за {} мс: {} байт", chain.size(), target.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000, result.getSize());
+            return result;
+        } finally {
+            for (ZipFile zip : archives) {
+                zip.close();
+            }
+            BackupArchiveWriter.deleteRecursively(parts);
+        }
+    }
+
+    private static void checkLink(List<Path> chain, int index, BackupManifest manifest) throws IOException {
+        Path archive = chain.get(index);
+        if (manifest.getFormatVersion() > BackupManifest.FORMAT_VERSION) {
+            throw new IOException("Неподдерживаемая версия формата архива " + archive.getFileName());
+        }
+        if (index == 0) {
+            if (manifest.isIncremental()) {
+                throw new IOException("Цепочка должна начинаться с полной копии: " + archive.getFileName());
+            }
+            return;
+        }
+        if (!manifest.isIncremental()) {
+            throw new IOException("В середине цепочки полная копия: " + archive.getFileName());
+        }
+        String parentSha256 = BackupChecksums.sha256(chain.get(index - 1));
+        if (!parentSha256.equals(manifest.getParentSha256())) {
+            throw new IOException("Копия " + archive.getFileName() + " сделана не от "
+                    + chain.get(index - 1).getFileName());
+        }
+    }
+
+    /**
+     * Таблицы итоговой копии: таблицы полной копии и появившиеся позже, со столбцами самой новой копии
+     */
+    private static List<BackupManifest.TableEntry> mergedTables(List<BackupManifest> manifests) {
+        Map<String, BackupManifest.TableEntry> tables = new LinkedHashMap<>();
+        for (BackupManifest manifest : manifests) {
+            for (BackupManifest.TableEntry source : manifest.getTables()) {
+                BackupManifest.TableEntry table = new BackupManifest.TableEntry();
+                table.setName(source.getName());
+                table.setEntry("data/" + source.getName() + ".copy.gz");
+                table.setColumns(source.getColumns());
+                table.setKey(source.getKey());
+                tables.put(source.getName(), table);
+            }
+        }
+        return new ArrayList<>(tables.values());
+    }
+
+    private Map<String, BackupArchiveWriter.TableParts> mergeTables(BackupManifest merged,
+            List<BackupManifest> manifests, List<ZipFile> archives, Path parts)
+            throws IOException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelJobs, Math.max(1, merged.getTables().size())), r -> {
+                    Thread thread = new Thread(r, "backup-merge-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<String, Future<BackupArchiveWriter.TableParts>> futures = new LinkedHashMap<>();
+            for (BackupManifest.TableEntry table : merged.getTables()) {
+                futures.put(table.getName(), executor.submit(() -> mergeTable(table, manifests, archives, parts)));
+            }
+            Map<String, BackupArchiveWriter.TableParts> dumped = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<BackupArchiveWriter.TableParts>> future : futures.entrySet()) {
+                dumped.put(future.getKey(), future.getValue().get());
+            }
+            return dumped;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Ошибка сборки таблицы", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BackupArchiveWriter.TableParts mergeTable(BackupManifest.TableEntry table, List<BackupManifest> manifests,
+            List<ZipFile> archives, Path parts) throws IOException {
+        TablePart part = new TablePart(parts.resolve(table.getName() + ".copy.gz"), compressionLevel);
+        Set<String> decided = new HashSet<>();
+        long rows = 0;
+        try (part) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(part.out(), StandardCharsets.UTF_8), BUFFER_SIZE);
+            for (int i = manifests.size() - 1; i >= 0; i--) {
+                BackupManifest.TableEntry source = find(manifests.get(i), table.getName());
+                if (source == null) {
+                    continue;
+                }
+                if (!source.getColumns().equals(table.getColumns())) {
+                    throw new IOException("Столбцы таблицы " + table.getName() + " изменились после копии от "
+                            + manifests.get(i).getCreatedAt() + ", нужна новая полная копия");
+                }
+                int keyIndex = source.getKey() != null ? source.getColumns().indexOf(source.getKey()) : -1;
+                if (!decided.isEmpty() && keyIndex < 0) {
+                    throw new IOException("У таблицы " + table.getName() + " нет ключа для сборки изменений");
+                }
+                rows += copyRows(archives.get(i), source.getEntry(), source.getSha256(), keyIndex, decided, out);
+                if (source.isComplete()) {
+                    // Более старые копии таблицы перекрыты целиком
+                    break;
+                }
+                readKeys(archives.get(i), source.getKeysEntry(), source.getKeysSha256(), decided);
+            }
+            out.flush();
+        }
+        table.setRows(rows);
+        table.setBytes(part.getSize());
+        table.setSha256(part.getSha256());
+        logger.debug("Таблица {} собрана: строк {}", table.getName(), rows);
+        return new BackupArchiveWriter.TableParts(part, rows, null, 0);
+    }
+
+    /**
+     * Переписывает строки COPY, ключи которых еще не решены более новой копией
+     */
+    private static long copyRows(ZipFile zip, String entryName, String sha256, int keyIndex, Set<String> decided,
+                                 Writer out) throws IOException {
+        long rows = 0;
+        try (VerifiedEntry entry = new VerifiedEntry(zip, entryName, sha256)) {
+            String line;
+            while ((line = entry.reader.readLine()) != null) {
+                if (decided.isEmpty() || !decided.contains(field(line, keyIndex))) {
+                    out.write(line);
+                    out.write('\n');
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void readKeys(ZipFile zip, String entryName, String sha256, Set<String> decided)
+            throws IOException {
+        try (VerifiedEntry entry = new VerifiedEntry(zip, entryName, sha256)) {
+            String line;
+            while ((line = entry.reader.readLine()) != null) {
+                decided.add(line);
+            }
+        }
+    }
+
+    /**
+     * Поле строки COPY text в экранированном виде: табуляция внутри значений экранируется,
+     * поэтому разделителем всегда служит настоящая табуляция
+     */
+    private static String field(String line, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = line.indexOf('\t', start) + 1;
+        }
+        int end = line.indexOf('\t', start);
+        return end < 0 ? line.substring(start) : line.substring(start, end);
+    }
+
+    private static BackupManifest.TableEntry find(BackupManifest manifest, String table) {
+        for (BackupManifest.TableEntry entry : manifest.getTables()) {
+            if (entry.getName().equals(table)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Чтение записи архива с проверкой SHA-256 сжатых данных при закрытии
+     */
+    private static final class VerifiedEntry implements AutoCloseable {
+        private final String name;
+        private final String expectedSha256;
+        private final MessageDigest digest = BackupChecksums.newSha256();
+        private final DigestInputStream raw;
+        private final BufferedReader reader;
+
+        private VerifiedEntry(ZipFile zip, String name, String expectedSha256) throws IOException {
+            ZipEntry entry = name != null ? zip.getEntry(name) : null;
+            if (entry == null) {
+                throw new IOException("В архиве " + zip.getName() + " нет записи " + name);
+            }
+            this.name = name;
+            this.expectedSha256 = expectedSha256;
+            InputStream in = zip.getInputStream(entry);
+            this.raw = new DigestInputStream(in, digest);
+            this.reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(raw, BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (reader) {
+                // Данные после конца gzip тоже входят в контрольную сумму
+                raw.transferTo(OutputStream.nullOutputStream());
+                String actual = BackupChecksums.hex(digest.digest());
+                if (!actual.equals(expectedSha256)) {
+                    throw new IOException("Контрольная сумма записи " + name + " не совпадает");
+                }
+            }
+        }
+    }
+}
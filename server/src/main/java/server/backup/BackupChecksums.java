@@ -0,0 +1,58 @@
+package server.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Контрольные суммы файлов резервных копий. Файл читается потоком блоками,
+ * поэтому расход памяти не зависит от размера копии.
+ */
+public final class BackupChecksums {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BackupChecksums() {
+    }
+
+    /**
+     * @return новый экземпляр SHA-256
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязателен для любой реализации Java
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Вычисляет SHA-256 файла
+     * @param file файл
+     * @return хэш в шестнадцатеричном виде
+     * @throws IOException если файл не удалось прочитать
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Хэш обновляется при чтении
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * @param hash значение хэша
+     * @return хэш в шестнадцатеричном виде
+     */
+    public static String hex(byte[] hash) {
+        return HexFormat.of().formatHex(hash);
+    }
+}
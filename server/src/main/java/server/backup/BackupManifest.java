@@ -0,0 +1,298 @@
+package server.backup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Оглавление архива резервной копии (запись manifest.json).
+ * Для каждой таблицы хранятся имя записи архива с данными COPY (text, gzip), список столбцов,
+ * число строк и SHA-256 сжатых данных; кроме того - определения индексов и значения
+ * последовательностей на момент снимка, нужные при восстановлении.
+ * Инкрементная копия ({@link #KIND_INCREMENTAL}) содержит только таблицы, измененные после
+ * снимка родительской копии: для каждой - ключи измененных строк и текущие версии этих строк.
+ */
+public class BackupManifest {
+    /** Имя записи с оглавлением в архиве */
+    public static final String ENTRY_NAME = "manifest.json";
+    /** Версия формата архива */
+    public static final int FORMAT_VERSION = 2;
+    /** Полная копия: все таблицы целиком */
+    public static final String KIND_FULL = "FULL";
+    /** Инкрементная копия: изменения после родительской копии */
+    public static final String KIND_INCREMENTAL = "INCREMENTAL";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.CLOSE_CLOSEABLE)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private int formatVersion = FORMAT_VERSION;
+    private LocalDateTime createdAt;
+    private String snapshotId;
+    private String serverVersion;
+    private String kind = KIND_FULL;
+    private String txSnapshot;
+    private String parentFile;
+    private String parentSha256;
+    private List<TableEntry> tables = new ArrayList<>();
+    private Map<String, String> indexes = new LinkedHashMap<>();
+    private Map<String, Long> sequences = new LinkedHashMap<>();
+
+    /**
+     * Записывает оглавление в поток, не закрывая его
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        MAPPER.writerWithDefaultPrettyPrinter()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(out, this);
+    }
+
+    /**
+     * Читает оглавление из потока, не закрывая его
+     */
+    public static BackupManifest readFrom(InputStream in) throws IOException {
+        return MAPPER.readerFor(BackupManifest.class)
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .readValue(in);
+    }
+
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    public void setFormatVersion(int formatVersion) {
+        this.formatVersion = formatVersion;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public void setServerVersion(String serverVersion) {
+        this.serverVersion = serverVersion;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public boolean isIncremental() {
+        return KIND_INCREMENTAL.equals(kind);
+    }
+
+    /**
+     * @return снимок транзакций (txid_current_snapshot) на момент копии; изменения, невидимые
+     * в нем, попадут в следующую инкрементную копию
+     */
+    public String getTxSnapshot() {
+        return txSnapshot;
+    }
+
+    public void setTxSnapshot(String txSnapshot) {
+        this.txSnapshot = txSnapshot;
+    }
+
+    /**
+     * @return имя файла родительской копии (только для инкрементной)
+     */
+    public String getParentFile() {
+        return parentFile;
+    }
+
+    public void setParentFile(String parentFile) {
+        this.parentFile = parentFile;
+    }
+
+    /**
+     * @return SHA-256 архива родительской копии (только для инкрементной)
+     */
+    public String getParentSha256() {
+        return parentSha256;
+    }
+
+    public void setParentSha256(String parentSha256) {
+        this.parentSha256 = parentSha256;
+    }
+
+    public List<TableEntry> getTables() {
+        return tables;
+    }
+
+    public void setTables(List<TableEntry> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * @return имя индекса -> CREATE INDEX; индексы ограничений (первичных ключей, UNIQUE) сюда не входят
+     */
+    public Map<String, String> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(Map<String, String> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return имя последовательности -> последнее выданное значение (null, если значений не выдавалось)
+     */
+    public Map<String, Long> getSequences() {
+        return sequences;
+    }
+
+    public void setSequences(Map<String, Long> sequences) {
+        this.sequences = sequences;
+    }
+
+    /**
+     * Данные одной таблицы в архиве
+     */
+    public static class TableEntry {
+        private String name;
+        private String entry;
+        private List<String> columns = new ArrayList<>();
+        private long rows;
+        private long bytes;
+        private String sha256;
+        private String key;
+        private boolean complete = true;
+        private String keysEntry;
+        private long changedKeys;
+        private String keysSha256;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getEntry() {
+            return entry;
+        }
+
+        public void setEntry(String entry) {
+            this.entry = entry;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public void setColumns(List<String> columns) {
+            this.columns = columns;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+
+        /**
+         * @return столбец первичного ключа или null, если ключ не из одного столбца
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return true, если таблица выгружена целиком (в полной копии, а в инкрементной -
+         * после TRUNCATE или для таблицы без журнала изменений)
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public void setComplete(boolean complete) {
+            this.complete = complete;
+        }
+
+        /**
+         * @return запись архива с ключами измененных строк (COPY text, gzip); null для таблицы целиком
+         */
+        public String getKeysEntry() {
+            return keysEntry;
+        }
+
+        public void setKeysEntry(String keysEntry) {
+            this.keysEntry = keysEntry;
+        }
+
+        /**
+         * @return число измененных строк; строки с ключом без данных были удалены
+         */
+        public long getChangedKeys() {
+            return changedKeys;
+        }
+
+        public void setChangedKeys(long changedKeys) {
+            this.changedKeys = changedKeys;
+        }
+
+        public String getKeysSha256() {
+            return keysSha256;
+        }
+
+        public void setKeysSha256(String keysSha256) {
+            this.keysSha256 = keysSha256;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package server.backup;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сжатые данные одной записи архива во временном файле.
+ * Данные сжимаются gzip, а по сжатому потоку одновременно считаются SHA-256 (для оглавления),
+ * CRC32 и размер (для записи без повторного сжатия в ZIP).
+ */
+final class TablePart implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final MessageDigest digest = BackupChecksums.newSha256();
+    private final CRC32 crc = new CRC32();
+    private final CountingOutputStream counting;
+    private final GZIPOutputStream gzip;
+
+    /**
+     * @param file временный файл
+     * @param compressionLevel уровень сжатия gzip
+     */
+    TablePart(Path file, int compressionLevel) throws IOException {
+        this.file = file;
+        OutputStream fileOut = Files.newOutputStream(file);
+        try {
+            this.counting = new CountingOutputStream(
+                    new DigestOutputStream(new CheckedOutputStream(fileOut, crc), digest));
+            this.gzip = new GZIPOutputStream(counting, BUFFER_SIZE) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
+        } catch (IOException e) {
+            fileOut.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return поток для несжатых данных
+     */
+    OutputStream out() {
+        return gzip;
+    }
+
+    /**
+     * Завершает сжатие; после этого доступны размер и контрольные суммы
+     */
+    @Override
+    public void close() throws IOException {
+        gzip.close();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * @return размер сжатых данных
+     */
+    long getSize() {
+        return counting.count;
+    }
+
+    /**
+     * @return SHA-256 сжатых данных; вызывается один раз после {@link #close()}
+     */
+    String getSha256() {
+        return BackupChecksums.hex(digest.digest());
+    }
+
+    /**
+     * Считает записанные байты (сжатый размер)
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
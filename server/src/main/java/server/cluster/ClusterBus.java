@@ -0,0 +1,240 @@
+package server.cluster;
+
+import org.jdbi.v3.core.JdbiException;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.DatabaseConfig;
+import server.db.QueryExecutor;
+import server.util.ServerConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Обмен сообщениями между экземплярами сервера через LISTEN/NOTIFY PostgreSQL.
+ * Сообщения отправляются через pg_notify из пула соединений в отдельном потоке, чтобы не задерживать
+ * запросы, а принимаются на отдельном соединении вне пула. Собственные сообщения экземпляр
+ * пропускает. После потери соединения оно открывается заново, а подписчики получают уведомление
+ * о возможном пропуске сообщений.
+ */
+public final class ClusterBus {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterBus.class);
+    private static final ClusterBus INSTANCE = new ClusterBus();
+    private static final String PUBLISH = "SELECT pg_notify(?, ?)";
+    private static final char SEPARATOR = '\n';
+    // Предел размера уведомления в PostgreSQL - 8000 байт
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int MAX_QUEUED = 10_000;
+    private static final long RECONNECT_DELAY_MILLIS = 1_000;
+
+    private final String channel;
+    private final int pollMillis;
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread listener;
+    private ExecutorService publisher;
+
+    private ClusterBus() {
+        this.channel = ServerConfig.getString("cluster.channel", "loyalty_cluster").trim();
+        this.pollMillis = Math.max(50, ServerConfig.getInt("cluster.poll.ms", 500));
+    }
+
+    public static ClusterBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Подписывает обработчик на тему; обработчики вызываются в потоке приема сообщений
+     * @param topic тема
+     * @param handler обработчик содержимого сообщения
+     */
+    public void subscribe(String topic, Consumer<String> handler) {
+        subscribers.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Добавляет действие после восстановления соединения: сообщения за время разрыва потеряны,
+     * поэтому кэши стоит сбросить
+     * @param listener действие
+     */
+    public void onReconnect(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+
+    /**
+     * Начинает прием сообщений
+     * @throws SQLException если не удалось подключиться к БД
+     */
+    public synchronized void start() throws SQLException {
+        if (running) {
+            return;
+        }
+        listenConnection = openListenConnection();
+        running = true;
+        publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(MAX_QUEUED),
+                r -> daemon(r, "cluster-bus-publish"), new ThreadPoolExecutor.DiscardPolicy());
+        listener = daemon(this::listen, "cluster-bus-listen");
+        listener.start();
+        logger.info("Обмен сообщениями между экземплярами запущен: узел {}, канал {}", ClusterNode.getId(), channel);
+    }
+
+    /**
+     * Отправляет сообщение остальным экземплярам. Без запущенного обмена ничего не делает.
+     * @param topic тема
+     * @param payload содержимое
+     */
+    public void publish(String topic, String payload) {
+        ExecutorService current = publisher;
+        if (!running || current == null) {
+            return;
+        }
+        String message = ClusterNode.getId() + SEPARATOR + topic + SEPARATOR + payload;
+        if (message.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            logger.warn("Сообщение темы {} слишком велико для NOTIFY и не отправлено", topic);
+            return;
+        }
+        current.execute(() -> {
+            try {
+                QueryExecutor.getInstance().findOne(PUBLISH, (rs, ctx) -> Boolean.TRUE, channel, message);
+            } catch (JdbiException e) {
+                logger.warn("Не удалось отправить сообщение темы {}: {}", topic, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Отправляет очередь сообщений и прекращает прием
+     * @param timeoutMillis сколько ждать отправки очереди
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        publisher.shutdown();
+        try {
+            if (!publisher.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                publisher.shutdownNow();
+            }
+        } finally {
+            publisher = null;
+            closeQuietly(listenConnection);
+            listener.join(pollMillis + RECONNECT_DELAY_MILLIS);
+            listener = null;
+        }
+    }
+
+    /**
+     * @return true, если обмен сообщениями запущен
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Connection openListenConnection() throws SQLException {
+        Connection connection = DatabaseConfig.openDirectConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + channel);
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                PGNotification[] notifications = listenConnection.unwrap(PGConnection.class)
+                        .getNotifications(pollMillis);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Соединение обмена сообщениями потеряно: {}", e.getMessage());
+                    reconnect();
+                }
+            }
+        }
+    }
+
+    private void reconnect() {
+        closeQuietly(listenConnection);
+        while (running) {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+                listenConnection = openListenConnection();
+                logger.info("Соединение обмена сообщениями восстановлено");
+                for (Runnable reconnectListener : reconnectListeners) {
+                    reconnectListener.run();
+                }
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException e) {
+                logger.debug("Повторное подключение не удалось: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                logger.error("Ошибка обработчика восстановления соединения", e);
+                return;
+            }
+        }
+    }
+
+    private void dispatch(String message) {
+        int first = message.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : message.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            logger.warn("Пропущено сообщение неизвестного формата");
+            return;
+        }
+        if (message.regionMatches(0, ClusterNode.getId(), 0, first) && ClusterNode.getId().length() == first) {
+            return;
+        }
+        String topic = message.substring(first + 1, second);
+        String payload = message.substring(second + 1);
+        for (Consumer<String> handler : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                handler.accept(payload);
+            } catch (RuntimeException e) {
+                // Ошибка одного обработчика не должна останавливать прием сообщений
+                logger.error("Ошибка обработки сообщения темы {}", topic, e);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Ошибка при закрытии соединения: {}", e.getMessage());
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,50 @@
+package server.cluster;
+
+import server.util.ServerConfig;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Параметры экземпляра сервера при работе нескольких экземпляров за балансировщиком.
+ * Идентификатор экземпляра задается ключом cluster.node.id, по умолчанию - имя хоста и PID.
+ */
+public final class ClusterNode {
+    private static final boolean ENABLED = ServerConfig.getBoolean("cluster.enabled", false);
+    private static final String ID = resolveId();
+
+    private ClusterNode() {
+    }
+
+    /**
+     * @return true, если включен режим нескольких экземпляров
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return идентификатор этого экземпляра
+     */
+    public static String getId() {
+        return ID;
+    }
+
+    private static String resolveId() {
+        String configured = ServerConfig.getString("cluster.node.id", "").trim();
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        // Имя RuntimeMXBean имеет вид pid@host
+        String runtime = ManagementFactory.getRuntimeMXBean().getName();
+        int at = runtime.indexOf('@');
+        return host + "-" + (at > 0 ? runtime.substring(0, at) : runtime);
+    }
+}
@@ -0,0 +1,217 @@
+package server.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.ServerLifecycle;
+import server.db.DatabaseConfig;
+import server.util.ServerConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выбор экземпляра, выполняющего фоновые задачи в одном экземпляре (сгорание баллов,
+ * завершение просроченных сессий, очистка токенов).
+ * Лидер держит advisory-блокировку PostgreSQL на отдельном соединении вне пула. Блокировка
+ * снимается сервером БД при обрыве соединения, поэтому после падения лидера ее захватывает
+ * другой экземпляр при очередной проверке (cluster.leader.check.seconds). Экземпляр, потерявший
+ * соединение, останавливает свои задачи при своей проверке; в этом коротком окне задачи могут
+ * работать на двух экземплярах, что допустимо: сгорание пропускает заблокированные карты,
+ * а завершение сессий обновляет только еще активные сессии.
+ */
+public class LeaderElection {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderElection.class);
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?)";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final long lockKey;
+    private final long checkMillis;
+    private final List<Task> tasks = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    // Доступ только из потока проверки и из stop() после остановки этого потока
+    private Connection connection;
+    private volatile boolean leader;
+
+    public LeaderElection() {
+        this(ServerConfig.getInt("cluster.leader.lock.key", 740_001),
+                TimeUnit.SECONDS.toMillis(Math.max(1, ServerConfig.getInt("cluster.leader.check.seconds", 5))));
+    }
+
+    /**
+     * @param lockKey ключ advisory-блокировки, общий для всех экземпляров
+     * @param checkMillis период проверки лидерства
+     */
+    public LeaderElection(long lockKey, long checkMillis) {
+        this.lockKey = lockKey;
+        this.checkMillis = checkMillis;
+    }
+
+    /**
+     * Добавляет задачу, которая работает только на лидере
+     * @param name имя задачи для журнала
+     * @param start запуск задачи
+     * @param stop остановка задачи
+     */
+    public void addTask(String name, Runnable start, ServerLifecycle.StopStep stop) {
+        tasks.add(new Task(name, start, stop));
+    }
+
+    /**
+     * Начинает периодические попытки стать лидером
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-leader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkSafely, 0, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает задачи лидера и освобождает блокировку, чтобы другой экземпляр сразу ее захватил
+     * @param timeoutMillis сколько ждать остановки задач
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            scheduler.shutdownNow();
+        }
+        scheduler = null;
+        if (leader) {
+            stopTasks(Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            unlock();
+        }
+        closeConnection();
+    }
+
+    /**
+     * @return true, если этот экземпляр сейчас лидер
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (Exception e) {
+            // Исключение отменило бы все последующие проверки
+            logger.error("Ошибка при проверке лидерства", e);
+        }
+    }
+
+    private void check() {
+        if (leader) {
+            if (isConnectionValid()) {
+                return;
+            }
+            logger.warn("Соединение с блокировкой лидера потеряно, фоновые задачи останавливаются");
+            stopTasks(checkMillis);
+            closeConnection();
+        }
+        try {
+            if (connection == null || connection.isClosed()) {
+                connection = DatabaseConfig.openDirectConnection();
+            }
+            if (queryBoolean(TRY_LOCK)) {
+                leader = true;
+                logger.info("Экземпляр {} стал лидером, запуск фоновых задач", ClusterNode.getId());
+                startTasks();
+            }
+        } catch (SQLException e) {
+            logger.warn("Не удалось проверить блокировку лидера: {}", e.getMessage());
+            closeConnection();
+        }
+    }
+
+    private void startTasks() {
+        for (Task task : tasks) {
+            try {
+                task.start.run();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка запуска задачи лидера: {}", task.name, e);
+            }
+        }
+    }
+
+    private void stopTasks(long timeoutMillis) {
+        leader = false;
+        for (Task task : tasks) {
+            try {
+                task.stop.stop(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Остановка задачи лидера прервана: {}", task.name);
+            } catch (Exception e) {
+                logger.error("Ошибка остановки задачи лидера: {}", task.name, e);
+            }
+        }
+    }
+
+    private boolean isConnectionValid() {
+        try {
+            return connection != null && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void unlock() {
+        try {
+            queryBoolean(UNLOCK);
+            logger.info("Экземпляр {} освободил лидерство", ClusterNode.getId());
+        } catch (SQLException e) {
+            // Блокировка снимется при закрытии соединения
+            logger.debug("Не удалось освободить блокировку лидера: {}", e.getMessage());
+        }
+    }
+
+    private boolean queryBoolean(String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, lockKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Ошибка при закрытии соединения лидера: {}", e.getMessage());
+        }
+        connection = null;
+    }
+
+    private static final class Task {
+        private final String name;
+        private final Runnable start;
+        private final ServerLifecycle.StopStep stop;
+
+        private Task(String name, Runnable start, ServerLifecycle.StopStep stop) {
+            this.name = name;
+            this.start = start;
+            this.stop = stop;
+        }
+    }
+}
@@ -2,28 +2,45 @@ package server.db;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.metrics.PoolMetricsTrackerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
-
+/**
+ * Пулы соединений HikariCP, по одному на каждый вид нагрузки {@link Workload}.
+ * Размер пула, таймаут запросов (statement_timeout на стороне PostgreSQL), адрес БД и режим
+ * только для чтения задаются для каждого пула отдельно ключами db.pool.&lt;имя&gt;.*;
+ * незаданные адрес и учетные данные берутся из db.url, db.user и db.password.
+ * Если заданы реплики (db.replica.urls), чтение для отчетов распределяется по ним
+ * через {@link ReplicaRoutingDataSource}, а пул отчетов служит резервом на основном сервере.
+ */
 public class DatabaseConfig {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConfig.class);
     private static final String PROPS_FILE = "config.properties";
+    private static final String POOL_NAME_PREFIX = "LoyaltySystemPool-";
 
-    private static HikariDataSource dataSource;
+    private static final Map<Workload, HikariDataSource> dataSources = new EnumMap<>(Workload.class);
+    private static final Map<Workload, Integer> statementTimeouts = new EnumMap<>(Workload.class);
+    private static volatile ReplicaRoutingDataSource replicaRouting;
 
     static {
-        initDataSource();
+        initDataSources();
     }
 
-    private static void initDataSource() {
+    private static void initDataSources() {
         Properties props = new Properties();
 
         // 1. Загружаем файл db.properties из classpath
@@ -48,48 +65,215 @@ public class DatabaseConfig {
             );
         }
 
-        // 3. Настраиваем HikariCP
+        // 3. Настраиваем пулы HikariCP
+        int defaultQueryTimeout = intProperty(props, "db.query.timeout.seconds", 30);
+        for (Workload workload : Workload.values()) {
+            int statementTimeout = intProperty(props, workload.property("statement.timeout.seconds"),
+                    workload == Workload.OLTP ? defaultQueryTimeout : workload.getDefaultStatementTimeoutSeconds());
+            statementTimeouts.put(workload, Math.max(0, statementTimeout));
+            try {
+                dataSources.put(workload, createDataSource(workload, props, url, user, password, statementTimeout));
+            } catch (Exception e) {
+                logger.error("Ошибка инициализации пула соединений HikariCP {}", workload.getKey(), e);
+                closeDataSource();
+                throw new RuntimeException("Не удалось инициализировать пул соединений", e);
+            }
+        }
+
+        // 4. Реплики для чтения отчетов и журналов
         try {
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(url);
-            config.setUsername(user);
-            config.setPassword(password);
-
-            // дополнительные параметры пула
-            config.setAutoCommit(true);
-            config.setMinimumIdle(2);
-            config.setMaximumPoolSize(10);
-            config.setIdleTimeout(30_000);
-            config.setPoolName("LoyaltySystemPool");
-
-            // кеширование PreparedStatement
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-
-            dataSource = new HikariDataSource(config);
-            logger.info("HikariCP успешно инициализирована (URL={})", url);
+            initReplicas(props, dataSources.get(Workload.REPORTING));
         } catch (Exception e) {
-            logger.error("Ошибка инициализации пула соединений HikariCP", e);
-            throw new RuntimeException("Не удалось инициализировать пул соединений", e);
+            logger.error("Ошибка инициализации пулов реплик, чтение идет на основной сервер", e);
         }
     }
 
+    private static HikariDataSource createDataSource(Workload workload, Properties props, String defaultUrl,
+                                                     String defaultUser, String defaultPassword,
+                                                     int statementTimeoutSeconds) {
+        String url = stringProperty(props, workload.property("url"), defaultUrl);
+        boolean readOnly = Boolean.parseBoolean(stringProperty(props, workload.property("read.only"),
+                String.valueOf(workload.isDefaultReadOnly())));
+        int poolSize = Math.max(1, intProperty(props, workload.property("size"), workload.getDefaultPoolSize()));
 
-    public static DataSource getDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(stringProperty(props, workload.property("user"), defaultUser));
+        config.setPassword(stringProperty(props, workload.property("password"), defaultPassword));
+        config.setReadOnly(readOnly);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(poolSize,
+                Math.max(0, intProperty(props, workload.property("min.idle"), workload.getDefaultMinIdle()))));
+        config.setConnectionTimeout(Math.max(250,
+                intProperty(props, workload.property("connection.timeout.ms"), 30_000)));
+        config.setPoolName(getPoolName(workload));
+        return newDataSource(config, statementTimeoutSeconds);
+    }
+
+    /**
+     * Создает пулы реплик из db.replica.urls и источник, распределяющий по ним чтение.
+     * Учетные данные, размер пула и таймаут запросов берутся у пула отчетов.
+     */
+    private static void initReplicas(Properties props, HikariDataSource reportingPool) {
+        String urls = stringProperty(props, "db.replica.urls", "");
+        if (urls.isEmpty()) {
+            return;
+        }
+        int statementTimeout = statementTimeouts.getOrDefault(Workload.REPORTING, 0);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        int index = 1;
+        for (String url : urls.split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setJdbcUrl(url.trim());
+            config.setUsername(reportingPool.getUsername());
+            config.setPassword(reportingPool.getPassword());
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(Math.max(1, intProperty(props, "db.replica.pool.size",
+                    reportingPool.getMaximumPoolSize())));
+            config.setMinimumIdle(0);
+            config.setConnectionTimeout(Math.max(250, intProperty(props, "db.replica.connection.timeout.ms", 2_000)));
+            // Недоступная при запуске реплика не мешает запуску сервера: чтение пойдет на основной сервер
+            config.setInitializationFailTimeout(-1);
+            config.setPoolName(POOL_NAME_PREFIX + "replica-" + index++);
+            replicas.add(newDataSource(config, statementTimeout));
+        }
+        replicaRouting = new ReplicaRoutingDataSource(replicas, reportingPool, dataSources.get(Workload.OLTP),
+                Math.max(0, intProperty(props, "db.replica.max.lag.ms", 5_000)),
+                Math.max(100, intProperty(props, "db.replica.lag.check.ms", 1_000)));
+    }
+
+    private static HikariDataSource newDataSource(HikariConfig config, int statementTimeoutSeconds) {
+        // дополнительные параметры пула
+        config.setAutoCommit(true);
+        config.setIdleTimeout(30_000);
+        if (statementTimeoutSeconds > 0) {
+            // Ограничение действует на сервере БД для всех запросов пула, включая прямой JDBC отчетов
+            config.setConnectionInitSql("SET statement_timeout = " + statementTimeoutSeconds * 1000L);
+        }
+        // время ожидания соединений и таймауты для /api/metrics
+        config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
+
+        // кеширование PreparedStatement
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        logger.info("HikariCP успешно инициализирована: пул {}, до {} соединений, таймаут запросов {} с{} (URL={})",
+                config.getPoolName(), config.getMaximumPoolSize(), statementTimeoutSeconds,
+                config.isReadOnly() ? ", только чтение" : "", config.getJdbcUrl());
         return dataSource;
     }
 
+    private static String stringProperty(Properties props, String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Некорректное значение {}={}, используется {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+
+    /**
+     * @return пул для операций OLTP
+     */
+    public static DataSource getDataSource() {
+        return getDataSource(Workload.OLTP);
+    }
+
+
+    /**
+     * @return пул вида нагрузки; для отчетов - распределение по репликам, если они настроены
+     */
+    public static DataSource getDataSource(Workload workload) {
+        ReplicaRoutingDataSource routing = replicaRouting;
+        if (workload == Workload.REPORTING && routing != null) {
+            return routing;
+        }
+        return dataSources.get(workload);
+    }
+
+
+    /**
+     * @return распределение чтения по репликам или null, если реплики не настроены
+     */
+    public static ReplicaRoutingDataSource getReplicaRouting() {
+        return replicaRouting;
+    }
+
+
+    /**
+     * @return MXBean пула для чтения текущего числа соединений или null, если пул не запущен
+     */
+    public static HikariPoolMXBean getPoolMXBean(Workload workload) {
+        HikariDataSource dataSource = dataSources.get(workload);
+        return dataSource != null && !dataSource.isClosed() ? dataSource.getHikariPoolMXBean() : null;
+    }
+
+
+    public static String getPoolName(Workload workload) {
+        return POOL_NAME_PREFIX + workload.getKey();
+    }
+
+
+    /**
+     * @return таймаут запросов пула в секундах, 0 - без ограничения
+     */
+    public static int getStatementTimeoutSeconds(Workload workload) {
+        return statementTimeouts.getOrDefault(workload, 0);
+    }
+
 
     public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        return getConnection(Workload.OLTP);
+    }
+
+
+    public static Connection getConnection(Workload workload) throws SQLException {
+        return getDataSource(workload).getConnection();
+    }
+
+
+    /**
+     * Открывает отдельное соединение с основным сервером в обход пулов.
+     * Нужно для состояния, привязанного к сеансу PostgreSQL (LISTEN, advisory-блокировки),
+     * которое нельзя оставлять на соединении, возвращаемом в пул.
+     * @return новое соединение; закрывает вызывающий
+     */
+    public static Connection openDirectConnection() throws SQLException {
+        HikariDataSource oltp = dataSources.get(Workload.OLTP);
+        if (oltp == null) {
+            throw new SQLException("Пул соединений не инициализирован");
+        }
+        return DriverManager.getConnection(oltp.getJdbcUrl(), oltp.getUsername(), oltp.getPassword());
     }
 
 
     public static void closeDataSource() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-            logger.info("Пул соединений HikariCP закрыт");
+        if (replicaRouting != null) {
+            replicaRouting.close();
+            replicaRouting = null;
+            logger.info("Пулы соединений реплик закрыты");
+        }
+        for (Map.Entry<Workload, HikariDataSource> entry : dataSources.entrySet()) {
+            HikariDataSource dataSource = entry.getValue();
+            if (!dataSource.isClosed()) {
+                dataSource.close();
+                logger.info("Пул соединений HikariCP {} закрыт", entry.getKey().getKey());
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,287 @@
+package server.db;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.SqlStatement;
+import org.jdbi.v3.core.statement.SqlStatements;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.core.statement.StatementCustomizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.metrics.MetricsRegistry;
+import server.util.ServerConfig;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Единая точка выполнения SQL-запросов DAO поверх JDBI.
+ * Задает для всех запросов таймаут выполнения и размер выборки, сообщает о каждом запросе
+ * наблюдателям (метрики, журнал медленных запросов) и дает общие операции:
+ * выборку одной строки и списка, потоковое чтение курсором, изменение, вставку
+ * с получением ключа и пакетное выполнение.
+ * Исключения JDBI не перехватываются - DAO обрабатывают {@link org.jdbi.v3.core.JdbiException} сами.
+ */
+public class QueryExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(QueryExecutor.class);
+
+    private static final Map<Workload, QueryExecutor> instances = new ConcurrentHashMap<>();
+
+    private final Jdbi jdbi;
+    private final List<QueryListener> listeners;
+    private final Integer queryTimeoutSeconds;
+    private final int fetchSize;
+
+    /**
+     * Создает исполнитель с таймаутом и размером выборки из config.properties
+     * @param dataSource пул соединений
+     */
+    public QueryExecutor(DataSource dataSource) {
+        this(dataSource, ServerConfig.getInt("db.query.timeout.seconds", 30));
+    }
+
+    /**
+     * Создает исполнитель с заданным таймаутом и размером выборки из config.properties
+     * @param dataSource пул соединений
+     * @param queryTimeoutSeconds таймаут запросов в секундах, 0 - без ограничения
+     */
+    public QueryExecutor(DataSource dataSource, int queryTimeoutSeconds) {
+        this(Jdbi.create(dataSource), new CopyOnWriteArrayList<>(), positiveOrNull(queryTimeoutSeconds),
+                Math.max(0, ServerConfig.getInt("db.fetch.size", 500)));
+
+        SqlLogger sqlLogger = new SqlLogger() {
+            @Override
+            public void logAfterExecution(StatementContext context) {
+                notifyListeners(context, true);
+            }
+
+            @Override
+            public void logException(StatementContext context, SQLException ex) {
+                notifyListeners(context, false);
+            }
+        };
+        jdbi.getConfig(SqlStatements.class).setSqlLogger(sqlLogger);
+    }
+
+    private QueryExecutor(Jdbi jdbi, List<QueryListener> listeners, Integer queryTimeoutSeconds, int fetchSize) {
+        this.jdbi = jdbi;
+        this.listeners = listeners;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Исполнитель для пула OLTP с журналом медленных запросов и метриками
+     */
+    public static QueryExecutor getInstance() {
+        return getInstance(Workload.OLTP);
+    }
+
+    /**
+     * Исполнитель для пула заданного вида нагрузки с таймаутом этого пула,
+     * журналом медленных запросов и метриками
+     * @param workload вид нагрузки
+     */
+    public static QueryExecutor getInstance(Workload workload) {
+        QueryExecutor result = instances.get(workload);
+        if (result != null) {
+            return result;
+        }
+        return instances.computeIfAbsent(workload, key -> {
+            QueryExecutor created = new QueryExecutor(DatabaseConfig.getDataSource(key),
+                    DatabaseConfig.getStatementTimeoutSeconds(key));
+            created.addListener(new SlowQueryLog(ServerConfig.getInt("db.slow.query.ms", 500)));
+            created.addListener(MetricsRegistry.getInstance()::queryExecuted);
+            ReplicaRoutingDataSource routing = DatabaseConfig.getReplicaRouting();
+            if (routing != null && key != Workload.REPORTING) {
+                // Время последней записи: сразу после нее чтение идет на основной сервер
+                created.addListener(routing);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Добавляет наблюдателя за запросами; действует и на копии из withFetchSize
+     */
+    public void addListener(QueryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Копия исполнителя с другим размером выборки для потокового чтения
+     * @param rows число строк, получаемых за одно обращение к серверу
+     */
+    public QueryExecutor withFetchSize(int rows) {
+        return new QueryExecutor(jdbi, listeners, queryTimeoutSeconds, Math.max(0, rows));
+    }
+
+    /**
+     * Выполняет действия на одном соединении
+     */
+    public <R, X extends Exception> R withHandle(HandleCallback<R, X> callback) throws X {
+        try (Handle handle = open()) {
+            return callback.withHandle(handle);
+        }
+    }
+
+    /**
+     * Выполняет действия в одной транзакции; при исключении транзакция откатывается
+     */
+    public <R, X extends Exception> R inTransaction(HandleCallback<R, X> callback) throws X {
+        try (Handle handle = open()) {
+            return handle.inTransaction(callback);
+        }
+    }
+
+    /**
+     * Возвращает первую строку результата
+     */
+    public <T> Optional<T> findOne(String sql, RowMapper<T> mapper, Object... args) {
+        return withHandle(handle -> bindAll(handle.createQuery(sql), args).map(mapper).findFirst());
+    }
+
+    /**
+     * Возвращает все строки результата
+     */
+    public <T> List<T> list(String sql, RowMapper<T> mapper, Object... args) {
+        return withHandle(handle -> bindAll(handle.createQuery(sql), args).map(mapper).list());
+    }
+
+    /**
+     * Читает результат курсором порциями по fetchSize строк, не загружая его целиком в память.
+     * PostgreSQL использует курсор только вне режима autocommit, поэтому чтение идет в транзакции.
+     */
+    public <T> void stream(String sql, RowMapper<T> mapper, Consumer<? super T> consumer, Object... args) {
+        inTransaction(handle -> {
+            bindAll(handle.createQuery(sql), args).map(mapper).useStream(rows -> rows.forEach(consumer));
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет INSERT, UPDATE или DELETE
+     * @return количество измененных строк
+     */
+    public int update(String sql, Object... args) {
+        return withHandle(handle -> bindAll(handle.createUpdate(sql), args).execute());
+    }
+
+    /**
+     * Выполняет INSERT и возвращает сгенерированный идентификатор
+     * @return идентификатор или пустой Optional, если строка не добавлена
+     */
+    public Optional<Long> insert(String sql, Object... args) {
+        return withHandle(handle -> bindAll(handle.createUpdate(sql), args)
+                .executeAndReturnGeneratedKeys("id")
+                .mapTo(Long.class)
+                .findFirst());
+    }
+
+    /**
+     * Выполняет один запрос для каждого набора параметров одним пакетом
+     * @return количество измененных строк для каждого набора
+     */
+    public int[] batch(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        return withHandle(handle -> batch(handle, sql, rows));
+    }
+
+    /**
+     * Пакетное выполнение на уже открытом соединении, например внутри {@link #inTransaction}
+     */
+    public static int[] batch(Handle handle, String sql, List<Object[]> rows) {
+        PreparedBatch batch = handle.prepareBatch(sql);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                batch.bind(i, row[i]);
+            }
+            batch.add();
+        }
+        return batch.execute();
+    }
+
+    /**
+     * Привязывает позиционные параметры по порядку
+     */
+    public static <S extends SqlStatement<S>> S bindAll(S statement, Object... args) {
+        for (int i = 0; i < args.length; i++) {
+            statement.bind(i, args[i]);
+        }
+        return statement;
+    }
+
+    private Handle open() {
+        Handle handle = jdbi.open();
+        handle.getConfig(SqlStatements.class).setQueryTimeout(queryTimeoutSeconds);
+        if (fetchSize > 0) {
+            handle.addCustomizer(new FetchSizeCustomizer(fetchSize));
+        }
+        return handle;
+    }
+
+    private void notifyListeners(StatementContext context, boolean success) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        String sql = context.getRawSql();
+        long elapsedNanos = context.getElapsedTime(ChronoUnit.NANOS);
+        for (QueryListener listener : listeners) {
+            try {
+                listener.queryExecuted(sql, elapsedNanos, success);
+            } catch (RuntimeException e) {
+                logger.warn("Ошибка в наблюдателе за запросами", e);
+            }
+        }
+    }
+
+    private static Integer positiveOrNull(int seconds) {
+        return seconds > 0 ? seconds : null;
+    }
+
+    private static final class FetchSizeCustomizer implements StatementCustomizer {
+        private final int fetchSize;
+
+        private FetchSizeCustomizer(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public void beforeExecution(PreparedStatement statement, StatementContext context) throws SQLException {
+            statement.setFetchSize(fetchSize);
+        }
+    }
+
+    /**
+     * Пишет в журнал запросы, выполнявшиеся дольше порога
+     */
+    private static final class SlowQueryLog implements QueryListener {
+        private final long thresholdNanos;
+
+        private SlowQueryLog(int thresholdMillis) {
+            this.thresholdNanos = thresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : Long.MAX_VALUE;
+        }
+
+        @Override
+        public void queryExecuted(String sql, long elapsedNanos, boolean success) {
+            if (elapsedNanos >= thresholdNanos) {
+                logger.warn("Медленный запрос ({} мс): {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package server.db;
+
+/**
+ * Наблюдатель за выполнением SQL-запросов через {@link QueryExecutor}.
+ * Вызывается в потоке, выполнившем запрос, поэтому реализация должна быть быстрой.
+ */
+public interface QueryListener {
+
+    /**
+     * Запрос выполнен
+     * @param sql текст запроса
+     * @param elapsedNanos время выполнения без чтения результата
+     * @param success false, если запрос завершился ошибкой
+     */
+    void queryExecuted(String sql, long elapsedNanos, boolean success);
+}
@@ -0,0 +1,258 @@
+package server.db;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Источник соединений для чтения, распределяющий запросы по репликам PostgreSQL.
+ * При каждой проверке запоминается позиция WAL основного сервера, затем на каждой реплике измеряется
+ * отставание и проверяется, применила ли она WAL до этой позиции. Реплика выбирается по кругу,
+ * только если она доступна, отставание не превышает допустимого и она применила WAL, снятый
+ * после последней записи этого процесса на основной сервер (иначе только что записанные данные
+ * могли еще не дойти до нее). В остальных случаях соединение берется из резервного пула основного
+ * сервера, поэтому сразу после записи чтение идет на основной сервер до следующей проверки.
+ * Записи других экземпляров сервера не учитываются: их данные видны на реплике с отставанием
+ * не больше допустимого.
+ */
+public class ReplicaRoutingDataSource implements DataSource, QueryListener {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    // На основном сервере (не в режиме восстановления) отставание нулевое; при совпадении
+    // полученного и примененного WAL реплика догнала основной сервер, даже если записей давно не было
+    // Второй столбец - применен ли WAL до позиции основного сервера (не на реплике - всегда да)
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END, " +
+            "COALESCE(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), NOT pg_is_in_recovery())";
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+    private static final long UNAVAILABLE = -1;
+
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final DataSource writer;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    // Время по System.nanoTime(): последняя запись и снятие позиции WAL основного сервера
+    private final AtomicLong lastWriteAt = new AtomicLong(System.nanoTime());
+    private final ScheduledExecutorService lagChecker;
+
+    /**
+     * @param replicas пулы соединений реплик
+     * @param primary пул основного сервера, используемый при недоступности или отставании реплик
+     * @param writer пул, через который идут записи; с него снимается позиция WAL основного сервера
+     * @param maxLagMillis допустимое отставание реплики
+     * @param checkIntervalMillis период измерения отставания
+     */
+    public ReplicaRoutingDataSource(List<HikariDataSource> replicas, DataSource primary, DataSource writer,
+                                    long maxLagMillis, long checkIntervalMillis) {
+        long createdAt = lastWriteAt.get();
+        this.replicas = replicas.stream().map(dataSource -> new Replica(dataSource, createdAt)).toList();
+        this.primary = primary;
+        this.writer = writer;
+        this.maxLagMillis = maxLagMillis;
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkLag();
+        lagChecker.scheduleWithFixedDelay(this::checkLag, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = choose();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.lagMillis = UNAVAILABLE;
+                logger.warn("Реплика {} недоступна, чтение переключено на основной сервер: {}",
+                        replica.dataSource.getPoolName(), e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Запоминает время записи на основной сервер; вызывается исполнителями OLTP и фоновых задач
+     */
+    @Override
+    public void queryExecuted(String sql, long elapsedNanos, boolean success) {
+        if (success && isWrite(sql)) {
+            lastWriteAt.set(System.nanoTime());
+        }
+    }
+
+    /**
+     * @return имя пула реплики -> отставание в миллисекундах или -1, если реплика недоступна
+     */
+    public Map<String, Long> getLagMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            result.put(replica.dataSource.getPoolName(), replica.lagMillis);
+        }
+        return result;
+    }
+
+    /**
+     * @return пулы соединений реплик
+     */
+    public List<HikariDataSource> getReplicas() {
+        return replicas.stream().map(replica -> replica.dataSource).toList();
+    }
+
+    /**
+     * Останавливает измерение отставания и закрывает пулы реплик
+     */
+    public void close() {
+        lagChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (!replica.dataSource.isClosed()) {
+                replica.dataSource.close();
+            }
+        }
+    }
+
+    private Replica choose() {
+        long lastWrite = lastWriteAt.get();
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            long lag = replica.lagMillis;
+            if (lag != UNAVAILABLE && lag <= maxLagMillis && replica.appliedAt - lastWrite > 0) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void checkLag() {
+        // Время снимается до запроса: позиция включает все записи, завершенные до этого момента
+        long sampledAt = System.nanoTime();
+        String primaryLsn;
+        try (Connection connection = writer.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PRIMARY_LSN_QUERY)) {
+            primaryLsn = rs.next() ? rs.getString(1) : null;
+        } catch (SQLException | RuntimeException e) {
+            // Без позиции основного сервера реплики не догоняют последнюю запись: чтение остается на нем
+            logger.debug("Не удалось получить позицию WAL основного сервера: {}", e.getMessage());
+            primaryLsn = null;
+        }
+        for (Replica replica : replicas) {
+            long previous = replica.lagMillis;
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_QUERY)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        replica.lagMillis = Math.max(0, rs.getLong(1));
+                        if (primaryLsn != null && rs.getBoolean(2)) {
+                            replica.appliedAt = sampledAt;
+                        }
+                    } else {
+                        replica.lagMillis = UNAVAILABLE;
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.lagMillis = UNAVAILABLE;
+                if (previous != UNAVAILABLE) {
+                    logger.warn("Не удалось измерить отставание реплики {}: {}",
+                            replica.dataSource.getPoolName(), e.getMessage());
+                }
+                continue;
+            }
+            if (previous <= maxLagMillis && replica.lagMillis > maxLagMillis) {
+                logger.warn("Реплика {} отстает на {} мс, чтение идет на основной сервер",
+                        replica.dataSource.getPoolName(), replica.lagMillis);
+            } else if ((previous == UNAVAILABLE || previous > maxLagMillis) && replica.lagMillis <= maxLagMillis) {
+                logger.info("Реплика {} доступна для чтения, отставание {} мс",
+                        replica.dataSource.getPoolName(), replica.lagMillis);
+            }
+        }
+    }
+
+    /**
+     * Все, что не является простым SELECT, считается записью (WITH может содержать UPDATE)
+     */
+    private static boolean isWrite(String sql) {
+        return !sql.stripLeading().regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    private static final class Replica {
+        private final HikariDataSource dataSource;
+        // Изначально недоступна, пока отставание не измерено
+        private volatile long lagMillis = UNAVAILABLE;
+        // Время снятия последней позиции WAL основного сервера, до которой реплика применила WAL
+        private volatile long appliedAt;
+
+        private Replica(HikariDataSource dataSource, long appliedAt) {
+            this.dataSource = dataSource;
+            this.appliedAt = appliedAt;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package server.db;
+
+/**
+ * Вид нагрузки на БД. Для каждого вида создается отдельный пул соединений, чтобы тяжелые отчеты
+ * и фоновые задачи не занимали соединения, нужные для операций на стойке администратора.
+ * Параметры пула задаются ключами db.pool.&lt;имя&gt;.* в config.properties.
+ */
+public enum Workload {
+    /** Короткие запросы операций с картами, сессиями и справочниками */
+    OLTP("oltp", 10, 2, 30, false),
+    /** Долгие агрегирующие запросы отчетов; может работать с репликой */
+    REPORTING("reporting", 4, 0, 300, true),
+    /** Фоновые задачи: сгорание баллов, завершение просроченных сессий */
+    BACKGROUND("background", 4, 0, 600, false);
+
+    private final String key;
+    private final int defaultPoolSize;
+    private final int defaultMinIdle;
+    private final int defaultStatementTimeoutSeconds;
+    private final boolean defaultReadOnly;
+
+    Workload(String key, int defaultPoolSize, int defaultMinIdle, int defaultStatementTimeoutSeconds,
+             boolean defaultReadOnly) {
+        this.key = key;
+        this.defaultPoolSize = defaultPoolSize;
+        this.defaultMinIdle = defaultMinIdle;
+        this.defaultStatementTimeoutSeconds = defaultStatementTimeoutSeconds;
+        this.defaultReadOnly = defaultReadOnly;
+    }
+
+    /**
+     * @return имя пула в ключах настроек и метках метрик
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param name последняя часть ключа, например size
+     * @return полный ключ настройки пула, например db.pool.oltp.size
+     */
+    public String property(String name) {
+        return "db.pool." + key + "." + name;
+    }
+
+    public int getDefaultPoolSize() {
+        return defaultPoolSize;
+    }
+
+    public int getDefaultMinIdle() {
+        return defaultMinIdle;
+    }
+
+    public int getDefaultStatementTimeoutSeconds() {
+        return defaultStatementTimeoutSeconds;
+    }
+
+    public boolean isDefaultReadOnly() {
+        return defaultReadOnly;
+    }
+}
@@ -3,11 +3,9 @@ package server.db.dao;
 import common.model.AuditLog;
 import server.db.mapper.AuditLogMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Timestamp;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,167 +52,64 @@ public class AuditLogDaoImpl extends AbstractDao implements AuditLogDao {
     private static final String INSERT = 
             "INSERT INTO audit_log (user_id, action_type, action_details, timestamp, ip_address, target_entity, target_id) " +
             "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<AuditLog> AUDIT_LOG_MAPPER = (rs, ctx) -> AuditLogMapper.mapResultSetToAuditLog(rs);
     
     @Override
     public List<AuditLog> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL);
-            
-            resultSet = statement.executeQuery();
-            
-            List<AuditLog> logs = new ArrayList<>();
-            while (resultSet.next()) {
-                logs.add(AuditLogMapper.mapResultSetToAuditLog(resultSet));
-            }
-            
-            return logs;
-        } catch (SQLException e) {
+            return replicaDb().list(SELECT_ALL, AUDIT_LOG_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении всех записей аудита", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<AuditLog> findByPeriod(LocalDateTime from, LocalDateTime to) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_PERIOD);
-            statement.setTimestamp(1, Timestamp.valueOf(from));
-            statement.setTimestamp(2, Timestamp.valueOf(to));
-            
-            resultSet = statement.executeQuery();
-            
-            List<AuditLog> logs = new ArrayList<>();
-            while (resultSet.next()) {
-                logs.add(AuditLogMapper.mapResultSetToAuditLog(resultSet));
-            }
-            
-            return logs;
-        } catch (SQLException e) {
+            return replicaDb().list(SELECT_BY_PERIOD, AUDIT_LOG_MAPPER, from, to);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении записей аудита за период", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<AuditLog> findByUserId(Long userId) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_USER_ID);
-            statement.setLong(1, userId);
-            
-            resultSet = statement.executeQuery();
-            
-            List<AuditLog> logs = new ArrayList<>();
-            while (resultSet.next()) {
-                logs.add(AuditLogMapper.mapResultSetToAuditLog(resultSet));
-            }
-            
-            return logs;
-        } catch (SQLException e) {
+            return replicaDb().list(SELECT_BY_USER_ID, AUDIT_LOG_MAPPER, userId);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении записей аудита для пользователя", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<AuditLog> findByActionType(String actionType) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_ACTION_TYPE);
-            statement.setString(1, actionType);
-            
-            resultSet = statement.executeQuery();
-            
-            List<AuditLog> logs = new ArrayList<>();
-            while (resultSet.next()) {
-                logs.add(AuditLogMapper.mapResultSetToAuditLog(resultSet));
-            }
-            
-            return logs;
-        } catch (SQLException e) {
+            return replicaDb().list(SELECT_BY_ACTION_TYPE, AUDIT_LOG_MAPPER, actionType);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении записей аудита по типу действия", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public Long insert(AuditLog auditLog) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
+        Long userId = auditLog.getUser() != null ? auditLog.getUser().getId() : null;
+
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT);
-            
-            if (auditLog.getUser() != null) {
-                statement.setLong(1, auditLog.getUser().getId());
-            } else {
-                statement.setNull(1, java.sql.Types.BIGINT);
-            }
-            
-            statement.setString(2, auditLog.getActionType());
-            statement.setString(3, auditLog.getActionDetails());
-            statement.setTimestamp(4, java.sql.Timestamp.valueOf(auditLog.getTimestamp()));
-            statement.setString(5, auditLog.getIpAddress());
-            
-            if (auditLog.getTargetEntity() != null) {
-                statement.setString(6, auditLog.getTargetEntity());
-            } else {
-                statement.setNull(6, java.sql.Types.VARCHAR);
-            }
-            
-            if (auditLog.getTargetId() != null) {
-                statement.setLong(7, auditLog.getTargetId());
-            } else {
-                statement.setNull(7, java.sql.Types.BIGINT);
-            }
-            
-            int affectedRows = statement.executeUpdate();
-            
-            if (affectedRows == 0) {
-                logger.error("Не удалось создать запись аудита, ни одна строка не была добавлена");
-                return null;
-            }
-            
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                return resultSet.getLong(1);
-            } else {
-                logger.error("Не удалось получить ID созданной записи аудита");
-                return null;
-            }
-        } catch (SQLException e) {
+            return db().insert(INSERT, userId, auditLog.getActionType(), auditLog.getActionDetails(),
+                            auditLog.getTimestamp(), auditLog.getIpAddress(),
+                            auditLog.getTargetEntity(), auditLog.getTargetId())
+                    .orElseGet(() -> {
+                        logger.error("Не удалось получить ID созданной записи аудита");
+                        return null;
+                    });
+        } catch (JdbiException e) {
             logger.error("Ошибка при создании записи аудита", e);
             return null;
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
-} 
\ No newline at end of file
+}
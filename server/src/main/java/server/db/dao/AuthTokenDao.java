@@ -0,0 +1,49 @@
+package server.db.dao;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * DAO для хранилища токенов входа. В режиме нескольких экземпляров токены хранятся в общей
+ * таблице auth_tokens ({@link AuthTokenDaoImpl}), иначе - в памяти процесса ({@link LocalAuthTokenDao}).
+ * Хранится только хэш токена, поэтому токен, выданный одним экземпляром сервера,
+ * проверяется на любом другом.
+ */
+public interface AuthTokenDao {
+    /**
+     * Сохранить токен
+     * @param tokenHash SHA-256 токена в шестнадцатеричном виде
+     * @param userId ID пользователя
+     * @param expiresAt срок действия
+     * @param nodeId экземпляр сервера, выдавший токен
+     * @return true, если токен сохранен
+     */
+    boolean save(String tokenHash, Long userId, LocalDateTime expiresAt, String nodeId);
+
+    /**
+     * Найти пользователя по действующему токену
+     * @param tokenHash SHA-256 токена
+     * @return ID пользователя или пустой Optional, если токен не найден или истек
+     */
+    Optional<Long> findUserId(String tokenHash);
+
+    /**
+     * Удалить токен (выход из системы)
+     * @param tokenHash SHA-256 токена
+     * @return true, если токен был удален
+     */
+    boolean delete(String tokenHash);
+
+    /**
+     * Удалить истекшие токены
+     * @param asOf момент, на который проверяется срок
+     * @return количество удаленных токенов
+     */
+    int deleteExpired(LocalDateTime asOf);
+
+    /**
+     * Проверить, что хранилище готово к работе
+     * @return false, если в БД нет таблицы auth_tokens (не выполнена migration_auth_tokens.sql)
+     */
+    boolean isAvailable();
+}
@@ -0,0 +1,82 @@
+package server.db.dao;
+
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.Workload;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Реализация DAO для общего хранилища токенов входа
+ */
+public class AuthTokenDaoImpl extends AbstractDao implements AuthTokenDao {
+    private static final String INSERT_TOKEN =
+            "INSERT INTO auth_tokens (token_hash, user_id, expires_at, node_id) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_USER_ID =
+            "SELECT user_id FROM auth_tokens WHERE token_hash = ? AND expires_at > CURRENT_TIMESTAMP";
+    private static final String DELETE_TOKEN = "DELETE FROM auth_tokens WHERE token_hash = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM auth_tokens WHERE expires_at <= ?";
+    private static final String TABLE_EXISTS = "SELECT to_regclass('auth_tokens') IS NOT NULL";
+    private static final RowMapper<Long> USER_ID_MAPPER = (rs, ctx) -> rs.getLong(1);
+
+    public AuthTokenDaoImpl() {
+    }
+
+    /**
+     * @param workload пул соединений, например {@link Workload#BACKGROUND} для очистки
+     */
+    public AuthTokenDaoImpl(Workload workload) {
+        super(workload);
+    }
+
+    @Override
+    public boolean save(String tokenHash, Long userId, LocalDateTime expiresAt, String nodeId) {
+        try {
+            return db().update(INSERT_TOKEN, tokenHash, userId, expiresAt, nodeId) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сохранении токена пользователя: {}", userId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<Long> findUserId(String tokenHash) {
+        try {
+            return db().findOne(SELECT_USER_ID, USER_ID_MAPPER, tokenHash);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при проверке токена", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean delete(String tokenHash) {
+        try {
+            return db().update(DELETE_TOKEN, tokenHash) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при удалении токена", e);
+            return false;
+        }
+    }
+
+    @Override
+    public int deleteExpired(LocalDateTime asOf) {
+        try {
+            return db().update(DELETE_EXPIRED, asOf);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при удалении истекших токенов", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            return db().findOne(TABLE_EXISTS, (rs, ctx) -> rs.getBoolean(1)).orElse(false);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при проверке таблицы токенов", e);
+            return false;
+        }
+    }
+}
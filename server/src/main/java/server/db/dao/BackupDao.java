@@ -0,0 +1,87 @@
+package server.db.dao;
+
+import common.model.Backup;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO для каталога резервных копий (таблица backups) и журнала изменений backup_changes.
+ * Инкрементная копия ссылается на родительскую (parent_id) и на полную копию начала цепочки (base_id).
+ */
+public interface BackupDao {
+    /**
+     * @return все копии, новые первыми
+     */
+    List<Backup> findAll();
+
+    /**
+     * @param id ID копии
+     * @return копия или пустой Optional, если не найдена
+     */
+    Optional<Backup> findById(Long id);
+
+    /**
+     * @param fileName имя файла архива
+     * @return копия или пустой Optional, если файл не зарегистрирован
+     */
+    Optional<Backup> findByFileName(String fileName);
+
+    /**
+     * Последняя копия, если от ее снимка можно сделать инкрементную копию
+     * @return копия или пустой Optional, если последняя копия недействительна или сделана до
+     * восстановления БД
+     */
+    Optional<Backup> findChainHead();
+
+    /**
+     * Снимок транзакций копии
+     * @param id ID копии
+     * @return txid_current_snapshot на момент копии или пустой Optional
+     */
+    Optional<String> findTxSnapshot(Long id);
+
+    /**
+     * Регистрирует копию
+     * @param backup копия (вид, родитель и начало цепочки берутся из нее)
+     * @param filePath полный путь к архиву
+     * @param txSnapshot снимок транзакций на момент копии или null
+     * @return ID копии или пустой Optional при ошибке
+     */
+    Optional<Long> save(Backup backup, String filePath, String txSnapshot);
+
+    /**
+     * @param id ID копии
+     * @return число инкрементных копий, сделанных от этой копии
+     */
+    int countChildren(Long id);
+
+    /**
+     * Помечает копию недействительной (например, если ее файл удален вручную)
+     * @param id ID копии
+     * @return true, если копия найдена
+     */
+    boolean markInvalid(Long id);
+
+    /**
+     * Удаляет копию из каталога
+     * @param id ID копии
+     * @return true, если копия удалена
+     */
+    boolean delete(Long id);
+
+    /**
+     * Запрещает инкрементные копии от существующих копий, так что следующая копия будет полной.
+     * Вызывается после восстановления БД (журнал не отражает возврат данных к состоянию копии)
+     * и после удаления последней копии (журнал уже очищен до ее снимка).
+     * @return число затронутых копий
+     */
+    int clearTxSnapshots();
+
+    /**
+     * Удаляет из журнала изменения, видимые в снимке последней копии: они уже вошли в нее,
+     * а следующая инкрементная копия делается только от нее
+     * @return число удаленных записей журнала
+     */
+    int pruneChanges();
+}
@@ -0,0 +1,166 @@
+package server.db.dao;
+
+import common.model.Backup;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.Workload;
+import server.db.mapper.BackupMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация DAO для каталога резервных копий
+ */
+public class BackupDaoImpl extends AbstractDao implements BackupDao {
+    private static final String SELECT_BACKUP =
+            "SELECT b.id, b.filename, b.created_at, b.created_by, b.file_size, b.is_valid, b.description, " +
+            "b.backup_kind, b.parent_id, b.base_id, b.sha256, u.login " +
+            "FROM backups b LEFT JOIN users u ON u.id = b.created_by ";
+    private static final String SELECT_ALL = SELECT_BACKUP + "ORDER BY b.created_at DESC, b.id DESC";
+    private static final String SELECT_BY_ID = SELECT_BACKUP + "WHERE b.id = ?";
+    private static final String SELECT_BY_FILENAME = SELECT_BACKUP + "WHERE b.filename = ?";
+    // Цепочка продолжается только от самой последней копии, и только если у нее есть снимок
+    private static final String LATEST_BACKUP_ID = "SELECT id FROM backups ORDER BY created_at DESC, id DESC LIMIT 1";
+    private static final String SELECT_CHAIN_HEAD = SELECT_BACKUP +
+            "WHERE b.id = (" + LATEST_BACKUP_ID + ") AND b.is_valid AND b.tx_snapshot IS NOT NULL";
+    private static final String SELECT_TX_SNAPSHOT = "SELECT tx_snapshot FROM backups WHERE id = ?";
+    private static final String INSERT_BACKUP =
+            "INSERT INTO backups (filename, created_at, created_by, file_size, file_path, is_valid, description, " +
+            "backup_kind, parent_id, base_id, sha256, tx_snapshot) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String COUNT_CHILDREN = "SELECT COUNT(*) FROM backups WHERE parent_id = ?";
+    private static final String MARK_INVALID = "UPDATE backups SET is_valid = FALSE, tx_snapshot = NULL WHERE id = ?";
+    private static final String DELETE_BACKUP = "DELETE FROM backups WHERE id = ?";
+    private static final String CLEAR_TX_SNAPSHOTS = "UPDATE backups SET tx_snapshot = NULL WHERE tx_snapshot IS NOT NULL";
+    // Без снимка у последней копии подзапрос дает NULL и журнал не очищается
+    private static final String PRUNE_CHANGES =
+            "DELETE FROM backup_changes WHERE txid_visible_in_snapshot(txid, " +
+            "(SELECT tx_snapshot::txid_snapshot FROM backups WHERE id = (" + LATEST_BACKUP_ID + ")))";
+    private static final RowMapper<Backup> BACKUP_MAPPER = (rs, ctx) -> BackupMapper.map(rs);
+
+    public BackupDaoImpl() {
+    }
+
+    /**
+     * @param workload пул соединений, например {@link Workload#BACKGROUND} для резервного копирования
+     */
+    public BackupDaoImpl(Workload workload) {
+        super(workload);
+    }
+
+    @Override
+    public List<Backup> findAll() {
+        try {
+            return db().list(SELECT_ALL, BACKUP_MAPPER);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении списка резервных копий", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Optional<Backup> findById(Long id) {
+        try {
+            return db().findOne(SELECT_BY_ID, BACKUP_MAPPER, id);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при поиске резервной копии по ID: {}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Backup> findByFileName(String fileName) {
+        try {
+            return db().findOne(SELECT_BY_FILENAME, BACKUP_MAPPER, fileName);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при поиске резервной копии по имени файла: {}", fileName, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Backup> findChainHead() {
+        try {
+            return db().findOne(SELECT_CHAIN_HEAD, BACKUP_MAPPER);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при поиске последней резервной копии", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<String> findTxSnapshot(Long id) {
+        try {
+            return db().findOne(SELECT_TX_SNAPSHOT, (rs, ctx) -> rs.getString(1), id);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении снимка резервной копии: {}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Long> save(Backup backup, String filePath, String txSnapshot) {
+        try {
+            Long createdBy = backup.getCreatedBy() != null ? backup.getCreatedBy().getId() : null;
+            return db().insert(INSERT_BACKUP, backup.getFileName(), backup.getCreatedAt(), createdBy,
+                    backup.getFileSize(), filePath, backup.getIsValid() == null || backup.getIsValid(),
+                    backup.getDescription(), backup.getKind(), backup.getParentId(), backup.getBaseId(),
+                    backup.getHash(), txSnapshot);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сохранении резервной копии: {}", backup.getFileName(), e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public int countChildren(Long id) {
+        try {
+            return db().findOne(COUNT_CHILDREN, (rs, ctx) -> rs.getInt(1), id).orElse(0);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при проверке зависимых резервных копий: {}", id, e);
+            // Безопаснее считать, что зависимые копии есть
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public boolean markInvalid(Long id) {
+        try {
+            return db().update(MARK_INVALID, id) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при пометке резервной копии недействительной: {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(Long id) {
+        try {
+            return db().update(DELETE_BACKUP, id) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при удалении резервной копии: {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int clearTxSnapshots() {
+        try {
+            return db().update(CLEAR_TX_SNAPSHOTS);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сбросе снимков резервных копий", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public int pruneChanges() {
+        try {
+            return db().update(PRUNE_CHANGES);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при очистке журнала изменений", e);
+            return 0;
+        }
+    }
+}
@@ -3,10 +3,9 @@ package server.db.dao;
 import common.model.Card;
 import server.db.mapper.CardMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -56,228 +55,112 @@ public class CardDaoImpl extends AbstractDao implements CardDao {
             "UPDATE cards SET points = ? WHERE id = ?";
     private static final String UPDATE_CARD_TIER = 
             "UPDATE cards SET tier_id = ? WHERE id = ?";
+    private static final RowMapper<Card> CARD_MAPPER = (rs, ctx) -> CardMapper.map(rs);
 
     @Override
     public Optional<Card> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_CARD_BY_ID);
-            statement.setLong(1, id);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(CardMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_CARD_BY_ID, CARD_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске карты по id: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public Optional<Card> findByNumber(String number) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_CARD_BY_NUMBER);
-            statement.setString(1, number);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(CardMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_CARD_BY_NUMBER, CARD_MAPPER, number);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске карты по номеру: {}", number, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public List<Card> findByUserId(Long userId) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Card> cards = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_CARDS_BY_USER_ID);
-            statement.setLong(1, userId);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                cards.add(CardMapper.map(resultSet));
-            }
-            
-            return cards;
-        } catch (SQLException e) {
+            return db().list(SELECT_CARDS_BY_USER_ID, CARD_MAPPER, userId);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске карт пользователя: {}", userId, e);
-            return cards;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
     public List<Card> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Card> cards = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL_CARDS);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                cards.add(CardMapper.map(resultSet));
-            }
-            
-            return cards;
-        } catch (SQLException e) {
+            return db().list(SELECT_ALL_CARDS, CARD_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении всех карт", e);
-            return cards;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
     public Card save(Card card) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
+        // Get tier ID from the tier level or default to level 1
+        int tierLevel = card.getLevel() != null ? card.getLevel() : 1;
+
+        // We need to resolve the tier ID based on level - using tier 1 as default
+        Long tierId = (long)tierLevel; // Simple mapping for now, should be replaced with actual tier lookup
+
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT_CARD);
-            statement.setString(1, card.getCardNumber());
-            statement.setLong(2, card.getUserId());
-            
-            // Get tier ID from the tier level or default to level 1
-            int tierLevel = card.getLevel() != null ? card.getLevel() : 1;
-            
-            // We need to resolve the tier ID based on level - using tier 1 as default
-            Long tierId = (long)tierLevel; // Simple mapping for now, should be replaced with actual tier lookup
-            statement.setLong(3, tierId);
-            statement.setInt(4, card.getPoints() != null ? card.getPoints() : 0);
-            
-            long id = executeUpdateAndGetGeneratedKey(statement);
+            long id = db().insert(INSERT_CARD, card.getCardNumber(), card.getUserId(), tierId,
+                    card.getPoints() != null ? card.getPoints() : 0).orElse(-1L);
             card.setId(id);
-            
+
             return card;
-        } catch (SQLException e) {
+        } catch (JdbiException e) {
             logger.error("Ошибка при сохранении карты: {}", card.getCardNumber(), e);
             return card;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean update(Card card) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
+        // Get tier ID from the tier level or default to level 1
+        int tierLevel = card.getLevel() != null ? card.getLevel() : 1;
+
+        // We need to resolve the tier ID based on level
+        Long tierId = (long)tierLevel; // Simple mapping for now, should be replaced with actual tier lookup
+
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_CARD);
-            statement.setString(1, card.getCardNumber());
-            statement.setLong(2, card.getUserId());
-            
-            // Get tier ID from the tier level or default to level 1
-            int tierLevel = card.getLevel() != null ? card.getLevel() : 1;
-            
-            // We need to resolve the tier ID based on level
-            Long tierId = (long)tierLevel; // Simple mapping for now, should be replaced with actual tier lookup
-            statement.setLong(3, tierId);
-            statement.setInt(4, card.getPoints() != null ? card.getPoints() : 0);
-            statement.setLong(5, card.getId());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_CARD, card.getCardNumber(), card.getUserId(), tierId,
+                    card.getPoints() != null ? card.getPoints() : 0, card.getId()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении карты: {}", card.getId(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean updatePoints(Long cardId, int points) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_CARD_POINTS);
-            statement.setInt(1, points);
-            statement.setLong(2, cardId);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_CARD_POINTS, points, cardId) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении баллов карты: {}", cardId, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean updateTier(Long cardId, Long tierId) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_CARD_TIER);
-            statement.setLong(1, tierId);
-            statement.setLong(2, cardId);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_CARD_TIER, tierId, cardId) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении уровня карты: {}", cardId, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean deleteById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE_CARD);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE_CARD, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении карты: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+}
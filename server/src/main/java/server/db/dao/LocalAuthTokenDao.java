@@ -0,0 +1,69 @@
+package server.db.dao;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище токенов входа в памяти процесса для работы одного экземпляра сервера (cluster.enabled=false):
+ * таблица auth_tokens не нужна, а токены действуют до перезапуска сервера.
+ * Один экземпляр на процесс, потому что обработчики и сервисы создаются для каждого соединения.
+ */
+public final class LocalAuthTokenDao implements AuthTokenDao {
+    private static final LocalAuthTokenDao INSTANCE = new LocalAuthTokenDao();
+
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+
+    private LocalAuthTokenDao() {
+    }
+
+    public static LocalAuthTokenDao getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean save(String tokenHash, Long userId, LocalDateTime expiresAt, String nodeId) {
+        return tokens.putIfAbsent(tokenHash, new Token(userId, expiresAt)) == null;
+    }
+
+    @Override
+    public Optional<Long> findUserId(String tokenHash) {
+        Token token = tokens.get(tokenHash);
+        if (token == null || !token.expiresAt.isAfter(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(token.userId);
+    }
+
+    @Override
+    public boolean delete(String tokenHash) {
+        return tokens.remove(tokenHash) != null;
+    }
+
+    @Override
+    public int deleteExpired(LocalDateTime asOf) {
+        int deleted = 0;
+        for (Map.Entry<String, Token> entry : tokens.entrySet()) {
+            if (!entry.getValue().expiresAt.isAfter(asOf) && tokens.remove(entry.getKey(), entry.getValue())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    private static final class Token {
+        private final Long userId;
+        private final LocalDateTime expiresAt;
+
+        private Token(Long userId, LocalDateTime expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
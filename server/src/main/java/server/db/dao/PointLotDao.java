@@ -0,0 +1,71 @@
+package server.db.dao;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * DAO для работы с партиями начисленных баллов
+ */
+public interface PointLotDao {
+    /**
+     * Начислить баллы на карту и добавить партию одной транзакцией.
+     * Баланс увеличивается относительно текущего значения в БД, поэтому одновременное
+     * списание или сгорание не теряется
+     * @param cardId ID карты
+     * @param points количество начисленных баллов
+     * @param earnedAt время начисления
+     * @param expiresAt время сгорания партии
+     * @return новый баланс карты или пустой Optional, если карта не найдена или произошла ошибка
+     */
+    Optional<Integer> earn(Long cardId, int points, LocalDateTime earnedAt, LocalDateTime expiresAt);
+
+    /**
+     * Списать баллы с карты и с ее партий в порядке начисления (FIFO) одной транзакцией.
+     * Баланс уменьшается только если на карте в момент списания достаточно баллов
+     * @param cardId ID карты
+     * @param points количество списываемых баллов
+     * @return новый баланс карты или пустой Optional, если карта не найдена, баллов недостаточно
+     * или произошла ошибка
+     */
+    Optional<Integer> spend(Long cardId, int points);
+
+    /**
+     * Найти диапазон ID карт, у которых есть просроченные партии с остатком
+     * @param asOf момент, на который проверяется срок
+     * @return массив [минимальный ID, максимальный ID] или пустой Optional, если сгорать нечему
+     */
+    Optional<long[]> findExpiringCardIdRange(LocalDateTime asOf);
+
+    /**
+     * Списать просроченные партии для карт из диапазона ID одним запросом:
+     * обнуляет партии, уменьшает баланс карт и записывает транзакции EXPIRY.
+     * Карты, заблокированные другими транзакциями, пропускаются до следующего запуска.
+     * @param fromCardId начало диапазона ID карт (включительно)
+     * @param toCardId конец диапазона ID карт (включительно)
+     * @param asOf момент, на который проверяется срок
+     * @param description описание транзакций сгорания
+     * @return результат обработки диапазона
+     */
+    ExpiredChunk expireChunk(long fromCardId, long toCardId, LocalDateTime asOf, String description);
+
+    /**
+     * Результат сгорания баллов для диапазона карт
+     */
+    class ExpiredChunk {
+        private final int cards;
+        private final long points;
+
+        public ExpiredChunk(int cards, long points) {
+            this.cards = cards;
+            this.points = points;
+        }
+
+        public int getCards() {
+            return cards;
+        }
+
+        public long getPoints() {
+            return points;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package server.db.dao;
+
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.QueryExecutor;
+import server.db.Workload;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Реализация DAO для работы с партиями начисленных баллов
+ */
+public class PointLotDaoImpl extends AbstractDao implements PointLotDao {
+    private static final String ADD_CARD_POINTS =
+            "UPDATE cards SET points = points + ? WHERE id = ? RETURNING points";
+    private static final String DEDUCT_CARD_POINTS =
+            "UPDATE cards SET points = points - ? WHERE id = ? AND points >= ? RETURNING points";
+    private static final String INSERT_LOT =
+            "INSERT INTO point_lots (card_id, earned_at, expires_at, points_earned, points_remaining) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    // Остаток партии после списания N баллов: running - N, где running - нарастающий итог по FIFO
+    private static final String CONSUME_FIFO =
+            "WITH locked AS (" +
+            "    SELECT id, earned_at, points_remaining FROM point_lots " +
+            "    WHERE card_id = ? AND points_remaining > 0 " +
+            "    ORDER BY earned_at, id " +
+            "    FOR UPDATE" +
+            "), ordered AS (" +
+            "    SELECT id, points_remaining, " +
+            "           SUM(points_remaining) OVER (ORDER BY earned_at, id) AS running " +
+            "    FROM locked" +
+            ") " +
+            "UPDATE point_lots pl SET points_remaining = GREATEST(0, o.running - ?) " +
+            "FROM ordered o " +
+            "WHERE pl.id = o.id AND o.running - o.points_remaining < ?";
+    private static final String SELECT_EXPIRING_RANGE =
+            "SELECT MIN(card_id), MAX(card_id) FROM point_lots " +
+            "WHERE expires_at <= ? AND points_remaining > 0";
+    private static final String EXPIRE_CHUNK =
+            "WITH due_cards AS (" +
+            "    SELECT c.id FROM cards c " +
+            "    WHERE c.id BETWEEN ? AND ? " +
+            "      AND EXISTS (SELECT 1 FROM point_lots pl " +
+            "                  WHERE pl.card_id = c.id AND pl.expires_at <= ? AND pl.points_remaining > 0) " +
+            "    FOR UPDATE OF c SKIP LOCKED" +
+            "), due AS (" +
+            "    SELECT pl.id, pl.card_id, pl.points_remaining FROM point_lots pl " +
+            "    JOIN due_cards dc ON dc.id = pl.card_id " +
+            "    WHERE pl.expires_at <= ? AND pl.points_remaining > 0 " +
+            "    FOR UPDATE OF pl" +
+            "), zeroed AS (" +
+            "    UPDATE point_lots pl SET points_remaining = 0 FROM due d WHERE pl.id = d.id " +
+            "    RETURNING d.card_id, d.points_remaining AS expired" +
+            "), per_card AS (" +
+            "    SELECT card_id, SUM(expired) AS expired FROM zeroed GROUP BY card_id" +
+            "), updated AS (" +
+            "    UPDATE cards c SET points = GREATEST(0, c.points - pc.expired) " +
+            "    FROM per_card pc WHERE c.id = pc.card_id " +
+            "    RETURNING c.id, pc.expired" +
+            "), inserted AS (" +
+            "    INSERT INTO transactions (card_id, type, points, timestamp, description) " +
+            "    SELECT id, 'EXPIRY', -expired, ?, ? FROM updated " +
+            "    RETURNING points" +
+            ") " +
+            "SELECT COUNT(*), COALESCE(-SUM(points), 0) FROM inserted";
+    // Не ждем блокировок дольше этого времени: занятый диапазон будет обработан при следующем запуске
+    private static final String SET_LOCK_TIMEOUT = "SET LOCAL lock_timeout = '2s'";
+    // Пустой массив, если партий к сгоранию нет (MIN/MAX вернули NULL)
+    private static final RowMapper<long[]> RANGE_MAPPER = (rs, ctx) -> {
+        long min = rs.getLong(1);
+        return rs.wasNull() ? new long[0] : new long[]{min, rs.getLong(2)};
+    };
+    private static final RowMapper<ExpiredChunk> EXPIRED_CHUNK_MAPPER =
+            (rs, ctx) -> new ExpiredChunk(rs.getInt(1), rs.getLong(2));
+
+    public PointLotDaoImpl() {
+    }
+
+    /**
+     * @param workload пул соединений, например {@link Workload#BACKGROUND} для фоновых задач
+     */
+    public PointLotDaoImpl(Workload workload) {
+        super(workload);
+    }
+
+    @Override
+    public Optional<Integer> earn(Long cardId, int points, LocalDateTime earnedAt, LocalDateTime expiresAt) {
+        try {
+            return db().inTransaction(handle -> {
+                Optional<Integer> balance = QueryExecutor.bindAll(handle.createQuery(ADD_CARD_POINTS), points, cardId)
+                        .mapTo(Integer.class)
+                        .findFirst();
+                if (balance.isPresent()) {
+                    QueryExecutor.bindAll(handle.createUpdate(INSERT_LOT), cardId, earnedAt, expiresAt, points, points)
+                            .execute();
+                }
+                return balance;
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при начислении {} баллов на карту: {}", points, cardId, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Integer> spend(Long cardId, int points) {
+        try {
+            return db().inTransaction(handle -> {
+                // Строка карты блокируется до конца транзакции: партии списываются под той же блокировкой
+                Optional<Integer> balance = QueryExecutor.bindAll(handle.createQuery(DEDUCT_CARD_POINTS),
+                                points, cardId, points)
+                        .mapTo(Integer.class)
+                        .findFirst();
+                if (balance.isPresent()) {
+                    QueryExecutor.bindAll(handle.createUpdate(CONSUME_FIFO), cardId, points, points).execute();
+                }
+                return balance;
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при списании {} баллов с карты: {}", points, cardId, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<long[]> findExpiringCardIdRange(LocalDateTime asOf) {
+        try {
+            return db().findOne(SELECT_EXPIRING_RANGE, RANGE_MAPPER, asOf)
+                    .filter(range -> range.length == 2);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при поиске карт с просроченными баллами", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public ExpiredChunk expireChunk(long fromCardId, long toCardId, LocalDateTime asOf, String description) {
+        try {
+            return db().inTransaction(handle -> {
+                handle.execute(SET_LOCK_TIMEOUT);
+                return QueryExecutor.bindAll(handle.createQuery(EXPIRE_CHUNK),
+                                fromCardId, toCardId, asOf, asOf, asOf, description)
+                        .map(EXPIRED_CHUNK_MAPPER)
+                        .findFirst()
+                        .orElseGet(() -> new ExpiredChunk(0, 0));
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сгорании баллов для карт {}..{}", fromCardId, toCardId, e);
+            return new ExpiredChunk(0, 0);
+        }
+    }
+}
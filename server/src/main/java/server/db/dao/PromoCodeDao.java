@@ -27,6 +27,7 @@ public interface PromoCodeDao {
     /**
      * Получает все промокоды
      * @return список всех промокодов
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (не пустой список: ответ с ним получил бы ETag)
      */
     List<PromoCode> findAll();
     
@@ -3,11 +3,11 @@ package server.db.dao;
 import common.model.PromoCode;
 import server.db.mapper.PromoCodeMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,276 +35,113 @@ public class PromoCodeDaoImpl extends AbstractDao implements PromoCodeDao {
             "used_date = ?, expiry_date = ?, created_by = ? WHERE id = ?";
     private static final String DELETE = 
             "DELETE FROM promo_codes WHERE id = ?";
+    private static final RowMapper<PromoCode> PROMO_CODE_MAPPER = (rs, ctx) -> PromoCodeMapper.mapResultSetToPromoCode(rs);
     
     @Override
     public Optional<PromoCode> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_ID);
-            statement.setLong(1, id);
-            
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                PromoCode promoCode = PromoCodeMapper.mapResultSetToPromoCode(resultSet);
-                return Optional.of(promoCode);
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_BY_ID, PROMO_CODE_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении промокода по ID: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public Optional<PromoCode> findByCode(String code) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_CODE);
-            statement.setString(1, code);
-            
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                PromoCode promoCode = PromoCodeMapper.mapResultSetToPromoCode(resultSet);
-                return Optional.of(promoCode);
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_BY_CODE, PROMO_CODE_MAPPER, code);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении промокода по коду: {}", code, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<PromoCode> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL);
-            
-            resultSet = statement.executeQuery();
-            
-            List<PromoCode> promoCodes = new ArrayList<>();
-            while (resultSet.next()) {
-                PromoCode promoCode = PromoCodeMapper.mapResultSetToPromoCode(resultSet);
-                promoCodes.add(promoCode);
-            }
-            
-            return promoCodes;
-        } catch (SQLException e) {
-            logger.error("Ошибка при получении всех промокодов", e);
-            return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+        // Ошибка БД не перехватывается: по пустому списку нельзя отличить сбой от пустой таблицы
+        return db().list(SELECT_ALL, PROMO_CODE_MAPPER);
     }
     
     @Override
     public List<PromoCode> findActive() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ACTIVE);
-            
-            resultSet = statement.executeQuery();
-            
-            List<PromoCode> promoCodes = new ArrayList<>();
-            while (resultSet.next()) {
-                PromoCode promoCode = PromoCodeMapper.mapResultSetToPromoCode(resultSet);
-                promoCodes.add(promoCode);
-            }
-            
-            return promoCodes;
-        } catch (SQLException e) {
+            return db().list(SELECT_ACTIVE, PROMO_CODE_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении активных промокодов", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public Long insert(PromoCode promoCode) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT);
-            
-            statement.setString(1, promoCode.getCode());
-            
-            // Обрабатываем promotion_id как nullable поле
-            if (promoCode.getPromotionId() != null && promoCode.getPromotionId() > 0) {
-                statement.setLong(2, promoCode.getPromotionId());
-            } else {
-                statement.setNull(2, java.sql.Types.INTEGER);
-            }
-            
-            statement.setBoolean(3, promoCode.isUsed());
-            
-            // used_by - это ID карты (integer), не строка
-            if (promoCode.getUsedBy() != null && !promoCode.getUsedBy().isEmpty()) {
-                try {
-                    statement.setLong(4, Long.parseLong(promoCode.getUsedBy()));
-                } catch (NumberFormatException e) {
-                    statement.setNull(4, java.sql.Types.INTEGER);
-                }
-            } else {
-                statement.setNull(4, java.sql.Types.INTEGER);
-            }
-            
-            setNullableLocalDate(statement, 5, promoCode.getUsedDate());
-            setNullableLocalDate(statement, 6, promoCode.getExpiryDate());
-            
-            // created_by - это ID пользователя (integer), не строка  
-            if (promoCode.getCreatedBy() != null && !promoCode.getCreatedBy().isEmpty()) {
-                try {
-                    statement.setLong(7, Long.parseLong(promoCode.getCreatedBy()));
-                } catch (NumberFormatException e) {
-                    // Если это не число, попробуем найти пользователя по имени "admin"
-                    if ("admin".equals(promoCode.getCreatedBy()) || "system".equals(promoCode.getCreatedBy())) {
-                        statement.setLong(7, 1L); // ID администратора
-                    } else {
-                        statement.setNull(7, java.sql.Types.INTEGER);
-                    }
-                }
-            } else {
-                statement.setNull(7, java.sql.Types.INTEGER);
-            }
-            
-            int affectedRows = statement.executeUpdate();
-            
-            if (affectedRows == 0) {
-                logger.error("Не удалось создать промокод, ни одна строка не была добавлена");
-                return null;
-            }
-            
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                return resultSet.getLong(1);
-            } else {
-                logger.error("Не удалось получить ID созданного промокода");
-                return null;
-            }
-        } catch (SQLException e) {
+            return db().insert(INSERT, columnValues(promoCode))
+                    .orElseGet(() -> {
+                        logger.error("Не удалось получить ID созданного промокода");
+                        return null;
+                    });
+        } catch (JdbiException e) {
             logger.error("Ошибка при создании промокода", e);
             return null;
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public boolean update(PromoCode promoCode) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
+        Object[] values = Arrays.copyOf(columnValues(promoCode), 8);
+        values[7] = promoCode.getId();
+
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE);
-            
-            statement.setString(1, promoCode.getCode());
-            
-            // Обрабатываем promotion_id как nullable поле
-            if (promoCode.getPromotionId() != null && promoCode.getPromotionId() > 0) {
-                statement.setLong(2, promoCode.getPromotionId());
-            } else {
-                statement.setNull(2, java.sql.Types.INTEGER);
-            }
-            
-            statement.setBoolean(3, promoCode.isUsed());
-            
-            // used_by - это ID карты (integer), не строка
-            if (promoCode.getUsedBy() != null && !promoCode.getUsedBy().isEmpty()) {
-                try {
-                    statement.setLong(4, Long.parseLong(promoCode.getUsedBy()));
-                } catch (NumberFormatException e) {
-                    statement.setNull(4, java.sql.Types.INTEGER);
-                }
-            } else {
-                statement.setNull(4, java.sql.Types.INTEGER);
-            }
-            
-            setNullableLocalDate(statement, 5, promoCode.getUsedDate());
-            setNullableLocalDate(statement, 6, promoCode.getExpiryDate());
-            
-            // created_by - это ID пользователя (integer), не строка  
-            if (promoCode.getCreatedBy() != null && !promoCode.getCreatedBy().isEmpty()) {
-                try {
-                    statement.setLong(7, Long.parseLong(promoCode.getCreatedBy()));
-                } catch (NumberFormatException e) {
-                    // Если это не число, попробуем найти пользователя по имени "admin"
-                    if ("admin".equals(promoCode.getCreatedBy()) || "system".equals(promoCode.getCreatedBy())) {
-                        statement.setLong(7, 1L); // ID администратора
-                    } else {
-                        statement.setNull(7, java.sql.Types.INTEGER);
-                    }
-                }
-            } else {
-                statement.setNull(7, java.sql.Types.INTEGER);
-            }
-            
-            statement.setLong(8, promoCode.getId());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE, values) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении промокода с ID: {}", promoCode.getId(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
     
     @Override
     public boolean delete(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении промокода с ID: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
     
-    // Вспомогательные методы для работы с NULL-значениями
-    private void setNullableLocalDate(PreparedStatement statement, int index, java.time.LocalDate value) throws SQLException {
-        if (value == null) {
-            statement.setNull(index, java.sql.Types.DATE);
-        } else {
-            statement.setDate(index, java.sql.Date.valueOf(value));
+    /**
+     * Значения колонок code..created_by в порядке INSERT и UPDATE
+     */
+    private Object[] columnValues(PromoCode promoCode) {
+        // Обрабатываем promotion_id как nullable поле
+        Long promotionId = promoCode.getPromotionId() != null && promoCode.getPromotionId() > 0
+                ? promoCode.getPromotionId() : null;
+        
+        // used_by - это ID карты (integer), не строка
+        Long usedBy = null;
+        if (promoCode.getUsedBy() != null && !promoCode.getUsedBy().isEmpty()) {
+            try {
+                usedBy = Long.parseLong(promoCode.getUsedBy());
+            } catch (NumberFormatException e) {
+                usedBy = null;
+            }
         }
+        
+        // created_by - это ID пользователя (integer), не строка
+        Long createdBy = null;
+        if (promoCode.getCreatedBy() != null && !promoCode.getCreatedBy().isEmpty()) {
+            try {
+                createdBy = Long.parseLong(promoCode.getCreatedBy());
+            } catch (NumberFormatException e) {
+                // Если это не число, попробуем найти пользователя по имени "admin"
+                if ("admin".equals(promoCode.getCreatedBy()) || "system".equals(promoCode.getCreatedBy())) {
+                    createdBy = 1L; // ID администратора
+                }
+            }
+        }
+        
+        return new Object[] {promoCode.getCode(), promotionId, promoCode.isUsed(), usedBy,
+                promoCode.getUsedDate(), promoCode.getExpiryDate(), createdBy};
     }
-} 
\ No newline at end of file
+}
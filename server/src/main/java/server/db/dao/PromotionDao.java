@@ -21,6 +21,7 @@ public interface PromotionDao {
     /**
      * Получает все акции
      * @return список всех акций
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (не пустой список: ответ с ним получил бы ETag)
      */
     List<Promotion> findAll();
     
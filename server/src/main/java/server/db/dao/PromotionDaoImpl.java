@@ -3,10 +3,9 @@ package server.db.dao;
 import common.model.Promotion;
 import server.db.mapper.PromotionMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,223 +36,79 @@ public class PromotionDaoImpl extends AbstractDao implements PromotionDao {
             "is_active = ?, bonus_pct = ?, bonus_points = ? WHERE id = ?";
     private static final String DELETE = 
             "DELETE FROM promotions WHERE id = ?";
+    private static final RowMapper<Promotion> PROMOTION_MAPPER = (rs, ctx) -> PromotionMapper.mapResultSetToPromotion(rs);
     
     @Override
     public Optional<Promotion> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_BY_ID);
-            statement.setLong(1, id);
-            
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                Promotion promotion = PromotionMapper.mapResultSetToPromotion(resultSet);
-                return Optional.of(promotion);
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_BY_ID, PROMOTION_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении акции по ID: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<Promotion> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
-        try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL);
-            
-            resultSet = statement.executeQuery();
-            
-            List<Promotion> promotions = new ArrayList<>();
-            while (resultSet.next()) {
-                Promotion promotion = PromotionMapper.mapResultSetToPromotion(resultSet);
-                promotions.add(promotion);
-            }
-            
-            return promotions;
-        } catch (SQLException e) {
-            logger.error("Ошибка при получении всех акций", e);
-            return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+        // Ошибка БД не перехватывается: по пустому списку нельзя отличить сбой от пустой таблицы
+        return db().list(SELECT_ALL, PROMOTION_MAPPER);
     }
     
     @Override
     public List<Promotion> findActive() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ACTIVE);
-            
-            resultSet = statement.executeQuery();
-            
-            List<Promotion> promotions = new ArrayList<>();
-            while (resultSet.next()) {
-                Promotion promotion = PromotionMapper.mapResultSetToPromotion(resultSet);
-                promotions.add(promotion);
-            }
-            
-            return promotions;
-        } catch (SQLException e) {
+            return db().list(SELECT_ACTIVE, PROMOTION_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении активных акций", e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public List<Promotion> findActiveOnDate(LocalDate date) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ACTIVE_ON_DATE);
-            statement.setObject(1, date);
-            statement.setObject(2, date);
-            
-            resultSet = statement.executeQuery();
-            
-            List<Promotion> promotions = new ArrayList<>();
-            while (resultSet.next()) {
-                Promotion promotion = PromotionMapper.mapResultSetToPromotion(resultSet);
-                promotions.add(promotion);
-            }
-            
-            return promotions;
-        } catch (SQLException e) {
+            return db().list(SELECT_ACTIVE_ON_DATE, PROMOTION_MAPPER, date, date);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении акций, активных на дату: {}", date, e);
             return new ArrayList<>();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public Long insert(Promotion promotion) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT);
-            
-            statement.setString(1, promotion.getName());
-            statement.setString(2, promotion.getDescription());
-            statement.setObject(3, promotion.getStartDate());
-            statement.setObject(4, promotion.getEndDate());
-            statement.setBoolean(5, promotion.isActive());
-            
-            if (promotion.getBonusPercent() != null) {
-                statement.setInt(6, promotion.getBonusPercent());
-            } else {
-                statement.setNull(6, java.sql.Types.INTEGER);
-            }
-            
-            if (promotion.getBonusPoints() != null) {
-                statement.setInt(7, promotion.getBonusPoints());
-            } else {
-                statement.setNull(7, java.sql.Types.INTEGER);
-            }
-            
-            int affectedRows = statement.executeUpdate();
-            
-            if (affectedRows == 0) {
-                logger.error("Не удалось создать акцию, ни одна строка не была добавлена");
-                return null;
-            }
-            
-            resultSet = statement.getGeneratedKeys();
-            if (resultSet.next()) {
-                return resultSet.getLong(1);
-            } else {
-                logger.error("Не удалось получить ID созданной акции");
-                return null;
-            }
-        } catch (SQLException e) {
+            return db().insert(INSERT, promotion.getName(), promotion.getDescription(),
+                            promotion.getStartDate(), promotion.getEndDate(), promotion.isActive(),
+                            promotion.getBonusPercent(), promotion.getBonusPoints())
+                    .orElseGet(() -> {
+                        logger.error("Не удалось получить ID созданной акции");
+                        return null;
+                    });
+        } catch (JdbiException e) {
             logger.error("Ошибка при создании акции", e);
             return null;
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
     @Override
     public boolean update(Promotion promotion) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE);
-            
-            statement.setString(1, promotion.getName());
-            statement.setString(2, promotion.getDescription());
-            statement.setObject(3, promotion.getStartDate());
-            statement.setObject(4, promotion.getEndDate());
-            statement.setBoolean(5, promotion.isActive());
-            
-            if (promotion.getBonusPercent() != null) {
-                statement.setInt(6, promotion.getBonusPercent());
-            } else {
-                statement.setNull(6, java.sql.Types.INTEGER);
-            }
-            
-            if (promotion.getBonusPoints() != null) {
-                statement.setInt(7, promotion.getBonusPoints());
-            } else {
-                statement.setNull(7, java.sql.Types.INTEGER);
-            }
-            
-            statement.setLong(8, promotion.getId());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE, promotion.getName(), promotion.getDescription(),
+                    promotion.getStartDate(), promotion.getEndDate(), promotion.isActive(),
+                    promotion.getBonusPercent(), promotion.getBonusPoints(), promotion.getId()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении акции с ID: {}", promotion.getId(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
     
     @Override
     public boolean delete(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении акции с ID: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package server.db.dao;
+
+import common.model.PromoCode;
+import common.model.Promotion;
+import common.model.Setting;
+import common.model.Tier;
+import common.model.User;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO для синхронизации справочников по изменениям (столбцы row_version и таблица reference_deletions).
+ * Номера версий строк совпадают с версиями таблиц в table_versions. Выборки изменений и удалений при ошибке
+ * возвращают пустой Optional, а не пустой список: иначе клиент принял бы новую версию, не получив строк.
+ */
+public interface ReferenceSyncDao {
+    /**
+     * @param version версия, уже полученная клиентом; -1 для всех строк
+     * @return уровни, измененные после версии
+     */
+    Optional<List<Tier>> findTiersChangedSince(long version);
+
+    /**
+     * @param version версия, уже полученная клиентом; -1 для всех строк
+     * @return акции, измененные после версии
+     */
+    Optional<List<Promotion>> findPromotionsChangedSince(long version);
+
+    /**
+     * @param version версия, уже полученная клиентом; -1 для всех строк
+     * @return промокоды, измененные после версии
+     */
+    Optional<List<PromoCode>> findPromoCodesChangedSince(long version);
+
+    /**
+     * @param version версия, уже полученная клиентом; -1 для всех строк
+     * @return настройки, измененные после версии
+     */
+    Optional<List<Setting>> findSettingsChangedSince(long version);
+
+    /**
+     * @param version версия, уже полученная клиентом; -1 для всех строк
+     * @return пользователи (с паролями, как в UserDao), измененные после версии
+     */
+    Optional<List<User>> findUsersChangedSince(long version);
+
+    /**
+     * @param table имя таблицы
+     * @param version версия, уже полученная клиентом
+     * @return ID строк, удаленных после версии
+     */
+    Optional<List<Long>> findDeletedSince(String table, long version);
+
+    /**
+     * @param table имя таблицы
+     * @param version версия, уже полученная клиентом
+     * @return true, если после версии таблица очищалась или восстанавливалась из копии
+     *         (при ошибке тоже true: клиент просто загрузит таблицу заново)
+     */
+    boolean wasResetSince(String table, long version);
+}
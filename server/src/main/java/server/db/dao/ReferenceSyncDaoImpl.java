@@ -0,0 +1,103 @@
+package server.db.dao;
+
+import common.model.PromoCode;
+import common.model.Promotion;
+import common.model.Setting;
+import common.model.Tier;
+import common.model.User;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.mapper.PromoCodeMapper;
+import server.db.mapper.PromotionMapper;
+import server.db.mapper.SettingMapper;
+import server.db.mapper.TierMapper;
+import server.db.mapper.UserMapper;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация DAO для синхронизации справочников по изменениям
+ */
+public class ReferenceSyncDaoImpl extends AbstractDao implements ReferenceSyncDao {
+    private static final String SELECT_TIERS_CHANGED =
+            "SELECT id, name, min_points, discount_pct FROM tiers WHERE row_version > ? ORDER BY min_points";
+    private static final String SELECT_PROMOTIONS_CHANGED =
+            "SELECT id, name, description, start_date, end_date, is_active, bonus_pct, bonus_points " +
+            "FROM promotions WHERE row_version > ?";
+    private static final String SELECT_PROMO_CODES_CHANGED =
+            "SELECT id, code, promotion_id, is_used, used_by, used_date, expiry_date, created_by " +
+            "FROM promo_codes WHERE row_version > ?";
+    private static final String SELECT_SETTINGS_CHANGED =
+            "SELECT id, key, value, description, last_updated, updated_by FROM settings WHERE row_version > ?";
+    private static final String SELECT_USERS_CHANGED =
+            "SELECT u.id, u.login, u.password, u.role_id, r.name as role_name, u.full_name, u.email, u.phone, u.registration_date " +
+            "FROM users u JOIN roles r ON u.role_id = r.id WHERE u.row_version > ?";
+    private static final String SELECT_DELETED =
+            "SELECT DISTINCT row_id FROM reference_deletions " +
+            "WHERE table_name = ? AND version > ? AND row_id IS NOT NULL";
+    private static final String SELECT_RESET =
+            "SELECT EXISTS (SELECT 1 FROM reference_deletions " +
+            "WHERE table_name = ? AND version > ? AND row_id IS NULL)";
+    private static final RowMapper<Tier> TIER_MAPPER = (rs, ctx) -> TierMapper.map(rs);
+    private static final RowMapper<Promotion> PROMOTION_MAPPER = (rs, ctx) -> PromotionMapper.mapResultSetToPromotion(rs);
+    private static final RowMapper<PromoCode> PROMO_CODE_MAPPER = (rs, ctx) -> PromoCodeMapper.mapResultSetToPromoCode(rs);
+    private static final RowMapper<Setting> SETTING_MAPPER = (rs, ctx) -> SettingMapper.map(rs);
+    private static final RowMapper<User> USER_MAPPER = (rs, ctx) -> UserMapper.map(rs);
+    private static final RowMapper<Long> ID_MAPPER = (rs, ctx) -> rs.getLong(1);
+    private static final RowMapper<Boolean> EXISTS_MAPPER = (rs, ctx) -> rs.getBoolean(1);
+
+    @Override
+    public Optional<List<Tier>> findTiersChangedSince(long version) {
+        return changedSince(SELECT_TIERS_CHANGED, TIER_MAPPER, TableVersionDao.TIERS, version);
+    }
+
+    @Override
+    public Optional<List<Promotion>> findPromotionsChangedSince(long version) {
+        return changedSince(SELECT_PROMOTIONS_CHANGED, PROMOTION_MAPPER, TableVersionDao.PROMOTIONS, version);
+    }
+
+    @Override
+    public Optional<List<PromoCode>> findPromoCodesChangedSince(long version) {
+        return changedSince(SELECT_PROMO_CODES_CHANGED, PROMO_CODE_MAPPER, TableVersionDao.PROMO_CODES, version);
+    }
+
+    @Override
+    public Optional<List<Setting>> findSettingsChangedSince(long version) {
+        return changedSince(SELECT_SETTINGS_CHANGED, SETTING_MAPPER, TableVersionDao.SETTINGS, version);
+    }
+
+    @Override
+    public Optional<List<User>> findUsersChangedSince(long version) {
+        return changedSince(SELECT_USERS_CHANGED, USER_MAPPER, TableVersionDao.USERS, version);
+    }
+
+    @Override
+    public Optional<List<Long>> findDeletedSince(String table, long version) {
+        try {
+            return Optional.of(db().list(SELECT_DELETED, ID_MAPPER, table, version));
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении удаленных строк {} после версии {}", table, version, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean wasResetSince(String table, long version) {
+        try {
+            return db().findOne(SELECT_RESET, EXISTS_MAPPER, table, version).orElse(true);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при проверке сброса {} после версии {}", table, version, e);
+            return true;
+        }
+    }
+
+    private <T> Optional<List<T>> changedSince(String sql, RowMapper<T> mapper, String table, long version) {
+        try {
+            return Optional.of(db().list(sql, mapper, version));
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении изменений {} после версии {}", table, version, e);
+            return Optional.empty();
+        }
+    }
+}
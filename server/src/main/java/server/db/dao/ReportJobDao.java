@@ -0,0 +1,107 @@
+package server.db.dao;
+
+import common.model.ReportJob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO для очереди фоновых заданий на отчеты (таблица report_jobs).
+ * Очередь общая для всех экземпляров сервера: задание забирает тот рабочий поток, который первым
+ * его захватит, поэтому выполняется оно ровно один раз.
+ */
+public interface ReportJobDao {
+    /**
+     * Ставит задание в очередь
+     * @param job задание (тип, формат, период, приоритет и автор берутся из него)
+     * @return ID задания или пустой Optional при ошибке
+     */
+    Optional<Long> create(ReportJob job);
+
+    /**
+     * @param id ID задания
+     * @return задание или пустой Optional, если не найдено
+     */
+    Optional<ReportJob> findById(Long id);
+
+    /**
+     * @param userId ID автора или null для заданий всех пользователей
+     * @param limit наибольшее число заданий
+     * @return последние задания, новые первыми
+     */
+    List<ReportJob> findRecent(Long userId, int limit);
+
+    /**
+     * @param userId ID автора
+     * @return число ожидающих и выполняемых заданий пользователя
+     */
+    int countActive(Long userId);
+
+    /**
+     * Захватывает следующее задание: с наибольшим приоритетом, а при равном - поставленное раньше,
+     * пропуская задания пользователей, у которых уже выполняется perUserLimit заданий
+     * (задания без автора ограничиваются вместе, как задания одного пользователя)
+     * @param nodeId идентификатор экземпляра, который будет выполнять задание
+     * @param perUserLimit наибольшее число одновременно выполняемых заданий одного пользователя
+     * @return задание в статусе RUNNING или пустой Optional, если выполнять нечего
+     */
+    Optional<ReportJob> claimNext(String nodeId, int perUserLimit);
+
+    /**
+     * Отмечает задание выполненным и в той же транзакции сохраняет результат в БД частями
+     * (таблица report_job_results), чтобы его мог отдать любой экземпляр сервера
+     * @param id ID задания
+     * @param resultFile имя файла результата
+     * @param content файл с результатом
+     * @param expiresAt время удаления результата
+     * @return true, если задание еще выполнялось (не было отменено)
+     * @throws IOException если файл результата не удалось прочитать
+     */
+    boolean complete(Long id, String resultFile, Path content, LocalDateTime expiresAt) throws IOException;
+
+    /**
+     * Записывает сохраненный в БД результат задания в поток, читая его по частям
+     * @param id ID задания
+     * @param out поток для результата
+     * @return число записанных байт (0, если результата нет)
+     * @throws IOException при ошибке записи в поток или чтения из БД
+     */
+    long readResult(Long id, OutputStream out) throws IOException;
+
+    /**
+     * Отмечает задание завершенным с ошибкой
+     * @param id ID задания
+     * @param errorMessage причина
+     * @param expiresAt время удаления записи о задании
+     * @return true, если задание найдено
+     */
+    boolean fail(Long id, String errorMessage, LocalDateTime expiresAt);
+
+    /**
+     * Отменяет задание, которое еще не начало выполняться
+     * @param id ID задания
+     * @param expiresAt время удаления записи о задании
+     * @return true, если задание было в очереди и отменено
+     */
+    boolean cancel(Long id, LocalDateTime expiresAt);
+
+    /**
+     * Завершает с ошибкой задания, выполняемые дольше допустимого: экземпляр, выполнявший их,
+     * скорее всего остановился аварийно
+     * @param startedBefore задания, начатые раньше этого времени, считаются прерванными
+     * @param expiresAt время удаления записей о прерванных заданиях
+     * @return число прерванных заданий
+     */
+    int failStale(LocalDateTime startedBefore, LocalDateTime expiresAt);
+
+    /**
+     * Удаляет завершенные задания с истекшим сроком хранения вместе с их результатами в БД
+     * @param now текущее время
+     * @return имена файлов результатов удаленных заданий
+     */
+    List<String> deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,231 @@
+package server.db.dao;
+
+import common.model.ReportJob;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.QueryExecutor;
+import server.db.Workload;
+import server.db.mapper.ReportJobMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация DAO для очереди фоновых заданий на отчеты
+ */
+public class ReportJobDaoImpl extends AbstractDao implements ReportJobDao {
+    private static final String SELECT_JOB =
+            "SELECT id, report_type, format, from_date, to_date, status, priority, requested_by, created_at, " +
+            "started_at, finished_at, result_file, result_size, error_message, expires_at FROM report_jobs ";
+    private static final String SELECT_BY_ID = SELECT_JOB + "WHERE id = ?";
+    private static final String SELECT_RECENT = SELECT_JOB + "ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String SELECT_RECENT_BY_USER =
+            SELECT_JOB + "WHERE requested_by = ? ORDER BY created_at DESC, id DESC LIMIT ?";
+    private static final String INSERT_JOB =
+            "INSERT INTO report_jobs (report_type, format, from_date, to_date, status, priority, requested_by) " +
+            "VALUES (?, ?, ?, ?, 'QUEUED', ?, ?)";
+    private static final String COUNT_ACTIVE =
+            "SELECT COUNT(*) FROM report_jobs WHERE requested_by = ? AND status IN ('QUEUED', 'RUNNING')";
+    // Захваты заданий выполняются по одному на все экземпляры: иначе два потока одновременно
+    // увидели бы, что у пользователя нет выполняемых заданий, и превысили бы его ограничение
+    private static final long CLAIM_LOCK_KEY = 740_002;
+    private static final String LOCK_CLAIMS = "SELECT 1 FROM pg_advisory_xact_lock(?)";
+    private static final String CLAIM_NEXT =
+            "UPDATE report_jobs SET status = 'RUNNING', started_at = CURRENT_TIMESTAMP, node_id = ? " +
+            "WHERE id = (SELECT j.id FROM report_jobs j WHERE j.status = 'QUEUED' " +
+            "  AND (SELECT COUNT(*) FROM report_jobs r WHERE r.status = 'RUNNING' " +
+            "       AND r.requested_by IS NOT DISTINCT FROM j.requested_by) < ? " +
+            "  ORDER BY j.priority DESC, j.created_at, j.id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, report_type, format, from_date, to_date, status, priority, requested_by, created_at, " +
+            "started_at, finished_at, result_file, result_size, error_message, expires_at";
+    private static final String COMPLETE_JOB =
+            "UPDATE report_jobs SET status = 'DONE', finished_at = CURRENT_TIMESTAMP, result_file = ?, " +
+            "result_size = ?, expires_at = ? WHERE id = ? AND status = 'RUNNING'";
+    private static final String INSERT_RESULT_CHUNK =
+            "INSERT INTO report_job_results (job_id, chunk_no, data) VALUES (?, ?, ?)";
+    private static final String SELECT_RESULT =
+            "SELECT data FROM report_job_results WHERE job_id = ? ORDER BY chunk_no";
+    // Результат хранится частями: при записи и чтении в памяти находится одна часть, а не весь файл
+    private static final int RESULT_CHUNK_SIZE = 1024 * 1024;
+    private static final String FAIL_JOB =
+            "UPDATE report_jobs SET status = 'FAILED', finished_at = CURRENT_TIMESTAMP, error_message = ?, " +
+            "expires_at = ? WHERE id = ?";
+    private static final String CANCEL_JOB =
+            "UPDATE report_jobs SET status = 'CANCELLED', finished_at = CURRENT_TIMESTAMP, expires_at = ? " +
+            "WHERE id = ? AND status = 'QUEUED'";
+    private static final String FAIL_STALE =
+            "UPDATE report_jobs SET status = 'FAILED', finished_at = CURRENT_TIMESTAMP, " +
+            "error_message = 'Выполнение прервано', expires_at = ? WHERE status = 'RUNNING' AND started_at < ?";
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM report_jobs WHERE expires_at <= ? AND status IN ('DONE', 'FAILED', 'CANCELLED') " +
+            "RETURNING result_file";
+    private static final RowMapper<ReportJob> JOB_MAPPER = (rs, ctx) -> ReportJobMapper.map(rs);
+
+    public ReportJobDaoImpl() {
+    }
+
+    /**
+     * @param workload пул соединений, например {@link Workload#BACKGROUND} для рабочих потоков очереди
+     */
+    public ReportJobDaoImpl(Workload workload) {
+        super(workload);
+    }
+
+    @Override
+    public Optional<Long> create(ReportJob job) {
+        try {
+            return db().insert(INSERT_JOB, job.getReportType(), job.getFormat(), job.getFromDate(), job.getToDate(),
+                    job.getPriority(), job.getRequestedBy());
+        } catch (JdbiException e) {
+            logger.error("Ошибка при постановке задания на отчет {} в очередь", job.getReportType(), e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<ReportJob> findById(Long id) {
+        try {
+            return db().findOne(SELECT_BY_ID, JOB_MAPPER, id);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при поиске задания на отчет по ID: {}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<ReportJob> findRecent(Long userId, int limit) {
+        try {
+            return userId != null
+                    ? db().list(SELECT_RECENT_BY_USER, JOB_MAPPER, userId, limit)
+                    : db().list(SELECT_RECENT, JOB_MAPPER, limit);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении списка заданий на отчеты", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public int countActive(Long userId) {
+        try {
+            return db().findOne(COUNT_ACTIVE, (rs, ctx) -> rs.getInt(1), userId).orElse(0);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при подсчете заданий пользователя: {}", userId, e);
+            // Безопаснее не принимать новые задания
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public Optional<ReportJob> claimNext(String nodeId, int perUserLimit) {
+        try {
+            return db().inTransaction(handle -> {
+                handle.createQuery(LOCK_CLAIMS).bind(0, CLAIM_LOCK_KEY).mapTo(Integer.class).one();
+                // Подзапрос выполняется после получения блокировки и видит захваты других экземпляров
+                return QueryExecutor.bindAll(handle.createQuery(CLAIM_NEXT), nodeId, perUserLimit)
+                        .map(JOB_MAPPER)
+                        .findFirst();
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при выборе задания на отчет", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean complete(Long id, String resultFile, Path content, LocalDateTime expiresAt) throws IOException {
+        long resultSize = Files.size(content);
+        try {
+            return db().inTransaction(handle -> {
+                // Обновление первым блокирует строку задания: отмененное задание не получает частей результата
+                int updated = QueryExecutor.bindAll(handle.createUpdate(COMPLETE_JOB),
+                        resultFile, resultSize, expiresAt, id).execute();
+                if (updated == 0) {
+                    return false;
+                }
+                try (InputStream in = Files.newInputStream(content)) {
+                    byte[] buffer = new byte[RESULT_CHUNK_SIZE];
+                    int chunkNo = 0;
+                    int read;
+                    while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                        QueryExecutor.bindAll(handle.createUpdate(INSERT_RESULT_CHUNK),
+                                id, chunkNo++, Arrays.copyOf(buffer, read)).execute();
+                    }
+                }
+                return true;
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сохранении результата задания на отчет: {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public long readResult(Long id, OutputStream out) throws IOException {
+        long[] written = {0};
+        try {
+            // Одна часть за обращение к серверу: части по мегабайту
+            db().withFetchSize(1).stream(SELECT_RESULT, (rs, ctx) -> rs.getBytes(1), chunk -> {
+                try {
+                    out.write(chunk);
+                    written[0] += chunk.length;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, id);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (JdbiException e) {
+            throw new IOException("Не удалось прочитать результат задания на отчет " + id, e);
+        }
+        return written[0];
+    }
+
+    @Override
+    public boolean fail(Long id, String errorMessage, LocalDateTime expiresAt) {
+        try {
+            return db().update(FAIL_JOB, errorMessage, expiresAt, id) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сохранении ошибки задания на отчет: {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean cancel(Long id, LocalDateTime expiresAt) {
+        try {
+            return db().update(CANCEL_JOB, expiresAt, id) > 0;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при отмене задания на отчет: {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int failStale(LocalDateTime startedBefore, LocalDateTime expiresAt) {
+        try {
+            return db().update(FAIL_STALE, expiresAt, startedBefore);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при завершении прерванных заданий на отчеты", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public List<String> deleteExpired(LocalDateTime now) {
+        try {
+            return db().list(DELETE_EXPIRED, (rs, ctx) -> rs.getString(1), now);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при удалении истекших заданий на отчеты", e);
+            return new ArrayList<>();
+        }
+    }
+}
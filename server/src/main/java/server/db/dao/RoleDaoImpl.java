@@ -3,10 +3,9 @@ package server.db.dao;
 import common.model.Role;
 import server.db.mapper.RoleMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -21,143 +20,68 @@ public class RoleDaoImpl extends AbstractDao implements RoleDao {
     private static final String SELECT_ROLE_BY_ID = "SELECT id, name FROM roles WHERE id = ?";
     private static final String SELECT_ROLE_BY_NAME = "SELECT id, name FROM roles WHERE name = ?";
     private static final String SELECT_ALL_ROLES = "SELECT id, name FROM roles";
+    private static final RowMapper<Role> ROLE_MAPPER = (rs, ctx) -> RoleMapper.map(rs);
 
     @Override
     public Optional<Role> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ROLE_BY_ID);
-            statement.setLong(1, id);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(RoleMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_ROLE_BY_ID, ROLE_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске роли по id: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public Optional<Role> findByName(String name) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ROLE_BY_NAME);
-            statement.setString(1, name);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(RoleMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_ROLE_BY_NAME, ROLE_MAPPER, name);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске роли по имени: {}", name, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public List<Role> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Role> roles = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL_ROLES);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                roles.add(RoleMapper.map(resultSet));
-            }
-            
-            return roles;
-        } catch (SQLException e) {
+            return db().list(SELECT_ALL_ROLES, ROLE_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении всех ролей", e);
-            return roles;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
     public Role save(Role role) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT_ROLE);
-            statement.setString(1, role.getName());
-            
-            long id = executeUpdateAndGetGeneratedKey(statement);
+            long id = db().insert(INSERT_ROLE, role.getName()).orElse(-1L);
             role.setId(id);
             
             return role;
-        } catch (SQLException e) {
+        } catch (JdbiException e) {
             logger.error("Ошибка при сохранении роли: {}", role.getName(), e);
             return role;
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public boolean update(Role role) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_ROLE);
-            statement.setString(1, role.getName());
-            statement.setLong(2, role.getId());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_ROLE, role.getName(), role.getId()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении роли: {}", role.getId(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean deleteById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE_ROLE);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE_ROLE, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении роли: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+}
@@ -26,11 +26,35 @@ public interface SessionDao extends Dao<Session, Long> {
     List<Session> findSessionsByCardIdAndPeriod(Long cardId, LocalDateTime from, LocalDateTime to);
     
     /**
-     * Завершить сессию
+     * Завершить незавершенную сессию и начислить баллы на карту одной транзакцией.
+     * Если сессию уже завершил таймер или другой оператор, ничего не меняется
      * @param sessionId ID сессии
+     * @param cardId ID карты, на которую начисляются баллы
      * @param endTime время завершения
      * @param points начисленные баллы
-     * @return true, если сессия успешно завершена
+     * @return true, если сессию завершил этот вызов; false, если она уже была завершена
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (транзакция откатывается)
      */
-    boolean finishSession(Long sessionId, LocalDateTime endTime, int points);
-} 
\ No newline at end of file
+    boolean finishSession(Long sessionId, Long cardId, LocalDateTime endTime, int points);
+    
+    /**
+     * Найти все незавершенные сессии со статусом ACTIVE
+     * @return список активных сессий
+     */
+    List<Session> findActiveSessions();
+    
+    /**
+     * Завершить просроченные сессии одной транзакцией с начислением баллов на карты.
+     * Сессии, уже завершенные вручную, пропускаются.
+     * @param sessions сессии с заполненными временем окончания и баллами
+     * @return количество завершенных сессий
+     */
+    int finishExpiredSessions(List<Session> sessions);
+    
+    /**
+     * Пометить просроченные сессии статусом EXPIRED без завершения
+     * @param sessionIds ID сессий
+     * @return количество помеченных сессий
+     */
+    int flagExpiredSessions(List<Long> sessionIds);
+}
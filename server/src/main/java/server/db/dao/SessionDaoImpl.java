@@ -1,13 +1,13 @@
 package server.db.dao;
 
 import common.model.Session;
+import common.util.Constants;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+import server.db.QueryExecutor;
+import server.db.Workload;
 import server.db.mapper.SessionMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,227 +44,229 @@ public class SessionDaoImpl extends AbstractDao implements SessionDao {
             "c.number as card_number " +
             "FROM sessions s " +
             "JOIN cards c ON s.card_id = c.id";
+    private static final String SELECT_ACTIVE_SESSIONS = 
+            "SELECT s.id, s.card_id, s.user_id, s.start_time, s.end_time, s.minutes, s.points_earned, s.status, " +
+            "c.number as card_number " +
+            "FROM sessions s " +
+            "JOIN cards c ON s.card_id = c.id " +
+            "WHERE s.status = 'ACTIVE' AND s.end_time IS NULL";
+    // Сессии, помеченные таймером как EXPIRED, оператор завершает вручную
     private static final String FINISH_SESSION = 
-            "UPDATE sessions SET end_time = ?, points_earned = ? WHERE id = ?";
+            "UPDATE sessions SET end_time = ?, points_earned = ?, status = 'COMPLETED' " +
+            "WHERE id = ? AND status IN ('ACTIVE', 'EXPIRED') AND end_time IS NULL";
+    private static final String FINISH_EXPIRED_SESSION = 
+            "UPDATE sessions SET end_time = ?, points_earned = ?, status = 'COMPLETED' " +
+            "WHERE id = ? AND status = 'ACTIVE' AND end_time IS NULL";
+    private static final String ADD_CARD_POINTS = 
+            "UPDATE cards SET points = points + ? WHERE id = ?";
+    private static final String INSERT_POINT_LOT = 
+            "INSERT INTO point_lots (card_id, earned_at, expires_at, points_earned, points_remaining) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String FLAG_EXPIRED_SESSIONS = 
+            "UPDATE sessions SET status = 'EXPIRED' " +
+            "WHERE id = ANY (?) AND status = 'ACTIVE' AND end_time IS NULL";
+    private static final String SELECT_CARD_USER_ID = 
+            "SELECT user_id FROM cards WHERE id = ?";
+    private static final String INSERT_SESSION = 
+            "INSERT INTO sessions (card_id, user_id, start_time, minutes, points_earned, computer_number, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 'ACTIVE')";
+    private static final RowMapper<Session> SESSION_MAPPER = (rs, ctx) -> SessionMapper.map(rs);
+
+    public SessionDaoImpl() {
+    }
+
+    /**
+     * @param workload пул соединений, например {@link Workload#BACKGROUND} для фоновых задач
+     */
+    public SessionDaoImpl(Workload workload) {
+        super(workload);
+    }
 
     @Override
     public Optional<Session> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_SESSION_BY_ID);
-            statement.setLong(1, id);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(SessionMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_SESSION_BY_ID, SESSION_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске сессии по id: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public List<Session> findActiveSessionsByCardId(Long cardId) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Session> sessions = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ACTIVE_SESSIONS_BY_CARD);
-            statement.setLong(1, cardId);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                sessions.add(SessionMapper.map(resultSet));
-            }
-            
-            return sessions;
-        } catch (SQLException e) {
+            return db().list(SELECT_ACTIVE_SESSIONS_BY_CARD, SESSION_MAPPER, cardId);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске активных сессий для карты: {}", cardId, e);
-            return sessions;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
     public List<Session> findSessionsByCardIdAndPeriod(Long cardId, LocalDateTime from, LocalDateTime to) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Session> sessions = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_SESSIONS_BY_CARD_AND_PERIOD);
-            statement.setLong(1, cardId);
-            statement.setTimestamp(2, Timestamp.valueOf(from));
-            statement.setTimestamp(3, Timestamp.valueOf(to));
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                sessions.add(SessionMapper.map(resultSet));
-            }
-            
-            return sessions;
-        } catch (SQLException e) {
+            return db().list(SELECT_SESSIONS_BY_CARD_AND_PERIOD, SESSION_MAPPER, cardId, from, to);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске сессий для карты {} в период с {} по {}", cardId, from, to, e);
-            return sessions;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
-    public boolean finishSession(Long sessionId, LocalDateTime endTime, int points) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
-        try {
-            connection = getConnection();
-            statement = prepareStatement(connection, FINISH_SESSION);
-            statement.setTimestamp(1, Timestamp.valueOf(endTime));
-            statement.setInt(2, points);
-            statement.setLong(3, sessionId);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            logger.error("Ошибка при завершении сессии: {}", sessionId, e);
-            return false;
-        } finally {
-            closeResources(null, statement, connection);
-        }
+    public boolean finishSession(Long sessionId, Long cardId, LocalDateTime endTime, int points) {
+        // Ошибка БД не перехватывается: false означает только, что сессию уже завершили
+        return db().inTransaction(handle -> {
+            int finished = QueryExecutor.bindAll(handle.createUpdate(FINISH_SESSION), endTime, points, sessionId)
+                    .execute();
+            // Баллы начисляем только если сессию завершили мы, а не таймер
+            if (finished == 0 || points <= 0) {
+                return finished > 0;
+            }
+            QueryExecutor.bindAll(handle.createUpdate(ADD_CARD_POINTS), points, cardId).execute();
+            QueryExecutor.bindAll(handle.createUpdate(INSERT_POINT_LOT), cardId, endTime,
+                    endTime.plusMonths(Constants.POINTS_EXPIRY_MONTHS), points, points).execute();
+            return true;
+        });
     }
 
     @Override
     public List<Session> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Session> sessions = new ArrayList<>();
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL_SESSIONS);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                sessions.add(SessionMapper.map(resultSet));
-            }
-            
-            return sessions;
-        } catch (SQLException e) {
+            return db().list(SELECT_ALL_SESSIONS, SESSION_MAPPER);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении всех сессий", e);
-            return sessions;
-        } finally {
-            closeResources(resultSet, statement, connection);
+            return new ArrayList<>();
         }
     }
 
     @Override
     public Session save(Session session) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        PreparedStatement selectStatement = null;
-        ResultSet resultSet = null;
+        Long cardId = session.getCard().getId();
         
         try {
-            connection = getConnection();
-            
-            // Сначала получаем user_id по card_id
-            selectStatement = prepareStatement(connection, "SELECT user_id FROM cards WHERE id = ?");
-            selectStatement.setLong(1, session.getCard().getId());
-            resultSet = selectStatement.executeQuery();
-            
-            if (!resultSet.next()) {
-                throw new SQLException("Карта с ID " + session.getCard().getId() + " не найдена");
-            }
-            
-            long userId = resultSet.getLong("user_id");
-            closeResources(resultSet, selectStatement, null);
-            
-            // Теперь создаем сессию
-            String insertSql = "INSERT INTO sessions (card_id, user_id, start_time, minutes, points_earned, computer_number, status) VALUES (?, ?, ?, ?, ?, ?, 'ACTIVE')";
-            statement = prepareStatementWithGeneratedKeys(connection, insertSql);
-            statement.setLong(1, session.getCard().getId());
-            statement.setLong(2, userId);
-            statement.setTimestamp(3, Timestamp.valueOf(session.getStartTime()));
-            statement.setInt(4, session.getMinutes());
-            statement.setInt(5, session.getPoints() == null ? 0 : session.getPoints());
-            statement.setInt(6, session.getComputerNumber() != null ? session.getComputerNumber() : 1);
-            
-            long id = executeUpdateAndGetGeneratedKey(statement);
-            session.setId(id);
-            
-            return session;
-        } catch (SQLException e) {
-            logger.error("Ошибка при сохранении сессии для карты: {}", session.getCard().getId(), e);
+            return db().withHandle(handle -> {
+                // Сначала получаем user_id по card_id
+                Optional<Long> userId = handle.createQuery(SELECT_CARD_USER_ID)
+                        .bind(0, cardId)
+                        .mapTo(Long.class)
+                        .findFirst();
+                
+                if (userId.isEmpty()) {
+                    logger.error("Ошибка при сохранении сессии для карты: {}: карта с ID {} не найдена", cardId, cardId);
+                    return session;
+                }
+                
+                // Теперь создаем сессию
+                long id = QueryExecutor.bindAll(handle.createUpdate(INSERT_SESSION), cardId, userId.get(),
+                                session.getStartTime(), session.getMinutes(),
+                                session.getPoints() == null ? 0 : session.getPoints(),
+                                session.getComputerNumber() != null ? session.getComputerNumber() : 1)
+                        .executeAndReturnGeneratedKeys("id")
+                        .mapTo(Long.class)
+                        .findFirst()
+                        .orElse(-1L);
+                session.setId(id);
+                
+                return session;
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при сохранении сессии для карты: {}", cardId, e);
             return session;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean update(Session session) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_SESSION);
-            statement.setLong(1, session.getCard().getId());
-            statement.setTimestamp(2, Timestamp.valueOf(session.getStartTime()));
-            
-            if (session.getEndTime() != null) {
-                statement.setTimestamp(3, Timestamp.valueOf(session.getEndTime()));
-            } else {
-                statement.setNull(3, java.sql.Types.TIMESTAMP);
-            }
-            
-            statement.setInt(4, session.getMinutes());
-            statement.setInt(5, session.getPoints() == null ? 0 : session.getPoints());
-            statement.setLong(6, session.getId());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_SESSION, session.getCard().getId(), session.getStartTime(),
+                    session.getEndTime(), session.getMinutes(),
+                    session.getPoints() == null ? 0 : session.getPoints(), session.getId()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении сессии: {}", session.getId(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean deleteById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE_SESSION);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE_SESSION, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении сессии: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+
+    @Override
+    public List<Session> findActiveSessions() {
+        try {
+            return db().list(SELECT_ACTIVE_SESSIONS, SESSION_MAPPER);
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении активных сессий", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public int finishExpiredSessions(List<Session> sessions) {
+        if (sessions.isEmpty()) {
+            return 0;
+        }
+        
+        List<Object[]> finishRows = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            finishRows.add(new Object[]{session.getEndTime(), session.getPoints(), session.getId()});
+        }
+        
+        try {
+            return db().inTransaction(handle -> {
+                int[] finished = QueryExecutor.batch(handle, FINISH_EXPIRED_SESSION, finishRows);
+                
+                // Баллы начисляем только за сессии, которые действительно завершили мы, а не оператор
+                List<Object[]> pointsRows = new ArrayList<>();
+                List<Object[]> lotRows = new ArrayList<>();
+                int finishedCount = 0;
+                for (int i = 0; i < finished.length; i++) {
+                    if (finished[i] <= 0) {
+                        continue;
+                    }
+                    finishedCount++;
+                    
+                    Session session = sessions.get(i);
+                    if (session.getPoints() <= 0) {
+                        continue;
+                    }
+                    pointsRows.add(new Object[]{session.getPoints(), session.getCardId()});
+                    lotRows.add(new Object[]{session.getCardId(), session.getEndTime(),
+                            session.getEndTime().plusMonths(Constants.POINTS_EXPIRY_MONTHS),
+                            session.getPoints(), session.getPoints()});
+                }
+                if (!pointsRows.isEmpty()) {
+                    QueryExecutor.batch(handle, ADD_CARD_POINTS, pointsRows);
+                    QueryExecutor.batch(handle, INSERT_POINT_LOT, lotRows);
+                }
+                
+                return finishedCount;
+            });
+        } catch (JdbiException e) {
+            logger.error("Ошибка при пакетном завершении {} просроченных сессий", sessions.size(), e);
+            return 0;
+        }
+    }
+
+    @Override
+    public int flagExpiredSessions(List<Long> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        
+        try {
+            return db().withHandle(handle -> handle.createUpdate(FLAG_EXPIRED_SESSIONS)
+                    .bindArray(0, Long.class, sessionIds)
+                    .execute());
+        } catch (JdbiException e) {
+            logger.error("Ошибка при пометке {} просроченных сессий", sessionIds.size(), e);
+            return 0;
+        }
+    }
+}
@@ -13,6 +13,7 @@ public interface SettingDao {
     /**
      * Получает все настройки из базы данных
      * @return список всех настроек
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (не пустой список: ответ с ним получил бы ETag)
      */
     List<Setting> findAll();
     
@@ -3,11 +3,9 @@ package server.db.dao;
 import common.model.Setting;
 import server.db.mapper.SettingMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -25,54 +23,21 @@ public class SettingDaoImpl extends AbstractDao implements SettingDao {
             "SELECT id, key, value, description, last_updated, updated_by FROM settings WHERE key = ?";
     private static final String SELECT_ALL_SETTINGS = 
             "SELECT id, key, value, description, last_updated, updated_by FROM settings";
+    private static final RowMapper<Setting> SETTING_MAPPER = (rs, ctx) -> SettingMapper.map(rs);
     
     @Override
     public List<Setting> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Setting> settings = new ArrayList<>();
-        
-        try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL_SETTINGS);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                settings.add(SettingMapper.map(resultSet));
-            }
-            
-            return settings;
-        } catch (SQLException e) {
-            logger.error("Ошибка при получении всех настроек", e);
-            return settings;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+        // Ошибка БД не перехватывается: по пустому списку нельзя отличить сбой от пустой таблицы
+        return db().list(SELECT_ALL_SETTINGS, SETTING_MAPPER);
     }
     
     @Override
     public Optional<Setting> findByKey(String key) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_SETTING_BY_KEY);
-            statement.setString(1, key);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(SettingMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_SETTING_BY_KEY, SETTING_MAPPER, key);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске настройки по ключу: {}", key, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
     
@@ -98,25 +63,12 @@ public class SettingDaoImpl extends AbstractDao implements SettingDao {
      * @return true если операция выполнена успешно
      */
     private boolean insert(Setting setting) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, INSERT_SETTING);
-            
-            statement.setString(1, setting.getKey());
-            statement.setString(2, setting.getValue());
-            statement.setString(3, setting.getDescription());
-            statement.setTimestamp(4, java.sql.Timestamp.valueOf(setting.getLastUpdated()));
-            
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
+            return db().update(INSERT_SETTING, setting.getKey(), setting.getValue(),
+                    setting.getDescription(), setting.getLastUpdated()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при вставке настройки: {}", setting.getKey(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
     
@@ -126,25 +78,12 @@ public class SettingDaoImpl extends AbstractDao implements SettingDao {
      * @return true если операция выполнена успешно
      */
     private boolean update(Setting setting) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_SETTING);
-            
-            statement.setString(1, setting.getValue());
-            statement.setString(2, setting.getDescription());
-            statement.setTimestamp(3, java.sql.Timestamp.valueOf(setting.getLastUpdated()));
-            statement.setString(4, setting.getKey());
-            
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_SETTING, setting.getValue(), setting.getDescription(),
+                    setting.getLastUpdated(), setting.getKey()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении настройки: {}", setting.getKey(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
     
@@ -154,21 +93,11 @@ public class SettingDaoImpl extends AbstractDao implements SettingDao {
             return false;
         }
         
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE_SETTING);
-            statement.setString(1, key);
-            
-            int rowsAffected = statement.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE_SETTING, key) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении настройки: {}", key, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+}
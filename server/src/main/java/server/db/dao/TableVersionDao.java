@@ -0,0 +1,24 @@
+package server.db.dao;
+
+import java.util.Map;
+
+/**
+ * DAO для чтения версий справочных таблиц (таблица table_versions, версии увеличивают триггеры)
+ */
+public interface TableVersionDao {
+    /**
+     * Таблицы, версии которых учитываются
+     */
+    String ROLES = "roles";
+    String USERS = "users";
+    String TIERS = "tiers";
+    String PROMOTIONS = "promotions";
+    String PROMO_CODES = "promo_codes";
+    String SETTINGS = "settings";
+
+    /**
+     * Получить текущие версии всех учитываемых таблиц
+     * @return версии по имени таблицы; пустая карта, если версии недоступны
+     */
+    Map<String, Long> findAll();
+}
@@ -0,0 +1,31 @@
+package server.db.dao;
+
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Реализация DAO для чтения версий справочных таблиц
+ */
+public class TableVersionDaoImpl extends AbstractDao implements TableVersionDao {
+    private static final String SELECT_ALL_VERSIONS = "SELECT table_name, version FROM table_versions";
+    private static final RowMapper<Map.Entry<String, Long>> VERSION_MAPPER =
+            (rs, ctx) -> Map.entry(rs.getString(1), rs.getLong(2));
+
+    @Override
+    public Map<String, Long> findAll() {
+        try {
+            Map<String, Long> versions = new HashMap<>();
+            for (Map.Entry<String, Long> version : db().list(SELECT_ALL_VERSIONS, VERSION_MAPPER)) {
+                versions.put(version.getKey(), version.getValue());
+            }
+            return versions;
+        } catch (JdbiException e) {
+            logger.error("Ошибка при получении версий таблиц", e);
+            return Collections.emptyMap();
+        }
+    }
+}
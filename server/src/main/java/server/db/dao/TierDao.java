@@ -2,12 +2,21 @@ package server.db.dao;
 
 import common.model.Tier;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * DAO для работы с уровнями лояльности
  */
 public interface TierDao extends Dao<Tier, Long> {
+    /**
+     * Получить все уровни
+     * @return список уровней
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (не пустой список: ответ с ним получил бы ETag)
+     */
+    @Override
+    List<Tier> findAll();
+    
     /**
      * Найти уровень по названию
      * @param name название уровня
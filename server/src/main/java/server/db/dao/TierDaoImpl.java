@@ -3,11 +3,9 @@ package server.db.dao;
 import common.model.Tier;
 import server.db.mapper.TierMapper;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
+import org.jdbi.v3.core.JdbiException;
+import org.jdbi.v3.core.mapper.RowMapper;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -30,126 +28,49 @@ public class TierDaoImpl extends AbstractDao implements TierDao {
     private static final String SELECT_TIER_FOR_POINTS = 
             "SELECT id, name, min_points, discount_pct FROM tiers " +
             "WHERE min_points <= ? ORDER BY min_points DESC LIMIT 1";
+    private static final RowMapper<Tier> TIER_MAPPER = (rs, ctx) -> TierMapper.map(rs);
 
     @Override
     public Optional<Tier> findById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_TIER_BY_ID);
-            statement.setLong(1, id);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(TierMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_TIER_BY_ID, TIER_MAPPER, id);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске уровня по id: {}", id, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public Optional<Tier> findByName(String name) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_TIER_BY_NAME);
-            statement.setString(1, name);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(TierMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_TIER_BY_NAME, TIER_MAPPER, name);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске уровня по имени: {}", name, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public Optional<Tier> findTierForPoints(int points) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_TIER_FOR_POINTS);
-            statement.setInt(1, points);
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return Optional.of(TierMapper.map(resultSet));
-            }
-            
-            return Optional.empty();
-        } catch (SQLException e) {
+            return db().findOne(SELECT_TIER_FOR_POINTS, TIER_MAPPER, points);
+        } catch (JdbiException e) {
             logger.error("Ошибка при поиске уровня для баллов: {}", points, e);
             return Optional.empty();
-        } finally {
-            closeResources(resultSet, statement, connection);
         }
     }
 
     @Override
     public List<Tier> findAll() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        List<Tier> tiers = new ArrayList<>();
-        
-        try {
-            connection = getConnection();
-            statement = prepareStatement(connection, SELECT_ALL_TIERS);
-            resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                tiers.add(TierMapper.map(resultSet));
-            }
-            
-            return tiers;
-        } catch (SQLException e) {
-            logger.error("Ошибка при получении всех уровней", e);
-            return tiers;
-        } finally {
-            closeResources(resultSet, statement, connection);
-        }
+        // Ошибка БД не перехватывается: по пустому списку нельзя отличить сбой от пустой таблицы
+        return db().list(SELECT_ALL_TIERS, TIER_MAPPER);
     }
 
     @Override
     public Tier save(Tier tier) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatementWithGeneratedKeys(connection, INSERT_TIER);
-            statement.setString(1, tier.getName());
-            statement.setInt(2, tier.getMinPoints() != null ? tier.getMinPoints() : 0);
-            
-            // Calculate a discount percentage from the bonus multiplier (if available)
-            int discountPct = 0;
-            if (tier.getBonusMultiplier() != null) {
-                discountPct = (int) ((tier.getBonusMultiplier() - 1.0) * 100);
-            }
-            statement.setInt(3, discountPct);
-            
-            long id = executeUpdateAndGetGeneratedKey(statement);
+            long id = db().insert(INSERT_TIER, tier.getName(),
+                    tier.getMinPoints() != null ? tier.getMinPoints() : 0, discountPct(tier)).orElse(-1L);
             // Since we're now using level instead of ID, we can set the level to the ID for simplicity
             // This is a workaround for backward compatibility
             if (tier.getLevel() == null) {
@@ -157,62 +78,42 @@ public class TierDaoImpl extends AbstractDao implements TierDao {
             }
             
             return tier;
-        } catch (SQLException e) {
+        } catch (JdbiException e) {
             logger.error("Ошибка при сохранении уровня: {}", tier.getName(), e);
             return tier;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean update(Tier tier) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, UPDATE_TIER);
-            statement.setString(1, tier.getName());
-            statement.setInt(2, tier.getMinPoints() != null ? tier.getMinPoints() : 0);
-            
-            // Calculate a discount percentage from the bonus multiplier (if available)
-            int discountPct = 0;
-            if (tier.getBonusMultiplier() != null) {
-                discountPct = (int) ((tier.getBonusMultiplier() - 1.0) * 100);
-            }
-            statement.setInt(3, discountPct);
-            
             // Use level as ID for database operations
-            statement.setLong(4, tier.getLevel().longValue());
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(UPDATE_TIER, tier.getName(),
+                    tier.getMinPoints() != null ? tier.getMinPoints() : 0, discountPct(tier),
+                    tier.getLevel().longValue()) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при обновлении уровня: {}", tier.getLevel(), e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
 
     @Override
     public boolean deleteById(Long id) {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
         try {
-            connection = getConnection();
-            statement = prepareStatement(connection, DELETE_TIER);
-            statement.setLong(1, id);
-            
-            int affectedRows = statement.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
+            return db().update(DELETE_TIER, id) > 0;
+        } catch (JdbiException e) {
             logger.error("Ошибка при удалении уровня: {}", id, e);
             return false;
-        } finally {
-            closeResources(null, statement, connection);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Calculate a discount percentage from the bonus multiplier (if available)
+     */
+    private static int discountPct(Tier tier) {
+        if (tier.getBonusMultiplier() == null) {
+            return 0;
+        }
+        return (int) ((tier.getBonusMultiplier() - 1.0) * 100);
+    }
+}
@@ -2,12 +2,21 @@ package server.db.dao;
 
 import common.model.User;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * DAO для работы с пользователями
  */
 public interface UserDao extends Dao<User, Long> {
+    /**
+     * Получить всех пользователей
+     * @return список пользователей
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД (не пустой список: ответ с ним получил бы ETag)
+     */
+    @Override
+    List<User> findAll();
+    
     /**
      * Найти пользователя по логину
      * @param login логин пользователя
@@ -7,10 +7,13 @@ import common.model.User;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Маппер для преобразования ResultSet в объекты AuditLog
  */
 public class AuditLogMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
     
     /**
      * Преобразует ResultSet в объект AuditLog
@@ -19,61 +22,52 @@ public class AuditLogMapper {
      * @throws SQLException при ошибке доступа к данным
      */
     public static AuditLog mapResultSetToAuditLog(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         AuditLog auditLog = new AuditLog();
         
-        auditLog.setId(rs.getLong("id"));
-        auditLog.setActionType(rs.getString("action_type"));
-        auditLog.setActionDetails(rs.getString("action_details"));
-        auditLog.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
-        auditLog.setIpAddress(rs.getString("ip_address"));
+        auditLog.setId(rs.getLong(c.id));
+        auditLog.setActionType(rs.getString(c.actionType));
+        auditLog.setActionDetails(rs.getString(c.actionDetails));
+        auditLog.setTimestamp(rs.getTimestamp(c.timestamp).toLocalDateTime());
+        auditLog.setIpAddress(rs.getString(c.ipAddress));
         
-        String targetEntity = rs.getString("target_entity");
-        if (!rs.wasNull()) {
+        String targetEntity = rs.getString(c.targetEntity);
+        if (targetEntity != null) {
             auditLog.setTargetEntity(targetEntity);
         }
         
         // Для полей, которые могут быть NULL, проверяем результат на NULL
-        Long targetId = rs.getLong("target_id");
-        if (!rs.wasNull()) {
+        Long targetId = ColumnIndex.getNullableLong(rs, c.targetId);
+        if (targetId != null) {
             auditLog.setTargetId(targetId);
         }
         
         // Извлекаем данные пользователя, если они есть
-        Long userId = rs.getLong("user_id");
-        if (!rs.wasNull()) {
+        Long userId = ColumnIndex.getNullableLong(rs, c.userId);
+        if (userId != null) {
             User user = new User();
             user.setId(userId);
             
-            // Пробуем получить имя пользователя
-            try {
-                String username = rs.getString("username");
+            if (present(c.username)) {
+                String username = rs.getString(c.username);
                 if (username != null) {
                     user.setUsername(username);
                 }
-            } catch (SQLException e) {
-                // Игнорируем ошибку, если колонка не найдена
             }
             
-            // Пробуем получить email пользователя
-            try {
-                String email = rs.getString("email");
+            if (present(c.email)) {
+                String email = rs.getString(c.email);
                 if (email != null) {
                     user.setEmail(email);
                 }
-            } catch (SQLException e) {
-                // Игнорируем ошибку, если колонка не найдена
             }
             
-            // Пробуем получить роль пользователя
-            try {
-                Long roleId = rs.getLong("role_id");
-                if (!rs.wasNull()) {
-                    String roleName = rs.getString("role_name");
-                    Role role = new Role(roleId, roleName);
-                    user.setRole(role);
+            // Роль заполняется, только если выбраны и идентификатор, и название
+            if (present(c.roleId) && present(c.roleName)) {
+                Long roleId = ColumnIndex.getNullableLong(rs, c.roleId);
+                if (roleId != null) {
+                    user.setRole(new Role(roleId, rs.getString(c.roleName)));
                 }
-            } catch (SQLException e) {
-                // Игнорируем ошибку, если колонки не найдены
             }
             
             auditLog.setUser(user);
@@ -81,4 +75,37 @@ public class AuditLogMapper {
         
         return auditLog;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int actionType;
+        final int actionDetails;
+        final int timestamp;
+        final int ipAddress;
+        final int targetEntity;
+        final int targetId;
+        final int userId;
+        final int username;
+        final int email;
+        final int roleId;
+        final int roleName;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            actionType = columns.require("action_type");
+            actionDetails = columns.require("action_details");
+            timestamp = columns.require("timestamp");
+            ipAddress = columns.require("ip_address");
+            targetEntity = columns.require("target_entity");
+            targetId = columns.require("target_id");
+            userId = columns.require("user_id");
+            username = columns.find("username");
+            email = columns.find("email");
+            roleId = columns.find("role_id");
+            roleName = columns.find("role_name");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package server.db.mapper;
+
+import common.model.Backup;
+import common.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Маппер для преобразования данных из ResultSet в объект Backup
+ */
+public class BackupMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
+    /**
+     * Преобразует данные из ResultSet в объект Backup
+     * @param rs результат SQL-запроса к таблице backups (с логином автора в столбце login)
+     * @return объект Backup
+     * @throws SQLException если произошла ошибка при чтении данных
+     */
+    public static Backup map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
+        Backup backup = new Backup();
+
+        backup.setId(rs.getLong(c.id));
+        backup.setFileName(rs.getString(c.filename));
+        backup.setCreatedAt(ColumnIndex.getDateTime(rs, c.createdAt));
+        backup.setFileSize(rs.getLong(c.fileSize));
+        backup.setIsValid(rs.getBoolean(c.isValid));
+        backup.setDescription(rs.getString(c.description));
+        backup.setKind(rs.getString(c.kind));
+        backup.setParentId(ColumnIndex.getNullableLong(rs, c.parentId));
+        backup.setBaseId(ColumnIndex.getNullableLong(rs, c.baseId));
+        backup.setHash(rs.getString(c.sha256));
+
+        // Автор копии; пользователь мог быть удален, тогда остается только ID
+        Long createdBy = ColumnIndex.getNullableLong(rs, c.createdBy);
+        if (createdBy != null) {
+            User user = new User();
+            user.setId(createdBy);
+            if (ColumnIndex.present(c.login)) {
+                String login = rs.getString(c.login);
+                if (login != null) {
+                    user.setLogin(login);
+                }
+            }
+            backup.setCreatedBy(user);
+        }
+
+        return backup;
+    }
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int filename;
+        final int createdAt;
+        final int createdBy;
+        final int fileSize;
+        final int isValid;
+        final int description;
+        final int kind;
+        final int parentId;
+        final int baseId;
+        final int sha256;
+        final int login;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            filename = columns.require("filename");
+            createdAt = columns.require("created_at");
+            createdBy = columns.require("created_by");
+            fileSize = columns.require("file_size");
+            isValid = columns.require("is_valid");
+            description = columns.require("description");
+            kind = columns.require("backup_kind");
+            parentId = columns.require("parent_id");
+            baseId = columns.require("base_id");
+            sha256 = columns.require("sha256");
+            login = columns.find("login");
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package server.db.mapper;
 
 import common.model.Card;
-import common.model.Tier;
-import common.model.User;
-import common.model.Role;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Mapper for converting query results to Card objects
  */
 public class CardMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Converts query result to Card object
      * @param rs query result
@@ -20,76 +21,68 @@ public class CardMapper {
      * @throws SQLException if error occurs while getting data
      */
     public static Card map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         Card card = new Card();
-        card.setId(rs.getLong("id"));
-        card.setCardNumber(rs.getString("number"));
-        card.setPoints(rs.getInt("points"));
+        card.setId(rs.getLong(c.id));
+        card.setCardNumber(rs.getString(c.number));
+        card.setPoints(rs.getInt(c.points));
         
         // Set user ID
-        try {
-            card.setUserId(rs.getLong("user_id"));
-        } catch (SQLException e) {
-            // Column not found, ignore
+        if (present(c.userId)) {
+            card.setUserId(rs.getLong(c.userId));
         }
         
         // Handle tier information
-        try {
-            int tierId = rs.getInt("tier_id");
-            card.setLevel(tierId);
-        } catch (SQLException e) {
-            // Column not found, set default
-            card.setLevel(1);
-        }
+        card.setLevel(present(c.tierId) ? rs.getInt(c.tierId) : 1);
         
         // Handle dates
-        try {
-            if (rs.getTimestamp("issue_date") != null) {
-                card.setIssueDate(rs.getTimestamp("issue_date").toLocalDateTime());
+        if (present(c.issueDate)) {
+            LocalDateTime issueDate = ColumnIndex.getDateTime(rs, c.issueDate);
+            if (issueDate != null) {
+                card.setIssueDate(issueDate);
             }
-        } catch (SQLException e) {
-            // Column not found, ignore
         }
         
         // Handle last used date if available
-        try {
-            if (rs.getTimestamp("last_used") != null) {
-                card.setLastUsed(rs.getTimestamp("last_used").toLocalDateTime());
+        if (present(c.lastUsed)) {
+            LocalDateTime lastUsed = ColumnIndex.getDateTime(rs, c.lastUsed);
+            if (lastUsed != null) {
+                card.setLastUsed(lastUsed);
             }
-        } catch (SQLException e) {
-            // Column not found, ignore
         }
         
         // Handle status
-        try {
-            boolean isActive = rs.getBoolean("is_active");
-            card.setStatus(isActive ? "ACTIVE" : "INACTIVE");
-        } catch (SQLException e) {
-            // Column not found, set default
+        if (present(c.isActive)) {
+            card.setStatus(rs.getBoolean(c.isActive) ? "ACTIVE" : "INACTIVE");
+        } else {
             card.setStatus("ACTIVE");
         }
         
         return card;
     }
-    
+
     /**
-     * Checks if the query result contains the specified column
-     * @param rs query result
-     * @param columnName column name
-     * @return true if column exists
-     * @throws SQLException if error occurs while getting metadata
+     * Column indexes resolved once per ResultSet; optional columns are ABSENT when not selected
      */
-    private static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
-        java.sql.ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        for (int i = 1; i <= columns; i++) {
-            if (columnName.equals(metaData.getColumnName(i))) {
-                return true;
-            }
-            // Some JDBC drivers return column labels instead of names
-            if (columnName.equals(metaData.getColumnLabel(i))) {
-                return true;
-            }
+    private static final class Columns {
+        final int id;
+        final int number;
+        final int points;
+        final int userId;
+        final int tierId;
+        final int issueDate;
+        final int lastUsed;
+        final int isActive;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            number = columns.require("number");
+            points = columns.require("points");
+            userId = columns.find("user_id");
+            tierId = columns.find("tier_id");
+            issueDate = columns.find("issue_date");
+            lastUsed = columns.find("last_used");
+            isActive = columns.find("is_active");
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package server.db.mapper;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Номера столбцов результата запроса, определенные по метаданным.
+ * Мапперы разбирают состав столбцов один раз на ResultSet и затем читают строки по индексам,
+ * не обращаясь к столбцам по имени и не перехватывая исключения об отсутствующих столбцах.
+ */
+public final class ColumnIndex {
+    /** Индекс отсутствующего столбца */
+    public static final int ABSENT = 0;
+
+    private final Map<String, Integer> indexes;
+
+    private ColumnIndex(Map<String, Integer> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Читает метаданные результата запроса
+     * @param rs результат запроса
+     * @return номера столбцов по именам
+     * @throws SQLException если не удалось получить метаданные
+     */
+    public static ColumnIndex of(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int count = metaData.getColumnCount();
+        Map<String, Integer> indexes = new HashMap<>(count * 2);
+        for (int i = 1; i <= count; i++) {
+            // Как и ResultSet.findColumn, при повторяющихся именах выбираем первый столбец
+            indexes.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            // Некоторые драйверы возвращают в getColumnLabel псевдоним, а в getColumnName - исходное имя
+            indexes.putIfAbsent(metaData.getColumnName(i).toLowerCase(Locale.ROOT), i);
+        }
+        return new ColumnIndex(indexes);
+    }
+
+    /**
+     * Возвращает номер первого найденного столбца из перечисленных вариантов имени
+     * @param names варианты имени столбца в порядке предпочтения
+     * @return номер столбца или {@link #ABSENT}, если ни один не найден
+     */
+    public int find(String... names) {
+        for (String name : names) {
+            Integer index = indexes.get(name);
+            if (index != null) {
+                return index;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Возвращает номер обязательного столбца
+     * @param name имя столбца
+     * @return номер столбца
+     * @throws SQLException если столбца нет в результате запроса
+     */
+    public int require(String name) throws SQLException {
+        Integer index = indexes.get(name);
+        if (index == null) {
+            throw new SQLException("Столбец " + name + " отсутствует в результате запроса");
+        }
+        return index;
+    }
+
+    /**
+     * Проверяет, найден ли столбец
+     * @param index номер столбца, полученный из {@link #find}
+     * @return true, если столбец есть в результате запроса
+     */
+    public static boolean present(int index) {
+        return index != ABSENT;
+    }
+
+    /**
+     * Читает столбец с датой и временем
+     * @return значение или null, если в столбце NULL
+     */
+    public static LocalDateTime getDateTime(ResultSet rs, int index) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(index);
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /**
+     * Читает числовой столбец, который может содержать NULL
+     * @return значение или null, если в столбце NULL
+     */
+    public static Long getNullableLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Читает числовой столбец, который может содержать NULL
+     * @return значение или null, если в столбце NULL
+     */
+    public static Integer getNullableInt(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Способ построить набор индексов маппера по метаданным результата запроса
+     * @param <T> тип набора индексов
+     */
+    @FunctionalInterface
+    public interface Resolver<T> {
+        T resolve(ColumnIndex columns) throws SQLException;
+    }
+
+    /**
+     * Хранит набор индексов маппера для последнего обработанного в потоке ResultSet.
+     * DAO вызывают маппер для каждой строки одного и того же ResultSet,
+     * поэтому метаданные разбираются только при смене результата запроса.
+     * @param <T> тип набора индексов
+     */
+    public static final class Cache<T> {
+        private final Resolver<T> resolver;
+        private final ThreadLocal<Entry<T>> last = new ThreadLocal<>();
+
+        public Cache(Resolver<T> resolver) {
+            this.resolver = resolver;
+        }
+
+        /**
+         * Возвращает набор индексов для результата запроса, разбирая метаданные при первом обращении
+         * @param rs результат запроса
+         * @return набор индексов
+         * @throws SQLException если не удалось получить метаданные или нет обязательного столбца
+         */
+        public T get(ResultSet rs) throws SQLException {
+            Entry<T> entry = last.get();
+            if (entry != null && entry.resultSet.get() == rs) {
+                return entry.layout;
+            }
+            T layout = resolver.resolve(ColumnIndex.of(rs));
+            // Слабая ссылка не удерживает закрытый ResultSet вместе с соединением после запроса
+            last.set(new Entry<>(new WeakReference<>(rs), layout));
+            return layout;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final WeakReference<ResultSet> resultSet;
+        private final T layout;
+
+        private Entry(WeakReference<ResultSet> resultSet, T layout) {
+            this.resultSet = resultSet;
+            this.layout = layout;
+        }
+    }
+}
@@ -6,13 +6,16 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static server.db.mapper.ColumnIndex.present;
 
 /**
  * Маппер для преобразования ResultSet в объекты PromoCode и обратно
  */
 public class PromoCodeMapper {
     private static final Logger logger = LoggerFactory.getLogger(PromoCodeMapper.class);
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
     
     /**
      * Преобразует ResultSet в объект PromoCode
@@ -21,62 +24,73 @@ public class PromoCodeMapper {
      * @throws SQLException при ошибке доступа к данным
      */
     public static PromoCode mapResultSetToPromoCode(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         PromoCode promoCode = new PromoCode();
         
-        promoCode.setId(rs.getLong("id"));
-        promoCode.setCode(rs.getString("code"));
-        promoCode.setPromotionId(rs.getLong("promotion_id"));
+        promoCode.setId(rs.getLong(c.id));
+        promoCode.setCode(rs.getString(c.code));
+        promoCode.setPromotionId(rs.getLong(c.promotionId));
         
-        // Пробуем разные варианты имени колонки для флага использования
-        try {
-            promoCode.setUsed(rs.getBoolean("is_used"));
-        } catch (SQLException e) {
-            try {
-                promoCode.setUsed(rs.getBoolean("used"));
-            } catch (SQLException e2) {
-                logger.error("Не удалось найти колонку для флага использования промокода", e2);
-                // Устанавливаем значение по умолчанию
-                promoCode.setUsed(false);
-        }
-        }
+        // Флаг использования (is_used или used); при отсутствии обоих - значение по умолчанию
+        promoCode.setUsed(present(c.used) && rs.getBoolean(c.used));
         
         // Для полей, которые могут быть NULL
-        try {
-            long usedBy = rs.getLong("used_by");
-        if (!rs.wasNull()) {
+        if (present(c.usedBy)) {
+            Long usedBy = ColumnIndex.getNullableLong(rs, c.usedBy);
+            if (usedBy != null) {
                 promoCode.setUsedBy(String.valueOf(usedBy));
             }
-        } catch (SQLException e) {
-            logger.debug("Колонка used_by не найдена", e);
         }
         
-        try {
-            java.sql.Timestamp usedDate = rs.getTimestamp("used_date");
+        if (present(c.usedDate)) {
+            LocalDateTime usedDate = ColumnIndex.getDateTime(rs, c.usedDate);
             if (usedDate != null) {
-                promoCode.setUsedDate(usedDate.toLocalDateTime().toLocalDate());
-        }
-        } catch (SQLException e) {
-            logger.debug("Колонка used_date не найдена", e);
+                promoCode.setUsedDate(usedDate.toLocalDate());
+            }
         }
         
-        try {
-            java.sql.Timestamp expiryDate = rs.getTimestamp("expiry_date");
+        if (present(c.expiryDate)) {
+            LocalDateTime expiryDate = ColumnIndex.getDateTime(rs, c.expiryDate);
             if (expiryDate != null) {
-                promoCode.setExpiryDate(expiryDate.toLocalDateTime().toLocalDate());
-        }
-        } catch (SQLException e) {
-            logger.debug("Колонка expiry_date не найдена", e);
+                promoCode.setExpiryDate(expiryDate.toLocalDate());
+            }
         }
         
-        try {
-            long createdBy = rs.getLong("created_by");
-        if (!rs.wasNull()) {
+        if (present(c.createdBy)) {
+            Long createdBy = ColumnIndex.getNullableLong(rs, c.createdBy);
+            if (createdBy != null) {
                 promoCode.setCreatedBy(String.valueOf(createdBy));
-        }
-        } catch (SQLException e) {
-            logger.debug("Колонка created_by не найдена", e);
+            }
         }
         
         return promoCode;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int code;
+        final int promotionId;
+        final int used;
+        final int usedBy;
+        final int usedDate;
+        final int expiryDate;
+        final int createdBy;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            code = columns.require("code");
+            promotionId = columns.require("promotion_id");
+            used = columns.find("is_used", "used");
+            if (!present(used)) {
+                logger.error("Не удалось найти колонку для флага использования промокода");
+            }
+            usedBy = columns.find("used_by");
+            usedDate = columns.find("used_date");
+            expiryDate = columns.find("expiry_date");
+            createdBy = columns.find("created_by");
+        }
+    }
+}
@@ -6,13 +6,15 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
+
+import static server.db.mapper.ColumnIndex.present;
 
 /**
  * Маппер для преобразования результатов запросов в объекты акций
  */
 public class PromotionMapper {
     private static final Logger logger = LoggerFactory.getLogger(PromotionMapper.class);
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
     
     /**
      * Преобразует результат запроса в объект акции
@@ -24,64 +26,34 @@ public class PromotionMapper {
         Promotion promotion = new Promotion();
         
         try {
-            promotion.setId(resultSet.getLong("id"));
-            promotion.setName(resultSet.getString("name"));
-            promotion.setDescription(resultSet.getString("description"));
+            Columns c = COLUMNS.get(resultSet);
+            promotion.setId(resultSet.getLong(c.id));
+            promotion.setName(resultSet.getString(c.name));
+            promotion.setDescription(resultSet.getString(c.description));
             
             // Преобразование дат (могут быть NULL)
-            java.sql.Date startDate = resultSet.getDate("start_date");
+            java.sql.Date startDate = resultSet.getDate(c.startDate);
             if (startDate != null) {
                 promotion.setStartDate(startDate.toLocalDate());
             }
             
-            java.sql.Date endDate = resultSet.getDate("end_date");
+            java.sql.Date endDate = resultSet.getDate(c.endDate);
             if (endDate != null) {
                 promotion.setEndDate(endDate.toLocalDate());
             }
             
-            // Проверяем, есть ли поле is_active или active
-            boolean isActive;
-            try {
-                isActive = resultSet.getBoolean("is_active");
-            } catch (SQLException e) {
-                try {
-                    isActive = resultSet.getBoolean("active");
-                } catch (SQLException e2) {
-                    // Если ни одно поле не найдено, по умолчанию true
-                    logger.warn("Ни одно из полей активности (is_active, active) не найдено, устанавливаем значение по умолчанию: true");
-                    isActive = true;
-                }
-            }
-            promotion.setActive(isActive);
+            // Поле is_active или active; если ни одного нет, акция считается активной
+            promotion.setActive(!present(c.active) || resultSet.getBoolean(c.active));
             
-            // Обрабатываем bonus_pct или bonus_percent
-            Integer bonusPercent = null;
-            try {
-                bonusPercent = resultSet.getInt("bonus_pct");
-                if (resultSet.wasNull()) {
-                    bonusPercent = null;
-                }
-            } catch (SQLException e) {
-                try {
-                    bonusPercent = resultSet.getInt("bonus_percent");
-                    if (resultSet.wasNull()) {
-                        bonusPercent = null;
-                    }
-                } catch (SQLException e2) {
-                    // Если ни одно поле не найдено, оставляем null
-                    logger.warn("Ни одно из полей процента бонуса (bonus_pct, bonus_percent) не найдено");
-                }
-            }
-            promotion.setBonusPercent(bonusPercent);
+            // bonus_pct или bonus_percent
+            promotion.setBonusPercent(present(c.bonusPercent)
+                    ? ColumnIndex.getNullableInt(resultSet, c.bonusPercent) : null);
             
-            // Обрабатываем bonus_points
-            try {
-                int bonusPoints = resultSet.getInt("bonus_points");
-                if (!resultSet.wasNull()) {
+            if (present(c.bonusPoints)) {
+                Integer bonusPoints = ColumnIndex.getNullableInt(resultSet, c.bonusPoints);
+                if (bonusPoints != null) {
                     promotion.setBonusPoints(bonusPoints);
                 }
-            } catch (SQLException e) {
-                logger.warn("Поле bonus_points не найдено");
             }
             
         } catch (SQLException e) {
@@ -91,4 +63,38 @@ public class PromotionMapper {
         
         return promotion;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int name;
+        final int description;
+        final int startDate;
+        final int endDate;
+        final int active;
+        final int bonusPercent;
+        final int bonusPoints;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            name = columns.require("name");
+            description = columns.require("description");
+            startDate = columns.require("start_date");
+            endDate = columns.require("end_date");
+            active = columns.find("is_active", "active");
+            if (!present(active)) {
+                logger.warn("Ни одно из полей активности (is_active, active) не найдено, устанавливаем значение по умолчанию: true");
+            }
+            bonusPercent = columns.find("bonus_pct", "bonus_percent");
+            if (!present(bonusPercent)) {
+                logger.warn("Ни одно из полей процента бонуса (bonus_pct, bonus_percent) не найдено");
+            }
+            bonusPoints = columns.find("bonus_points");
+            if (!present(bonusPoints)) {
+                logger.warn("Поле bonus_points не найдено");
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package server.db.mapper;
+
+import common.model.ReportJob;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Маппер для преобразования данных из ResultSet в объект ReportJob
+ */
+public class ReportJobMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
+    /**
+     * Преобразует данные из ResultSet в объект ReportJob
+     * @param rs результат SQL-запроса к таблице report_jobs
+     * @return объект ReportJob
+     * @throws SQLException если произошла ошибка при чтении данных
+     */
+    public static ReportJob map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
+        ReportJob job = new ReportJob();
+
+        job.setId(rs.getLong(c.id));
+        job.setReportType(rs.getString(c.reportType));
+        job.setFormat(rs.getString(c.format));
+        job.setFromDate(rs.getObject(c.fromDate, LocalDate.class));
+        job.setToDate(rs.getObject(c.toDate, LocalDate.class));
+        job.setStatus(rs.getString(c.status));
+        job.setPriority(rs.getInt(c.priority));
+        job.setRequestedBy(ColumnIndex.getNullableLong(rs, c.requestedBy));
+        job.setCreatedAt(ColumnIndex.getDateTime(rs, c.createdAt));
+        job.setStartedAt(ColumnIndex.getDateTime(rs, c.startedAt));
+        job.setFinishedAt(ColumnIndex.getDateTime(rs, c.finishedAt));
+        job.setResultFile(rs.getString(c.resultFile));
+        job.setResultSize(ColumnIndex.getNullableLong(rs, c.resultSize));
+        job.setErrorMessage(rs.getString(c.errorMessage));
+        job.setExpiresAt(ColumnIndex.getDateTime(rs, c.expiresAt));
+
+        return job;
+    }
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int reportType;
+        final int format;
+        final int fromDate;
+        final int toDate;
+        final int status;
+        final int priority;
+        final int requestedBy;
+        final int createdAt;
+        final int startedAt;
+        final int finishedAt;
+        final int resultFile;
+        final int resultSize;
+        final int errorMessage;
+        final int expiresAt;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            reportType = columns.require("report_type");
+            format = columns.require("format");
+            fromDate = columns.require("from_date");
+            toDate = columns.require("to_date");
+            status = columns.require("status");
+            priority = columns.require("priority");
+            requestedBy = columns.require("requested_by");
+            createdAt = columns.require("created_at");
+            startedAt = columns.require("started_at");
+            finishedAt = columns.require("finished_at");
+            resultFile = columns.require("result_file");
+            resultSize = columns.require("result_size");
+            errorMessage = columns.require("error_message");
+            expiresAt = columns.require("expires_at");
+        }
+    }
+}
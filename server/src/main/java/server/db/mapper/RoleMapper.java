@@ -9,6 +9,8 @@ import java.sql.SQLException;
  * Маппер для преобразования результатов запроса в объекты Role
  */
 public class RoleMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Преобразует результат запроса в объект Role
      * @param rs результат запроса
@@ -16,9 +18,23 @@ public class RoleMapper {
      * @throws SQLException если произошла ошибка при получении данных
      */
     public static Role map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         Role role = new Role();
-        role.setId(rs.getLong("id"));
-        role.setName(rs.getString("name"));
+        role.setId(rs.getLong(c.id));
+        role.setName(rs.getString(c.name));
         return role;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int id;
+        final int name;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            name = columns.require("name");
+        }
+    }
+}
@@ -7,10 +7,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Маппер для преобразования результатов запроса в объекты Session
  */
 public class SessionMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Преобразует результат запроса в объект Session
      * @param rs результат запроса
@@ -18,85 +22,88 @@ public class SessionMapper {
      * @throws SQLException если произошла ошибка при получении данных
      */
     public static Session map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         Session session = new Session();
-        session.setId(rs.getLong("id"));
+        session.setId(rs.getLong(c.id));
         
         // Set card ID
-        session.setCardId(rs.getLong("card_id"));
+        long cardId = rs.getLong(c.cardId);
+        session.setCardId(cardId);
         
         // Set user ID if available
-        try {
-            session.setUserId(rs.getLong("user_id"));
-        } catch (SQLException e) {
-            // Column not found, ignore
+        if (present(c.userId)) {
+            session.setUserId(rs.getLong(c.userId));
         }
         
         // Преобразуем timestamp в LocalDateTime
-        session.setStartTime(rs.getTimestamp("start_time").toLocalDateTime());
-        if (rs.getTimestamp("end_time") != null) {
-            session.setEndTime(rs.getTimestamp("end_time").toLocalDateTime());
+        session.setStartTime(rs.getTimestamp(c.startTime).toLocalDateTime());
+        LocalDateTime endTime = ColumnIndex.getDateTime(rs, c.endTime);
+        if (endTime != null) {
+            session.setEndTime(endTime);
         }
         
-        session.setMinutes(rs.getInt("minutes"));
+        session.setMinutes(rs.getInt(c.minutes));
         
-        // Handle points_earned field
-        try {
-            session.setPoints(rs.getInt("points_earned"));
-        } catch (SQLException e) {
-            // Try legacy points field
-            try {
-                session.setPoints(rs.getInt("points"));
-            } catch (SQLException e2) {
-                session.setPoints(0);
-            }
-        }
+        // points_earned или устаревшее поле points
+        session.setPoints(present(c.points) ? rs.getInt(c.points) : 0);
         
         // Set computer info if available
-        if (hasColumn(rs, "computer_info")) {
-            session.setComputerInfo(rs.getString("computer_info"));
+        if (present(c.computerInfo)) {
+            session.setComputerInfo(rs.getString(c.computerInfo));
         }
         
         // Set status if available
-        if (hasColumn(rs, "status")) {
-            session.setStatus(rs.getString("status"));
+        if (present(c.status)) {
+            session.setStatus(rs.getString(c.status));
         }
         
         // Set notes if available
-        if (hasColumn(rs, "notes")) {
-            session.setNotes(rs.getString("notes"));
+        if (present(c.notes)) {
+            session.setNotes(rs.getString(c.notes));
         }
         
-        // Создаем объект Card, если есть данные о карте
-        if (hasColumn(rs, "card_id")) {
-            Card card = new Card();
-            card.setId(rs.getLong("card_id"));
-            
-            // Если есть дополнительные данные о карте
-            if (hasColumn(rs, "card_number")) {
-                card.setCardNumber(rs.getString("card_number"));
-            }
-            
-            session.setCard(card);
+        // Создаем объект Card с данными о карте
+        Card card = new Card();
+        card.setId(cardId);
+        
+        // Если есть дополнительные данные о карте
+        if (present(c.cardNumber)) {
+            card.setCardNumber(rs.getString(c.cardNumber));
         }
         
+        session.setCard(card);
+        
         return session;
     }
-    
+
     /**
-     * Проверяет, содержит ли результат запроса указанный столбец
-     * @param rs результат запроса
-     * @param columnName имя столбца
-     * @return true, если столбец существует
-     * @throws SQLException если произошла ошибка при получении метаданных
+     * Номера столбцов, определенные один раз для результата запроса
      */
-    private static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
-        java.sql.ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        for (int i = 1; i <= columns; i++) {
-            if (columnName.equals(metaData.getColumnName(i))) {
-                return true;
-            }
+    private static final class Columns {
+        final int id;
+        final int cardId;
+        final int userId;
+        final int startTime;
+        final int endTime;
+        final int minutes;
+        final int points;
+        final int computerInfo;
+        final int status;
+        final int notes;
+        final int cardNumber;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            cardId = columns.require("card_id");
+            userId = columns.find("user_id");
+            startTime = columns.require("start_time");
+            endTime = columns.require("end_time");
+            minutes = columns.require("minutes");
+            points = columns.find("points_earned", "points");
+            computerInfo = columns.find("computer_info");
+            status = columns.find("status");
+            notes = columns.find("notes");
+            cardNumber = columns.find("card_number");
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
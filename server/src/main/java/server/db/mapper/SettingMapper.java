@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
  * Маппер для преобразования данных из ResultSet в объект Setting
  */
 public class SettingMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
     
     /**
      * Преобразует данные из ResultSet в объект Setting
@@ -18,32 +19,48 @@ public class SettingMapper {
      * @throws SQLException если произошла ошибка при чтении данных
      */
     public static Setting map(ResultSet resultSet) throws SQLException {
+        Columns c = COLUMNS.get(resultSet);
         Setting setting = new Setting();
         
         // Обязательные поля
-        setting.setKey(resultSet.getString("key"));
-        setting.setValue(resultSet.getString("value"));
+        setting.setKey(resultSet.getString(c.key));
+        setting.setValue(resultSet.getString(c.value));
         
         // Опциональные поля
-        String description = resultSet.getString("description");
+        String description = resultSet.getString(c.description);
         if (description != null) {
             setting.setDescription(description);
         }
         
         // Дата последнего обновления
-        java.sql.Timestamp lastUpdatedTimestamp = resultSet.getTimestamp("last_updated");
-        if (lastUpdatedTimestamp != null) {
-            setting.setLastUpdated(lastUpdatedTimestamp.toLocalDateTime());
-        } else {
-            setting.setLastUpdated(LocalDateTime.now());
-        }
+        LocalDateTime lastUpdated = ColumnIndex.getDateTime(resultSet, c.lastUpdated);
+        setting.setLastUpdated(lastUpdated != null ? lastUpdated : LocalDateTime.now());
         
         // Кто обновил
-        String updatedBy = resultSet.getString("updated_by");
+        String updatedBy = resultSet.getString(c.updatedBy);
         if (updatedBy != null) {
             setting.setUpdatedBy(updatedBy);
         }
         
         return setting;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Номера столбцов, определенные один раз для результата запроса
+     */
+    private static final class Columns {
+        final int key;
+        final int value;
+        final int description;
+        final int lastUpdated;
+        final int updatedBy;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            key = columns.require("key");
+            value = columns.require("value");
+            description = columns.require("description");
+            lastUpdated = columns.require("last_updated");
+            updatedBy = columns.require("updated_by");
+        }
+    }
+}
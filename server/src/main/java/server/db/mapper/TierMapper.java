@@ -5,10 +5,14 @@ import common.model.Tier;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Маппер для преобразования результатов запроса в объекты Tier
  */
 public class TierMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Преобразует результат запроса в объект Tier
      * @param rs результат запроса
@@ -16,57 +20,62 @@ public class TierMapper {
      * @throws SQLException если произошла ошибка при получении данных
      */
     public static Tier map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         // Create Tier with level and name
         int level = 1; // Default level
-        if (hasColumn(rs, "level")) {
-            level = rs.getInt("level");
-        } else if (hasColumn(rs, "id")) {
+        if (present(c.level)) {
+            level = rs.getInt(c.level);
+        } else if (present(c.id)) {
             // Use ID as level if no level column is available
-            level = (int) rs.getLong("id");
+            level = (int) rs.getLong(c.id);
         }
         
-        String name = rs.getString("name");
-        Tier tier = new Tier(level, name);
+        Tier tier = new Tier(level, rs.getString(c.name));
         
         // Set additional properties if available
-        if (hasColumn(rs, "min_points")) {
-            tier.setMinPoints(rs.getInt("min_points"));
+        if (present(c.minPoints)) {
+            tier.setMinPoints(rs.getInt(c.minPoints));
         }
         
-        if (hasColumn(rs, "max_points")) {
-            tier.setMaxPoints(rs.getInt("max_points"));
-        } else if (hasColumn(rs, "min_points")) {
+        if (present(c.maxPoints)) {
+            tier.setMaxPoints(rs.getInt(c.maxPoints));
+        } else if (present(c.minPoints)) {
             // If we have min_points but not max_points, we could derive it
             // This is just a placeholder example
             tier.setMaxPoints(tier.getMinPoints() + 500);
         }
         
-        if (hasColumn(rs, "bonus_multiplier")) {
-            tier.setBonusMultiplier(rs.getDouble("bonus_multiplier"));
-        } else if (hasColumn(rs, "discount_pct")) {
+        if (present(c.bonusMultiplier)) {
+            tier.setBonusMultiplier(rs.getDouble(c.bonusMultiplier));
+        } else if (present(c.discountPct)) {
             // Convert discount percentage to bonus multiplier if needed
-            double discount = rs.getInt("discount_pct") / 100.0;
+            double discount = rs.getInt(c.discountPct) / 100.0;
             tier.setBonusMultiplier(1.0 + discount);
         }
         
         return tier;
     }
-    
+
     /**
-     * Проверяет, содержит ли результат запроса указанный столбец
-     * @param rs результат запроса
-     * @param columnName имя столбца
-     * @return true, если столбец существует
-     * @throws SQLException если произошла ошибка при получении метаданных
+     * Номера столбцов, определенные один раз для результата запроса
      */
-    private static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
-        java.sql.ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        for (int i = 1; i <= columns; i++) {
-            if (columnName.equals(metaData.getColumnName(i))) {
-                return true;
-            }
+    private static final class Columns {
+        final int level;
+        final int id;
+        final int name;
+        final int minPoints;
+        final int maxPoints;
+        final int bonusMultiplier;
+        final int discountPct;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            level = columns.find("level");
+            id = columns.find("id");
+            name = columns.require("name");
+            minPoints = columns.find("min_points");
+            maxPoints = columns.find("max_points");
+            bonusMultiplier = columns.find("bonus_multiplier");
+            discountPct = columns.find("discount_pct");
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
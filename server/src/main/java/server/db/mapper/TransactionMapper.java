@@ -6,10 +6,14 @@ import common.model.Transaction;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Маппер для преобразования результатов запроса в объекты Transaction
  */
 public class TransactionMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Преобразует результат запроса в объект Transaction
      * @param rs результат запроса
@@ -17,29 +21,30 @@ public class TransactionMapper {
      * @throws SQLException если произошла ошибка при получении данных
      */
     public static Transaction map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         Transaction transaction = new Transaction();
-        transaction.setId(rs.getLong("id"));
+        transaction.setId(rs.getLong(c.id));
         
         // Преобразуем тип транзакции из строки в enum
-        String typeStr = rs.getString("type");
+        String typeStr = rs.getString(c.type);
         transaction.setType(Transaction.Type.valueOf(typeStr));
         
-        transaction.setPoints(rs.getInt("points"));
-        transaction.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        transaction.setPoints(rs.getInt(c.points));
+        transaction.setTimestamp(rs.getTimestamp(c.timestamp).toLocalDateTime());
         
         // Опциональное описание
-        if (hasColumn(rs, "description")) {
-            transaction.setDescription(rs.getString("description"));
+        if (present(c.description)) {
+            transaction.setDescription(rs.getString(c.description));
         }
         
         // Создаем объект Card, если есть данные о карте
-        if (hasColumn(rs, "card_id")) {
+        if (present(c.cardId)) {
             Card card = new Card();
-            card.setId(rs.getLong("card_id"));
+            card.setId(rs.getLong(c.cardId));
             
             // Если есть дополнительные данные о карте
-            if (hasColumn(rs, "card_number")) {
-                card.setCardNumber(rs.getString("card_number"));
+            if (present(c.cardNumber)) {
+                card.setCardNumber(rs.getString(c.cardNumber));
             }
             
             transaction.setCard(card);
@@ -47,22 +52,27 @@ public class TransactionMapper {
         
         return transaction;
     }
-    
+
     /**
-     * Проверяет, содержит ли результат запроса указанный столбец
-     * @param rs результат запроса
-     * @param columnName имя столбца
-     * @return true, если столбец существует
-     * @throws SQLException если произошла ошибка при получении метаданных
+     * Номера столбцов, определенные один раз для результата запроса
      */
-    private static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
-        java.sql.ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        for (int i = 1; i <= columns; i++) {
-            if (columnName.equals(metaData.getColumnName(i))) {
-                return true;
-            }
+    private static final class Columns {
+        final int id;
+        final int type;
+        final int points;
+        final int timestamp;
+        final int description;
+        final int cardId;
+        final int cardNumber;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            type = columns.require("type");
+            points = columns.require("points");
+            timestamp = columns.require("timestamp");
+            description = columns.find("description");
+            cardId = columns.find("card_id");
+            cardNumber = columns.find("card_number");
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
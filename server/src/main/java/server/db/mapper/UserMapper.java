@@ -7,10 +7,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 
+import static server.db.mapper.ColumnIndex.present;
+
 /**
  * Маппер для преобразования результатов запроса в объекты User
  */
 public class UserMapper {
+    private static final ColumnIndex.Cache<Columns> COLUMNS = new ColumnIndex.Cache<>(Columns::new);
+
     /**
      * Преобразует результат запроса в объект User
      * @param rs результат запроса
@@ -18,73 +22,82 @@ public class UserMapper {
      * @throws SQLException если произошла ошибка при получении данных
      */
     public static User map(ResultSet rs) throws SQLException {
+        Columns c = COLUMNS.get(rs);
         User user = new User();
-        user.setId(rs.getLong("id"));
+        user.setId(rs.getLong(c.id));
         
         // Map login to username
-        user.setUsername(rs.getString("login"));
+        user.setUsername(rs.getString(c.login));
         
         // Password handling
-        if (hasColumn(rs, "password")) {
-            user.setPassword(rs.getString("password"));
+        if (present(c.password)) {
+            user.setPassword(rs.getString(c.password));
         }
         
         // Handle role
-        if (hasColumn(rs, "role_id") && hasColumn(rs, "role_name")) {
-            Role role = new Role(rs.getLong("role_id"), rs.getString("role_name"));
+        if (present(c.roleId) && present(c.roleName)) {
+            Role role = new Role(rs.getLong(c.roleId), rs.getString(c.roleName));
             user.setRole(role);
         }
         
         // Map additional fields that now match the DB
-        if (hasColumn(rs, "email")) {
-            user.setEmail(rs.getString("email"));
+        if (present(c.email)) {
+            user.setEmail(rs.getString(c.email));
         }
         
-        if (hasColumn(rs, "full_name")) {
-            user.setFullName(rs.getString("full_name"));
+        if (present(c.fullName)) {
+            user.setFullName(rs.getString(c.fullName));
         }
         
-        if (hasColumn(rs, "phone")) {
-            user.setPhone(rs.getString("phone"));
+        if (present(c.phone)) {
+            user.setPhone(rs.getString(c.phone));
         }
         
         // Active status - default to true if not in DB
-        if (hasColumn(rs, "is_active")) {
-            user.setActive(rs.getBoolean("is_active"));
+        if (present(c.isActive)) {
+            user.setActive(rs.getBoolean(c.isActive));
         }
         
-        // Set creation date from registration_date if available
-        if (hasColumn(rs, "registration_date")) {
-            user.setCreatedAt(rs.getTimestamp("registration_date").toLocalDateTime());
-        } else if (hasColumn(rs, "created_at")) {
-            user.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-        } else {
-            user.setCreatedAt(LocalDateTime.now());
-        }
+        // Set creation date from registration_date or created_at if available
+        LocalDateTime createdAt = present(c.createdAt) ? ColumnIndex.getDateTime(rs, c.createdAt) : null;
+        user.setCreatedAt(createdAt != null ? createdAt : LocalDateTime.now());
         
         // Set last login date if available
-        if (hasColumn(rs, "last_login")) {
-            user.setLastLogin(rs.getTimestamp("last_login").toLocalDateTime());
+        if (present(c.lastLogin)) {
+            user.setLastLogin(ColumnIndex.getDateTime(rs, c.lastLogin));
         }
         
         return user;
     }
-    
+
     /**
-     * Проверяет, содержит ли результат запроса указанный столбец
-     * @param rs результат запроса
-     * @param columnName имя столбца
-     * @return true, если столбец существует
-     * @throws SQLException если произошла ошибка при получении метаданных
+     * Номера столбцов, определенные один раз для результата запроса
      */
-    private static boolean hasColumn(ResultSet rs, String columnName) throws SQLException {
-        java.sql.ResultSetMetaData metaData = rs.getMetaData();
-        int columns = metaData.getColumnCount();
-        for (int i = 1; i <= columns; i++) {
-            if (columnName.equals(metaData.getColumnName(i))) {
-                return true;
-            }
+    private static final class Columns {
+        final int id;
+        final int login;
+        final int password;
+        final int roleId;
+        final int roleName;
+        final int email;
+        final int fullName;
+        final int phone;
+        final int isActive;
+        final int createdAt;
+        final int lastLogin;
+
+        Columns(ColumnIndex columns) throws SQLException {
+            id = columns.require("id");
+            login = columns.require("login");
+            password = columns.find("password");
+            roleId = columns.find("role_id");
+            roleName = columns.find("role_name");
+            email = columns.find("email");
+            fullName = columns.find("full_name");
+            phone = columns.find("phone");
+            isActive = columns.find("is_active");
+            createdAt = columns.find("registration_date", "created_at");
+            lastLogin = columns.find("last_login");
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package server.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import common.dto.ChangeEvent;
+import common.dto.ChangeEvent.Topic;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.cluster.ClusterBus;
+import server.util.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылка событий об изменении данных клиентам, подключенным к /api/events.
+ * События для каждого клиента копятся в коротком окне и отправляются одним кадром;
+ * повторные изменения одной сущности в пределах окна схлопываются до последнего.
+ * При работе нескольких экземпляров сервера события пересылаются остальным экземплярам
+ * через {@link ClusterBus}, чтобы их получили и клиенты, подключенные к другим экземплярам.
+ */
+public class EventBus {
+    private static final Logger logger = LoggerFactory.getLogger(EventBus.class);
+    private static final EventBus INSTANCE = new EventBus();
+    /** Тема пересылки событий между экземплярами сервера */
+    public static final String CLUSTER_TOPIC = "event";
+
+    private final Map<Channel, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final long coalesceMillis;
+    private final int maxPending;
+
+    private EventBus() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.coalesceMillis = Math.max(0, ServerConfig.getInt("events.coalesce.ms", 200));
+        this.maxPending = Math.max(1, ServerConfig.getInt("events.max.pending", 1000));
+    }
+
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Подписывает канал на темы
+     * @param channel канал WebSocket
+     * @param topics темы
+     */
+    public void subscribe(Channel channel, Collection<Topic> topics) {
+        Subscriber subscriber = subscribers.computeIfAbsent(channel, Subscriber::new);
+        subscriber.topics.addAll(topics);
+        logger.debug("Канал {} подписан на {}", channel.id(), subscriber.topics);
+    }
+
+    /**
+     * Отписывает канал от тем
+     * @param channel канал WebSocket
+     * @param topics темы
+     */
+    public void unsubscribe(Channel channel, Collection<Topic> topics) {
+        Subscriber subscriber = subscribers.get(channel);
+        if (subscriber != null) {
+            subscriber.topics.removeAll(topics);
+        }
+    }
+
+    /**
+     * Убирает канал из рассылки, например при закрытии соединения
+     * @param channel канал WebSocket
+     */
+    public void remove(Channel channel) {
+        subscribers.remove(channel);
+    }
+
+    /**
+     * Отправляет событие всем каналам, подписанным на его тему.
+     * Может вызываться из любого потока: очередь канала обслуживается только его event loop.
+     * @param event событие
+     */
+    public void publish(ChangeEvent event) {
+        deliver(event);
+        ClusterBus clusterBus = ClusterBus.getInstance();
+        if (clusterBus.isRunning() && event.getTopic() != null) {
+            try {
+                clusterBus.publish(CLUSTER_TOPIC, objectMapper.writeValueAsString(event));
+            } catch (JsonProcessingException e) {
+                logger.error("Ошибка при сериализации события для других экземпляров", e);
+            }
+        }
+    }
+
+    /**
+     * Доставляет событие, полученное от другого экземпляра сервера, своим каналам
+     * @param json событие в JSON
+     */
+    public void onClusterMessage(String json) {
+        try {
+            deliver(objectMapper.readValue(json, ChangeEvent.class));
+        } catch (JsonProcessingException e) {
+            logger.warn("Пропущено событие другого экземпляра неизвестного формата: {}", e.getOriginalMessage());
+        }
+    }
+
+    private void deliver(ChangeEvent event) {
+        Topic topic = event.getTopic();
+        if (topic == null || subscribers.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.topics.contains(topic)) {
+                subscriber.channel.eventLoop().execute(() -> subscriber.offer(event));
+            }
+        }
+    }
+
+    /**
+     * Отправляет накопленные события и закрывает все каналы при остановке сервера
+     * @param timeoutMillis сколько ждать закрытия каналов
+     */
+    public void closeAll(long timeoutMillis) {
+        List<Channel> channels = new ArrayList<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            channels.add(subscriber.channel);
+            subscriber.channel.eventLoop().execute(subscriber::close);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Channel channel : channels) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0 || !channel.closeFuture().awaitUninterruptibly(remaining)) {
+                logger.warn("Не все каналы событий закрыты в срок");
+                return;
+            }
+        }
+        if (!channels.isEmpty()) {
+            logger.info("Закрыто каналов событий: {}", channels.size());
+        }
+    }
+
+    /**
+     * @return количество подключенных каналов
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private final class Subscriber {
+        private final Channel channel;
+        private final Set<Topic> topics = ConcurrentHashMap.newKeySet();
+        // Доступ только из event loop канала
+        private final LinkedHashMap<String, ChangeEvent> pending = new LinkedHashMap<>();
+        private boolean flushScheduled;
+        private long uncoalesced;
+
+        private Subscriber(Channel channel) {
+            this.channel = channel;
+        }
+
+        private void offer(ChangeEvent event) {
+            if (!channel.isActive()) {
+                return;
+            }
+            String key = event.getType().isCoalesced()
+                    ? event.getType() + ":" + event.getEntityId()
+                    : event.getType() + "#" + uncoalesced++;
+            // Удаляем и вставляем заново, чтобы порядок отражал последнее изменение
+            pending.remove(key);
+            pending.put(key, event);
+
+            if (pending.size() > maxPending) {
+                // Клиент не успевает читать: пусть переподключится и загрузит актуальное состояние
+                logger.warn("Канал {} не успевает принимать события ({} в очереди), соединение закрывается",
+                        channel.id(), pending.size());
+                pending.clear();
+                remove(channel);
+                channel.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.TRY_AGAIN_LATER))
+                        .addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            scheduleFlush();
+        }
+
+        private void scheduleFlush() {
+            if (!flushScheduled) {
+                flushScheduled = true;
+                channel.eventLoop().schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void flush() {
+            flushScheduled = false;
+            if (pending.isEmpty() || !channel.isActive()) {
+                return;
+            }
+            if (!channel.isWritable()) {
+                // Буфер отправки заполнен: продолжаем схлопывать события до следующего окна
+                scheduleFlush();
+                return;
+            }
+            writePending();
+        }
+
+        private void close() {
+            remove(channel);
+            if (!channel.isActive()) {
+                return;
+            }
+            if (!pending.isEmpty()) {
+                writePending();
+            }
+            // Клиент переподключится к другому или перезапущенному серверу
+            channel.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.ENDPOINT_UNAVAILABLE))
+                    .addListener(ChannelFutureListener.CLOSE);
+        }
+
+        private void writePending() {
+            try {
+                String json = objectMapper.writeValueAsString(new ArrayList<>(pending.values()));
+                pending.clear();
+                channel.writeAndFlush(new TextWebSocketFrame(json));
+            } catch (JsonProcessingException e) {
+                logger.error("Ошибка при сериализации событий для канала {}", channel.id(), e);
+                pending.clear();
+            }
+        }
+    }
+}
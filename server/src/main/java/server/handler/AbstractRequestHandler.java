@@ -1,5 +1,6 @@
 package server.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -11,16 +12,26 @@ import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import common.dto.ApiResponse;
+import common.model.User;
+import common.util.Constants;
+import common.util.WireFormat;
+import server.service.UserService;
 
 import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 /**
  * Abstract class for HTTP request handlers
  */
 public abstract class AbstractRequestHandler implements RequestHandler {
+    // Mappers for binary formats are shared: handlers are created for every connection
+    private static final Map<WireFormat, ObjectMapper> BINARY_MAPPERS = createBinaryMappers();
+    private static final String BEARER_PREFIX = "Bearer ";
+    
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final ObjectMapper objectMapper;
     
@@ -28,7 +39,18 @@ public abstract class AbstractRequestHandler implements RequestHandler {
         this.objectMapper = createObjectMapper();
     }
     
-    private ObjectMapper createObjectMapper() {
+    private static Map<WireFormat, ObjectMapper> createBinaryMappers() {
+        ObjectMapper json = createObjectMapper();
+        Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+        for (WireFormat format : WireFormat.values()) {
+            if (format.isBinary()) {
+                mappers.put(format, format.mapperFrom(json));
+            }
+        }
+        return mappers;
+    }
+    
+    private static ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -64,6 +86,64 @@ public abstract class AbstractRequestHandler implements RequestHandler {
         return request.content().toString(StandardCharsets.UTF_8);
     }
     
+    /**
+     * Extracts the session token from the Authorization header
+     * @param request HTTP request
+     * @return token or null if the header is missing or is not a Bearer token
+     */
+    protected static String bearerToken(FullHttpRequest request) {
+        String authorization = request.headers().get(HttpHeaderNames.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+    
+    /**
+     * Finds the user who sent the request. Otherwise answers 401 (no valid session token)
+     * @param ctx channel context
+     * @param request HTTP request
+     * @param userService service resolving session tokens
+     * @return user or empty if the error response has already been sent
+     */
+    protected Optional<User> requireUser(ChannelHandlerContext ctx, FullHttpRequest request, UserService userService) {
+        Optional<User> user = userService.findUserByToken(bearerToken(request));
+        if (user.isEmpty()) {
+            sendErrorResponse(ctx, HttpResponseStatus.UNAUTHORIZED, "Токен недействителен или истек");
+        }
+        return user;
+    }
+    
+    /**
+     * Finds the administrator who sent the request. Otherwise answers 401 (no valid session token)
+     * or 403 (the user is not an administrator)
+     * @param ctx channel context
+     * @param request HTTP request
+     * @param userService service resolving session tokens
+     * @return administrator or empty if the error response has already been sent
+     */
+    protected Optional<User> requireAdmin(ChannelHandlerContext ctx, FullHttpRequest request, UserService userService) {
+        Optional<User> user = requireUser(ctx, request, userService);
+        if (user.isEmpty()) {
+            return Optional.empty();
+        }
+        if (!isAdmin(user.get())) {
+            logger.warn("Пользователю {} отказано в доступе к {}", user.get().getLogin(), request.uri());
+            sendErrorResponse(ctx, HttpResponseStatus.FORBIDDEN, "Недостаточно прав");
+            return Optional.empty();
+        }
+        return user;
+    }
+    
+    /**
+     * @param user user resolved from a session token
+     * @return true if the user has the administrator role
+     */
+    protected static boolean isAdmin(User user) {
+        return user.getRole() != null && Constants.ROLE_ADMIN.equals(user.getRole().getName());
+    }
+    
     @Override
     public void sendErrorResponse(ChannelHandlerContext ctx, HttpResponseStatus status, String message) {
         try {
@@ -98,17 +178,7 @@ public abstract class AbstractRequestHandler implements RequestHandler {
      */
     public <T> void sendErrorResponse(ChannelHandlerContext ctx, HttpResponseStatus status, ApiResponse<T> errorResponse) {
         try {
-            String jsonResponse = objectMapper.writeValueAsString(errorResponse);
-            
-            FullHttpResponse httpResponse = new DefaultFullHttpResponse(
-                    HttpVersion.HTTP_1_1, 
-                    status,
-                    Unpooled.copiedBuffer(jsonResponse, StandardCharsets.UTF_8));
-            
-            httpResponse.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
-            httpResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, httpResponse.content().readableBytes());
-            
-            ctx.writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+            sendEncodedResponse(ctx, status, errorResponse);
             
             logger.debug("Sent error response: {}, {}", status, errorResponse.getErrorMessage());
         } catch (Exception e) {
@@ -142,14 +212,55 @@ public abstract class AbstractRequestHandler implements RequestHandler {
      */
     public <T> void sendSuccessResponse(ChannelHandlerContext ctx, ApiResponse<T> response) {
         try {
-            String jsonResponse = objectMapper.writeValueAsString(response);
-            sendSuccessResponse(ctx, jsonResponse);
+            sendEncodedResponse(ctx, HttpResponseStatus.OK, response);
+            
+            logger.debug("Sent success response");
         } catch (Exception e) {
             logger.error("Error while sending success response", e);
             sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, "Internal server error");
         }
     }
     
+    /**
+     * Sends success response tagged with an ETag so the client can revalidate it with If-None-Match
+     * @param ctx channel context
+     * @param response success response object
+     * @param etag entity tag from {@link EntityTags#forTables}, may be null
+     */
+    public <T> void sendSuccessResponse(ChannelHandlerContext ctx, ApiResponse<T> response, String etag) {
+        try {
+            sendEncodedResponse(ctx, HttpResponseStatus.OK, response, etag);
+            
+            logger.debug("Sent success response, etag: {}", etag);
+        } catch (Exception e) {
+            logger.error("Error while sending success response", e);
+            sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+    
+    /**
+     * Answers 304 Not Modified if the request's If-None-Match already names the current version
+     * @param ctx channel context
+     * @param request HTTP request
+     * @param etag entity tag of the current version, may be null
+     * @return true if the 304 response was sent and the handler must not build the body
+     */
+    protected boolean sendNotModifiedIfMatches(ChannelHandlerContext ctx, FullHttpRequest request, String etag) {
+        if (!EntityTags.matches(request, etag)) {
+            return false;
+        }
+        FullHttpResponse httpResponse = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, 
+                HttpResponseStatus.NOT_MODIFIED,
+                Unpooled.EMPTY_BUFFER);
+        httpResponse.headers().set(HttpHeaderNames.ETAG, etag);
+        
+        ctx.writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+        
+        logger.debug("Sent not modified response, etag: {}", etag);
+        return true;
+    }
+    
     /**
      * Отправляет успешный ответ с указанной кодировкой
      * @param ctx контекст канала
@@ -174,6 +285,42 @@ public abstract class AbstractRequestHandler implements RequestHandler {
         }
     }
     
+    /**
+     * Serializes the body straight into the format negotiated by WireFormatHandler for this request,
+     * so large lists are not written as JSON first and re-encoded afterwards
+     * @param ctx channel context
+     * @param status HTTP status
+     * @param body response object
+     * @throws JsonProcessingException if the body cannot be serialized
+     */
+    protected void sendEncodedResponse(ChannelHandlerContext ctx, HttpResponseStatus status, Object body)
+            throws JsonProcessingException {
+        sendEncodedResponse(ctx, status, body, null);
+    }
+    
+    /**
+     * Same as {@link #sendEncodedResponse(ChannelHandlerContext, HttpResponseStatus, Object)} with an ETag header
+     * @param etag entity tag or null
+     */
+    protected void sendEncodedResponse(ChannelHandlerContext ctx, HttpResponseStatus status, Object body, String etag)
+            throws JsonProcessingException {
+        WireFormat format = WireFormatHandler.formatOf(ctx);
+        ObjectMapper mapper = format.isBinary() ? BINARY_MAPPERS.get(format) : objectMapper;
+        
+        FullHttpResponse httpResponse = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, 
+                status,
+                Unpooled.wrappedBuffer(mapper.writeValueAsBytes(body)));
+        
+        httpResponse.headers().set(HttpHeaderNames.CONTENT_TYPE, format.getContentType());
+        httpResponse.headers().set(HttpHeaderNames.CONTENT_LENGTH, httpResponse.content().readableBytes());
+        if (etag != null) {
+            httpResponse.headers().set(HttpHeaderNames.ETAG, etag);
+        }
+        
+        ctx.writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+    }
+    
     /**
      * Gets URL pattern that this handler processes
      * @return regular expression for URL
@@ -134,9 +134,7 @@ public class AuditHandler extends AbstractRequestHandler {
             }
 
             ApiResponse<List<AuditLog>> response = ApiResponse.success(logs);
-            String responseJson = objectMapper.writeValueAsString(response);
-
-            sendSuccessResponse(ctx, responseJson);
+            sendSuccessResponse(ctx, response);
             return true;
         } catch (Exception e) {
             logger.error("Ошибка при получении записей аудита", e);
@@ -183,9 +181,7 @@ public class AuditHandler extends AbstractRequestHandler {
             logger.debug("Запрос записей аудита для пользователя {}", userId);
 
             ApiResponse<List<AuditLog>> response = ApiResponse.success(logs);
-            String responseJson = objectMapper.writeValueAsString(response);
-
-            sendSuccessResponse(ctx, responseJson);
+            sendSuccessResponse(ctx, response);
             return true;
         } catch (Exception e) {
             logger.error("Ошибка при получении записей аудита для пользователя {}", userId, e);
@@ -203,9 +199,7 @@ public class AuditHandler extends AbstractRequestHandler {
             logger.debug("Запрос записей аудита по типу действия {}", actionType);
 
             ApiResponse<List<AuditLog>> response = ApiResponse.success(logs);
-            String responseJson = objectMapper.writeValueAsString(response);
-
-            sendSuccessResponse(ctx, responseJson);
+            sendSuccessResponse(ctx, response);
             return true;
         } catch (Exception e) {
             logger.error("Ошибка при получении записей аудита по типу действия {}", actionType, e);
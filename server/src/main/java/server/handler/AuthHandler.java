@@ -5,7 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import common.dto.AuthRequest;
+import common.dto.ApiResponse;
 import common.dto.AuthResponse;
+import common.model.User;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
@@ -13,11 +15,15 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import server.service.UserService;
 import server.service.UserServiceImpl;
 
+import java.util.Optional;
+
 /**
  * Обработчик запросов на аутентификацию
  */
 public class AuthHandler extends AbstractRequestHandler {
     private static final String URL_PATTERN = "/api/auth";
+    private static final String LOGOUT_PATH = "/api/auth/logout";
+    private static final String ME_PATH = "/api/auth/me";
     private final UserService userService;
     private final ObjectMapper authObjectMapper;
     
@@ -52,6 +58,18 @@ public class AuthHandler extends AbstractRequestHandler {
         logger.debug("Обработка запроса на аутентификацию");
         
         try {
+            String path = uri.split("\\?")[0];
+            if (path.equals(ME_PATH) && method.equals(HttpMethod.GET.name())) {
+                // GET /api/auth/me - пользователь по токену, выданному любым экземпляром сервера
+                handleCurrentUser(ctx, request);
+                return true;
+            }
+            if (path.equals(LOGOUT_PATH) && method.equals(HttpMethod.POST.name())) {
+                // POST /api/auth/logout - токен перестает действовать на всех экземплярах
+                handleLogout(ctx, request);
+                return true;
+            }
+            
             String content = getRequestContent(request);
             AuthRequest authRequest = authObjectMapper.readValue(content, AuthRequest.class);
             
@@ -81,6 +99,28 @@ public class AuthHandler extends AbstractRequestHandler {
         }
     }
 
+    private void handleCurrentUser(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
+        Optional<User> user = userService.findUserByToken(bearerToken(request));
+        if (user.isEmpty()) {
+            sendErrorResponse(ctx, HttpResponseStatus.UNAUTHORIZED, "Токен недействителен или истек");
+            return;
+        }
+        // Скрываем пароль перед отправкой клиенту
+        user.get().setPassword(null);
+        sendSuccessResponse(ctx, authObjectMapper.writeValueAsString(ApiResponse.success(user.get())));
+    }
+    
+    private void handleLogout(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
+        String token = bearerToken(request);
+        if (token == null) {
+            sendErrorResponse(ctx, HttpResponseStatus.UNAUTHORIZED, "Не передан токен");
+            return;
+        }
+        boolean revoked = userService.logout(token);
+        logger.debug("Выход из системы, токен {}", revoked ? "отозван" : "уже недействителен");
+        sendSuccessResponse(ctx, authObjectMapper.writeValueAsString(ApiResponse.success(revoked)));
+    }
+    
     @Override
     protected String getUrlPattern() {
         return URL_PATTERN;
@@ -17,6 +17,7 @@ import server.service.BackupServiceImpl;
 import server.service.UserService;
 import server.service.UserServiceImpl;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
@@ -32,13 +33,16 @@ public class BackupHandler extends AbstractRequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(BackupHandler.class);
     private static final Pattern ID_PATTERN = Pattern.compile("/api/backup/(\\d+)");
     private static final Pattern RESTORE_PATTERN = Pattern.compile("/api/backup/(\\d+)/restore");
+    private static final Pattern CHAIN_PATTERN = Pattern.compile("/api/backup/(\\d+)/chain");
+    private static final Pattern MERGE_PATTERN = Pattern.compile("/api/backup/(\\d+)/merge");
+    private static final Pattern DOWNLOAD_PATTERN = Pattern.compile("/api/backup/(\\d+)/download");
     
     private final BackupService backupService;
     private final UserService userService;
     
     public BackupHandler() {
         super();
-        this.backupService = new BackupServiceImpl();
+        this.backupService = SharedBackupService.INSTANCE;
         this.userService = new UserServiceImpl();
     }
     
@@ -70,15 +74,21 @@ public class BackupHandler extends AbstractRequestHandler {
         }
         
         try {
+            // Backups hold the whole database: every route requires an administrator's session token
+            Optional<User> admin = requireAdmin(ctx, request, userService);
+            if (admin.isEmpty()) {
+                return true;
+            }
+            
             // GET /api/backup - get all backups
             if (uri.equals("/api/backup") && method.equals(HttpMethod.GET.name())) {
                 handleGetAllBackups(ctx);
                 return true;
             }
             
-            // POST /api/backup - create new backup
+            // POST /api/backup - create new backup ({"kind": "INCREMENTAL"} for an incremental one)
             if (uri.equals("/api/backup") && method.equals(HttpMethod.POST.name())) {
-                handleCreateBackup(ctx, request);
+                handleCreateBackup(ctx, request, admin.get());
                 return true;
             }
             
@@ -107,7 +117,31 @@ public class BackupHandler extends AbstractRequestHandler {
             Matcher restoreMatcher = RESTORE_PATTERN.matcher(uri);
             if (restoreMatcher.matches() && method.equals(HttpMethod.POST.name())) {
                 Long id = Long.parseLong(restoreMatcher.group(1));
-                handleRestoreBackup(ctx, id, request);
+                handleRestoreBackup(ctx, id, admin.get());
+                return true;
+            }
+            
+            // GET /api/backup/{id}/chain - backups needed to restore this one
+            Matcher chainMatcher = CHAIN_PATTERN.matcher(uri);
+            if (chainMatcher.matches() && method.equals(HttpMethod.GET.name())) {
+                Long id = Long.parseLong(chainMatcher.group(1));
+                handleGetBackupChain(ctx, id);
+                return true;
+            }
+            
+            // GET /api/backup/{id}/download - stream the archive file, resumable with Range
+            Matcher downloadMatcher = DOWNLOAD_PATTERN.matcher(uri);
+            if (downloadMatcher.matches() && method.equals(HttpMethod.GET.name())) {
+                Long id = Long.parseLong(downloadMatcher.group(1));
+                handleDownloadBackup(ctx, id, request);
+                return true;
+            }
+            
+            // POST /api/backup/{id}/merge - merge the chain into a standalone full backup
+            Matcher mergeMatcher = MERGE_PATTERN.matcher(uri);
+            if (mergeMatcher.matches() && method.equals(HttpMethod.POST.name())) {
+                Long id = Long.parseLong(mergeMatcher.group(1));
+                handleMergeBackupChain(ctx, id, admin.get());
                 return true;
             }
             
@@ -150,12 +184,13 @@ public class BackupHandler extends AbstractRequestHandler {
         }
     }
     
-    private void handleCreateBackup(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
+    private void handleCreateBackup(ChannelHandlerContext ctx, FullHttpRequest request, User user)
+            throws JsonProcessingException {
         logger.debug("Creating new backup");
         
         // Default values
-        Long userId = 1L;
         String description = "Automatic backup";
+        boolean incremental = false;
         
         // Try to get values from request body if present
         try {
@@ -166,13 +201,11 @@ public class BackupHandler extends AbstractRequestHandler {
                 Map<String, Object> requestBody = objectMapper.readValue(content, HashMap.class);
                 
                 if (requestBody != null) {
-                    if (requestBody.containsKey("userId") && requestBody.get("userId") != null) {
-                        userId = ((Number) requestBody.get("userId")).longValue();
-                    }
-                    
                     if (requestBody.containsKey("description") && requestBody.get("description") != null) {
                         description = (String) requestBody.get("description");
                     }
+                    
+                    incremental = Backup.KIND_INCREMENTAL.equalsIgnoreCase(String.valueOf(requestBody.get("kind")));
                 }
             }
         } catch (Exception e) {
@@ -180,27 +213,11 @@ public class BackupHandler extends AbstractRequestHandler {
             // Continue with default values
         }
         
-        // Get user from database
-        Optional<User> userOpt = userService.getUserById(userId);
-        User user;
-        
-        if (userOpt.isEmpty()) {
-            logger.warn("User with ID {} not found, using default admin user", userId);
-            // Get first admin user as fallback
-            userOpt = userService.getUserByRole("ADMIN");
-            if (userOpt.isEmpty()) {
-                ApiResponse<String> response = ApiResponse.error("No admin user found in system");
-                String jsonResponse = objectMapper.writeValueAsString(response);
-                sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, jsonResponse);
-                return;
-            }
-        }
-        
-        user = userOpt.get();
-        
         // Create backup
         try {
-            Backup backup = backupService.createBackup(user, description);
+            Backup backup = incremental
+                    ? backupService.createIncrementalBackup(user, description)
+                    : backupService.createBackup(user, description);
             
             if (backup != null) {
                 ApiResponse<Backup> response = ApiResponse.success(backup);
@@ -246,7 +263,7 @@ public class BackupHandler extends AbstractRequestHandler {
         }
     }
     
-    private void handleRestoreBackup(ChannelHandlerContext ctx, Long id, FullHttpRequest request) throws JsonProcessingException {
+    private void handleRestoreBackup(ChannelHandlerContext ctx, Long id, User user) throws JsonProcessingException {
         logger.debug("Restoring from backup with id: {}", id);
         
         // Check if backup exists
@@ -259,41 +276,71 @@ public class BackupHandler extends AbstractRequestHandler {
             return;
         }
         
-        // Get user ID from request
-        String content = request.content().toString(CharsetUtil.UTF_8);
-        Map<String, Object> requestBody = new HashMap<>();
+        // Restore from backup
+        boolean restored = backupService.restoreFromBackup(id, user);
         
-        if (content != null && !content.isEmpty()) {
-            requestBody = objectMapper.readValue(content, HashMap.class);
+        if (restored) {
+            ApiResponse<String> response = ApiResponse.success("System restored successfully from backup");
+            String jsonResponse = objectMapper.writeValueAsString(response);
+            sendSuccessResponse(ctx, jsonResponse);
+        } else {
+            ApiResponse<String> response = ApiResponse.error("Failed to restore from backup");
+            String jsonResponse = objectMapper.writeValueAsString(response);
+            sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, jsonResponse);
         }
+    }
+    
+    private void handleGetBackupChain(ChannelHandlerContext ctx, Long id) throws JsonProcessingException {
+        logger.debug("Getting backup chain for id: {}", id);
         
-        Long userId = ((Number) requestBody.getOrDefault("userId", 1L)).longValue();
+        List<Backup> chain = backupService.getBackupChain(id);
         
-        // Get user from database
-        Optional<User> userOpt = userService.getUserById(userId);
-        if (userOpt.isEmpty()) {
-            ApiResponse<String> response = ApiResponse.error("User not found");
+        if (chain.isEmpty()) {
+            ApiResponse<String> response = ApiResponse.error("Backup not found or its chain is broken");
             String jsonResponse = objectMapper.writeValueAsString(response);
-            sendErrorResponse(ctx, HttpResponseStatus.BAD_REQUEST, jsonResponse);
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, jsonResponse);
             return;
         }
         
-        User user = userOpt.get();
+        ApiResponse<List<Backup>> response = ApiResponse.success(chain);
+        String jsonResponse = objectMapper.writeValueAsString(response);
+        sendSuccessResponse(ctx, jsonResponse);
+    }
+    
+    private void handleMergeBackupChain(ChannelHandlerContext ctx, Long id, User user)
+            throws JsonProcessingException {
+        logger.debug("Merging backup chain up to id: {}", id);
         
-        // Restore from backup
-        boolean restored = backupService.restoreFromBackup(id, user);
+        Backup merged = backupService.mergeBackupChain(id, user);
         
-        if (restored) {
-            ApiResponse<String> response = ApiResponse.success("System restored successfully from backup");
+        if (merged != null) {
+            ApiResponse<Backup> response = ApiResponse.success(merged);
             String jsonResponse = objectMapper.writeValueAsString(response);
             sendSuccessResponse(ctx, jsonResponse);
         } else {
-            ApiResponse<String> response = ApiResponse.error("Failed to restore from backup");
+            ApiResponse<String> response = ApiResponse.error("Failed to merge backup chain");
             String jsonResponse = objectMapper.writeValueAsString(response);
             sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, jsonResponse);
         }
     }
     
+    private void handleDownloadBackup(ChannelHandlerContext ctx, Long id, FullHttpRequest request)
+            throws JsonProcessingException {
+        logger.debug("Downloading backup with id: {}", id);
+        
+        Optional<File> fileOpt = backupService.getBackupFile(id);
+        
+        if (fileOpt.isEmpty() || !FileDownload.send(ctx, request, fileOpt.get(), contentTypeOf(fileOpt.get()))) {
+            ApiResponse<String> response = ApiResponse.error("Backup file not found");
+            String jsonResponse = objectMapper.writeValueAsString(response);
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, jsonResponse);
+        }
+    }
+    
+    private static String contentTypeOf(File file) {
+        return file.getName().endsWith(".sql") ? "application/sql" : "application/zip";
+    }
+    
     private void handleGetBackupInfo(ChannelHandlerContext ctx) throws JsonProcessingException {
         logger.debug("Getting backup directory info");
         
@@ -303,4 +350,12 @@ public class BackupHandler extends AbstractRequestHandler {
         String jsonResponse = objectMapper.writeValueAsString(response);
         sendSuccessResponse(ctx, jsonResponse);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Backup service shared by all connections: the handler is created per connection,
+     * and the service reconciles the catalog with the backup directory when constructed
+     */
+    private static final class SharedBackupService {
+        private static final BackupService INSTANCE = new BackupServiceImpl();
+    }
+}
@@ -122,11 +122,10 @@ public class CardHandler extends AbstractRequestHandler {
             logger.debug("Retrieved {} cards from database", cards.size());
             
         ApiResponse<List<Card>> response = ApiResponse.success(cards);
-        String jsonResponse = objectMapper.writeValueAsString(response);
             logger.debug("Sending success response with {} cards", cards.size());
             
             // Set appropriate headers
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
             logger.debug("Successfully sent {} cards to client", cards.size());
         } catch (Exception e) {
             logger.error("Error retrieving all cards", e);
@@ -245,8 +244,7 @@ public class CardHandler extends AbstractRequestHandler {
         List<Card> cards = cardService.getCardsByUserId(userId);
         
         ApiResponse<List<Card>> response = ApiResponse.success(cards);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleAddPoints(ChannelHandlerContext ctx, FullHttpRequest request, String uri) throws JsonProcessingException {
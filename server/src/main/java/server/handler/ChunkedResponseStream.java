@@ -0,0 +1,143 @@
+package server.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Тело ответа, передаваемое частями (Transfer-Encoding: chunked) по мере формирования.
+ * Используется из рабочего потока, а не из event loop: запись блокируется, пока канал не освободится,
+ * поэтому в памяти сервера не больше буфера отправки канала и одной части, как бы медленно
+ * клиент ни читал. Заголовок ответа отправляется вместе с первой частью, так что до нее
+ * обработчик еще может ответить ошибкой вместо потока.
+ */
+final class ChunkedResponseStream extends OutputStream {
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    private final ChannelHandlerContext ctx;
+    private final HttpResponse response;
+    private ByteBuf buffer;
+    private ChannelFuture lastWrite;
+    private boolean committed;
+    private boolean finished;
+
+    /**
+     * @param ctx контекст канала
+     * @param contentType тип содержимого
+     * @param fileName имя файла для Content-Disposition
+     */
+    ChunkedResponseStream(ChannelHandlerContext ctx, String contentType, String fileName) {
+        this.ctx = ctx;
+        this.response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        response.headers().set(HttpHeaderNames.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        HttpUtil.setTransferEncodingChunked(response, true);
+    }
+
+    /**
+     * @return true, если заголовок ответа уже отправлен и ответить ошибкой нельзя
+     */
+    boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer().writeByte(b);
+        if (!buffer.isWritable()) {
+            writeChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            ByteBuf target = ensureBuffer();
+            int count = Math.min(length, target.writableBytes());
+            target.writeBytes(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (!target.isWritable()) {
+                writeChunk();
+            }
+        }
+    }
+
+    /**
+     * Отправляет остаток данных и завершает ответ; соединение закрывается после отправки
+     */
+    void finish() throws IOException {
+        if (buffer != null && buffer.isReadable()) {
+            writeChunk();
+        }
+        commit();
+        finished = true;
+        ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * Прерывает незавершенный ответ: клиент получит оборванный поток без завершающей части.
+     * Если заголовок еще не отправлен, соединение остается открытым для ответа с ошибкой.
+     */
+    @Override
+    public void close() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+        if (committed && !finished) {
+            finished = true;
+            ctx.close();
+        }
+    }
+
+    private ByteBuf ensureBuffer() {
+        if (buffer == null) {
+            buffer = ctx.alloc().buffer(CHUNK_SIZE, CHUNK_SIZE);
+        }
+        return buffer;
+    }
+
+    private void writeChunk() throws IOException {
+        if (!ctx.channel().isActive()) {
+            throw new IOException("Соединение закрыто клиентом");
+        }
+        commit();
+        ByteBuf chunk = buffer;
+        buffer = null;
+        lastWrite = ctx.writeAndFlush(new DefaultHttpContent(chunk));
+        if (!ctx.channel().isWritable()) {
+            // Части пишутся по порядку: когда отправлена последняя, буфер канала пуст
+            try {
+                lastWrite.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Передача прервана");
+            }
+            if (!lastWrite.isSuccess()) {
+                throw new IOException("Ошибка передачи ответа", lastWrite.cause());
+            }
+        }
+    }
+
+    private void commit() {
+        if (!committed) {
+            committed = true;
+            FileDownload.disableReadTimeout(ctx);
+            ctx.write(response);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package server.handler;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import server.db.dao.TableVersionDao;
+import server.db.dao.TableVersionDaoImpl;
+
+import java.util.Map;
+
+/**
+ * ETag для ответов со справочными данными.
+ * Тег строится из версий таблиц, которые увеличивают триггеры БД при любом изменении, поэтому
+ * проверка If-None-Match стоит одного запроса по таблице из нескольких строк вместо выборки
+ * и сериализации всего списка. Теги слабые (W/): JSON, Smile и сжатые варианты одного ответа
+ * равнозначны по содержанию.
+ */
+public final class EntityTags {
+    private static final TableVersionDao TABLE_VERSIONS = new TableVersionDaoImpl();
+
+    private EntityTags() {
+    }
+
+    /**
+     * Тег для текущих версий таблиц. Версии нужно читать до выборки данных: если данные изменятся
+     * между чтением версии и выборкой, клиент получит устаревший тег и просто перезапросит их
+     * @param tables таблицы, из которых строится ответ
+     * @return слабый ETag или null, если версии недоступны (например, не выполнена миграция)
+     */
+    public static String forTables(String... tables) {
+        Map<String, Long> versions = TABLE_VERSIONS.findAll();
+        StringBuilder tag = new StringBuilder("W/\"");
+        for (int i = 0; i < tables.length; i++) {
+            Long version = versions.get(tables[i]);
+            if (version == null) {
+                return null;
+            }
+            if (i > 0) {
+                tag.append('.');
+            }
+            tag.append(Long.toString(version, 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    /**
+     * Проверяет, есть ли тег в заголовке If-None-Match запроса (слабое сравнение)
+     * @param request запрос
+     * @param etag тег текущей версии ответа
+     * @return true, если у клиента уже есть эта версия
+     */
+    public static boolean matches(HttpRequest request, String etag) {
+        String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
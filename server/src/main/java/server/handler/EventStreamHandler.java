@@ -0,0 +1,148 @@
+package server.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import common.dto.ChangeEvent.Topic;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.ServerLifecycle;
+import server.event.EventBus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработчик WebSocket-канала событий /api/events.
+ * Темы передаются в строке запроса (?topics=CARDS,SESSIONS) или сообщением
+ * {"action":"subscribe","topics":["CARDS"]}; отписка - action "unsubscribe".
+ */
+public class EventStreamHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamHandler.class);
+    public static final String PATH = "/api/events";
+    private static final int PING_INTERVAL_SECONDS = 30;
+    private static final int IDLE_TIMEOUT_SECONDS = 90;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String readTimeoutHandlerName;
+    private boolean upgraded;
+
+    /**
+     * @param readTimeoutHandlerName имя ReadTimeoutHandler в конвейере: после перехода
+     *                               на WebSocket он заменяется проверкой активности с ping
+     */
+    public EventStreamHandler(String readTimeoutHandlerName) {
+        this.readTimeoutHandlerName = readTimeoutHandlerName;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            WebSocketServerProtocolHandler.HandshakeComplete handshake = (WebSocketServerProtocolHandler.HandshakeComplete) evt;
+            upgraded = true;
+
+            if (ctx.pipeline().get(readTimeoutHandlerName) != null) {
+                ctx.pipeline().remove(readTimeoutHandlerName);
+            }
+            ctx.pipeline().addBefore(ctx.name(), "eventIdle",
+                    new IdleStateHandler(IDLE_TIMEOUT_SECONDS, PING_INTERVAL_SECONDS, 0, TimeUnit.SECONDS));
+
+            List<String> topics = new QueryStringDecoder(handshake.requestUri()).parameters().get("topics");
+            List<Topic> parsed = new ArrayList<>();
+            if (topics != null) {
+                for (String value : topics) {
+                    parsed.addAll(parseTopics(value.split(",")));
+                }
+            }
+            EventBus.getInstance().subscribe(ctx.channel(), parsed);
+            // Канал событий живет долго и закрывается при остановке отдельно, его ответов не ждем
+            ServerLifecycle.getInstance().connectionReleased(ctx.channel());
+            logger.info("Подключен канал событий {} ({}), темы: {}", ctx.channel().id(),
+                    ctx.channel().remoteAddress(), parsed);
+            return;
+        }
+
+        if (evt instanceof IdleStateEvent && upgraded) {
+            if (((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+                logger.debug("Канал событий {} не отвечает, соединение закрывается", ctx.channel().id());
+                ctx.close();
+            } else {
+                ctx.writeAndFlush(new PingWebSocketFrame());
+            }
+            return;
+        }
+
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
+        if (!(frame instanceof TextWebSocketFrame)) {
+            return;
+        }
+
+        try {
+            JsonNode message = objectMapper.readTree(((TextWebSocketFrame) frame).text());
+            String action = message.path("action").asText("");
+            List<String> values = new ArrayList<>();
+            message.path("topics").forEach(node -> values.add(node.asText()));
+            List<Topic> topics = parseTopics(values.toArray(new String[0]));
+
+            if ("subscribe".equalsIgnoreCase(action)) {
+                EventBus.getInstance().subscribe(ctx.channel(), topics);
+            } else if ("unsubscribe".equalsIgnoreCase(action)) {
+                EventBus.getInstance().unsubscribe(ctx.channel(), topics);
+            } else {
+                logger.debug("Неизвестное действие в канале событий: {}", action);
+            }
+        } catch (Exception e) {
+            logger.warn("Некорректное сообщение в канале событий {}: {}", ctx.channel().id(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (upgraded) {
+            EventBus.getInstance().remove(ctx.channel());
+            logger.debug("Канал событий {} закрыт", ctx.channel().id());
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        if (!upgraded) {
+            // Обычный HTTP-запрос: ошибку обработает HttpServerHandler
+            super.exceptionCaught(ctx, cause);
+            return;
+        }
+        logger.warn("Ошибка в канале событий {}: {}", ctx.channel().id(), cause.getMessage());
+        ctx.close();
+    }
+
+    private static List<Topic> parseTopics(String[] values) {
+        List<Topic> topics = new ArrayList<>();
+        for (String value : values) {
+            String name = value.trim().toUpperCase();
+            if (name.isEmpty()) {
+                continue;
+            }
+            try {
+                topics.add(Topic.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                logger.debug("Неизвестная тема событий: {}", value);
+            }
+        }
+        return topics;
+    }
+}
@@ -0,0 +1,213 @@
+package server.handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedFile;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.util.ServerConfig;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Отдача файлов (архивы резервных копий, готовые отчеты) без чтения в память.
+ * Тело передается через DefaultFileRegion: на Linux это sendfile, и данные идут из кэша страниц
+ * в сокет, не копируясь в память JVM. Если в конвейере есть SslHandler или zero-copy выключен
+ * (http.download.zero.copy), файл читается частями через ChunkedFile.
+ * Поддерживаются докачка (один диапазон в Range, с проверкой If-Range) и If-None-Match.
+ * Ответ не сжимается: архивы уже сжаты, а диапазоны считаются в байтах файла.
+ */
+public final class FileDownload {
+    private static final Logger logger = LoggerFactory.getLogger(FileDownload.class);
+    private static final boolean ZERO_COPY = ServerConfig.getBoolean("http.download.zero.copy", true);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private FileDownload() {
+    }
+
+    /**
+     * Отправляет файл целиком или запрошенный диапазон; соединение закрывается после отправки
+     * @param ctx контекст канала
+     * @param request запрос (заголовки Range, If-Range, If-None-Match)
+     * @param file файл
+     * @param contentType тип содержимого
+     * @return false, если файл нельзя открыть - тогда ответ не отправлен
+     */
+    public static boolean send(ChannelHandlerContext ctx, HttpRequest request, File file, String contentType) {
+        RandomAccessFile raf;
+        try {
+            raf = new RandomAccessFile(file, "r");
+        } catch (FileNotFoundException e) {
+            logger.warn("Файл для отдачи не найден: {}", file.getAbsolutePath());
+            return false;
+        }
+
+        long size;
+        try {
+            size = raf.length();
+        } catch (IOException e) {
+            logger.error("Не удалось определить размер файла {}", file.getAbsolutePath(), e);
+            closeQuietly(raf);
+            return false;
+        }
+        // Тег меняется при перезаписи файла, поэтому докачка не склеит части разных версий
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(file.lastModified()) + "\"";
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                Instant.ofEpochMilli(file.lastModified()).atOffset(ZoneOffset.UTC));
+
+        if (EntityTags.matches(request, etag)) {
+            closeQuietly(raf);
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    HttpResponseStatus.NOT_MODIFIED, Unpooled.EMPTY_BUFFER);
+            response.headers().set(HttpHeaderNames.ETAG, etag);
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            return true;
+        }
+
+        long offset = 0;
+        long length = size;
+        HttpResponseStatus status = HttpResponseStatus.OK;
+        String range = request.headers().get(HttpHeaderNames.RANGE);
+        if (range != null && size > 0 && rangeApplies(request, etag, lastModified)) {
+            Matcher matcher = RANGE.matcher(range.trim());
+            // Несколько диапазонов (multipart/byteranges) не поддерживаются - отдается весь файл
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                long[] bounds = parseRange(matcher, size);
+                if (bounds == null) {
+                    closeQuietly(raf);
+                    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                            HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, Unpooled.EMPTY_BUFFER);
+                    response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + size);
+                    response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+                    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+                    return true;
+                }
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                status = HttpResponseStatus.PARTIAL_CONTENT;
+            }
+        }
+
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, length);
+        headers.set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        headers.set(HttpHeaderNames.ETAG, etag);
+        headers.set(HttpHeaderNames.LAST_MODIFIED, lastModified);
+        headers.set(HttpHeaderNames.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"");
+        // С заданным Content-Encoding HttpContentCompressor пропускает ответ без изменений
+        headers.set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+        if (status == HttpResponseStatus.PARTIAL_CONTENT) {
+            headers.set(HttpHeaderNames.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+        }
+
+        disableReadTimeout(ctx);
+        ctx.write(response);
+        ChannelFuture done;
+        if (length == 0) {
+            closeQuietly(raf);
+            done = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else if (ZERO_COPY && ctx.pipeline().get(SslHandler.class) == null) {
+            // Регион закрывает файл, когда отправлен или отброшен
+            ctx.write(new DefaultFileRegion(raf.getChannel(), offset, length));
+            done = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            try {
+                done = ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(raf, offset, length, CHUNK_SIZE)));
+            } catch (IOException e) {
+                logger.error("Не удалось прочитать файл {}", file.getAbsolutePath(), e);
+                closeQuietly(raf);
+                ctx.close();
+                return true;
+            }
+        }
+        done.addListener(future -> {
+            if (!future.isSuccess()) {
+                logger.debug("Передача файла {} прервана: {}", file.getName(), future.cause().getMessage());
+            }
+        });
+        done.addListener(ChannelFutureListener.CLOSE);
+
+        logger.debug("Отдача файла {}: {} {} из {} байт с {}", file.getName(), status.code(), length, size, offset);
+        return true;
+    }
+
+    /**
+     * Снимает таймаут чтения: пока клиент принимает длинный ответ, он ничего не отправляет,
+     * и ReadTimeoutHandler закрыл бы соединение посреди передачи. После ответа соединение закрывается.
+     * @param ctx контекст канала
+     */
+    static void disableReadTimeout(ChannelHandlerContext ctx) {
+        ReadTimeoutHandler readTimeout = ctx.pipeline().get(ReadTimeoutHandler.class);
+        if (readTimeout != null) {
+            ctx.pipeline().remove(readTimeout);
+        }
+    }
+
+    /**
+     * Диапазон учитывается, если If-Range отсутствует или совпадает с текущей версией файла
+     */
+    private static boolean rangeApplies(HttpRequest request, String etag, String lastModified) {
+        String ifRange = request.headers().get(HttpHeaderNames.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        return value.equals(etag) || value.equals(lastModified);
+    }
+
+    /**
+     * @return первый и последний байт диапазона или null, если диапазон за пределами файла
+     */
+    private static long[] parseRange(Matcher matcher, long size) {
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        try {
+            if (first.isEmpty()) {
+                // bytes=-N - последние N байт
+                long suffix = Long.parseLong(last);
+                return suffix == 0 ? null : new long[] {Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            return start >= size || start > end ? null : new long[] {start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            logger.debug("Ошибка при закрытии файла", e);
+        }
+    }
+}
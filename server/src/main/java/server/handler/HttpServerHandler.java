@@ -8,37 +8,75 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Обработчик HTTP запросов для сервера
  */
 public class HttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger logger = LoggerFactory.getLogger(HttpServerHandler.class);
+    private static final Map<Class<? extends RequestHandler>, Supplier<? extends RequestHandler>> FACTORIES =
+            new LinkedHashMap<>();
     private final List<RequestHandler> handlers = new ArrayList<>();
     
-    public HttpServerHandler() {
-        // Регистрируем обработчики запросов
-        handlers.add(new AuthHandler());
-        handlers.add(new CardHandler());
-        handlers.add(new TierHandler());
-        handlers.add(new SessionHandler());
-        handlers.add(new TransactionHandler());
+    static {
+        // Регистрируем обработчики запросов в порядке проверки
+        register(MetricsHandler.class, MetricsHandler::new);
+        register(AuthHandler.class, AuthHandler::new);
+        register(CardHandler.class, CardHandler::new);
+        register(TierHandler.class, TierHandler::new);
+        register(SessionHandler.class, SessionHandler::new);
+        register(TransactionHandler.class, TransactionHandler::new);
         // Добавляем необходимые обработчики
-        handlers.add(new SettingsHandler());
-        handlers.add(new UserHandler());
-        handlers.add(new PromotionHandler());
-        handlers.add(new AuditHandler());
+        register(SettingsHandler.class, SettingsHandler::new);
+        register(UserHandler.class, UserHandler::new);
+        register(PromotionHandler.class, PromotionHandler::new);
+        register(AuditHandler.class, AuditHandler::new);
         // Восстанавливаем удаленные обработчики
-        handlers.add(new PromoCodeHandler());
+        register(PromoCodeHandler.class, PromoCodeHandler::new);
         // Добавляем StatisticsHandler для обработки запросов статистики
-        handlers.add(new StatisticsHandler());
+        register(StatisticsHandler.class, StatisticsHandler::new);
         // Добавляем ReportHandler для обработки отчетов
-        handlers.add(new ReportHandler());
+        register(ReportHandler.class, ReportHandler::new);
         // Добавляем ScheduleHandler для работы с расписанием
-        handlers.add(new ScheduleHandler());
-        // Удаляем BackupHandler по требованию
-        // handlers.add(new BackupHandler());
+        register(ScheduleHandler.class, ScheduleHandler::new);
+        // BackupHandler: каталог копий, восстановление и скачивание архивов
+        register(BackupHandler.class, BackupHandler::new);
+        // SyncHandler: изменения справочников для локального кэша клиента
+        register(SyncHandler.class, SyncHandler::new);
+    }
+    
+    public HttpServerHandler() {
+        this(createHandlers(Map.of()));
+    }
+    
+    /**
+     * Создает обработчик с заданной цепочкой обработчиков запросов
+     * @param handlers обработчики в порядке проверки
+     */
+    public HttpServerHandler(List<RequestHandler> handlers) {
+        this.handlers.addAll(handlers);
+    }
+    
+    /**
+     * Создает цепочку обработчиков запросов сервера. Ее же используют замеры производительности,
+     * чтобы проверять тот же порядок обработчиков, что и на сервере
+     * @param substitutes замены отдельных обработчиков (например, заглушки для замеров без БД);
+     *                    замена занимает место исходного обработчика
+     * @return обработчики в порядке проверки
+     */
+    public static List<RequestHandler> createHandlers(
+            Map<Class<? extends RequestHandler>, Supplier<? extends RequestHandler>> substitutes) {
+        List<RequestHandler> result = new ArrayList<>(FACTORIES.size());
+        FACTORIES.forEach((type, factory) -> result.add(substitutes.getOrDefault(type, factory).get()));
+        return result;
+    }
+    
+    private static <H extends RequestHandler> void register(Class<H> type, Supplier<H> factory) {
+        FACTORIES.put(type, factory);
     }
     
     @Override
@@ -0,0 +1,53 @@
+package server.handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import server.metrics.MetricsRegistry;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Обработчик GET /api/metrics - метрики сервера в текстовом формате Prometheus
+ */
+public class MetricsHandler extends AbstractRequestHandler {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    protected String getUrlPattern() {
+        return "/api/metrics";
+    }
+
+    @Override
+    protected String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public boolean handle(ChannelHandlerContext ctx, FullHttpRequest request) {
+        String path = request.uri();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (!canHandle(path, request.method().name())) {
+            return false;
+        }
+
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1,
+                HttpResponseStatus.OK,
+                Unpooled.copiedBuffer(MetricsRegistry.getInstance().scrape(), StandardCharsets.UTF_8));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        return true;
+    }
+}
@@ -0,0 +1,205 @@
+package server.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.cluster.ClusterBus;
+import server.util.ServerConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Готовое тело ответа для редко меняющихся справочников (уровни, настройки).
+ * JSON сериализуется и сжимается gzip с максимальным уровнем один раз, а повторные запросы получают
+ * готовые байты без выборки данных и без сжатия на лету. Тело строится заново, когда меняется ETag
+ * (версия таблиц) или обработчик сбрасывает его после изменения данных; если версии недоступны,
+ * изменения в обход API подхватываются по истечении http.precompressed.ttl.seconds.
+ * Сброс после изменения данных рассылается остальным экземплярам сервера через {@link ClusterBus}.
+ */
+public final class PrecompressedBody {
+    private static final Logger logger = LoggerFactory.getLogger(PrecompressedBody.class);
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(
+            Math.max(0, ServerConfig.getInt("http.precompressed.ttl.seconds", 60)));
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+    /** Тема рассылки сбросов между экземплярами сервера; содержимое сообщения - имя ресурса */
+    public static final String CLUSTER_TOPIC = "invalidate";
+    private static final Map<String, PrecompressedBody> BODIES = new ConcurrentHashMap<>();
+
+    private final String name;
+    // Номер версии растет при каждом сбросе: тело, построенное до сброса, не сохраняется
+    private final AtomicLong version = new AtomicLong();
+    private volatile Entry entry;
+
+    /**
+     * @param name имя ресурса для журнала
+     */
+    public PrecompressedBody(String name) {
+        this.name = name;
+        BODIES.put(name, this);
+    }
+
+    /**
+     * Формирует ответ из закэшированного тела, при необходимости построив его заново
+     * @param ctx контекст канала
+     * @param request запрос (нужен заголовок Accept-Encoding)
+     * @param mapper ObjectMapper обработчика
+     * @param etag ETag текущей версии данных или null
+     * @param body источник тела ответа, вызывается только при построении
+     * @return готовый ответ или null, если клиент запросил двоичный формат
+     *         или тело не удалось сериализовать - тогда ответ формируется обычным путем
+     */
+    public FullHttpResponse response(ChannelHandlerContext ctx, FullHttpRequest request, ObjectMapper mapper,
+                                     String etag, Supplier<?> body) {
+        if (WireFormatHandler.formatOf(ctx).isBinary()) {
+            return null;
+        }
+        Entry current = entry;
+        if (current == null || !current.isFresh(etag)) {
+            long expectedVersion = version.get();
+            try {
+                current = build(mapper, body.get(), etag);
+            } catch (IOException e) {
+                logger.error("Не удалось подготовить тело ответа {}", name, e);
+                return null;
+            }
+            if (version.get() == expectedVersion) {
+                entry = current;
+            }
+        }
+
+        boolean gzip = acceptsGzip(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+        byte[] content = gzip ? current.gzip : current.json;
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.wrappedBuffer(content));
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.CONTENT_TYPE, JSON_CONTENT_TYPE);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, content.length);
+        headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        if (etag != null) {
+            headers.set(HttpHeaderNames.ETAG, etag);
+        }
+        if (gzip) {
+            headers.set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        }
+        return response;
+    }
+
+    /**
+     * Сбрасывает тело здесь и на остальных экземплярах: следующий запрос построит его заново
+     */
+    public void invalidate() {
+        invalidateLocal();
+        ClusterBus.getInstance().publish(CLUSTER_TOPIC, name);
+    }
+
+    /**
+     * Сбрасывает тело по сообщению другого экземпляра сервера
+     * @param name имя ресурса
+     */
+    public static void onClusterMessage(String name) {
+        PrecompressedBody body = BODIES.get(name);
+        if (body != null) {
+            body.invalidateLocal();
+        }
+    }
+
+    /**
+     * Сбрасывает все тела, например после разрыва связи с другими экземплярами
+     */
+    public static void invalidateAll() {
+        for (PrecompressedBody body : BODIES.values()) {
+            body.invalidateLocal();
+        }
+    }
+
+    private void invalidateLocal() {
+        version.incrementAndGet();
+        entry = null;
+    }
+
+    private Entry build(ObjectMapper mapper, Object body, String etag) throws IOException {
+        byte[] json = mapper.writeValueAsBytes(body);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(json);
+        }
+        byte[] gzip = compressed.toByteArray();
+        logger.debug("Подготовлено тело ответа {}: {} байт JSON, {} байт gzip", name, json.length, gzip.length);
+        return new Entry(json, gzip, etag, System.nanoTime());
+    }
+
+    /**
+     * Проверяет, принимает ли клиент gzip (с ненулевым весом или через *)
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String token = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!token.equals("gzip") && !token.equals("x-gzip") && !token.equals("*")) {
+                continue;
+            }
+            boolean allowed = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (allowed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+        final byte[] json;
+        final byte[] gzip;
+        final String etag;
+        final long builtAt;
+
+        Entry(byte[] json, byte[] gzip, String etag, long builtAt) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.builtAt = builtAt;
+        }
+
+        boolean isFresh(String currentEtag) {
+            if (currentEtag != null) {
+                return currentEtag.equals(etag);
+            }
+            return System.nanoTime() - builtAt <= TTL_NANOS;
+        }
+    }
+}
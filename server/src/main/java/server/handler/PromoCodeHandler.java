@@ -11,6 +11,7 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.db.dao.TableVersionDao;
 import server.service.PromoCodeService;
 import server.service.PromoCodeServiceImpl;
 
@@ -70,7 +71,7 @@ public class PromoCodeHandler extends AbstractRequestHandler {
         try {
             // GET all promocodes
             if (uri.equals("/api/promo-codes") && method.equals(HttpMethod.GET.name())) {
-                handleGetAllPromoCodes(ctx);
+                handleGetAllPromoCodes(ctx, request);
                 return true;
             }
             
@@ -129,14 +130,18 @@ public class PromoCodeHandler extends AbstractRequestHandler {
         }
     }
     
-    private void handleGetAllPromoCodes(ChannelHandlerContext ctx) throws JsonProcessingException {
+    private void handleGetAllPromoCodes(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
         logger.debug("Getting all promocodes");
         
+        String etag = EntityTags.forTables(TableVersionDao.PROMO_CODES);
+        if (sendNotModifiedIfMatches(ctx, request, etag)) {
+            return;
+        }
+        
         List<PromoCode> promocodes = promoCodeService.getAllPromoCodes();
         ApiResponse<List<PromoCode>> response = ApiResponse.success(promocodes);
         
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response, etag);
     }
     
     private void handleGetActivePromoCodes(ChannelHandlerContext ctx) throws JsonProcessingException {
@@ -145,8 +150,7 @@ public class PromoCodeHandler extends AbstractRequestHandler {
         List<PromoCode> promocodes = promoCodeService.getActivePromoCodes();
         ApiResponse<List<PromoCode>> response = ApiResponse.success(promocodes);
         
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleGetPromoCodeById(ChannelHandlerContext ctx, Long id) throws JsonProcessingException {
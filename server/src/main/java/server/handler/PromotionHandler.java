@@ -16,6 +16,7 @@ import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import server.db.dao.TableVersionDao;
 import server.service.PromotionService;
 import server.service.PromotionServiceImpl;
 
@@ -66,7 +67,7 @@ public class PromotionHandler extends AbstractRequestHandler {
 
         // GET /api/promotions - получить все акции или активные на дату
         if (path.equals("/api/promotions") && method.equals(HttpMethod.GET.name())) {
-            return handleGetPromotions(ctx, queryString);
+            return handleGetPromotions(ctx, request, queryString);
         }
 
         // GET /api/promotions/active - получить активные акции
@@ -128,7 +129,7 @@ public class PromotionHandler extends AbstractRequestHandler {
     /**
      * Обрабатывает запрос на получение акций
      */
-    private boolean handleGetPromotions(ChannelHandlerContext ctx, String queryString) {
+    private boolean handleGetPromotions(ChannelHandlerContext ctx, FullHttpRequest request, String queryString) {
         try {
             // Проверяем параметры запроса
             LocalDate date = null;
@@ -145,10 +146,15 @@ public class PromotionHandler extends AbstractRequestHandler {
             }
 
             List<Promotion> promotions;
+            String etag = null;
             if (date != null) {
                 promotions = promotionService.getPromotionsActiveOnDate(date);
                 logger.debug("Запрос акций, активных на дату: {}", date);
             } else {
+                etag = EntityTags.forTables(TableVersionDao.PROMOTIONS);
+                if (sendNotModifiedIfMatches(ctx, request, etag)) {
+                    return true;
+                }
                 promotions = promotionService.getAllPromotions();
                 logger.debug("Запрос всех акций");
             }
@@ -157,7 +163,7 @@ public class PromotionHandler extends AbstractRequestHandler {
             String responseJson = objectMapper.writeValueAsString(response);
 
             // Устанавливаем явно кодировку UTF-8 для ответа
-            sendJsonResponse(ctx, responseJson, HttpResponseStatus.OK);
+            sendJsonResponse(ctx, responseJson, HttpResponseStatus.OK, etag);
             return true;
         } catch (Exception e) {
             logger.error("Ошибка при получении акций", e);
@@ -391,6 +397,13 @@ public class PromotionHandler extends AbstractRequestHandler {
     }
 
     private void sendJsonResponse(ChannelHandlerContext ctx, String json, HttpResponseStatus status) {
+        sendJsonResponse(ctx, json, status, null);
+    }
+
+    /**
+     * Отправляет JSON ответ с заголовком ETag
+     */
+    private void sendJsonResponse(ChannelHandlerContext ctx, String json, HttpResponseStatus status, String etag) {
         try {
             FullHttpResponse response = new DefaultFullHttpResponse(
                     HttpVersion.HTTP_1_1, status, 
@@ -401,6 +414,9 @@ public class PromotionHandler extends AbstractRequestHandler {
             response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
             response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "GET, POST, PUT, DELETE, OPTIONS");
             response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS, "Content-Type, Authorization");
+            if (etag != null) {
+                response.headers().set(HttpHeaderNames.ETAG, etag);
+            }
             
             ctx.writeAndFlush(response);
         } catch (Exception e) {
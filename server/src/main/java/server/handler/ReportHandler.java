@@ -1,17 +1,35 @@
 package server.handler;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import common.dto.ApiResponse;
+import common.model.ReportJob;
+import common.model.User;
+import common.util.Constants;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.job.ReportJobWorker;
+import server.service.ReportJobService;
+import server.service.ReportJobServiceImpl;
 import server.service.ReportService;
 import server.service.ReportServiceImpl;
+import server.service.UserService;
+import server.service.UserServiceImpl;
+import server.util.ServerConfig;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -19,6 +37,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -27,11 +50,27 @@ import java.util.regex.Pattern;
  */
 public class ReportHandler extends AbstractRequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(ReportHandler.class);
+    private static final Pattern CSV_PATTERN = Pattern.compile("/api/reports/([a-z]+)\\.csv(\\?.*)?");
+    private static final Pattern PDF_PATTERN = Pattern.compile("/api/reports/([a-z]+)\\.pdf(\\?.*)?");
+    private static final Pattern RECEIPT_PATTERN = Pattern.compile("/api/reports/receipts/(\\d+)\\.pdf");
+    private static final Pattern FILE_PATTERN = Pattern.compile("/api/reports/files/([A-Za-z0-9._-]+)");
+    private static final Pattern JOBS_PATTERN = Pattern.compile("/api/reports/jobs(\\?.*)?");
+    private static final Pattern JOB_PATTERN = Pattern.compile("/api/reports/jobs/(\\d+)");
+    private static final Pattern JOB_RESULT_PATTERN = Pattern.compile("/api/reports/jobs/(\\d+)/result");
+    // Директория, куда сохраняются готовые файлы отчетов
+    private static final Path REPORT_FILES_DIR = Paths.get(
+            ServerConfig.getString("report.files.path", "./reports/")).toAbsolutePath().normalize();
+    // Выгрузки CSV и PDF идут в своих потоках: чтение курсора и ожидание медленного клиента не занимают event loop
+    private static final ExecutorService CSV_EXECUTOR = createCsvExecutor();
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    private final UserService userService;
     
     public ReportHandler() {
         super();
         this.reportService = new ReportServiceImpl();
+        this.reportJobService = new ReportJobServiceImpl();
+        this.userService = new UserServiceImpl();
     }
     
     @Override
@@ -41,7 +80,7 @@ public class ReportHandler extends AbstractRequestHandler {
     
     @Override
     protected String getMethod() {
-        return "GET";
+        return "GET|POST|DELETE";
     }
     
     @Override
@@ -62,6 +101,92 @@ public class ReportHandler extends AbstractRequestHandler {
         }
         
         try {
+            // GET /api/reports/{type}.csv - выгрузить отчет в CSV потоком из курсора БД
+            Matcher csvMatcher = CSV_PATTERN.matcher(uri);
+            if (csvMatcher.matches()) {
+                Map<String, String> queryParams = parseQueryParams(uri);
+                LocalDate fromDate = parseDate(queryParams.get("from"), LocalDate.now().minusDays(30));
+                LocalDate toDate = parseDate(queryParams.get("to"), LocalDate.now());
+                
+                handleCsvReport(ctx, csvMatcher.group(1), fromDate, toDate);
+                return true;
+            }
+            
+            // GET /api/reports/{type}.pdf - выгрузить отчет или пачку чеков (receipts) в PDF потоком из курсора БД
+            Matcher pdfMatcher = PDF_PATTERN.matcher(uri);
+            if (pdfMatcher.matches() && method.equals(HttpMethod.GET.name())) {
+                Map<String, String> queryParams = parseQueryParams(uri);
+                LocalDate fromDate = parseDate(queryParams.get("from"), LocalDate.now().minusDays(30));
+                LocalDate toDate = parseDate(queryParams.get("to"), LocalDate.now());
+                
+                handlePdfReport(ctx, pdfMatcher.group(1), fromDate, toDate);
+                return true;
+            }
+            
+            // GET /api/reports/receipts/{sessionId}.pdf - чек за игровую сессию
+            Matcher receiptMatcher = RECEIPT_PATTERN.matcher(uri);
+            if (receiptMatcher.matches() && method.equals(HttpMethod.GET.name())) {
+                handleReceipt(ctx, Long.parseLong(receiptMatcher.group(1)));
+                return true;
+            }
+            
+            // GET /api/reports/files/{name} - скачать готовый файл отчета (с докачкой по Range)
+            Matcher fileMatcher = FILE_PATTERN.matcher(uri);
+            if (fileMatcher.matches()) {
+                // В директории лежат результаты заданий всех пользователей: файлы отдаются только администратору
+                if (requireAdmin(ctx, request, userService).isPresent()) {
+                    handleReportFile(ctx, request, fileMatcher.group(1));
+                }
+                return true;
+            }
+            
+            // Задания доступны их автору и администратору: ID заданий идут подряд и легко перебираются
+            // POST /api/reports/jobs - поставить задание на отчет в очередь
+            // GET /api/reports/jobs - свои последние задания; администратор: ?userId={id} - задания
+            // пользователя, ?all=true - задания всех пользователей
+            Matcher jobsMatcher = JOBS_PATTERN.matcher(uri);
+            if (jobsMatcher.matches()) {
+                if (method.equals(HttpMethod.POST.name())) {
+                    handleSubmitJob(ctx, request);
+                    return true;
+                }
+                if (method.equals(HttpMethod.GET.name())) {
+                    Optional<User> user = requireUser(ctx, request, userService);
+                    if (user.isPresent()) {
+                        handleGetJobs(ctx, user.get(), parseQueryParams(uri));
+                    }
+                    return true;
+                }
+                return false;
+            }
+            
+            // GET /api/reports/jobs/{id} - состояние задания; DELETE - отменить задание в очереди
+            Matcher jobMatcher = JOB_PATTERN.matcher(uri);
+            if (jobMatcher.matches()) {
+                Long id = Long.parseLong(jobMatcher.group(1));
+                if (method.equals(HttpMethod.GET.name())) {
+                    findOwnJob(ctx, request, id).ifPresent(job -> sendSuccessResponse(ctx, ApiResponse.success(job)));
+                    return true;
+                }
+                if (method.equals(HttpMethod.DELETE.name())) {
+                    findOwnJob(ctx, request, id).ifPresent(job -> handleCancelJob(ctx, id));
+                    return true;
+                }
+                return false;
+            }
+            
+            // GET /api/reports/jobs/{id}/result - скачать результат выполненного задания
+            Matcher resultMatcher = JOB_RESULT_PATTERN.matcher(uri);
+            if (resultMatcher.matches() && method.equals(HttpMethod.GET.name())) {
+                Long id = Long.parseLong(resultMatcher.group(1));
+                findOwnJob(ctx, request, id).ifPresent(job -> handleJobResult(ctx, request, id));
+                return true;
+            }
+            
+            if (!method.equals(HttpMethod.GET.name())) {
+                return false;
+            }
+            
             // GET /api/reports/points or /api/api/reports/points - получить отчет о начисленных баллах
             if ((uri.startsWith("/api/reports/points") || uri.startsWith("/api/api/reports/points")) && method.equals(HttpMethod.GET.name())) {
                 // Parse date parameters
@@ -237,6 +362,221 @@ public class ReportHandler extends AbstractRequestHandler {
         sendSuccessResponse(ctx, jsonResponse);
     }
     
+    private void handleCsvReport(ChannelHandlerContext ctx, String type, LocalDate fromDate, LocalDate toDate) {
+        logger.debug("Streaming {} report as CSV from {} to {}", type, fromDate, toDate);
+        
+        if (!ReportService.CSV_REPORT_TYPES.contains(type)) {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, "Неизвестный отчет: " + type);
+            return;
+        }
+        
+        String fileName = type + "_" + fromDate + "_" + toDate + ".csv";
+        streamReport(ctx, "text/csv; charset=UTF-8", fileName, body -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+            reportService.writeCsv(type, fromDate, toDate, out);
+            return true;
+        });
+    }
+    
+    private void handlePdfReport(ChannelHandlerContext ctx, String type, LocalDate fromDate, LocalDate toDate) {
+        logger.debug("Streaming {} report as PDF from {} to {}", type, fromDate, toDate);
+        
+        if (!ReportService.PDF_REPORT_TYPES.contains(type)) {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, "Неизвестный отчет: " + type);
+            return;
+        }
+        
+        String fileName = type + "_" + fromDate + "_" + toDate + ".pdf";
+        streamReport(ctx, "application/pdf", fileName, body -> {
+            reportService.writePdf(type, fromDate, toDate, body);
+            return true;
+        });
+    }
+    
+    private void handleReceipt(ChannelHandlerContext ctx, long sessionId) {
+        logger.debug("Streaming receipt for session {}", sessionId);
+        
+        String fileName = Constants.PDF_RECEIPT_PREFIX + sessionId + ".pdf";
+        streamReport(ctx, "application/pdf", fileName, body -> reportService.writeReceipt(sessionId, body));
+    }
+    
+    /**
+     * Формирует ответ в потоке выгрузок: чтение курсора, формирование документа и ожидание
+     * медленного клиента не занимают event loop
+     */
+    private void streamReport(ChannelHandlerContext ctx, String contentType, String fileName, ReportBody writer) {
+        CSV_EXECUTOR.execute(() -> {
+            ChunkedResponseStream body = new ChunkedResponseStream(ctx, contentType, fileName);
+            try (body) {
+                if (writer.write(body)) {
+                    body.finish();
+                } else {
+                    sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, "Данные для " + fileName + " не найдены");
+                }
+            } catch (Exception e) {
+                if (body.isCommitted()) {
+                    // Заголовок уже отправлен: клиент увидит оборванный поток
+                    logger.warn("Выгрузка {} прервана: {}", fileName, e.getMessage());
+                } else {
+                    logger.error("Ошибка при выгрузке {}", fileName, e);
+                    sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, "Ошибка выгрузки отчета");
+                }
+            }
+        });
+    }
+    
+    private LocalDate parseDate(String value, LocalDate defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (Exception e) {
+            logger.error("Error parsing date parameter: {}", value, e);
+            return defaultValue;
+        }
+    }
+    
+    private static ExecutorService createCsvExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, ServerConfig.getInt("report.csv.threads", 2)), r -> {
+            Thread thread = new Thread(r, "report-csv-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private void handleReportFile(ChannelHandlerContext ctx, FullHttpRequest request, String name) {
+        logger.debug("Downloading report file {}", name);
+        
+        Path file = REPORT_FILES_DIR.resolve(name).normalize();
+        // Имя вида ".." не должно выводить за пределы директории отчетов, а недописанный результат задания не отдается
+        if (!file.getParent().equals(REPORT_FILES_DIR) || name.endsWith(ReportJobWorker.PART_SUFFIX)
+                || !Files.isRegularFile(file)
+                || !FileDownload.send(ctx, request, file.toFile(), contentTypeOf(name))) {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, "Файл отчета не найден");
+        }
+    }
+    
+    private void handleSubmitJob(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
+        // Автор задания - владелец токена: на него действуют ограничения числа заданий пользователя
+        Optional<User> user = requireUser(ctx, request, userService);
+        if (user.isEmpty()) {
+            return;
+        }
+        Map<String, Object> body;
+        try {
+            String content = getRequestContent(request);
+            body = content.isBlank() ? new HashMap<>()
+                    : objectMapper.readValue(content, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            sendErrorResponse(ctx, HttpResponseStatus.BAD_REQUEST, ApiResponse.error("Неверный формат запроса"));
+            return;
+        }
+        
+        String type = Objects.toString(body.get("type"), null);
+        String format = Objects.toString(body.get("format"), null);
+        LocalDate fromDate = parseDate(Objects.toString(body.get("from"), null), LocalDate.now().minusDays(30));
+        LocalDate toDate = parseDate(Objects.toString(body.get("to"), null), LocalDate.now());
+        Integer priority = body.get("priority") instanceof Number ? ((Number) body.get("priority")).intValue() : null;
+        Long userId = user.get().getId();
+        logger.debug("Submitting {} report job ({}) from {} to {}", type, format, fromDate, toDate);
+        
+        try {
+            Optional<ReportJob> job = reportJobService.submit(type, format, fromDate, toDate, priority, userId);
+            if (job.isPresent()) {
+                sendEncodedResponse(ctx, HttpResponseStatus.ACCEPTED, ApiResponse.success(job.get()));
+            } else {
+                sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        ApiResponse.error("Не удалось поставить задание в очередь"));
+            }
+        } catch (IllegalArgumentException e) {
+            sendErrorResponse(ctx, HttpResponseStatus.BAD_REQUEST, ApiResponse.error(e.getMessage()));
+        } catch (IllegalStateException e) {
+            sendErrorResponse(ctx, HttpResponseStatus.TOO_MANY_REQUESTS, ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private void handleGetJobs(ChannelHandlerContext ctx, User user, Map<String, String> queryParams) {
+        String userId = queryParams.get("userId");
+        boolean all = Boolean.parseBoolean(queryParams.get("all"));
+        Long id = user.getId();
+        if (userId != null) {
+            try {
+                id = Long.parseLong(userId);
+            } catch (NumberFormatException e) {
+                sendErrorResponse(ctx, HttpResponseStatus.BAD_REQUEST, ApiResponse.error("Неверный ID пользователя"));
+                return;
+            }
+        }
+        if ((all || !id.equals(user.getId())) && !isAdmin(user)) {
+            sendErrorResponse(ctx, HttpResponseStatus.FORBIDDEN, ApiResponse.error("Недостаточно прав"));
+            return;
+        }
+        sendSuccessResponse(ctx, ApiResponse.success(reportJobService.getRecentJobs(all ? null : id)));
+    }
+    
+    /**
+     * Находит задание, доступное отправителю запроса: свое или любое для администратора.
+     * Чужое задание не отличается от несуществующего, чтобы перебор ID не показывал, какие задания есть
+     * @return задание или пустой Optional, если ответ с ошибкой уже отправлен
+     */
+    private Optional<ReportJob> findOwnJob(ChannelHandlerContext ctx, FullHttpRequest request, Long id) {
+        Optional<User> user = requireUser(ctx, request, userService);
+        if (user.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<ReportJob> job = reportJobService.getJob(id)
+                .filter(found -> isAdmin(user.get()) || Objects.equals(found.getRequestedBy(), user.get().getId()));
+        if (job.isEmpty()) {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, ApiResponse.error("Задание не найдено"));
+        }
+        return job;
+    }
+    
+    private void handleCancelJob(ChannelHandlerContext ctx, Long id) {
+        if (reportJobService.cancel(id)) {
+            sendSuccessResponse(ctx, ApiResponse.success(reportJobService.getJob(id).orElse(null)));
+        } else if (reportJobService.getJob(id).isPresent()) {
+            sendErrorResponse(ctx, HttpResponseStatus.CONFLICT, ApiResponse.error("Задание уже выполняется или завершено"));
+        } else {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, ApiResponse.error("Задание не найдено"));
+        }
+    }
+    
+    private void handleJobResult(ChannelHandlerContext ctx, FullHttpRequest request, Long id) {
+        logger.debug("Downloading result of report job {}", id);
+        
+        // Результат, выполненный другим экземпляром, сначала копируется из БД: это не должно занимать event loop
+        CSV_EXECUTOR.execute(() -> {
+            try {
+                Optional<File> file = reportJobService.getResultFile(id);
+                if (file.isEmpty()
+                        || !FileDownload.send(ctx, request, file.get(), contentTypeOf(file.get().getName()))) {
+                    sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND,
+                            ApiResponse.error("Результат задания не найден"));
+                }
+            } catch (Exception e) {
+                logger.error("Ошибка при отдаче результата задания на отчет {}", id, e);
+                sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        ApiResponse.error("Ошибка при получении результата задания"));
+            }
+        });
+    }
+    
+    private static String contentTypeOf(String name) {
+        if (name.endsWith(".csv")) {
+            return "text/csv; charset=UTF-8";
+        }
+        if (name.endsWith(".json")) {
+            return "application/json; charset=UTF-8";
+        }
+        if (name.endsWith(".pdf")) {
+            return "application/pdf";
+        }
+        return "application/octet-stream";
+    }
+    
     private Map<String, String> parseQueryParams(String uri) {
         Map<String, String> queryParams = new HashMap<>();
         
@@ -258,6 +598,14 @@ public class ReportHandler extends AbstractRequestHandler {
     
     // Data classes for reports
     
+    @FunctionalInterface
+    private interface ReportBody {
+        /**
+         * @return false, если данных нет и нужно ответить 404; в этом случае ничего не записано
+         */
+        boolean write(ChunkedResponseStream body) throws Exception;
+    }
+    
     public static class PointsReportData {
         private List<PointsRecord> records;
         private Map<String, Integer> pointsByDay;
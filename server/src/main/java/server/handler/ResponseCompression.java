@@ -0,0 +1,62 @@
+package server.handler;
+
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import server.util.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сжатие ответов по заголовку Accept-Encoding.
+ * Кодировка выбирается HttpContentCompressor из включенных здесь: gzip и deflate всегда,
+ * brotli - только если в classpath есть brotli4j с нативной библиотекой для текущей платформы.
+ * Ответы меньше порога отправляются без сжатия: выигрыш в размере не окупает затраты процессора.
+ */
+public final class ResponseCompression {
+    private static final boolean ENABLED = ServerConfig.getBoolean("http.compression.enabled", true);
+    private static final int THRESHOLD = Math.max(0, ServerConfig.getInt("http.compression.threshold", 1024));
+    private static final int LEVEL = Math.min(9, Math.max(1, ServerConfig.getInt("http.compression.level", 6)));
+    private static final boolean BROTLI = ServerConfig.getBoolean("http.compression.brotli", true)
+            && Brotli.isAvailable();
+
+    // Размер окна и памяти zlib - значения по умолчанию HttpContentCompressor
+    private static final int WINDOW_BITS = 15;
+    private static final int MEM_LEVEL = 8;
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * @return true, если сжатие ответов включено в настройках
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Создает обработчик сжатия для нового канала
+     * @return обработчик сжатия
+     */
+    public static HttpContentCompressor newCompressor() {
+        List<CompressionOptions> options = new ArrayList<>(3);
+        if (BROTLI) {
+            options.add(StandardCompressionOptions.brotli());
+        }
+        options.add(StandardCompressionOptions.gzip(LEVEL, WINDOW_BITS, MEM_LEVEL));
+        options.add(StandardCompressionOptions.deflate(LEVEL, WINDOW_BITS, MEM_LEVEL));
+        return new HttpContentCompressor(THRESHOLD, options.toArray(new CompressionOptions[0]));
+    }
+
+    /**
+     * @return описание настроек для журнала запуска
+     */
+    public static String describe() {
+        if (!ENABLED) {
+            return "выключено";
+        }
+        return (BROTLI ? "br, gzip, deflate" : "gzip, deflate") + "; уровень " + LEVEL + ", от " + THRESHOLD + " байт";
+    }
+}
@@ -1,5 +1,7 @@
 package server.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.netty.buffer.Unpooled;
@@ -8,6 +10,8 @@ import io.netty.handler.codec.http.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import common.dto.ApiResponse;
+import common.dto.ChangeEvent;
+import server.event.EventBus;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -41,7 +45,7 @@ public class ScheduleHandler implements RequestHandler {
                 
                 // POST /api/schedule - создание записи в расписании
                 if (method == HttpMethod.POST && uri.equals("/api/schedule")) {
-                    handleCreateScheduleEntry(ctx);
+                    handleCreateScheduleEntry(ctx, request);
                     return true;
                 }
                 
@@ -83,12 +87,28 @@ public class ScheduleHandler implements RequestHandler {
     /**
      * Обрабатывает запрос на создание записи в расписании
      */
-    private void handleCreateScheduleEntry(ChannelHandlerContext ctx) throws Exception {
+    private void handleCreateScheduleEntry(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Запись в расписании успешно создана");
         response.put("status", "success");
         response.put("id", 1L);
         
+        // Сообщаем подписанным клиентам о новой брони; брони не хранятся на сервере и не имеют ID,
+        // поэтому события этого типа не схлопываются (см. ChangeEvent.Type.BOOKING_CREATED)
+        ChangeEvent event = new ChangeEvent(ChangeEvent.Type.BOOKING_CREATED, null);
+        String body = request.content().toString(StandardCharsets.UTF_8);
+        if (!body.isBlank()) {
+            try {
+                JsonNode entry = objectMapper.readTree(body);
+                event.with("computerName", entry.path("computerName").asText(null))
+                        .with("startTime", entry.path("startTime").asText(null));
+            } catch (JsonProcessingException e) {
+                // Запись создается и без подробностей брони, как до рассылки событий
+                logger.warn("Некорректное тело запроса к расписанию: {}", e.getOriginalMessage());
+            }
+        }
+        EventBus.getInstance().publish(event);
+        
         String jsonResponse = objectMapper.writeValueAsString(
                 ApiResponse.success(response));
         sendJsonResponse(ctx, jsonResponse);
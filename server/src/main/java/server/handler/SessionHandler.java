@@ -95,8 +95,7 @@ public class SessionHandler extends AbstractRequestHandler {
     private void handleGetAllSessions(ChannelHandlerContext ctx) throws JsonProcessingException {
         List<Session> sessions = sessionService.getAllSessions();
         ApiResponse<List<Session>> response = ApiResponse.success(sessions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleCreateSession(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
@@ -189,8 +188,7 @@ public class SessionHandler extends AbstractRequestHandler {
         List<Session> sessions = sessionService.getActiveSessionsByCardId(cardId);
         
         ApiResponse<List<Session>> response = ApiResponse.success(sessions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleGetSessionsByCardAndPeriod(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
@@ -208,8 +206,7 @@ public class SessionHandler extends AbstractRequestHandler {
         List<Session> sessions = sessionService.getSessionsByCardIdAndPeriod(cardId, from, to);
         
         ApiResponse<List<Session>> response = ApiResponse.success(sessions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private Map<String, String> parseQueryString(String queryString) {
@@ -18,6 +18,7 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.db.dao.TableVersionDao;
 import server.service.SettingsService;
 import server.service.SettingsServiceImpl;
 
@@ -37,6 +38,8 @@ public class SettingsHandler extends AbstractRequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(SettingsHandler.class);
     private static final String URL_PATTERN = "/api/settings.*";
     private static final Pattern KEY_PATTERN = Pattern.compile("/api/settings/([^/]+)");
+    // Все настройки читаются каждым терминалом при запуске, а меняются редко
+    private static final PrecompressedBody ALL_SETTINGS = new PrecompressedBody("/api/settings");
     
     private final SettingsService settingsService;
     
@@ -62,7 +65,7 @@ public class SettingsHandler extends AbstractRequestHandler {
             
             try {
                 if (uri.equals("/api/settings") && method.equals(HttpMethod.GET.name())) {
-                    handleGetAllSettings(ctx);
+                    handleGetAllSettings(ctx, request);
                     return true;
                 } else if (uri.matches("/api/settings/\\w+") && method.equals(HttpMethod.GET.name())) {
                     String key = uri.replaceFirst("/api/settings/", "");
@@ -93,18 +96,23 @@ public class SettingsHandler extends AbstractRequestHandler {
     /**
      * Обрабатывает запрос на получение всех настроек
      */
-    private void handleGetAllSettings(ChannelHandlerContext ctx) {
-        try {
-            Map<String, Setting> settings = settingsService.getAllSettings();
-            ApiResponse<Map<String, Setting>> response = ApiResponse.success(settings);
-            String jsonResponse = objectMapper.writeValueAsString(response);
-            sendJsonResponse(ctx, jsonResponse);
-            
-            logger.debug("Отправлены все настройки. Количество: {}", settings.size());
-        } catch (JsonProcessingException e) {
-            logger.error("Ошибка при сериализации настроек", e);
-            sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, "Ошибка при получении настроек");
+    private void handleGetAllSettings(ChannelHandlerContext ctx, FullHttpRequest request) {
+        String etag = EntityTags.forTables(TableVersionDao.SETTINGS);
+        if (sendNotModifiedIfMatches(ctx, request, etag)) {
+            return;
+        }
+        FullHttpResponse cached = ALL_SETTINGS.response(ctx, request, objectMapper, etag,
+                () -> ApiResponse.success(settingsService.getAllSettings()));
+        if (cached != null) {
+            writeJsonResponse(ctx, cached);
+            return;
         }
+        
+        // Клиент запросил двоичный формат - тело сериализуется обычным путем
+        Map<String, Setting> settings = settingsService.getAllSettings();
+        sendSuccessResponse(ctx, ApiResponse.success(settings), etag);
+        
+        logger.debug("Отправлены все настройки. Количество: {}", settings.size());
     }
     
     /**
@@ -162,6 +170,7 @@ public class SettingsHandler extends AbstractRequestHandler {
             }
             
             boolean created = settingsService.saveSetting(setting);
+            ALL_SETTINGS.invalidate();
             
             if (created) {
                 logger.info("Настройка успешно сохранена: {}", setting.getKey());
@@ -184,6 +193,7 @@ public class SettingsHandler extends AbstractRequestHandler {
     
     private void handleDeleteSetting(ChannelHandlerContext ctx, String key) throws JsonProcessingException {
         boolean deleted = settingsService.deleteSetting(key);
+        ALL_SETTINGS.invalidate();
         
         if (deleted) {
             ApiResponse<Object> response = ApiResponse.success("Настройка успешно удалена");
@@ -230,6 +240,15 @@ public class SettingsHandler extends AbstractRequestHandler {
         response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json; charset=UTF-8");
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
         
+        writeJsonResponse(ctx, response);
+    }
+    
+    /**
+     * Добавляет CORS-заголовки и отправляет готовый ответ
+     * @param ctx контекст канала
+     * @param response ответ
+     */
+    private void writeJsonResponse(ChannelHandlerContext ctx, FullHttpResponse response) {
         // Установка CORS заголовков для веб-клиентов
         response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
         response.headers().set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "GET, POST, PUT, DELETE, OPTIONS");
@@ -0,0 +1,79 @@
+package server.handler;
+
+import common.dto.ApiResponse;
+import common.dto.ReferenceDelta;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.service.ReferenceSyncService;
+import server.service.ReferenceSyncServiceImpl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обработчик синхронизации справочников клиента по изменениям:
+ * GET /api/sync/{entity}?updated_since={версия} - строки, измененные после версии, и ID удаленных
+ */
+public class SyncHandler extends AbstractRequestHandler {
+    private static final Logger logger = LoggerFactory.getLogger(SyncHandler.class);
+    private static final String URL_PATTERN = "/api/sync/.*";
+    private static final Pattern ENTITY_PATTERN = Pattern.compile("/api/sync/([a-z]+)");
+
+    private final ReferenceSyncService referenceSyncService;
+
+    public SyncHandler() {
+        this(new ReferenceSyncServiceImpl());
+    }
+
+    public SyncHandler(ReferenceSyncService referenceSyncService) {
+        super();
+        this.referenceSyncService = referenceSyncService;
+    }
+
+    @Override
+    public boolean handle(ChannelHandlerContext ctx, FullHttpRequest request) {
+        if (!request.uri().startsWith("/api/sync/") || !request.method().equals(HttpMethod.GET)) {
+            return false;
+        }
+
+        QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
+        Matcher matcher = ENTITY_PATTERN.matcher(decoder.path());
+        if (!matcher.matches() || !ReferenceSyncService.ENTITIES.contains(matcher.group(1))) {
+            sendErrorResponse(ctx, HttpResponseStatus.NOT_FOUND, "Неизвестный справочник");
+            return true;
+        }
+        String entity = matcher.group(1);
+        List<String> since = decoder.parameters().get("updated_since");
+
+        try {
+            Optional<ReferenceDelta<?>> delta = referenceSyncService.getChanges(entity,
+                    since != null && !since.isEmpty() ? since.get(0) : null);
+            if (delta.isEmpty()) {
+                sendErrorResponse(ctx, HttpResponseStatus.SERVICE_UNAVAILABLE, "Справочник временно недоступен");
+                return true;
+            }
+            sendSuccessResponse(ctx, ApiResponse.success(delta.get()));
+        } catch (Exception e) {
+            logger.error("Ошибка при синхронизации справочника {}", entity, e);
+            sendErrorResponse(ctx, HttpResponseStatus.INTERNAL_SERVER_ERROR, "Внутренняя ошибка сервера");
+        }
+        return true;
+    }
+
+    @Override
+    protected String getUrlPattern() {
+        return URL_PATTERN;
+    }
+
+    @Override
+    protected String getMethod() {
+        return "GET";
+    }
+}
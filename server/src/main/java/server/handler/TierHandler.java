@@ -3,12 +3,15 @@ package server.handler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import common.dto.ApiResponse;
 import common.model.Tier;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.db.dao.TableVersionDao;
 import server.service.TierService;
 import server.service.TierServiceImpl;
 
@@ -26,6 +29,8 @@ public class TierHandler extends AbstractRequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(TierHandler.class);
     private static final String URL_PATTERN = "/api/tiers.*";
     private static final Pattern ID_PATTERN = Pattern.compile("/api/tiers/(\\d+)");
+    // Список уровней общий для всех соединений и меняется редко
+    private static final PrecompressedBody ALL_TIERS = new PrecompressedBody("/api/tiers");
     
     private final TierService tierService;
     
@@ -51,7 +56,7 @@ public class TierHandler extends AbstractRequestHandler {
         try {
             if (uri.matches("/api/tiers") && method.equals(HttpMethod.GET.name())) {
                 // GET /api/tiers - получить все уровни
-                handleGetAllTiers(ctx);
+                handleGetAllTiers(ctx, request);
                 return true;
             } else if (uri.matches("/api/tiers") && method.equals(HttpMethod.POST.name())) {
                 // POST /api/tiers - создать новый уровень
@@ -87,11 +92,22 @@ public class TierHandler extends AbstractRequestHandler {
         return false;
     }
     
-    private void handleGetAllTiers(ChannelHandlerContext ctx) throws JsonProcessingException {
+    private void handleGetAllTiers(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
+        String etag = EntityTags.forTables(TableVersionDao.TIERS);
+        if (sendNotModifiedIfMatches(ctx, request, etag)) {
+            return;
+        }
+        FullHttpResponse cached = ALL_TIERS.response(ctx, request, objectMapper, etag,
+                () -> ApiResponse.success(tierService.getAllTiers()));
+        if (cached != null) {
+            ctx.writeAndFlush(cached).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+        
+        // Клиент запросил двоичный формат - тело сериализуется обычным путем
         List<Tier> tiers = tierService.getAllTiers();
         ApiResponse<List<Tier>> response = ApiResponse.success(tiers);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response, etag);
     }
     
     private void handleCreateTier(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
@@ -104,6 +120,7 @@ public class TierHandler extends AbstractRequestHandler {
         
         try {
             Tier createdTier = tierService.createTier(name, minPoints, discountPercent);
+            ALL_TIERS.invalidate();
             ApiResponse<Tier> response = ApiResponse.success(createdTier);
             String jsonResponse = objectMapper.writeValueAsString(response);
             sendSuccessResponse(ctx, jsonResponse);
@@ -160,6 +177,7 @@ public class TierHandler extends AbstractRequestHandler {
             tier.setBonusMultiplier(bonusMultiplier);
             
             boolean updated = tierService.updateTier(tier);
+            ALL_TIERS.invalidate();
             
             if (updated) {
                 ApiResponse<Tier> response = ApiResponse.success(tier);
@@ -178,6 +196,7 @@ public class TierHandler extends AbstractRequestHandler {
         if (matcher.matches()) {
             Long tierId = Long.parseLong(matcher.group(1));
             boolean deleted = tierService.deleteTier(tierId);
+            ALL_TIERS.invalidate();
             
             if (deleted) {
                 ApiResponse<Object> response = ApiResponse.success("Уровень успешно удален");
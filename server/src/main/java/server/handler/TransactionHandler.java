@@ -92,8 +92,7 @@ public class TransactionHandler extends AbstractRequestHandler {
     private void handleGetAllTransactions(ChannelHandlerContext ctx) throws JsonProcessingException {
         List<Transaction> transactions = transactionService.getAllTransactions();
         ApiResponse<List<Transaction>> response = ApiResponse.success(transactions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleCreateTransaction(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
@@ -158,8 +157,7 @@ public class TransactionHandler extends AbstractRequestHandler {
         List<Transaction> transactions = transactionService.getTransactionsByCardId(cardId);
         
         ApiResponse<List<Transaction>> response = ApiResponse.success(transactions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleGetTransactionsByCardAndPeriod(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
@@ -177,8 +175,7 @@ public class TransactionHandler extends AbstractRequestHandler {
         List<Transaction> transactions = transactionService.getTransactionsByCardIdAndPeriod(cardId, from, to);
         
         ApiResponse<List<Transaction>> response = ApiResponse.success(transactions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private void handleGetTransactionsByType(ChannelHandlerContext ctx, String uri) throws JsonProcessingException {
@@ -188,8 +185,7 @@ public class TransactionHandler extends AbstractRequestHandler {
         List<Transaction> transactions = transactionService.getTransactionsByType(type);
         
         ApiResponse<List<Transaction>> response = ApiResponse.success(transactions);
-        String jsonResponse = objectMapper.writeValueAsString(response);
-        sendSuccessResponse(ctx, jsonResponse);
+        sendSuccessResponse(ctx, response);
     }
     
     private Map<String, String> parseQueryString(String queryString) {
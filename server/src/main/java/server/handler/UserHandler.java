@@ -12,6 +12,7 @@ import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.CharsetUtil;
+import server.db.dao.TableVersionDao;
 import server.service.UserService;
 import server.service.UserServiceImpl;
 import org.slf4j.Logger;
@@ -78,7 +79,7 @@ public class UserHandler extends AbstractRequestHandler {
             if (uri.equals("/api/users") && method.equals(HttpMethod.GET.name())) {
                 logger.debug("Handling GET all users request");
                 // GET /api/users - get all users
-                handleGetAllUsers(ctx);
+                handleGetAllUsers(ctx, request);
                 return true;
             } else if (uri.matches("/api/users") && method.equals(HttpMethod.POST.name())) {
                 // POST /api/users - create new user
@@ -124,16 +125,20 @@ public class UserHandler extends AbstractRequestHandler {
     /**
      * Обрабатывает запрос на получение всех пользователей
      */
-    private void handleGetAllUsers(ChannelHandlerContext ctx) throws JsonProcessingException {
+    private void handleGetAllUsers(ChannelHandlerContext ctx, FullHttpRequest request) throws JsonProcessingException {
         try {
+            String etag = EntityTags.forTables(TableVersionDao.USERS, TableVersionDao.ROLES);
+            if (sendNotModifiedIfMatches(ctx, request, etag)) {
+                return;
+            }
+            
             logger.debug("Getting all users from service");
             List<User> users = userService.getAllUsers();
             logger.debug("Retrieved {} users from database", users.size());
             
             ApiResponse<List<User>> response = ApiResponse.success(users);
-            String jsonResponse = objectMapper.writeValueAsString(response);
             logger.debug("Sending response with {} users", users.size());
-            sendSuccessResponse(ctx, jsonResponse);
+            sendSuccessResponse(ctx, response, etag);
         } catch (Exception e) {
             logger.error("Error retrieving all users", e);
             ApiResponse<Object> response = ApiResponse.error("Ошибка при получении списка пользователей: " + e.getMessage());
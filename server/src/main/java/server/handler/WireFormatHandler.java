@@ -0,0 +1,120 @@
+package server.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import common.util.WireFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Согласование формата ответа по заголовку Accept.
+ * Формат текущего запроса доступен обработчикам через {@link #formatOf(ChannelHandlerContext)}:
+ * AbstractRequestHandler сразу сериализует ApiResponse в нужный формат. Ответы, которые обработчики
+ * по-прежнему формируют строкой JSON, перекодируются здесь потоковым копированием токенов без
+ * построения дерева. Ответы не в JSON (CSV, метрики, PDF) передаются без изменений.
+ */
+public class WireFormatHandler extends ChannelDuplexHandler {
+    private static final Logger logger = LoggerFactory.getLogger(WireFormatHandler.class);
+    private static final AttributeKey<WireFormat> FORMAT = AttributeKey.valueOf("wireFormat");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Map<WireFormat, JsonFactory> BINARY_FACTORIES = new EnumMap<>(WireFormat.class);
+
+    static {
+        for (WireFormat format : WireFormat.values()) {
+            if (format.isBinary()) {
+                BINARY_FACTORIES.put(format, format.createFactory());
+            }
+        }
+    }
+
+    // Форматы запросов, на которые еще не отправлен ответ (при pipelining их может быть несколько)
+    private final Queue<WireFormat> pending = new ArrayDeque<>(1);
+
+    /**
+     * Формат ответа на запрос, который сейчас обрабатывается в канале
+     * @param ctx контекст канала
+     * @return согласованный формат или JSON, если обработчик не установлен
+     */
+    public static WireFormat formatOf(ChannelHandlerContext ctx) {
+        WireFormat format = ctx.channel().attr(FORMAT).get();
+        return format != null ? format : WireFormat.JSON;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            WireFormat format = WireFormat.negotiate(((HttpRequest) msg).headers().get(HttpHeaderNames.ACCEPT));
+            pending.add(format);
+            ctx.channel().attr(FORMAT).set(format);
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse) {
+            WireFormat format = pending.poll();
+            ctx.channel().attr(FORMAT).set(pending.peek());
+            // Файлы отдаются заголовком и отдельным телом, их содержимое не перекодируется
+            if (format != null && msg instanceof FullHttpResponse) {
+                msg = encode((FullHttpResponse) msg, format);
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    private FullHttpResponse encode(FullHttpResponse response, WireFormat format) {
+        HttpHeaders headers = response.headers();
+        headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT);
+        if (!format.isBinary() || !isJson(headers.get(HttpHeaderNames.CONTENT_TYPE))
+                || headers.contains(HttpHeaderNames.CONTENT_ENCODING) || !response.content().isReadable()) {
+            return response;
+        }
+
+        ByteBuf json = response.content();
+        ByteBuf encoded = json.alloc().buffer(json.readableBytes() / 2 + 64);
+        try (JsonParser parser = JSON_FACTORY.createParser((InputStream) new ByteBufInputStream(json.duplicate()));
+             JsonGenerator generator = BINARY_FACTORIES.get(format).createGenerator((OutputStream) new ByteBufOutputStream(encoded))) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        } catch (IOException e) {
+            // Тело не является корректным JSON - отправляем как есть
+            logger.debug("Ответ не перекодирован в {}: {}", format, e.getMessage());
+            encoded.release();
+            return response;
+        }
+
+        FullHttpResponse binary = response.replace(encoded);
+        response.release();
+        binary.headers().set(HttpHeaderNames.CONTENT_TYPE, format.getContentType());
+        binary.headers().set(HttpHeaderNames.CONTENT_LENGTH, encoded.readableBytes());
+        return binary;
+    }
+
+    private static boolean isJson(String contentType) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("application/json");
+    }
+}
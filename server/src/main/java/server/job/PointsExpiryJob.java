@@ -0,0 +1,105 @@
+package server.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.service.PointsExpiryService;
+import server.service.PointsExpiryServiceImpl;
+import server.util.ServerConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ночная задача сгорания баллов
+ */
+public class PointsExpiryJob {
+    private static final Logger logger = LoggerFactory.getLogger(PointsExpiryJob.class);
+    private static final LocalTime DEFAULT_RUN_TIME = LocalTime.of(3, 0);
+
+    private final PointsExpiryService expiryService;
+    private final LocalTime runTime;
+    private ScheduledExecutorService scheduler;
+
+    public PointsExpiryJob() {
+        this(new PointsExpiryServiceImpl(), parseRunTime(ServerConfig.getString("points.expiry.time", null)));
+    }
+
+    public PointsExpiryJob(PointsExpiryService expiryService, LocalTime runTime) {
+        this.expiryService = expiryService;
+        this.runTime = runTime;
+    }
+
+    /**
+     * Планирует ежедневный запуск в настроенное время
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "points-expiry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long initialDelay = delayUntilNextRun(LocalDateTime.now());
+        scheduler.scheduleAtFixedRate(this::runSafely, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        logger.info("Сгорание баллов запланировано ежедневно на {}, первый запуск через {} мин",
+                runTime, TimeUnit.MILLISECONDS.toMinutes(initialDelay));
+    }
+
+    /**
+     * Останавливает планировщик, давая уже начатому сгоранию завершиться
+     * @param timeoutMillis сколько ждать начатого сгорания
+     * @throws InterruptedException если ожидание прервано
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        // Периодические запуски отменяются, выполняющийся доходит до конца
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Сгорание баллов не завершилось за {} мс и будет прервано", timeoutMillis);
+                scheduler.shutdownNow();
+            }
+        } finally {
+            scheduler = null;
+        }
+    }
+
+    private void runSafely() {
+        try {
+            expiryService.expirePoints(LocalDateTime.now());
+        } catch (Exception e) {
+            // Исключение отменило бы все последующие запуски
+            logger.error("Ошибка при выполнении сгорания баллов", e);
+        }
+    }
+
+    private long delayUntilNextRun(LocalDateTime now) {
+        LocalDateTime next = now.toLocalDate().atTime(runTime);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        return Duration.between(now, next).toMillis();
+    }
+
+    private static LocalTime parseRunTime(String value) {
+        if (value == null) {
+            return DEFAULT_RUN_TIME;
+        }
+        try {
+            return LocalTime.parse(value);
+        } catch (DateTimeParseException e) {
+            logger.warn("Некорректное время сгорания баллов: {}. Используется {}", value, DEFAULT_RUN_TIME);
+            return DEFAULT_RUN_TIME;
+        }
+    }
+}
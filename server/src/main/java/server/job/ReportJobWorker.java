@@ -0,0 +1,328 @@
+package server.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import common.dto.ApiResponse;
+import common.dto.ChangeEvent;
+import common.model.ReportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.cluster.ClusterNode;
+import server.db.Workload;
+import server.db.dao.ReportJobDao;
+import server.db.dao.ReportJobDaoImpl;
+import server.event.EventBus;
+import server.service.ReportService;
+import server.service.ReportServiceImpl;
+import server.util.ServerConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполнение фоновых заданий на отчеты из очереди report_jobs.
+ * Задания забирают report.jobs.threads рабочих потоков по приоритету, не больше report.jobs.per.user
+ * одновременно для одного пользователя. Отчеты читаются через пул соединений отчетов, поэтому тяжелые
+ * отчеты не занимают потоки и соединения операций на стойке администратора. Результат (JSON, CSV или PDF)
+ * пишется в файл в директории report.files.path, затем частями сохраняется в БД вместе с отметкой о
+ * выполнении и удаляется вместе с заданием через report.jobs.ttl.hours; CSV и PDF пишутся в файл
+ * построчно из курсора, не собираясь в памяти. Файл остается локальной копией результата: другие
+ * экземпляры при скачивании копируют результат из БД к себе, а очистка каждого экземпляра удаляет
+ * свои копии старше срока хранения.
+ * Очередь общая для всех экземпляров сервера: новое задание будит потоки своего экземпляра сразу,
+ * остальные экземпляры находят его при очередном опросе (report.jobs.poll.ms).
+ * О завершении задания подписчики темы REPORTS узнают из события REPORT_JOB_FINISHED.
+ */
+public class ReportJobWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobWorker.class);
+    private static final ReportJobWorker INSTANCE = new ReportJobWorker();
+    private static final Path RESULT_DIR = Paths.get(
+            ServerConfig.getString("report.files.path", "./reports/")).toAbsolutePath().normalize();
+    /** Суффикс файла, в который пишется результат, пока задание не завершено */
+    public static final String PART_SUFFIX = ".part";
+    private static final String RESULT_PREFIX = "job_";
+    private static final long CLEANUP_INTERVAL_MINUTES = 10;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ObjectMapper objectMapper;
+    // Разрешение на внеочередной опрос очереди; лишние разрешения дают только лишний пустой опрос
+    private final Semaphore wakeUps = new Semaphore(0);
+    // Задания, выполняемые потоками этого экземпляра
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private ReportJobDao jobDao;
+    private ReportService reportService;
+    private int threads;
+    private int perUserLimit;
+    private long pollMillis;
+    private long ttlHours;
+    private long timeoutMinutes;
+    private volatile boolean running;
+    private ExecutorService workers;
+    private ScheduledExecutorService cleaner;
+
+    private ReportJobWorker() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    public static ReportJobWorker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param fileName имя файла результата из задания
+     * @return путь к файлу в директории результатов
+     */
+    public static Path resolveResult(String fileName) {
+        return RESULT_DIR.resolve(fileName);
+    }
+
+    /**
+     * Запускает рабочие потоки и периодическую очистку истекших заданий
+     */
+    public synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+        threads = Math.max(1, ServerConfig.getInt("report.jobs.threads", 2));
+        jobDao = new ReportJobDaoImpl(Workload.BACKGROUND);
+        reportService = new ReportServiceImpl();
+        perUserLimit = Math.max(1, ServerConfig.getInt("report.jobs.per.user", 1));
+        pollMillis = Math.max(100, ServerConfig.getInt("report.jobs.poll.ms", 2000));
+        ttlHours = Math.max(1, ServerConfig.getInt("report.jobs.ttl.hours", 24));
+        timeoutMinutes = Math.max(1, ServerConfig.getInt("report.jobs.timeout.minutes", 60));
+        try {
+            Files.createDirectories(RESULT_DIR);
+        } catch (IOException e) {
+            logger.error("Не удалось создать директорию результатов отчетов {}", RESULT_DIR, e);
+        }
+
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "report-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::workLoop);
+        }
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "report-job-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(this::cleanupSafely, 0, CLEANUP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        logger.info("Фоновые задания на отчеты: потоков {}, заданий одного пользователя {}", threads, perUserLimit);
+    }
+
+    /**
+     * Останавливает рабочие потоки, давая начатым заданиям завершиться. Задания, не успевшие
+     * завершиться, отмечаются ошибкой: их результат был бы потерян вместе с процессом.
+     * @param timeoutMillis сколько ждать начатых заданий
+     * @throws InterruptedException если ожидание прервано
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        if (workers == null) {
+            return;
+        }
+        running = false;
+        wakeUps.release(threads);
+        cleaner.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                LocalDateTime expiresAt = LocalDateTime.now().plusHours(ttlHours);
+                for (Long id : runningJobs) {
+                    jobDao.fail(id, "Сервер остановлен во время выполнения", expiresAt);
+                }
+                logger.warn("Прервано заданий на отчеты при остановке: {}", runningJobs.size());
+                workers.shutdownNow();
+            }
+        } finally {
+            workers = null;
+            cleaner = null;
+            wakeUps.drainPermits();
+        }
+    }
+
+    /**
+     * Будит свободный рабочий поток, чтобы новое задание начало выполняться без ожидания опроса
+     */
+    public void wakeUp() {
+        if (running) {
+            wakeUps.release();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Optional<ReportJob> job = jobDao.claimNext(ClusterNode.getId(), perUserLimit);
+                if (job.isPresent()) {
+                    execute(job.get());
+                } else {
+                    wakeUps.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Поток продолжает работу: иначе пул постепенно остался бы без потоков
+                logger.error("Ошибка в рабочем потоке заданий на отчеты", e);
+            }
+        }
+    }
+
+    private void execute(ReportJob job) {
+        Long id = job.getId();
+        String fileName = RESULT_PREFIX + id + "." + job.getFormat().toLowerCase();
+        Path target = resolveResult(fileName);
+        Path part = resolveResult(fileName + PART_SUFFIX);
+        long started = System.nanoTime();
+        runningJobs.add(id);
+        try {
+            logger.debug("Выполнение задания на отчет {}: {} ({}) с {} по {}", id, job.getReportType(),
+                    job.getFormat(), job.getFromDate(), job.getToDate());
+            if (ReportJob.FORMAT_CSV.equals(job.getFormat())) {
+                try (Writer out = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                    reportService.writeCsv(job.getReportType(), job.getFromDate(), job.getToDate(), out);
+                }
+            } else if (ReportJob.FORMAT_PDF.equals(job.getFormat())) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                    reportService.writePdf(job.getReportType(), job.getFromDate(), job.getToDate(), out);
+                }
+            } else {
+                Object data = generate(job);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                    objectMapper.writeValue(out, ApiResponse.success(data));
+                }
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(target);
+
+            if (jobDao.complete(id, fileName, target, LocalDateTime.now().plusHours(ttlHours))) {
+                logger.info("Задание на отчет {} выполнено за {} мс: {} байт", id,
+                        (System.nanoTime() - started) / 1_000_000, size);
+                publish(job, ReportJob.STATUS_DONE);
+            } else {
+                // Задание тем временем признано прерванным
+                Files.deleteIfExists(target);
+                logger.warn("Результат задания на отчет {} отброшен: задание уже завершено", id);
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка при выполнении задания на отчет {}", id, e);
+            deleteQuietly(part);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            if (message.length() > MAX_ERROR_LENGTH) {
+                message = message.substring(0, MAX_ERROR_LENGTH);
+            }
+            jobDao.fail(id, message, LocalDateTime.now().plusHours(ttlHours));
+            publish(job, ReportJob.STATUS_FAILED);
+        } finally {
+            runningJobs.remove(id);
+        }
+    }
+
+    private Object generate(ReportJob job) {
+        switch (job.getReportType()) {
+            case "points":
+                return reportService.generatePointsReport(job.getFromDate(), job.getToDate());
+            case "activity":
+                return reportService.generateUserActivityReport(job.getFromDate(), job.getToDate());
+            case "promotions":
+                return reportService.generatePromotionsReport(job.getFromDate(), job.getToDate());
+            case "promocodes":
+                return reportService.generatePromoCodesReport(job.getFromDate(), job.getToDate());
+            case "financial":
+                return reportService.generateFinancialReport(job.getFromDate(), job.getToDate());
+            default:
+                throw new IllegalArgumentException("Неизвестный тип отчета: " + job.getReportType());
+        }
+    }
+
+    private void publish(ReportJob job, String status) {
+        EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.REPORT_JOB_FINISHED, job.getId())
+                .with("status", status)
+                .with("reportType", job.getReportType())
+                .with("requestedBy", job.getRequestedBy()));
+    }
+
+    private void cleanupSafely() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int stale = jobDao.failStale(now.minusMinutes(timeoutMinutes), now.plusHours(ttlHours));
+            if (stale > 0) {
+                logger.warn("Завершено прерванных заданий на отчеты: {}", stale);
+            }
+            List<String> files = jobDao.deleteExpired(now);
+            for (String file : files) {
+                if (file != null) {
+                    deleteQuietly(resolveResult(file));
+                }
+            }
+            if (!files.isEmpty()) {
+                logger.info("Удалено истекших заданий на отчеты: {}", files.size());
+            }
+            deleteOldCopies(now);
+        } catch (Exception e) {
+            // Исключение отменило бы все последующие запуски
+            logger.error("Ошибка при очистке заданий на отчеты", e);
+        }
+    }
+
+    /**
+     * Удаляет локальные копии результатов, которые старше срока хранения: задания других экземпляров
+     * удаляются их очисткой, и копии их результатов на этом экземпляре иначе остались бы навсегда.
+     * Файлы выполняемых заданий пишутся постоянно, поэтому срок отсчитывается не меньше таймаута задания
+     */
+    private void deleteOldCopies(LocalDateTime now) {
+        long keepMinutes = Math.max(TimeUnit.HOURS.toMinutes(ttlHours), timeoutMinutes);
+        long cutoff = now.minusMinutes(keepMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        int deleted = 0;
+        try (DirectoryStream<Path> copies = Files.newDirectoryStream(RESULT_DIR, RESULT_PREFIX + "*")) {
+            for (Path copy : copies) {
+                if (Files.isRegularFile(copy) && Files.getLastModifiedTime(copy).toMillis() < cutoff) {
+                    deleteQuietly(copy);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось просмотреть директорию результатов отчетов {}: {}", RESULT_DIR, e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Удалено старых копий результатов отчетов: {}", deleted);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить файл отчета {}: {}", file, e.getMessage());
+        }
+    }
+}
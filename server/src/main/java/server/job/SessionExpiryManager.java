@@ -0,0 +1,300 @@
+package server.job;
+
+import common.dto.ChangeEvent;
+import common.model.Session;
+import common.model.Setting;
+import common.util.Constants;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.cluster.ClusterBus;
+import server.db.Workload;
+import server.db.dao.SessionDao;
+import server.db.dao.SessionDaoImpl;
+import server.db.dao.SettingDao;
+import server.db.dao.SettingDaoImpl;
+import server.event.EventBus;
+import server.util.ServerConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Автоматическое завершение игровых сессий по истечении времени.
+ * Сроки всех активных сессий хранятся в колесе таймеров; сработавшие сессии
+ * копятся в очереди и завершаются пакетами в одной транзакции.
+ * При работе нескольких экземпляров сервера колесо работает только на лидере; остальные экземпляры
+ * пересылают ему регистрацию и отмену сессий через {@link ClusterBus}.
+ */
+public class SessionExpiryManager {
+    private static final Logger logger = LoggerFactory.getLogger(SessionExpiryManager.class);
+    private static final SessionExpiryManager INSTANCE = new SessionExpiryManager();
+    private static final String SESSION_TIMEOUT_SETTING = "SESSION_TIMEOUT_MINUTES";
+    private static final int DEFAULT_SESSION_TIMEOUT_MINUTES = 60;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+    /** Тема пересылки регистрации и отмены сессий лидеру */
+    public static final String CLUSTER_TOPIC = "session";
+    private static final String REGISTER = "register:";
+    private static final String CANCEL = "cancel:";
+
+    /**
+     * Действие над просроченной сессией
+     */
+    public enum Mode {
+        FINISH, // Завершить сессию и начислить баллы за запланированное время
+        FLAG    // Только пометить статусом EXPIRED для оператора
+    }
+
+    private final Map<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Queue<Session> expired = new ConcurrentLinkedQueue<>();
+
+    private volatile SessionDao sessionDao;
+    private Mode mode;
+    private int batchSize;
+    private int sessionTimeoutMinutes;
+    private volatile HashedWheelTimer timer;
+    private ScheduledExecutorService flusher;
+
+    private SessionExpiryManager() {
+    }
+
+    public static SessionExpiryManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Запускает колесо таймеров и загружает сроки всех активных сессий из БД
+     */
+    public synchronized void start() {
+        start(new SessionDaoImpl(Workload.BACKGROUND), new SettingDaoImpl());
+    }
+
+    public synchronized void start(SessionDao sessionDao, SettingDao settingDao) {
+        if (timer != null) {
+            return;
+        }
+        this.sessionDao = sessionDao;
+        this.mode = parseMode(ServerConfig.getString("sessions.expiry.mode", Mode.FINISH.name()));
+        this.batchSize = Math.max(1, ServerConfig.getInt("sessions.expiry.batch.size", 200));
+        this.sessionTimeoutMinutes = readSessionTimeout(settingDao);
+
+        long tickMillis = Math.max(10, ServerConfig.getInt("sessions.expiry.tick.ms", 1000));
+        timer = new HashedWheelTimer(daemonThreads("session-expiry-wheel"), tickMillis, TimeUnit.MILLISECONDS, 512);
+        flusher = Executors.newSingleThreadScheduledExecutor(daemonThreads("session-expiry-flush"));
+        flusher.scheduleWithFixedDelay(this::flushSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        List<Session> active = sessionDao.findActiveSessions();
+        for (Session session : active) {
+            register(session);
+        }
+        logger.info("Контроль времени сессий запущен: режим {}, загружено активных сессий {}", mode, active.size());
+    }
+
+    /**
+     * Останавливает колесо и завершает уже сработавшие сессии
+     */
+    public synchronized void stop() {
+        if (timer == null) {
+            return;
+        }
+        timer.stop();
+        timer = null;
+        // Начатая запись пакета доводится до конца, чтобы не прерывать транзакцию начисления
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        timeouts.clear();
+        flushSafely();
+    }
+
+    /**
+     * Добавляет сессию в колесо таймеров. Повторная регистрация переносит срок.
+     * @param session активная сессия
+     */
+    public void register(Session session) {
+        HashedWheelTimer currentTimer = timer;
+        if (session.getId() == null || session.getStartTime() == null) {
+            return;
+        }
+        if (currentTimer == null) {
+            // Колесо работает на другом экземпляре; без обмена сообщениями вызов ничего не делает
+            ClusterBus.getInstance().publish(CLUSTER_TOPIC, REGISTER + session.getId());
+            return;
+        }
+
+        LocalDateTime deadline = deadlineOf(session);
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), deadline).toMillis());
+        Timeout timeout = currentTimer.newTimeout(t -> onExpired(session, deadline), delayMillis, TimeUnit.MILLISECONDS);
+
+        Timeout previous = timeouts.put(session.getId(), timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Убирает сессию из колеса, например при ручном завершении или удалении
+     * @param sessionId ID сессии
+     */
+    public void cancel(Long sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        if (timer == null) {
+            ClusterBus.getInstance().publish(CLUSTER_TOPIC, CANCEL + sessionId);
+            return;
+        }
+        Timeout timeout = timeouts.remove(sessionId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Регистрирует или отменяет сессию по сообщению другого экземпляра; без запущенного колеса
+     * сообщение пропускается - новый лидер загрузит активные сессии из БД при запуске
+     * @param message register:&lt;id&gt; или cancel:&lt;id&gt;
+     */
+    public void onClusterMessage(String message) {
+        SessionDao dao = sessionDao;
+        if (timer == null || dao == null) {
+            return;
+        }
+        try {
+            if (message.startsWith(REGISTER)) {
+                Long sessionId = Long.valueOf(message.substring(REGISTER.length()));
+                dao.findById(sessionId).filter(Session::isActive).ifPresent(this::register);
+            } else if (message.startsWith(CANCEL)) {
+                cancel(Long.valueOf(message.substring(CANCEL.length())));
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("Пропущено сообщение неизвестного формата: {}", message);
+        }
+    }
+
+    /**
+     * @return количество сессий, ожидающих срока
+     */
+    public int pendingCount() {
+        return timeouts.size();
+    }
+
+    private LocalDateTime deadlineOf(Session session) {
+        int minutes = session.getMinutes() != null && session.getMinutes() > 0
+                ? session.getMinutes()
+                : sessionTimeoutMinutes;
+        return session.getStartTime().plusMinutes(minutes);
+    }
+
+    private void onExpired(Session session, LocalDateTime deadline) {
+        timeouts.remove(session.getId());
+        session.setEndTime(deadline);
+        int plannedMinutes = session.getMinutes() != null ? session.getMinutes() : 0;
+        session.setPoints(plannedMinutes * Constants.POINTS_PER_HOUR / 60);
+        expired.add(session);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Исключение отменило бы все последующие запуски
+            logger.error("Ошибка при завершении просроченных сессий", e);
+        }
+    }
+
+    private void flush() {
+        List<Session> batch = new ArrayList<>(batchSize);
+        Session session;
+        while ((session = expired.poll()) != null) {
+            batch.add(session);
+            if (batch.size() >= batchSize) {
+                apply(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            apply(batch);
+        }
+    }
+
+    private void apply(List<Session> batch) {
+        int processed;
+        if (mode == Mode.FLAG) {
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (Session session : batch) {
+                ids.add(session.getId());
+            }
+            processed = sessionDao.flagExpiredSessions(ids);
+        } else {
+            processed = sessionDao.finishExpiredSessions(batch);
+        }
+        if (processed > 0) {
+            publishFinished(batch);
+        }
+        logger.info("Обработано просроченных сессий: {} из {} (режим {})", processed, batch.size(), mode);
+    }
+
+    private void publishFinished(List<Session> batch) {
+        EventBus bus = EventBus.getInstance();
+        for (Session session : batch) {
+            bus.publish(new ChangeEvent(ChangeEvent.Type.SESSION_FINISHED, session.getId())
+                    .with("cardId", session.getCardId())
+                    .with("points", mode == Mode.FLAG ? 0 : session.getPoints())
+                    .with("status", mode == Mode.FLAG ? "EXPIRED" : "COMPLETED"));
+            if (mode == Mode.FINISH && session.getPoints() > 0) {
+                // Новый баланс начислен в БД пакетно, клиент перечитает карту сам
+                bus.publish(new ChangeEvent(ChangeEvent.Type.POINTS_CHANGED, session.getCardId()));
+            }
+        }
+    }
+
+    private int readSessionTimeout(SettingDao settingDao) {
+        try {
+            Optional<Setting> setting = settingDao.findByKey(SESSION_TIMEOUT_SETTING);
+            if (setting.isPresent()) {
+                return setting.get().getValueAsInt(DEFAULT_SESSION_TIMEOUT_MINUTES);
+            }
+        } catch (Exception e) {
+            logger.warn("Не удалось прочитать настройку {}, используется {} мин",
+                    SESSION_TIMEOUT_SETTING, DEFAULT_SESSION_TIMEOUT_MINUTES, e);
+        }
+        return DEFAULT_SESSION_TIMEOUT_MINUTES;
+    }
+
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некорректный режим sessions.expiry.mode: {}. Используется {}", value, Mode.FINISH);
+            return Mode.FINISH;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
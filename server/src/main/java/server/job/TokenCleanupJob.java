@@ -0,0 +1,83 @@
+package server.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.cluster.ClusterNode;
+import server.db.Workload;
+import server.db.dao.AuthTokenDao;
+import server.db.dao.AuthTokenDaoImpl;
+import server.db.dao.LocalAuthTokenDao;
+import server.util.ServerConfig;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодическое удаление истекших токенов входа
+ */
+public class TokenCleanupJob {
+    private static final Logger logger = LoggerFactory.getLogger(TokenCleanupJob.class);
+
+    private final AuthTokenDao tokenDao;
+    private final long intervalMinutes;
+    private ScheduledExecutorService scheduler;
+
+    public TokenCleanupJob() {
+        this(ClusterNode.isEnabled() ? new AuthTokenDaoImpl(Workload.BACKGROUND) : LocalAuthTokenDao.getInstance(),
+                Math.max(1, ServerConfig.getInt("security.token.cleanup.minutes", 60)));
+    }
+
+    public TokenCleanupJob(AuthTokenDao tokenDao, long intervalMinutes) {
+        this.tokenDao = tokenDao;
+        this.intervalMinutes = intervalMinutes;
+    }
+
+    /**
+     * Планирует очистку с настроенным интервалом
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        logger.debug("Очистка истекших токенов запланирована каждые {} мин", intervalMinutes);
+    }
+
+    /**
+     * Останавливает планировщик, давая начатой очистке завершиться
+     * @param timeoutMillis сколько ждать начатой очистки
+     * @throws InterruptedException если ожидание прервано
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } finally {
+            scheduler = null;
+        }
+    }
+
+    private void runSafely() {
+        try {
+            int deleted = tokenDao.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                logger.info("Удалено истекших токенов: {}", deleted);
+            }
+        } catch (Exception e) {
+            // Исключение отменило бы все последующие запуски
+            logger.error("Ошибка при удалении истекших токенов", e);
+        }
+    }
+}
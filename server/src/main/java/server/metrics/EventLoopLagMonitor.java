@@ -0,0 +1,45 @@
+package server.metrics;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Измеряет задержку event loop: в каждый поток периодически ставится задача,
+ * и разница между плановым и фактическим временем запуска попадает в гистограмму.
+ * Большая задержка означает, что поток занят блокирующей работой (например, запросами к БД).
+ */
+public class EventLoopLagMonitor {
+    private static final long DEFAULT_INTERVAL_MILLIS = 500;
+
+    private EventLoopLagMonitor() {
+    }
+
+    /**
+     * Запускает замеры во всех потоках группы. Задачи снимаются вместе с остановкой группы.
+     * @param group группа event loop
+     */
+    public static void start(EventExecutorGroup group) {
+        start(group, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public static void start(EventExecutorGroup group, long intervalMillis) {
+        LatencyHistogram histogram = MetricsRegistry.getInstance().getEventLoopLag();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        for (EventExecutor executor : group) {
+            schedule(executor, histogram, intervalNanos);
+        }
+    }
+
+    private static void schedule(EventExecutor executor, LatencyHistogram histogram, long intervalNanos) {
+        if (executor.isShuttingDown()) {
+            return;
+        }
+        long plannedAt = System.nanoTime() + intervalNanos;
+        executor.schedule(() -> {
+            histogram.recordNanos(Math.max(0, System.nanoTime() - plannedAt));
+            schedule(executor, histogram, intervalNanos);
+        }, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+}
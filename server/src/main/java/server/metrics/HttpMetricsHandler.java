@@ -0,0 +1,63 @@
+package server.metrics;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Замеряет время от получения запроса до записи ответа и учитывает его в метриках маршрута.
+ * Экземпляр создается на каждое соединение; все поля используются только из его event loop.
+ */
+public class HttpMetricsHandler extends ChannelDuplexHandler {
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+    // Запросы, на которые еще не отправлен ответ (при pipelining их может быть несколько)
+    private final Queue<Pending> pending = new ArrayDeque<>(1);
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            RouteMetrics route = registry.route(request.method().name(), request.uri());
+            route.requestStarted();
+            pending.add(new Pending(route, System.nanoTime()));
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpResponse) {
+            Pending request = pending.poll();
+            if (request != null) {
+                int status = ((HttpResponse) msg).status().code();
+                request.route.requestFinished(status, System.nanoTime() - request.startNanos);
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // Соединение закрыто до отправки ответа
+        Pending request;
+        while ((request = pending.poll()) != null) {
+            request.route.requestAborted();
+        }
+        super.channelInactive(ctx);
+    }
+
+    private static final class Pending {
+        private final RouteMetrics route;
+        private final long startNanos;
+
+        private Pending(RouteMetrics route, long startNanos) {
+            this.route = route;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек с логарифмически-линейными корзинами (как в HdrHistogram).
+ * Значения хранятся в микросекундах: до 32 мкс точно, дальше каждая степень двойки
+ * делится на 32 корзины, что дает относительную погрешность перцентилей не более ~3%.
+ * Запись - несколько атомарных инкрементов без блокировок и выделения памяти.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // 2^40 мкс - около 12 суток
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final long MAX_TRACKABLE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Записывает длительность
+     * @param nanos длительность в наносекундах
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.min(MAX_TRACKABLE, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        counts.incrementAndGet(indexOf(micros));
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * @return согласованный срез для расчета перцентилей
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sumMicros.sum(), maxMicros.get());
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * Срез гистограммы
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sumMicros;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long count, long sumMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /**
+         * @param quantile квантиль от 0 до 1
+         * @return значение квантиля в микросекундах (верхняя граница корзины, не больше максимума)
+         */
+        public long quantileMicros(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumMicros() {
+            return sumMicros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package server.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import server.db.DatabaseConfig;
+import server.db.ReplicaRoutingDataSource;
+import server.db.Workload;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр метрик сервера и их выдача в текстовом формате Prometheus
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    // Защита от неограниченного роста числа маршрутов при сканировании случайных URL
+    private static final int MAX_ROUTES = 500;
+    private static final String OTHER_ROUTE = "other";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    // Сегменты, за которыми в URL следует произвольное значение (код, логин, ключ и т.п.)
+    private static final List<String> VALUE_PREFIXES = List.of("code", "name", "login", "action", "type", "number");
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    // Текст запроса -> счетчики; запросы DAO - константы, поэтому ключей немного
+    private final Map<String, QueryMetrics> queriesBySql = new ConcurrentHashMap<>();
+    private final Map<String, QueryMetrics> queries = new ConcurrentHashMap<>();
+    private final LatencyHistogram eventLoopLag = new LatencyHistogram();
+    private final Map<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Возвращает счетчики маршрута, создавая их при первом обращении
+     * @param method HTTP метод
+     * @param uri URI запроса
+     * @return счетчики маршрута
+     */
+    public RouteMetrics route(String method, String uri) {
+        String route = templateOf(uri);
+        String key = method + ' ' + route;
+        RouteMetrics metrics = routes.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (routes.size() >= MAX_ROUTES) {
+            return routes.computeIfAbsent(method + ' ' + OTHER_ROUTE, k -> new RouteMetrics(method, OTHER_ROUTE));
+        }
+        return routes.computeIfAbsent(key, k -> new RouteMetrics(method, route));
+    }
+
+    /**
+     * Учитывает выполненный SQL-запрос; вызывается из QueryExecutor
+     * @param sql текст запроса
+     * @param elapsedNanos время выполнения
+     * @param success false, если запрос завершился ошибкой
+     */
+    public void queryExecuted(String sql, long elapsedNanos, boolean success) {
+        QueryMetrics metrics = queriesBySql.get(sql);
+        if (metrics == null) {
+            if (queriesBySql.size() >= MAX_ROUTES) {
+                metrics = queries.computeIfAbsent(OTHER_ROUTE, QueryMetrics::new);
+            } else {
+                String statement = statementOf(sql);
+                metrics = queriesBySql.computeIfAbsent(sql,
+                        k -> queries.computeIfAbsent(statement, QueryMetrics::new));
+            }
+        }
+        metrics.queryExecuted(elapsedNanos, success);
+    }
+
+    public LatencyHistogram getEventLoopLag() {
+        return eventLoopLag;
+    }
+
+    /**
+     * Возвращает счетчики ожидания соединений пула, создавая их при первом обращении
+     * @param poolName имя пула HikariCP
+     */
+    public PoolMetrics pool(String poolName) {
+        return pools.computeIfAbsent(poolName, PoolMetrics::new);
+    }
+
+    /**
+     * Приводит URI к шаблону маршрута: /api/cards/15/add -> /api/cards/{id}/add
+     */
+    static String templateOf(String uri) {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        String[] segments = path.split("/");
+        StringBuilder template = new StringBuilder(path.length());
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            template.append('/');
+            if (isNumeric(segment)) {
+                template.append("{id}");
+            } else if (VALUE_PREFIXES.contains(segments[i - 1])
+                    || (i == 3 && "settings".equals(segments[2]))) {
+                template.append("{value}");
+            } else {
+                template.append(segment);
+            }
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    /**
+     * Приводит SQL к метке вида операция + основная таблица: "select cards", "update sessions".
+     * Содержимое скобок (подзапросы, общие табличные выражения WITH, списки колонок) не учитывается.
+     */
+    static String statementOf(String sql) {
+        StringBuilder topLevel = new StringBuilder(sql.length());
+        int depth = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+                topLevel.append(' ');
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0) {
+                topLevel.append(c);
+            }
+        }
+        String[] words = topLevel.toString().trim().toLowerCase(Locale.ROOT).split("[\\s,;]+");
+        String verb = null;
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            if (verb == null) {
+                switch (word) {
+                    case "select":
+                    case "insert":
+                    case "delete":
+                        verb = word;
+                        break;
+                    case "update":
+                        return i + 1 < words.length ? "update " + words[i + 1] : word;
+                    case "set":
+                        return word;
+                    default:
+                        break;
+                }
+            } else if ((word.equals("from") || word.equals("into")) && i + 1 < words.length) {
+                return verb + ' ' + words[i + 1];
+            }
+        }
+        return verb != null ? verb : OTHER_ROUTE;
+    }
+
+    private static boolean isNumeric(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Формирует текущие значения всех метрик в формате Prometheus 0.0.4
+     * @return текст ответа /api/metrics
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        writeRoutes(out);
+        writeEventLoop(out);
+        writePool(out);
+        writeQueries(out);
+        writeJvm(out);
+        return out.toString();
+    }
+
+    private void writeRoutes(StringBuilder out) {
+        List<RouteMetrics> sorted = new ArrayList<>(routes.values());
+        sorted.sort(Comparator.comparing(RouteMetrics::getRoute).thenComparing(RouteMetrics::getMethod));
+
+        header(out, "http_server_requests_total", "counter", "Количество ответов по маршруту и классу статуса");
+        for (RouteMetrics route : sorted) {
+            for (int statusClass = 1; statusClass <= 5; statusClass++) {
+                long responses = route.getResponses(statusClass);
+                if (responses > 0) {
+                    out.append("http_server_requests_total{").append(routeLabels(route))
+                            .append(",status=\"").append(statusClass).append("xx\"} ").append(responses).append('\n');
+                }
+            }
+        }
+
+        header(out, "http_server_errors_total", "counter", "Ответы 5xx и прерванные запросы");
+        for (RouteMetrics route : sorted) {
+            sample(out, "http_server_errors_total", routeLabels(route), route.getErrors());
+        }
+
+        header(out, "http_server_requests_in_flight", "gauge", "Запросы в обработке");
+        for (RouteMetrics route : sorted) {
+            sample(out, "http_server_requests_in_flight", routeLabels(route), route.getInFlight());
+        }
+
+        header(out, "http_server_request_duration_seconds", "summary", "Время обработки запроса");
+        for (RouteMetrics route : sorted) {
+            summary(out, "http_server_request_duration_seconds", routeLabels(route), route.getLatency().snapshot());
+        }
+
+        header(out, "http_server_request_duration_seconds_max", "gauge", "Максимальное время обработки запроса");
+        for (RouteMetrics route : sorted) {
+            seconds(out, "http_server_request_duration_seconds_max", routeLabels(route),
+                    route.getLatency().snapshot().getMaxMicros());
+        }
+    }
+
+    private void writeEventLoop(StringBuilder out) {
+        LatencyHistogram.Snapshot lag = eventLoopLag.snapshot();
+        header(out, "netty_event_loop_lag_seconds", "summary", "Задержка выполнения задач в event loop");
+        summary(out, "netty_event_loop_lag_seconds", "", lag);
+        header(out, "netty_event_loop_lag_seconds_max", "gauge", "Максимальная задержка event loop");
+        seconds(out, "netty_event_loop_lag_seconds_max", "", lag.getMaxMicros());
+    }
+
+    private void writePool(StringBuilder out) {
+        Map<String, HikariPoolMXBean> running = new LinkedHashMap<>();
+        for (Workload workload : Workload.values()) {
+            HikariPoolMXBean pool = DatabaseConfig.getPoolMXBean(workload);
+            if (pool != null) {
+                running.put(DatabaseConfig.getPoolName(workload), pool);
+            }
+        }
+        ReplicaRoutingDataSource routing = DatabaseConfig.getReplicaRouting();
+        if (routing != null) {
+            for (HikariDataSource replica : routing.getReplicas()) {
+                if (!replica.isClosed() && replica.getHikariPoolMXBean() != null) {
+                    running.put(replica.getPoolName(), replica.getHikariPoolMXBean());
+                }
+            }
+        }
+
+        header(out, "hikaricp_connections_active", "gauge", "Занятые соединения");
+        running.forEach((name, pool) ->
+                sample(out, "hikaricp_connections_active", poolLabels(name), pool.getActiveConnections()));
+        header(out, "hikaricp_connections_idle", "gauge", "Свободные соединения");
+        running.forEach((name, pool) ->
+                sample(out, "hikaricp_connections_idle", poolLabels(name), pool.getIdleConnections()));
+        header(out, "hikaricp_connections_pending", "gauge", "Потоки, ожидающие соединение");
+        running.forEach((name, pool) ->
+                sample(out, "hikaricp_connections_pending", poolLabels(name), pool.getThreadsAwaitingConnection()));
+        header(out, "hikaricp_connections", "gauge", "Всего соединений");
+        running.forEach((name, pool) ->
+                sample(out, "hikaricp_connections", poolLabels(name), pool.getTotalConnections()));
+
+        if (routing != null) {
+            Map<String, Long> lags = routing.getLagMillis();
+            header(out, "db_replica_up", "gauge", "Реплика доступна для чтения (1) или нет (0)");
+            lags.forEach((name, lag) -> sample(out, "db_replica_up", poolLabels(name), lag >= 0 ? 1 : 0));
+            header(out, "db_replica_lag_seconds", "gauge", "Отставание реплики от основного сервера");
+            lags.forEach((name, lag) -> {
+                if (lag >= 0) {
+                    seconds(out, "db_replica_lag_seconds", poolLabels(name), lag * 1000);
+                }
+            });
+        }
+
+        List<PoolMetrics> sorted = new ArrayList<>(pools.values());
+        sorted.sort(Comparator.comparing(PoolMetrics::getPoolName));
+        header(out, "hikaricp_connection_acquire_seconds", "summary", "Ожидание соединения из пула");
+        for (PoolMetrics pool : sorted) {
+            summary(out, "hikaricp_connection_acquire_seconds", poolLabels(pool.getPoolName()),
+                    pool.getAcquire().snapshot());
+        }
+        header(out, "hikaricp_connection_acquire_seconds_max", "gauge", "Максимальное ожидание соединения");
+        for (PoolMetrics pool : sorted) {
+            seconds(out, "hikaricp_connection_acquire_seconds_max", poolLabels(pool.getPoolName()),
+                    pool.getAcquire().snapshot().getMaxMicros());
+        }
+        header(out, "hikaricp_connection_timeouts_total", "counter", "Таймауты получения соединения");
+        for (PoolMetrics pool : sorted) {
+            sample(out, "hikaricp_connection_timeouts_total", poolLabels(pool.getPoolName()), pool.getTimeouts());
+        }
+    }
+
+    private void writeQueries(StringBuilder out) {
+        List<QueryMetrics> sorted = new ArrayList<>(queries.values());
+        sorted.sort(Comparator.comparing(QueryMetrics::getStatement));
+
+        header(out, "db_query_duration_seconds", "summary", "Время выполнения SQL-запроса");
+        for (QueryMetrics query : sorted) {
+            summary(out, "db_query_duration_seconds", queryLabels(query), query.getLatency().snapshot());
+        }
+
+        header(out, "db_query_duration_seconds_max", "gauge", "Максимальное время выполнения SQL-запроса");
+        for (QueryMetrics query : sorted) {
+            seconds(out, "db_query_duration_seconds_max", queryLabels(query),
+                    query.getLatency().snapshot().getMaxMicros());
+        }
+
+        header(out, "db_query_errors_total", "counter", "SQL-запросы, завершившиеся ошибкой");
+        for (QueryMetrics query : sorted) {
+            sample(out, "db_query_errors_total", queryLabels(query), query.getErrors());
+        }
+    }
+
+    private void writeJvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+        header(out, "jvm_memory_used_bytes", "gauge", "Используемая память");
+        sample(out, "jvm_memory_used_bytes", "area=\"heap\"", heap.getUsed());
+        sample(out, "jvm_memory_used_bytes", "area=\"nonheap\"", nonHeap.getUsed());
+        header(out, "jvm_memory_committed_bytes", "gauge", "Выделенная память");
+        sample(out, "jvm_memory_committed_bytes", "area=\"heap\"", heap.getCommitted());
+        sample(out, "jvm_memory_committed_bytes", "area=\"nonheap\"", nonHeap.getCommitted());
+        header(out, "jvm_memory_max_bytes", "gauge", "Максимальный размер памяти");
+        sample(out, "jvm_memory_max_bytes", "area=\"heap\"", heap.getMax());
+
+        header(out, "jvm_gc_collection_seconds", "summary", "Сборки мусора");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String labels = "gc=\"" + escape(gc.getName()) + "\"";
+            sample(out, "jvm_gc_collection_seconds_count", labels, Math.max(0, gc.getCollectionCount()));
+            out.append("jvm_gc_collection_seconds_sum{").append(labels).append("} ")
+                    .append(format(Math.max(0, gc.getCollectionTime()) / 1000.0)).append('\n');
+        }
+
+        gauge(out, "jvm_threads_live", "Живые потоки", "", ManagementFactory.getThreadMXBean().getThreadCount());
+        header(out, "process_uptime_seconds", "gauge", "Время работы сервера");
+        out.append("process_uptime_seconds ").append(format((System.currentTimeMillis() - startedAt) / 1000.0)).append('\n');
+    }
+
+    private static String poolLabels(String poolName) {
+        return "pool=\"" + escape(poolName) + "\"";
+    }
+
+    private static String routeLabels(RouteMetrics route) {
+        return "method=\"" + route.getMethod() + "\",route=\"" + escape(route.getRoute()) + "\"";
+    }
+
+    private static String queryLabels(QueryMetrics query) {
+        return "statement=\"" + escape(query.getStatement()) + "\"";
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, String labels, long value) {
+        header(out, name, "gauge", help);
+        sample(out, name, labels, value);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void seconds(StringBuilder out, String name, String labels, long micros) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(micros / 1_000_000.0)).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram.Snapshot snapshot) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+                    .append(format(snapshot.quantileMicros(quantile) / 1_000_000.0)).append('\n');
+        }
+        seconds(out, name + "_sum", labels, snapshot.getSumMicros());
+        sample(out, name + "_count", labels, snapshot.getCount());
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
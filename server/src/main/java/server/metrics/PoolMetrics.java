@@ -0,0 +1,36 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ожидание соединений одного пула HikariCP
+ */
+public class PoolMetrics {
+    private final String poolName;
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+
+    PoolMetrics(String poolName) {
+        this.poolName = poolName;
+    }
+
+    void connectionAcquired(long elapsedNanos) {
+        acquire.recordNanos(elapsedNanos);
+    }
+
+    void connectionTimeout() {
+        timeouts.increment();
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public LatencyHistogram getAcquire() {
+        return acquire;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+}
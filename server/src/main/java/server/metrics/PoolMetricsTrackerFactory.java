@@ -0,0 +1,28 @@
+package server.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Передает в реестр метрик время ожидания соединений и таймауты каждого пула HikariCP.
+ * Текущие размеры пула читаются отдельно из HikariPoolMXBean при выдаче метрик.
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolMetrics pool = MetricsRegistry.getInstance().pool(poolName);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                pool.connectionAcquired(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                pool.connectionTimeout();
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики одного вида SQL-запроса (операция + основная таблица)
+ */
+public class QueryMetrics {
+    private final String statement;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    QueryMetrics(String statement) {
+        this.statement = statement;
+    }
+
+    void queryExecuted(long durationNanos, boolean success) {
+        latency.recordNanos(durationNanos);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,69 @@
+package server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики одного маршрута (метод + шаблон пути)
+ */
+public class RouteMetrics {
+    private final String method;
+    private final String route;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder[] statusClasses = new LongAdder[6];
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < statusClasses.length; i++) {
+            statusClasses[i] = new LongAdder();
+        }
+    }
+
+    void requestStarted() {
+        inFlight.increment();
+    }
+
+    void requestFinished(int status, long durationNanos) {
+        inFlight.decrement();
+        latency.recordNanos(durationNanos);
+        statusClasses[Math.min(5, Math.max(0, status / 100))].increment();
+        if (status >= 500) {
+            errors.increment();
+        }
+    }
+
+    void requestAborted() {
+        inFlight.decrement();
+        errors.increment();
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @param statusClass класс статуса: 1..5 для 1xx..5xx
+     * @return количество ответов
+     */
+    public long getResponses(int statusClass) {
+        return statusClasses[statusClass].sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+}
@@ -0,0 +1,114 @@
+package server.pdf;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.util.ServerConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Шрифты с кириллицей для PDF. Файл шрифта читается и разбирается один раз на процесс,
+ * документы получают из готовой программы шрифта только свой объект PdfFont, в который
+ * встраиваются лишь использованные символы.
+ * Пути задаются ключами pdf.font.path и pdf.font.bold.path; без них используется первый
+ * найденный системный шрифт (DejaVu Sans в Linux, Arial в Windows).
+ */
+public final class PdfFonts {
+    private static final Logger logger = LoggerFactory.getLogger(PdfFonts.class);
+    private static final List<String> REGULAR_CANDIDATES = List.of(
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/TTF/DejaVuSans.ttf",
+            "C:/Windows/Fonts/arial.ttf",
+            "/Library/Fonts/Arial Unicode.ttf");
+    private static final List<String> BOLD_CANDIDATES = List.of(
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf",
+            "/usr/share/fonts/dejavu/DejaVuSans-Bold.ttf",
+            "/usr/share/fonts/TTF/DejaVuSans-Bold.ttf",
+            "C:/Windows/Fonts/arialbd.ttf");
+
+    private static volatile FontProgram regular;
+    private static volatile FontProgram bold;
+
+    private PdfFonts() {
+    }
+
+    /**
+     * @return обычный шрифт для нового документа
+     * @throws IOException если шрифт с кириллицей не найден
+     */
+    public static PdfFont regular() throws IOException {
+        return create(regularProgram());
+    }
+
+    /**
+     * @return полужирный шрифт для нового документа; без полужирного файла - обычный
+     * @throws IOException если шрифт с кириллицей не найден
+     */
+    public static PdfFont bold() throws IOException {
+        FontProgram program = bold;
+        if (program == null) {
+            synchronized (PdfFonts.class) {
+                if (bold == null) {
+                    String path = find("pdf.font.bold.path", BOLD_CANDIDATES);
+                    bold = path != null ? load(path) : regularProgram();
+                }
+                program = bold;
+            }
+        }
+        return create(program);
+    }
+
+    private static FontProgram regularProgram() throws IOException {
+        FontProgram program = regular;
+        if (program == null) {
+            synchronized (PdfFonts.class) {
+                if (regular == null) {
+                    String path = find("pdf.font.path", REGULAR_CANDIDATES);
+                    if (path == null) {
+                        throw new IOException("Не найден шрифт с кириллицей для PDF: укажите pdf.font.path");
+                    }
+                    regular = load(path);
+                }
+                program = regular;
+            }
+        }
+        return program;
+    }
+
+    private static PdfFont create(FontProgram program) {
+        // Identity-H - единственная кодировка, в которой TrueType-шрифт выводит кириллицу
+        return PdfFontFactory.createFont(program, PdfEncodings.IDENTITY_H,
+                PdfFontFactory.EmbeddingStrategy.FORCE_EMBEDDED);
+    }
+
+    private static FontProgram load(String path) throws IOException {
+        FontProgram program = FontProgramFactory.createFont(path, true);
+        logger.info("Шрифт PDF загружен: {}", path);
+        return program;
+    }
+
+    private static String find(String key, List<String> candidates) {
+        String configured = ServerConfig.getString(key, "");
+        if (!configured.isBlank()) {
+            if (Files.isRegularFile(Paths.get(configured))) {
+                return configured;
+            }
+            logger.warn("Шрифт PDF {} не найден: {}", key, configured);
+        }
+        for (String candidate : candidates) {
+            if (Files.isRegularFile(Paths.get(candidate))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
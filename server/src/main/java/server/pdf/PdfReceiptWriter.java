@@ -0,0 +1,167 @@
+package server.pdf;
+
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.borders.Border;
+import com.itextpdf.layout.borders.DashedBorder;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.AreaBreakType;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Запись чеков за игровые сессии в PDF, по чеку на страницу ленточного формата (80 мм).
+ * Пачка чеков (например, все чеки за смену при закрытии) пишется одним документом: шрифт встраивается
+ * в него один раз, а каждая готовая страница сразу уходит в поток вывода, так что память не растет
+ * с числом чеков. Размер страницы и стили задаются один раз при загрузке класса.
+ */
+public final class PdfReceiptWriter {
+    // 80 мм в ширину; высоты хватает на чек с длинными адресом и именем клиента
+    private static final PageSize RECEIPT_PAGE = new PageSize(227, 400);
+    private static final DateTimeFormatter RECEIPT_TIME = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    private static final Locale NUMBER_LOCALE = Locale.forLanguageTag("ru-RU");
+    private static final UnitValue[] LINE_WIDTHS = UnitValue.createPercentArray(new float[] {42, 58});
+    private static final Style CLUB_STYLE = new Style().setFontSize(11).setTextAlignment(TextAlignment.CENTER);
+    private static final Style CONTACTS_STYLE = new Style().setFontSize(7).setTextAlignment(TextAlignment.CENTER)
+            .setMarginBottom(6);
+    private static final Style TITLE_STYLE = new Style().setFontSize(9).setTextAlignment(TextAlignment.CENTER)
+            .setMarginBottom(4);
+    private static final Style LABEL_STYLE = new Style().setFontSize(8).setBorder(Border.NO_BORDER).setPadding(1);
+    private static final Style VALUE_STYLE = new Style().setFontSize(8).setBorder(Border.NO_BORDER).setPadding(1)
+            .setTextAlignment(TextAlignment.RIGHT);
+    private static final Style TOTAL_STYLE = new Style().setFontSize(10).setBorder(Border.NO_BORDER).setPadding(1)
+            .setBorderTop(new DashedBorder(0.5f));
+    private static final Style FOOTER_STYLE = new Style().setFontSize(7).setTextAlignment(TextAlignment.CENTER)
+            .setMarginTop(8);
+
+    private final Document document;
+    private final PdfFont bold;
+    private final String clubName;
+    private final String clubContacts;
+    private int receipts;
+
+    /**
+     * Начинает документ
+     * @param out поток вывода; не закрывается при завершении документа
+     * @param clubName название клуба для шапки чека
+     * @param clubAddress адрес клуба или null
+     * @param clubPhone телефон клуба или null
+     * @throws IOException если не найден шрифт
+     */
+    public PdfReceiptWriter(OutputStream out, String clubName, String clubAddress, String clubPhone)
+            throws IOException {
+        PdfWriter writer = new PdfWriter(out, new WriterProperties().setFullCompressionMode(true));
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.getDocumentInfo().setTitle("Чеки за игровые сессии");
+        document = new Document(pdf, RECEIPT_PAGE, true);
+        document.setMargins(12, 12, 12, 12);
+        document.setFont(PdfFonts.regular());
+        bold = PdfFonts.bold();
+        this.clubName = clubName != null ? clubName : "";
+        StringBuilder contacts = new StringBuilder();
+        if (clubAddress != null && !clubAddress.isBlank()) {
+            contacts.append(clubAddress);
+        }
+        if (clubPhone != null && !clubPhone.isBlank()) {
+            contacts.append(contacts.length() > 0 ? ", тел. " : "тел. ").append(clubPhone);
+        }
+        this.clubContacts = contacts.toString();
+    }
+
+    /**
+     * Добавляет чек на новой странице
+     * @param receipt данные сессии
+     */
+    public void addReceipt(Receipt receipt) {
+        if (receipts++ > 0) {
+            document.add(new AreaBreak(AreaBreakType.NEXT_PAGE));
+        }
+        document.add(new Paragraph(clubName).addStyle(CLUB_STYLE).setFont(bold));
+        if (!clubContacts.isEmpty()) {
+            document.add(new Paragraph(clubContacts).addStyle(CONTACTS_STYLE));
+        }
+        document.add(new Paragraph("Чек № " + receipt.sessionId).addStyle(TITLE_STYLE).setFont(bold));
+
+        Table lines = new Table(LINE_WIDTHS).useAllAvailableWidth();
+        addLine(lines, "Карта", receipt.cardNumber);
+        addLine(lines, "Клиент", receipt.clientName);
+        addLine(lines, "Компьютер", receipt.computerNumber != null ? "№ " + receipt.computerNumber : null);
+        addLine(lines, "Начало", receipt.startTime != null ? receipt.startTime.format(RECEIPT_TIME) : null);
+        addLine(lines, "Окончание", receipt.endTime != null ? receipt.endTime.format(RECEIPT_TIME) : null);
+        addLine(lines, "Время, мин.", String.valueOf(receipt.minutes));
+        addLine(lines, "Начислено баллов", String.valueOf(receipt.pointsEarned));
+        lines.addCell(new Cell().add(new Paragraph("Итого")).addStyle(TOTAL_STYLE).setFont(bold));
+        lines.addCell(new Cell().add(new Paragraph(String.format(NUMBER_LOCALE, "%.2f руб.", receipt.price)))
+                .addStyle(TOTAL_STYLE).setTextAlignment(TextAlignment.RIGHT).setFont(bold));
+        document.add(lines);
+
+        document.add(new Paragraph("Спасибо за визит!").addStyle(FOOTER_STYLE));
+    }
+
+    /**
+     * @return число добавленных чеков
+     */
+    public int getReceipts() {
+        return receipts;
+    }
+
+    /**
+     * Завершает документ. При ошибке на середине пачки не вызывается:
+     * незавершенный документ просто отбрасывается вместе с потоком вывода
+     */
+    public void finish() {
+        if (receipts == 0) {
+            // Документ без страниц не может быть записан
+            document.add(new Paragraph("Нет завершенных сессий за период").addStyle(TITLE_STYLE));
+        }
+        document.close();
+    }
+
+    private static void addLine(Table lines, String label, String value) {
+        lines.addCell(new Cell().add(new Paragraph(label)).addStyle(LABEL_STYLE));
+        lines.addCell(new Cell().add(new Paragraph(value != null ? value : "-")).addStyle(VALUE_STYLE));
+    }
+
+    /**
+     * Данные чека за игровую сессию
+     */
+    public static final class Receipt {
+        final long sessionId;
+        final String cardNumber;
+        final String clientName;
+        final Integer computerNumber;
+        final LocalDateTime startTime;
+        final LocalDateTime endTime;
+        final int minutes;
+        final int pointsEarned;
+        final double price;
+
+        public Receipt(long sessionId, String cardNumber, String clientName, Integer computerNumber,
+                       LocalDateTime startTime, LocalDateTime endTime, int minutes, int pointsEarned, double price) {
+            this.sessionId = sessionId;
+            this.cardNumber = cardNumber;
+            this.clientName = clientName;
+            this.computerNumber = computerNumber;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.minutes = minutes;
+            this.pointsEarned = pointsEarned;
+            this.price = price;
+        }
+    }
+}
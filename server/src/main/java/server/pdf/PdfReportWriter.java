@@ -0,0 +1,167 @@
+package server.pdf;
+
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Запись табличного отчета в PDF построчно. Таблица создается как "большая": строки сбрасываются
+ * на страницы каждые {@value #FLUSH_ROWS} строк, а готовые страницы сразу уходят в поток вывода,
+ * поэтому память не зависит от числа строк отчета.
+ * Шаблоны отчетов (заголовок, ширины колонок, ориентация страницы) и стили ячеек создаются один раз
+ * при загрузке класса и общие для всех документов.
+ */
+public final class PdfReportWriter {
+    private static final int FLUSH_ROWS = 100;
+    private static final DateTimeFormatter PERIOD_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final DateTimeFormatter CREATED_AT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    private static final Locale NUMBER_LOCALE = Locale.forLanguageTag("ru-RU");
+    private static final Map<String, Template> TEMPLATES = createTemplates();
+    private static final Style TITLE_STYLE = new Style().setFontSize(14).setMarginBottom(2);
+    private static final Style SUBTITLE_STYLE = new Style().setFontSize(9).setMarginBottom(8);
+    private static final Style HEADER_STYLE = new Style().setFontSize(8).setPadding(3);
+    private static final Style CELL_STYLE = new Style().setFontSize(8).setPadding(2);
+    private static final Style NUMBER_STYLE = new Style().setTextAlignment(TextAlignment.RIGHT);
+
+    private final Document document;
+    private final Table table;
+    private long rows;
+
+    /**
+     * Начинает документ и выводит заголовок отчета
+     * @param out поток вывода; не закрывается при завершении документа
+     * @param type тип отчета, для которого есть шаблон
+     * @param header названия колонок
+     * @param fromDate начальная дата периода
+     * @param toDate конечная дата периода
+     * @throws IOException если не найден шрифт
+     */
+    public PdfReportWriter(OutputStream out, String type, String[] header, LocalDate fromDate, LocalDate toDate)
+            throws IOException {
+        Template template = TEMPLATES.get(type);
+        if (template == null) {
+            throw new IllegalArgumentException("Нет шаблона PDF для отчета: " + type);
+        }
+        if (template.widths.length != header.length) {
+            throw new IllegalArgumentException("Шаблон PDF отчета " + type + " не совпадает с колонками");
+        }
+        PdfWriter writer = new PdfWriter(out, new WriterProperties().setFullCompressionMode(true));
+        writer.setCloseStream(false);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.getDocumentInfo().setTitle(template.title);
+        document = new Document(pdf, template.pageSize, true);
+        document.setMargins(24, 24, 24, 24);
+        document.setFont(PdfFonts.regular());
+
+        document.add(new Paragraph(template.title).addStyle(TITLE_STYLE).setFont(PdfFonts.bold()));
+        document.add(new Paragraph("Период: " + fromDate.format(PERIOD_DATE) + " - " + toDate.format(PERIOD_DATE)
+                + ". Сформирован " + LocalDateTime.now().format(CREATED_AT)).addStyle(SUBTITLE_STYLE));
+
+        table = new Table(UnitValue.createPercentArray(template.widths), true).useAllAvailableWidth();
+        for (String column : header) {
+            table.addHeaderCell(new Cell().add(new Paragraph(column)).addStyle(HEADER_STYLE));
+        }
+        // Большая таблица добавляется в документ сразу и дописывается по мере поступления строк
+        document.add(table);
+    }
+
+    /**
+     * @param type тип отчета
+     * @return true, если для отчета есть шаблон PDF
+     */
+    public static boolean supports(String type) {
+        return TEMPLATES.containsKey(type);
+    }
+
+    /**
+     * Добавляет строку таблицы
+     * @param values значения колонок; числа выравниваются вправо, дробные выводятся с двумя знаками
+     */
+    public void addRow(Object[] values) {
+        for (Object value : values) {
+            Cell cell = new Cell().addStyle(CELL_STYLE);
+            if (value instanceof Number) {
+                cell.addStyle(NUMBER_STYLE);
+            }
+            cell.add(new Paragraph(format(value)));
+            table.addCell(cell);
+        }
+        if (++rows % FLUSH_ROWS == 0) {
+            table.flush();
+        }
+    }
+
+    /**
+     * @return число добавленных строк
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Завершает таблицу и документ. При ошибке на середине отчета не вызывается:
+     * незавершенный документ просто отбрасывается вместе с потоком вывода
+     */
+    public void finish() {
+        table.complete();
+        document.add(new Paragraph("Всего строк: " + rows).addStyle(SUBTITLE_STYLE).setMarginTop(6));
+        document.close();
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double) {
+            return String.format(NUMBER_LOCALE, "%.2f", (Double) value);
+        }
+        return value.toString();
+    }
+
+    private static Map<String, Template> createTemplates() {
+        Map<String, Template> templates = new HashMap<>();
+        templates.put("points", new Template("Начисление и списание баллов", PageSize.A4.rotate(),
+                new float[] {13, 14, 16, 8, 11, 38}));
+        templates.put("activity", new Template("Активность пользователей", PageSize.A4.rotate(),
+                new float[] {24, 16, 15, 15, 15, 15}));
+        templates.put("promotions", new Template("Отчет по акциям", PageSize.A4.rotate(),
+                new float[] {20, 38, 11, 11, 8, 12}));
+        templates.put("promocodes", new Template("Отчет по промокодам", PageSize.A4.rotate(),
+                new float[] {18, 28, 13, 10, 18, 13}));
+        templates.put("financial", new Template("Финансовый отчет", PageSize.A4,
+                new float[] {14, 22, 16, 16, 16, 16}));
+        return templates;
+    }
+
+    /**
+     * Шаблон отчета: заголовок, размер страницы и относительные ширины колонок
+     */
+    private static final class Template {
+        final String title;
+        final PageSize pageSize;
+        final float[] widths;
+
+        Template(String title, PageSize pageSize, float[] widths) {
+            this.title = title;
+            this.pageSize = pageSize;
+            this.widths = widths;
+        }
+    }
+}
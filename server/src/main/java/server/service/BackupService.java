@@ -3,6 +3,7 @@ package server.service;
 import common.model.Backup;
 import common.model.User;
 
+import java.io.File;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,32 @@ public interface BackupService {
      */
     Backup createBackup(User user, String description);
 
+    /**
+     * Создает инкрементную резервную копию: строки, измененные после последней копии.
+     * Если продолжить цепочку нельзя (копий нет, последняя копия сделана до восстановления БД
+     * или цепочка достигла backup.incremental.max.chain звеньев), создается полная копия.
+     * @param user пользователь, инициировавший создание резервной копии
+     * @param description описание резервной копии
+     * @return созданная резервная копия или null в случае ошибки
+     */
+    Backup createIncrementalBackup(User user, String description);
+
+    /**
+     * Собирает полную резервную копию из цепочки, заканчивающейся указанной инкрементной копией.
+     * Собранная копия не зависит от цепочки, после чего старые звенья можно удалить.
+     * @param backupId ID инкрементной копии
+     * @param user пользователь, инициировавший сборку
+     * @return собранная полная копия или null в случае ошибки
+     */
+    Backup mergeBackupChain(Long backupId, User user);
+
+    /**
+     * Получает цепочку копий, нужных для восстановления
+     * @param backupId ID копии
+     * @return копии от полной до указанной или пустой список, если цепочка разорвана
+     */
+    List<Backup> getBackupChain(Long backupId);
+
     /**
      * Восстанавливает базу данных из резервной копии
      * @param backupId ID резервной копии
@@ -40,6 +67,13 @@ public interface BackupService {
      */
     Optional<Backup> getBackupById(Long id);
 
+    /**
+     * Получает файл резервной копии для скачивания
+     * @param id ID резервной копии
+     * @return файл или пустой Optional, если копия не найдена, недействительна или файл удален
+     */
+    Optional<File> getBackupFile(Long id);
+
     /**
      * Удаляет резервную копию
      * @param id ID резервной копии
@@ -6,52 +6,79 @@ import common.model.User;
 import common.model.Setting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.backup.BackupArchiveRestorer;
+import server.backup.BackupArchiveWriter;
+import server.backup.BackupChainMerger;
+import server.backup.BackupChecksums;
+import server.backup.BackupManifest;
+import server.db.Workload;
+import server.db.dao.BackupDao;
+import server.db.dao.BackupDaoImpl;
+import server.util.ServerConfig;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.List;
-import java.util.Map;import java.util.Optional;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipFile;
 
 /**
- * Реализация сервиса резервных копий с сохранением на диск
+ * Реализация сервиса резервных копий с сохранением на диск.
+ * Каталог копий хранится в таблице backups. Инкрементная копия продолжает цепочку от последней
+ * копии; восстановление из нее собирает цепочку в полную копию во временный файл.
  */
 public class BackupServiceImpl implements BackupService {
     private static final Logger logger = LoggerFactory.getLogger(BackupServiceImpl.class);
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    private static final String LEGACY_EXTENSION = ".sql";
+    // Рядом с архивом хранится его SHA-256, чтобы не перечитывать архивы при запуске сервера
+    private static final String CHECKSUM_EXTENSION = ".sha256";
+    private static final String INCREMENTAL_SUFFIX = "_incr";
+    private static final String MERGED_SUFFIX = "_merged";
+    private static final String FILE_PREFIX = "backup_";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
     
-    // База данных бэкапов
-    private final List<Backup> backups;
-    private final AtomicLong nextId;
-    
+    private final BackupDao backupDao;
     private final SettingsService settingsService;
     private final AuditService auditService;
+    private final BackupArchiveWriter archiveWriter;
+    private final BackupArchiveRestorer archiveRestorer;
+    private final BackupChainMerger chainMerger;
+    private final int maxChainLength;
     
     public BackupServiceImpl() {
+        this(new BackupDaoImpl(Workload.BACKGROUND));
+    }
+    
+    public BackupServiceImpl(BackupDao backupDao) {
+        this.backupDao = backupDao;
         this.settingsService = new SettingsServiceImpl();
         this.auditService = new AuditServiceImpl();
-        this.backups = new CopyOnWriteArrayList<>();
-        this.nextId = new AtomicLong(1);
+        int parallelJobs = ServerConfig.getInt("backup.parallel.jobs", 4);
+        int compressionLevel = ServerConfig.getInt("backup.compression.level", 6);
+        this.archiveWriter = new BackupArchiveWriter(parallelJobs, compressionLevel);
+        this.archiveRestorer = new BackupArchiveRestorer(parallelJobs);
+        this.chainMerger = new BackupChainMerger(parallelJobs, compressionLevel);
+        this.maxChainLength = Math.max(1, ServerConfig.getInt("backup.incremental.max.chain", 14));
         
-        // Загружаем данные из директории с бэкапами
-        loadBackupsFromDirectory();
+        // Сверяем каталог с файлами в директории резервных копий
+        synchronizeWithDirectory();
     }
     
     /**
-     * Загружает информацию о резервных копиях из директории
+     * Регистрирует в каталоге файлы копий, которых в нем нет (например, скопированные вручную),
+     * и помечает недействительными копии, файлы которых удалены
      */
-    private void loadBackupsFromDirectory() {
+    private void synchronizeWithDirectory() {
         try {
             String backupPath = getBackupPath();
             File backupDir = new File(backupPath);
@@ -59,83 +86,130 @@ public class BackupServiceImpl implements BackupService {
             if (!backupDir.exists()) {
                 backupDir.mkdirs();
                 logger.info("Создана директория для резервных копий: {}", backupPath);
-                return;
             }
             
-            File[] files = backupDir.listFiles((dir, name) -> name.endsWith(".sql"));
-            if (files == null || files.length == 0) {
-                logger.info("Резервные копии не найдены в директории: {}", backupPath);
-                return;
-            }
-            
-            logger.info("Найдено {} резервных копий в директории: {}", files.length, backupPath);
-            
-            for (File file : files) {
-                try {
-                    // Извлекаем информацию из имени файла (формат: backup_yyyyMMdd_HHmmss.sql)
-                    String fileName = file.getName();
-                    if (!fileName.startsWith("backup_") || !fileName.endsWith(".sql")) {
-                        continue;
+            File[] files = backupDir.listFiles((dir, name) -> isBackupFile(name) && name.startsWith(FILE_PREFIX));
+            int registered = 0;
+            if (files != null) {
+                Arrays.sort(files, Comparator.comparing(File::getName));
+                for (File file : files) {
+                    try {
+                        if (backupDao.findByFileName(file.getName()).isEmpty() && registerFile(file)) {
+                            registered++;
+                        }
+                    } catch (Exception e) {
+                        logger.error("Ошибка при обработке файла резервной копии: {}", file.getName(), e);
                     }
-                    
-                    String dateTimeString = fileName.substring(7, fileName.length() - 4);
-                    LocalDateTime createdAt = LocalDateTime.parse(dateTimeString, 
-                            DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-                    
-                    // Создаем объект резервной копии
-                    Backup backup = new Backup();
-                    backup.setId(nextId.getAndIncrement());
-                    backup.setFileName(fileName);
-                    backup.setCreatedAt(createdAt);
-                    backup.setFileSize(file.length());
-                    backup.setIsValid(true);
-                    backup.setHash(calculateFileHash(file));
-                    backup.setDescription("Резервная копия от " + 
-                            createdAt.format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")));
-                    
-                    // Добавляем в список
-                    backups.add(backup);
-                    
-                } catch (Exception e) {
-                    logger.error("Ошибка при обработке файла резервной копии: {}", file.getName(), e);
                 }
             }
             
-            // Сортируем по дате создания
-            backups.sort(Comparator.comparing(Backup::getCreatedAt).reversed());
-            
-            logger.info("Загружено {} резервных копий", backups.size());
+            for (Backup backup : backupDao.findAll()) {
+                if (Boolean.TRUE.equals(backup.getIsValid()) && !new File(backupDir, backup.getFileName()).exists()) {
+                    logger.warn("Файл резервной копии не найден, копия помечена недействительной: {}",
+                            backup.getFileName());
+                    backupDao.markInvalid(backup.getId());
+                }
+            }
             
+            logger.info("Каталог резервных копий сверен с директорией {}, добавлено файлов: {}", backupPath, registered);
         } catch (Exception e) {
             logger.error("Ошибка при загрузке резервных копий из директории", e);
         }
     }
     
     /**
-     * Рассчитывает хеш файла для проверки целостности
+     * Добавляет в каталог файл копии. Такая копия не может быть началом новой цепочки:
+     * неизвестно, на какой момент журнал изменений был очищен.
      */
-    private String calculateFileHash(File file) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-            byte[] hashBytes = digest.digest(fileBytes);
-            
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
+    private boolean registerFile(File file) throws IOException {
+        // Формат имени: backup_yyyyMMdd_HHmmss[_incr|_merged].zip или .sql
+        String fileName = file.getName();
+        LocalDateTime createdAt = LocalDateTime.parse(
+                fileName.substring(FILE_PREFIX.length(), FILE_PREFIX.length() + 15), FILE_TIMESTAMP);
+        
+        Backup backup = new Backup();
+        backup.setFileName(fileName);
+        backup.setCreatedAt(createdAt);
+        backup.setFileSize(file.length());
+        backup.setIsValid(true);
+        backup.setHash(readStoredHash(file).orElseGet(() -> calculateFileHash(file)));
+        backup.setDescription("Резервная копия от " + 
+                createdAt.format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss")));
+        
+        if (fileName.endsWith(ARCHIVE_EXTENSION)) {
+            BackupManifest manifest;
+            try (ZipFile zip = new ZipFile(file)) {
+                manifest = BackupArchiveRestorer.readManifest(zip);
+            }
+            if (manifest.isIncremental()) {
+                Optional<Backup> parent = Optional.ofNullable(manifest.getParentFile())
+                        .flatMap(backupDao::findByFileName);
+                if (parent.isEmpty()) {
+                    logger.warn("Родительская копия {} для {} не найдена в каталоге", manifest.getParentFile(),
+                            fileName);
+                    backup.setIsValid(false);
                 }
-                hexString.append(hex);
+                backup.setKind(Backup.KIND_INCREMENTAL);
+                parent.ifPresent(p -> {
+                    backup.setParentId(p.getId());
+                    backup.setBaseId(p.getBaseId() != null ? p.getBaseId() : p.getId());
+                });
             }
-            
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
+        }
+        return backupDao.save(backup, file.getAbsolutePath(), null).isPresent();
+    }
+    
+    /**
+     * Рассчитывает хеш файла для проверки целостности (файл читается потоком)
+     */
+    private String calculateFileHash(File file) {
+        try {
+            return BackupChecksums.sha256(file.toPath());
+        } catch (IOException e) {
             logger.error("Ошибка при вычислении хеша файла", e);
             return UUID.randomUUID().toString().replace("-", "");
         }
     }
     
+    /**
+     * Читает хеш архива, сохраненный при его создании
+     */
+    private Optional<String> readStoredHash(File file) {
+        Path checksumFile = checksumFileOf(file);
+        if (!Files.isRegularFile(checksumFile)) {
+            return Optional.empty();
+        }
+        try {
+            String line = Files.readString(checksumFile, StandardCharsets.UTF_8).trim();
+            // Формат sha256sum: "<хеш>  <имя файла>"
+            int space = line.indexOf(' ');
+            return Optional.of(space > 0 ? line.substring(0, space) : line).filter(hash -> hash.length() == 64);
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать контрольную сумму {}", checksumFile);
+            return Optional.empty();
+        }
+    }
+    
+    private static Path checksumFileOf(File file) {
+        return file.toPath().resolveSibling(file.getName() + CHECKSUM_EXTENSION);
+    }
+    
+    private static boolean isBackupFile(String name) {
+        return name.endsWith(ARCHIVE_EXTENSION) || name.endsWith(LEGACY_EXTENSION);
+    }
+    
+    /**
+     * Файл для новой копии; при совпадении времени к имени добавляется номер
+     */
+    private static File newBackupFile(File backupDir, LocalDateTime createdAt, String suffix) {
+        String name = FILE_PREFIX + createdAt.format(FILE_TIMESTAMP) + suffix;
+        File file = new File(backupDir, name + ARCHIVE_EXTENSION);
+        for (int i = 2; file.exists(); i++) {
+            file = new File(backupDir, name + "_" + i + ARCHIVE_EXTENSION);
+        }
+        return file;
+    }
+    
     /**
      * Получает путь к директории резервных копий из настроек
      */
@@ -148,11 +222,33 @@ public class BackupServiceImpl implements BackupService {
     @Override
     public Backup createBackup(User user, String description) {
         logger.debug("Создание резервной копии пользователем: {}", user.getUsername());
+        return create(user, description, null);
+    }
+    
+    @Override
+    public Backup createIncrementalBackup(User user, String description) {
+        logger.debug("Создание инкрементной резервной копии пользователем: {}", user.getUsername());
         
+        Optional<Backup> head = backupDao.findChainHead();
+        if (head.isEmpty()) {
+            logger.info("Нет копии, от которой можно продолжить цепочку, создается полная копия");
+            return create(user, description, null);
+        }
+        List<Backup> chain = getBackupChain(head.get().getId());
+        if (chain.isEmpty() || chain.size() >= maxChainLength) {
+            // Длинная цепочка замедляет восстановление: начинаем новую
+            logger.info("Цепочка копий достигла {} звеньев, создается полная копия", chain.size());
+            return create(user, description, null);
+        }
+        return create(user, description, head.get());
+    }
+    
+    /**
+     * Создает полную копию или, если задана родительская копия, инкрементную
+     */
+    private Backup create(User user, String description, Backup parent) {
         try {
             LocalDateTime now = LocalDateTime.now();
-            String fileName = String.format("backup_%s.sql", 
-                    now.format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
             
             // Получаем путь для сохранения
             String backupPath = getBackupPath();
@@ -163,154 +259,159 @@ public class BackupServiceImpl implements BackupService {
                 backupDir.mkdirs();
             }
             
-            File backupFile = new File(backupDir, fileName);
-            
-            // Создаем пустой файл и записываем в него информацию о резервной копии
-            // В реальном приложении здесь должен быть код для дампа базы данных
-            // Например, запуск pg_dump для PostgreSQL
+            File backupFile = newBackupFile(backupDir, now, parent != null ? INCREMENTAL_SUFFIX : "");
+            String fileName = backupFile.getName();
             
-            // Имитация создания дампа
-            if (!createDatabaseDump(backupFile)) {
-                logger.error("Не удалось создать дамп базы данных");
-                return null;
+            // Выгрузка таблиц (или их изменений) на один момент времени в сжатый архив
+            BackupArchiveWriter.Result result;
+            if (parent != null) {
+                String parentSnapshot = backupDao.findTxSnapshot(parent.getId()).orElse(null);
+                result = archiveWriter.writeIncremental(backupFile.toPath(), parentSnapshot,
+                        parent.getFileName(), parent.getHash());
+            } else {
+                result = archiveWriter.write(backupFile.toPath());
             }
+            Files.writeString(checksumFileOf(backupFile), result.getSha256() + "  " + fileName + "\n",
+                    StandardCharsets.UTF_8);
             
             // Создаем запись о резервной копии
             Backup backup = new Backup();
-            backup.setId(nextId.getAndIncrement());
             backup.setFileName(fileName);
             backup.setCreatedAt(now);
             backup.setCreatedBy(user);
-            backup.setFileSize(backupFile.length());
-            backup.setHash(calculateFileHash(backupFile));
+            backup.setFileSize(result.getSize());
+            backup.setHash(result.getSha256());
             backup.setIsValid(true);
             backup.setDescription(description != null ? description : "Резервная копия");
+            if (parent != null) {
+                backup.setKind(Backup.KIND_INCREMENTAL);
+                backup.setParentId(parent.getId());
+                backup.setBaseId(parent.getBaseId() != null ? parent.getBaseId() : parent.getId());
+            }
+            
+            Optional<Long> id = backupDao.save(backup, backupFile.getAbsolutePath(),
+                    result.getManifest().getTxSnapshot());
+            if (id.isEmpty()) {
+                logger.error("Резервная копия {} создана, но не добавлена в каталог", fileName);
+                return null;
+            }
+            backup.setId(id.get());
             
-            // Добавляем в список
-            backups.add(backup);
+            // Изменения, вошедшие в копию, больше не нужны для следующей инкрементной копии
+            int pruned = backupDao.pruneChanges();
+            logger.debug("Из журнала изменений удалено записей: {}", pruned);
             
             // Логирование в аудит
             auditService.logAction(user, "BACKUP", "Создание резервной копии: " + fileName,
                     "127.0.0.1", "BACKUP", backup.getId());
             
-            logger.info("Резервная копия успешно создана: {}", fileName);
+            logger.info("Резервная копия успешно создана: {} ({})", fileName, backup.getKind());
             
             return backup;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Создание резервной копии прервано");
+            return null;
         } catch (Exception e) {
             logger.error("Ошибка при создании резервной копии", e);
             return null;
         }
     }
     
-    /**
-     * Создает дамп базы данных
-     * @param backupFile файл для сохранения дампа
-     * @return true если успешно
-     */
-    private boolean createDatabaseDump(File backupFile) {
+    @Override
+    public Backup mergeBackupChain(Long backupId, User user) {
+        logger.debug("Сборка полной копии из цепочки до копии с ID: {}", backupId);
+        
+        List<Backup> chain = getBackupChain(backupId);
+        if (chain.size() < 2) {
+            logger.error("Копия с ID {} не является инкрементной копией с полной цепочкой", backupId);
+            return null;
+        }
+        
         try {
-            // Получаем настройки базы данных
-            Optional<Setting> hostSetting = settingsService.getSetting("db.host");
-            Optional<Setting> portSetting = settingsService.getSetting("db.port");
-            Optional<Setting> nameSetting = settingsService.getSetting("db.name");
-            Optional<Setting> userSetting = settingsService.getSetting("db.user");
-            Optional<Setting> passwordSetting = settingsService.getSetting("db.password");
-            
-            String dbHost = hostSetting.map(Setting::getValue).orElse("localhost");
-            String dbPort = portSetting.map(Setting::getValue).orElse("5432");
-            String dbName = nameSetting.map(Setting::getValue).orElse("loyalty_db");
-            String dbUser = userSetting.map(Setting::getValue).orElse("postgres");
-            String dbPassword = passwordSetting.map(Setting::getValue).orElse("");
-            
-            logger.info("Создание дампа базы данных: {}@{}:{}/{}", dbUser, dbHost, dbPort, dbName);
-            
-            // Создаем команду для выполнения pg_dump
-            List<String> command = new ArrayList<>();
-            
-            // В Windows путь к pg_dump может быть разным
-            String pgDumpCmd = "pg_dump";
-            if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                // Попытка найти pg_dump в стандартных местах установки PostgreSQL
-                File pgDump = new File("C:\\Program Files\\PostgreSQL\\14\\bin\\pg_dump.exe");
-                if (pgDump.exists()) {
-                    pgDumpCmd = pgDump.getAbsolutePath();
-                } else {
-                    pgDump = new File("C:\\Program Files\\PostgreSQL\\13\\bin\\pg_dump.exe");
-                    if (pgDump.exists()) {
-                        pgDumpCmd = pgDump.getAbsolutePath();
-                    }
-                }
+            File backupDir = new File(getBackupPath());
+            List<Path> archives = chainFiles(backupDir, chain);
+            if (archives == null) {
+                return null;
             }
             
-            command.add(pgDumpCmd);
-            command.add("-h");
-            command.add(dbHost);
-            command.add("-p");
-            command.add(dbPort);
-            command.add("-U");
-            command.add(dbUser);
-            command.add("-F");
-            command.add("p"); // plain text format
-            command.add("-f");
-            command.add(backupFile.getAbsolutePath());
-            command.add(dbName);
-            
-            // Создаем процесс
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            
-            // Устанавливаем пароль через переменную окружения
-            Map<String, String> env = processBuilder.environment();
-            env.put("PGPASSWORD", dbPassword);
-            
-            // Запускаем процесс
-            Process process = processBuilder.start();
+            // Собранная копия отражает состояние на момент последней копии цепочки и стоит в каталоге рядом с ней
+            Backup target = chain.get(chain.size() - 1);
+            File mergedFile = newBackupFile(backupDir, target.getCreatedAt(), MERGED_SUFFIX);
+            BackupArchiveWriter.Result result = chainMerger.merge(archives, mergedFile.toPath());
+            Files.writeString(checksumFileOf(mergedFile), result.getSha256() + "  " + mergedFile.getName() + "\n",
+                    StandardCharsets.UTF_8);
+            
+            Backup merged = new Backup();
+            merged.setFileName(mergedFile.getName());
+            merged.setCreatedAt(target.getCreatedAt());
+            merged.setCreatedBy(user);
+            merged.setFileSize(result.getSize());
+            merged.setHash(result.getSha256());
+            merged.setIsValid(true);
+            merged.setDescription("Полная копия, собранная из цепочки до " + target.getFileName());
+            
+            Optional<Long> id = backupDao.save(merged, mergedFile.getAbsolutePath(),
+                    backupDao.findTxSnapshot(target.getId()).orElse(null));
+            if (id.isEmpty()) {
+                logger.error("Копия {} собрана, но не добавлена в каталог", mergedFile.getName());
+                return null;
+            }
+            merged.setId(id.get());
             
-            // Ждем завершения процесса
-            int exitCode = process.waitFor();
+            auditService.logAction(user, "BACKUP", "Сборка цепочки резервных копий: " + mergedFile.getName(),
+                    "127.0.0.1", "BACKUP", merged.getId());
             
-            if (exitCode == 0) {
-                logger.info("Дамп базы данных успешно создан: {}", backupFile.getAbsolutePath());
-                return true;
-            } else {
-                // Читаем сообщение об ошибке
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(process.getErrorStream()))) {
-                    StringBuilder error = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        error.append(line).append("\n");
-                    }
-                    logger.error("Ошибка при создании дампа базы данных (код {}): {}", 
-                            exitCode, error.toString());
-                }
-                
-                // Если pg_dump не установлен или не доступен, создаем mock-файл для демонстрации
-                if (exitCode == 127 || exitCode == 1) {
-                    logger.warn("pg_dump не найден или недоступен, создаем демонстрационный файл резервной копии");
-                    Files.writeString(backupFile.toPath(), 
-                            "-- Database dump created at " + LocalDateTime.now() + "\n" +
-                            "-- This is a demonstration dump file\n\n" +
-                            "-- Real PostgreSQL backup would be here\n" +
-                            "-- Tables structure and data would be here in a real application\n");
-                    return true;
-                }
-                
-                return false;
-            }
+            logger.info("Цепочка из {} копий собрана в полную копию {}", chain.size(), mergedFile.getName());
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Сборка цепочки резервных копий прервана");
+            return null;
         } catch (Exception e) {
-            logger.error("Ошибка при создании дампа базы данных", e);
-            
-            try {
-                // В случае ошибки создаем хотя бы пустой файл
-                Files.writeString(backupFile.toPath(), 
-                        "-- Error occurred during backup at " + LocalDateTime.now() + "\n" +
-                        "-- Error message: " + e.getMessage() + "\n");
-            } catch (IOException ioe) {
-                logger.error("Не удалось создать файл резервной копии", ioe);
+            logger.error("Ошибка при сборке цепочки резервных копий", e);
+            return null;
+        }
+    }
+    
+    @Override
+    public List<Backup> getBackupChain(Long backupId) {
+        LinkedList<Backup> chain = new LinkedList<>();
+        Optional<Backup> current = backupDao.findById(backupId);
+        while (current.isPresent()) {
+            chain.addFirst(current.get());
+            Long parentId = current.get().getParentId();
+            if (parentId == null) {
+                break;
             }
-            
-            return false;
+            current = backupDao.findById(parentId);
         }
+        if (chain.isEmpty() || Backup.KIND_INCREMENTAL.equals(chain.getFirst().getKind())) {
+            logger.error("Цепочка копии с ID {} не начинается с полной копии", backupId);
+            return Collections.emptyList();
+        }
+        return chain;
+    }
+    
+    /**
+     * Файлы цепочки с проверкой их наличия и целостности
+     * @return пути к архивам или null, если файл отсутствует или изменен
+     */
+    private List<Path> chainFiles(File backupDir, List<Backup> chain) {
+        List<Path> archives = new ArrayList<>();
+        for (Backup link : chain) {
+            File file = new File(backupDir, link.getFileName());
+            if (!file.exists() || !link.getFileName().endsWith(ARCHIVE_EXTENSION)) {
+                logger.error("Файл резервной копии не найден: {}", file.getAbsolutePath());
+                return null;
+            }
+            if (!calculateFileHash(file).equals(link.getHash())) {
+                logger.error("Нарушена целостность файла резервной копии: {}", link.getFileName());
+                return null;
+            }
+            archives.add(file.toPath());
+        }
+        return archives;
     }
     
     @Override
@@ -328,27 +429,35 @@ public class BackupServiceImpl implements BackupService {
         
         try {
             String backupPath = getBackupPath();
-            File backupFile = new File(backupPath, backup.getFileName());
-            
-            if (!backupFile.exists()) {
-                logger.error("Файл резервной копии не найден: {}", backupFile.getAbsolutePath());
-                return false;
-            }
+            File backupDir = new File(backupPath);
+            boolean success;
             
-            // Проверяем целостность файла
-            String currentHash = calculateFileHash(backupFile);
-            if (!currentHash.equals(backup.getHash())) {
-                logger.error("Нарушена целостность файла резервной копии");
-                return false;
+            if (Backup.KIND_INCREMENTAL.equals(backup.getKind())) {
+                success = restoreDatabaseFromChain(backupDir, backup);
+            } else {
+                File backupFile = new File(backupDir, backup.getFileName());
+                
+                if (!backupFile.exists()) {
+                    logger.error("Файл резервной копии не найден: {}", backupFile.getAbsolutePath());
+                    return false;
+                }
+                
+                // Проверяем целостность файла
+                String currentHash = calculateFileHash(backupFile);
+                if (!currentHash.equals(backup.getHash())) {
+                    logger.error("Нарушена целостность файла резервной копии");
+                    return false;
+                }
+                
+                success = backupFile.getName().endsWith(ARCHIVE_EXTENSION)
+                        ? restoreDatabaseFromArchive(backupFile)
+                        : restoreDatabaseFromDump(backupFile);
             }
             
-            // В реальном приложении здесь был бы код для восстановления из дампа
-            // Например, использование ProcessBuilder для запуска pg_restore
-            
-            // Имитация восстановления
-            boolean success = restoreDatabaseFromDump(backupFile);
-            
             if (success) {
+                // Журнал изменений не отражает возврат данных к копии: следующая копия будет полной
+                backupDao.clearTxSnapshots();
+                
                 // Логирование в аудит
                 auditService.logAction(user, "RESTORE", "Восстановление из резервной копии: " + backup.getFileName(),
                         "127.0.0.1", "BACKUP", backupId);
@@ -364,7 +473,57 @@ public class BackupServiceImpl implements BackupService {
     }
     
     /**
-     * Восстанавливает базу данных из дампа
+     * Восстанавливает базу данных из инкрементной копии: цепочка собирается во временную
+     * полную копию, которая восстанавливается и удаляется
+     * @param backupDir директория резервных копий
+     * @param backup последняя копия цепочки
+     * @return true если успешно
+     */
+    private boolean restoreDatabaseFromChain(File backupDir, Backup backup) throws IOException {
+        List<Backup> chain = getBackupChain(backup.getId());
+        List<Path> archives = chain.isEmpty() ? null : chainFiles(backupDir, chain);
+        if (archives == null) {
+            return false;
+        }
+        Path merged = backupDir.toPath().resolve(".restore_" + backup.getFileName());
+        try {
+            logger.info("Сборка цепочки из {} копий для восстановления", chain.size());
+            chainMerger.merge(archives, merged);
+            return restoreDatabaseFromArchive(merged.toFile());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Сборка цепочки резервных копий прервана");
+            return false;
+        } finally {
+            Files.deleteIfExists(merged);
+        }
+    }
+    
+    /**
+     * Восстанавливает базу данных из архива COPY: таблицы загружаются параллельно,
+     * контрольная сумма каждой таблицы проверяется при чтении
+     * @param backupFile архив резервной копии
+     * @return true если успешно
+     */
+    private boolean restoreDatabaseFromArchive(File backupFile) {
+        try {
+            logger.info("Восстановление базы данных из архива: {}", backupFile.getAbsolutePath());
+            archiveRestorer.restore(backupFile.toPath(), (stage, done, total, detail) ->
+                    logger.info("Восстановление, {}: {} из {} ({}%), {}", stage, done, total,
+                            total > 0 ? done * 100 / total : 100, detail));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Восстановление из архива прервано");
+            return false;
+        } catch (Exception e) {
+            logger.error("Ошибка при восстановлении базы данных из архива", e);
+            return false;
+        }
+    }
+    
+    /**
+     * Восстанавливает базу данных из SQL-дампа прежнего формата
      * @param backupFile файл с дампом
      * @return true если успешно
      */
@@ -444,12 +603,6 @@ public class BackupServiceImpl implements BackupService {
                             exitCode, error.toString());
                 }
                 
-                // Если мы получили демонстрационный файл, считаем операцию успешной
-                if (exitCode == 127 || Files.readString(backupFile.toPath()).contains("demonstration dump file")) {
-                    logger.warn("psql не найден или используется демонстрационный файл, имитируем успешное восстановление");
-                    return true;
-                }
-                
                 return false;
             }
         } catch (Exception e) {
@@ -460,21 +613,27 @@ public class BackupServiceImpl implements BackupService {
     
     @Override
     public List<Backup> getAllBackups() {
-        logger.debug("Запрос всех резервных копий ({})", backups.size());
+        logger.debug("Запрос всех резервных копий");
         
-        // Сортируем по дате создания (новые в начале)
-        return backups.stream()
-                .sorted(Comparator.comparing(Backup::getCreatedAt).reversed())
-                .collect(Collectors.toList());
+        // Новые в начале
+        return backupDao.findAll();
     }
     
     @Override
     public Optional<Backup> getBackupById(Long id) {
         logger.debug("Запрос резервной копии по ID: {}", id);
         
-        return backups.stream()
-                .filter(backup -> backup.getId().equals(id))
-                .findFirst();
+        return backupDao.findById(id);
+    }
+    
+    @Override
+    public Optional<File> getBackupFile(Long id) {
+        Optional<Backup> backup = getBackupById(id);
+        if (backup.isEmpty() || !Boolean.TRUE.equals(backup.get().getIsValid())) {
+            return Optional.empty();
+        }
+        File file = new File(getBackupPath(), backup.get().getFileName());
+        return file.isFile() ? Optional.of(file) : Optional.empty();
     }
     
     @Override
@@ -490,7 +649,18 @@ public class BackupServiceImpl implements BackupService {
         
         Backup backup = backupOptional.get();
         
+        // Без родительской копии инкрементные копии нельзя восстановить
+        int children = backupDao.countChildren(id);
+        if (children > 0) {
+            logger.error("От резервной копии {} сделаны инкрементные копии ({}), сначала удалите их",
+                    backup.getFileName(), children);
+            return false;
+        }
+        
         try {
+            boolean latest = backupDao.findAll().stream().findFirst()
+                    .map(first -> first.getId().equals(id)).orElse(false);
+            
             // Удаляем файл
             String backupPath = getBackupPath();
             File backupFile = new File(backupPath, backup.getFileName());
@@ -501,11 +671,16 @@ public class BackupServiceImpl implements BackupService {
                     logger.warn("Не удалось удалить файл резервной копии: {}", backupFile.getAbsolutePath());
                 }
             }
+            Files.deleteIfExists(checksumFileOf(backupFile));
             
-            // Удаляем из списка
-            boolean removed = backups.remove(backup);
+            // Удаляем из каталога
+            boolean removed = backupDao.delete(id);
             
             if (removed) {
+                if (latest) {
+                    // Журнал уже очищен до снимка удаленной копии: продолжить цепочку от предыдущей нельзя
+                    backupDao.clearTxSnapshots();
+                }
                 logger.info("Резервная копия успешно удалена: {}", backup.getFileName());
             }
             
@@ -535,7 +710,7 @@ public class BackupServiceImpl implements BackupService {
             File[] files = backupDir.listFiles();
             if (files != null) {
                 for (File file : files) {
-                    if (file.isFile() && file.getName().endsWith(".sql")) {
+                    if (file.isFile() && isBackupFile(file.getName())) {
                         totalSize += file.length();
                     }
                 }
@@ -545,11 +720,11 @@ public class BackupServiceImpl implements BackupService {
             long freeSpace = backupDir.getFreeSpace();
             
             // Возвращаем информацию о директории
-            return new BackupDirectoryInfo(totalSize, backups.size(), backupPath, freeSpace);
+            return new BackupDirectoryInfo(totalSize, backupDao.findAll().size(), backupPath, freeSpace);
         } catch (Exception e) {
             logger.error("Ошибка при получении информации о директории резервных копий", e);
             // Возвращаем информацию по умолчанию в случае ошибки
-            return new BackupDirectoryInfo(0, backups.size(), 
+            return new BackupDirectoryInfo(0, 0, 
                     System.getProperty("user.home") + "/backups", 0);
         }
     }
@@ -1,17 +1,23 @@
 package server.service;
 
+import common.dto.ChangeEvent;
 import common.model.Card;
 import common.model.Tier;
 import common.model.User;
+import common.util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import server.db.dao.CardDao;
 import server.db.dao.CardDaoImpl;
+import server.db.dao.PointLotDao;
+import server.db.dao.PointLotDaoImpl;
 import server.db.dao.TierDao;
 import server.db.dao.TierDaoImpl;
 import server.db.dao.UserDao;
 import server.db.dao.UserDaoImpl;
+import server.event.EventBus;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,17 +29,24 @@ public class CardServiceImpl implements CardService {
     private final CardDao cardDao;
     private final UserDao userDao;
     private final TierDao tierDao;
+    private final PointLotDao pointLotDao;
     
     public CardServiceImpl() {
         this.cardDao = new CardDaoImpl();
         this.userDao = new UserDaoImpl();
         this.tierDao = new TierDaoImpl();
+        this.pointLotDao = new PointLotDaoImpl();
     }
     
     public CardServiceImpl(CardDao cardDao, UserDao userDao, TierDao tierDao) {
+        this(cardDao, userDao, tierDao, new PointLotDaoImpl());
+    }
+    
+    public CardServiceImpl(CardDao cardDao, UserDao userDao, TierDao tierDao, PointLotDao pointLotDao) {
         this.cardDao = cardDao;
         this.userDao = userDao;
         this.tierDao = tierDao;
+        this.pointLotDao = pointLotDao;
     }
 
     @Override
@@ -151,22 +164,24 @@ public class CardServiceImpl implements CardService {
             }
             
             Card card = cardOpt.get();
-            int newPoints = card.getPoints() + points;
             
-            // Обновляем количество баллов
-            boolean updated = cardDao.updatePoints(cardId, newPoints);
-            if (!updated) {
+            // Баланс и партия с собственным сроком сгорания сохраняются одной транзакцией
+            LocalDateTime now = LocalDateTime.now();
+            Optional<Integer> newPoints = pointLotDao.earn(cardId, points, now,
+                    now.plusMonths(Constants.POINTS_EXPIRY_MONTHS));
+            if (newPoints.isEmpty()) {
                 logger.error("Не удалось обновить количество баллов для карты {}", cardId);
                 return Optional.empty();
             }
             
-            card.setPoints(newPoints);
+            card.setPoints(newPoints.get());
             
             // Обновляем уровень карты, если нужно
             updateTierIfNeeded(card);
+            publishPointsChanged(card);
             
             logger.info("На карту {} начислено {} баллов. Текущий баланс: {}", 
-                    card.getCardNumber(), points, newPoints);
+                    card.getCardNumber(), points, card.getPoints());
             
             return Optional.of(card);
         } catch (Exception e) {
@@ -201,22 +216,21 @@ public class CardServiceImpl implements CardService {
                 return Optional.empty();
             }
             
-            int newPoints = card.getPoints() - points;
-            
-            // Обновляем количество баллов
-            boolean updated = cardDao.updatePoints(cardId, newPoints);
-            if (!updated) {
-                logger.error("Не удалось обновить количество баллов для карты {}", cardId);
+            // Баланс и партии списываются одной транзакцией; баланс проверяется еще раз при списании
+            Optional<Integer> newPoints = pointLotDao.spend(cardId, points);
+            if (newPoints.isEmpty()) {
+                logger.error("Не удалось списать {} баллов с карты {}", points, cardId);
                 return Optional.empty();
             }
             
-            card.setPoints(newPoints);
+            card.setPoints(newPoints.get());
             
             // Обновляем уровень карты, если нужно
             updateTierIfNeeded(card);
+            publishPointsChanged(card);
             
             logger.info("С карты {} списано {} баллов. Текущий баланс: {}", 
-                    card.getCardNumber(), points, newPoints);
+                    card.getCardNumber(), points, card.getPoints());
             
             return Optional.of(card);
         } catch (Exception e) {
@@ -300,4 +314,13 @@ public class CardServiceImpl implements CardService {
             return false;
         }
     }
+
+    /**
+     * Сообщает подписанным клиентам новый баланс и уровень карты
+     */
+    private void publishPointsChanged(Card card) {
+        EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.POINTS_CHANGED, card.getId())
+                .with("points", card.getPoints())
+                .with("level", card.getLevel()));
+    }
 } 
\ No newline at end of file
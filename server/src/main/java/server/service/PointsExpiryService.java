@@ -0,0 +1,17 @@
+package server.service;
+
+import server.db.dao.PointLotDao.ExpiredChunk;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сервис сгорания баллов по сроку действия
+ */
+public interface PointsExpiryService {
+    /**
+     * Списывает все партии баллов, срок которых истек к указанному моменту
+     * @param asOf момент, на который проверяется срок
+     * @return суммарное количество обработанных карт и сгоревших баллов
+     */
+    ExpiredChunk expirePoints(LocalDateTime asOf);
+}
@@ -0,0 +1,95 @@
+package server.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.Workload;
+import server.db.dao.PointLotDao;
+import server.db.dao.PointLotDao.ExpiredChunk;
+import server.db.dao.PointLotDaoImpl;
+import server.util.ServerConfig;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Реализация сервиса сгорания баллов.
+ * Карты обрабатываются диапазонами ID параллельно; каждый диапазон - одна короткая транзакция.
+ */
+public class PointsExpiryServiceImpl implements PointsExpiryService {
+    private static final Logger logger = LoggerFactory.getLogger(PointsExpiryServiceImpl.class);
+    private static final String EXPIRY_DESCRIPTION = "Сгорание баллов по истечении срока";
+
+    private final PointLotDao pointLotDao;
+    private final int chunkSize;
+    private final int threads;
+
+    public PointsExpiryServiceImpl() {
+        this(new PointLotDaoImpl(Workload.BACKGROUND),
+                ServerConfig.getInt("points.expiry.chunk.size", 5000),
+                ServerConfig.getInt("points.expiry.threads", 4));
+    }
+
+    public PointsExpiryServiceImpl(PointLotDao pointLotDao, int chunkSize, int threads) {
+        this.pointLotDao = pointLotDao;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public ExpiredChunk expirePoints(LocalDateTime asOf) {
+        Optional<long[]> rangeOpt = pointLotDao.findExpiringCardIdRange(asOf);
+        if (rangeOpt.isEmpty()) {
+            logger.info("Нет баллов, сгорающих на {}", asOf);
+            return new ExpiredChunk(0, 0);
+        }
+
+        long minCardId = rangeOpt.get()[0];
+        long maxCardId = rangeOpt.get()[1];
+        logger.info("Сгорание баллов на {}: карты {}..{}, диапазон {} карт, потоков {}",
+                asOf, minCardId, maxCardId, chunkSize, threads);
+
+        long startedAt = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "points-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<ExpiredChunk>> futures = new ArrayList<>();
+            for (long from = minCardId; from <= maxCardId; from += chunkSize) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(maxCardId, from + chunkSize - 1);
+                futures.add(executor.submit(() -> pointLotDao.expireChunk(chunkFrom, chunkTo, asOf, EXPIRY_DESCRIPTION)));
+            }
+
+            int cards = 0;
+            long points = 0;
+            for (Future<ExpiredChunk> future : futures) {
+                try {
+                    ExpiredChunk chunk = future.get();
+                    cards += chunk.getCards();
+                    points += chunk.getPoints();
+                } catch (ExecutionException e) {
+                    logger.error("Ошибка при обработке диапазона карт", e.getCause());
+                }
+            }
+
+            logger.info("Сгорание баллов завершено за {} мс: карт {}, баллов {}",
+                    System.currentTimeMillis() - startedAt, cards, points);
+            return new ExpiredChunk(cards, points);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Сгорание баллов прервано");
+            return new ExpiredChunk(0, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -14,6 +14,7 @@ public interface PromoCodeService {
     /**
      * Получает все промокоды
      * @return список всех промокодов
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД
      */
     List<PromoCode> getAllPromoCodes();
 
@@ -29,12 +29,7 @@ public class PromoCodeServiceImpl implements PromoCodeService {
     @Override
     public List<PromoCode> getAllPromoCodes() {
         logger.debug("Получение всех промокодов");
-        try {
-            return promoCodeDao.findAll();
-        } catch (Exception e) {
-            logger.error("Ошибка при получении всех промокодов из БД", e);
-            return new ArrayList<>();
-        }
+        return promoCodeDao.findAll();
     }
     
     @Override
@@ -14,6 +14,7 @@ public interface PromotionService {
     /**
      * Получает все акции
      * @return список всех акций
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД
      */
     List<Promotion> getAllPromotions();
 
@@ -1,16 +1,16 @@
 package server.service;
 
+import common.dto.ChangeEvent;
 import common.model.Promotion;
+import org.jdbi.v3.core.JdbiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import server.db.DatabaseConfig;
+import server.db.QueryExecutor;
+import server.db.Workload;
 import server.db.dao.PromotionDao;
 import server.db.dao.PromotionDaoImpl;
+import server.event.EventBus;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -37,12 +37,7 @@ public class PromotionServiceImpl implements PromotionService {
     @Override
     public List<Promotion> getAllPromotions() {
         logger.debug("Получение всех акций");
-        try {
-            return promotionDao.findAll();
-        } catch (Exception e) {
-            logger.error("Ошибка при получении всех акций из БД", e);
-            return new ArrayList<>();
-        }
+        return promotionDao.findAll();
     }
     
     @Override
@@ -178,7 +173,11 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setActive(true);
         
             // Обновляем в БД
-            return promotionDao.update(promotion);
+            boolean updated = promotionDao.update(promotion);
+            if (updated) {
+                publishPromotionToggled(promotion);
+            }
+            return updated;
         } catch (Exception e) {
             logger.error("Ошибка при активации акции с ID {} в БД", id, e);
             return false;
@@ -206,7 +205,11 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setActive(false);
         
             // Обновляем в БД
-            return promotionDao.update(promotion);
+            boolean updated = promotionDao.update(promotion);
+            if (updated) {
+                publishPromotionToggled(promotion);
+            }
+            return updated;
         } catch (Exception e) {
             logger.error("Ошибка при деактивации акции с ID {} в БД", id, e);
             return false;
@@ -219,7 +222,9 @@ public class PromotionServiceImpl implements PromotionService {
         
         Map<String, Object> statistics = new HashMap<>();
         
-        try (Connection conn = DatabaseConfig.getConnection()) {
+        // Агрегаты по всем акциям и промокодам считаются в пуле отчетов
+        QueryExecutor db = QueryExecutor.getInstance(Workload.REPORTING);
+        try {
             // Основная статистика по акциям
             String sql = """
                 SELECT 
@@ -232,18 +237,16 @@ public class PromotionServiceImpl implements PromotionService {
                 FROM promotions p
             """;
             
-            try (PreparedStatement stmt = conn.prepareStatement(sql);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                if (rs.next()) {
-                    statistics.put("totalPromotions", rs.getInt("total_promotions"));
-                    statistics.put("activePromotions", rs.getInt("active_promotions"));
-                    statistics.put("totalPromoCodes", rs.getInt("total_promo_codes"));
-                    statistics.put("usedPromoCodes", rs.getInt("used_promo_codes"));
-                    statistics.put("totalBonusPoints", rs.getInt("total_bonus_points"));
-                    statistics.put("totalUsageCount", rs.getInt("total_usage_count"));
-                }
-            }
+            db.findOne(sql, (rs, ctx) -> {
+                Map<String, Object> totals = new HashMap<>();
+                totals.put("totalPromotions", rs.getInt("total_promotions"));
+                totals.put("activePromotions", rs.getInt("active_promotions"));
+                totals.put("totalPromoCodes", rs.getInt("total_promo_codes"));
+                totals.put("usedPromoCodes", rs.getInt("used_promo_codes"));
+                totals.put("totalBonusPoints", rs.getInt("total_bonus_points"));
+                totals.put("totalUsageCount", rs.getInt("total_usage_count"));
+                return totals;
+            }).ifPresent(statistics::putAll);
             
             // Активность по дням (последние 7 дней)
             Map<String, Integer> dailyActivityData = new HashMap<>();
@@ -257,15 +260,9 @@ public class PromotionServiceImpl implements PromotionService {
                 ORDER BY activity_date
             """;
             
-            try (PreparedStatement stmt = conn.prepareStatement(dailyActivityQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    String date = rs.getDate("activity_date").toString();
-                    int count = rs.getInt("activity_count");
-                    dailyActivityData.put(date, count);
-                }
-            }
+            db.stream(dailyActivityQuery, (rs, ctx) -> Map.entry(rs.getDate("activity_date").toString(),
+                            rs.getInt("activity_count")),
+                    day -> dailyActivityData.put(day.getKey(), day.getValue()));
             statistics.put("dailyActivityData", dailyActivityData);
             
             // Использование промокодов по типам
@@ -282,15 +279,9 @@ public class PromotionServiceImpl implements PromotionService {
                 LIMIT 10
             """;
             
-            try (PreparedStatement stmt = conn.prepareStatement(promoCodeUsageQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    String promotionName = rs.getString("promotion_name");
-                    int usageCount = rs.getInt("usage_count");
-                    promoCodeUsageData.put(promotionName, usageCount);
-                }
-            }
+            db.stream(promoCodeUsageQuery, (rs, ctx) -> Map.entry(rs.getString("promotion_name"),
+                            rs.getInt("usage_count")),
+                    usage -> promoCodeUsageData.put(usage.getKey(), usage.getValue()));
             statistics.put("promoCodeUsageData", promoCodeUsageData);
             
             // Популярность акций
@@ -307,20 +298,14 @@ public class PromotionServiceImpl implements PromotionService {
                 LIMIT 10
             """;
             
-            try (PreparedStatement stmt = conn.prepareStatement(promotionUsageQuery);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    String promotionName = rs.getString("promotion_name");
-                    int participantsCount = rs.getInt("participants_count");
-                    promotionUsageData.put(promotionName, participantsCount);
-                }
-            }
+            db.stream(promotionUsageQuery, (rs, ctx) -> Map.entry(rs.getString("promotion_name"),
+                            rs.getInt("participants_count")),
+                    usage -> promotionUsageData.put(usage.getKey(), usage.getValue()));
             statistics.put("promotionUsageData", promotionUsageData);
             
             logger.debug("Статистика по акциям успешно получена");
             
-        } catch (SQLException e) {
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении статистики по акциям из БД", e);
             // Возвращаем пустую статистику в случае ошибки
             statistics.put("totalPromotions", 0);
@@ -336,4 +321,13 @@ public class PromotionServiceImpl implements PromotionService {
         
         return statistics;
     }
+
+    /**
+     * Сообщает подписанным клиентам о включении или выключении акции
+     */
+    private void publishPromotionToggled(Promotion promotion) {
+        EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.PROMOTION_TOGGLED, promotion.getId())
+                .with("name", promotion.getName())
+                .with("active", promotion.isActive()));
+    }
 } 
\ No newline at end of file
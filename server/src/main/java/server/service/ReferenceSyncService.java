@@ -0,0 +1,32 @@
+package server.service;
+
+import common.dto.ReferenceDelta;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис синхронизации справочников по изменениям: клиент хранит справочники у себя и запрашивает
+ * только строки, добавленные, измененные или удаленные после уже полученной версии
+ */
+public interface ReferenceSyncService {
+    /**
+     * Справочники, доступные для синхронизации (имена в адресе /api/sync/{entity})
+     */
+    String TIERS = "tiers";
+    String PROMOTIONS = "promotions";
+    String PROMO_CODES = "promocodes";
+    String USERS = "users";
+    String SETTINGS = "settings";
+    List<String> ENTITIES = List.of(TIERS, PROMOTIONS, PROMO_CODES, USERS, SETTINGS);
+
+    /**
+     * Получить изменения справочника
+     * @param entity имя справочника из {@link #ENTITIES}
+     * @param updatedSince версия, полученная клиентом в прошлый раз; null или неизвестная версия
+     *                     означает полную загрузку
+     * @return изменения или пустой Optional, если данные недоступны
+     * @throws IllegalArgumentException если справочник неизвестен
+     */
+    Optional<ReferenceDelta<?>> getChanges(String entity, String updatedSince);
+}
@@ -0,0 +1,156 @@
+package server.service;
+
+import common.dto.ReferenceDelta;
+import common.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.dao.ReferenceSyncDao;
+import server.db.dao.ReferenceSyncDaoImpl;
+import server.db.dao.TableVersionDao;
+import server.db.dao.TableVersionDaoImpl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Реализация сервиса синхронизации справочников.
+ * Версия, выдаваемая клиенту, - это версии таблиц справочника из table_versions через точку: сначала
+ * основной таблицы, затем таблиц, из которых берутся дополнительные поля (роли для пользователей).
+ * Строки основной таблицы выбираются по row_version, а изменение дополнительной таблицы, очистка
+ * или восстановление из копии приводят к полной загрузке.
+ * Версии читаются до выборки строк, поэтому строка, зафиксированная между этими запросами, может прийти
+ * клиенту дважды, но не будет пропущена.
+ */
+public class ReferenceSyncServiceImpl implements ReferenceSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceSyncServiceImpl.class);
+    private static final long ALL_ROWS = -1L;
+    private final ReferenceSyncDao referenceSyncDao;
+    private final TableVersionDao tableVersionDao;
+
+    public ReferenceSyncServiceImpl() {
+        this(new ReferenceSyncDaoImpl(), new TableVersionDaoImpl());
+    }
+
+    public ReferenceSyncServiceImpl(ReferenceSyncDao referenceSyncDao, TableVersionDao tableVersionDao) {
+        this.referenceSyncDao = referenceSyncDao;
+        this.tableVersionDao = tableVersionDao;
+    }
+
+    @Override
+    public Optional<ReferenceDelta<?>> getChanges(String entity, String updatedSince) {
+        switch (entity) {
+            case TIERS:
+                return changes(entity, updatedSince, referenceSyncDao::findTiersChangedSince, false,
+                        TableVersionDao.TIERS);
+            case PROMOTIONS:
+                return changes(entity, updatedSince, referenceSyncDao::findPromotionsChangedSince, false,
+                        TableVersionDao.PROMOTIONS);
+            case PROMO_CODES:
+                return changes(entity, updatedSince, referenceSyncDao::findPromoCodesChangedSince, false,
+                        TableVersionDao.PROMO_CODES);
+            case USERS:
+                return changes(entity, updatedSince, this::findUsersChangedSince, false,
+                        TableVersionDao.USERS, TableVersionDao.ROLES);
+            case SETTINGS:
+                // Клиент хранит настройки по ключу, а не по ID: удаление настройки передается полной загрузкой
+                return changes(entity, updatedSince, referenceSyncDao::findSettingsChangedSince, true,
+                        TableVersionDao.SETTINGS);
+            default:
+                throw new IllegalArgumentException("Неизвестный справочник: " + entity);
+        }
+    }
+
+    private <T> Optional<ReferenceDelta<?>> changes(String entity, String updatedSince,
+                                                   LongFunction<Optional<List<T>>> changedSince,
+                                                   boolean reloadOnDelete, String... tables) {
+        Map<String, Long> versions = tableVersionDao.findAll();
+        long[] current = new long[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            Long version = versions.get(tables[i]);
+            if (version == null) {
+                logger.warn("Нет версии таблицы {} для синхронизации {}", tables[i], entity);
+                return Optional.empty();
+            }
+            current[i] = version;
+        }
+        String cursor = format(current);
+
+        long[] since = parse(updatedSince, tables.length);
+        boolean full = since == null || since[0] > current[0];
+        for (int i = 1; !full && i < tables.length; i++) {
+            full = since[i] != current[i];
+        }
+        if (!full && since[0] == current[0]) {
+            // Версия строки не превышает версию таблицы: изменений после since нет
+            return Optional.of(new ReferenceDelta<>(entity, cursor, false, Collections.emptyList(),
+                    Collections.emptyList()));
+        }
+        if (!full && referenceSyncDao.wasResetSince(tables[0], since[0])) {
+            full = true;
+        }
+
+        List<Long> deleted = Collections.emptyList();
+        if (!full) {
+            Optional<List<Long>> deletedRows = referenceSyncDao.findDeletedSince(tables[0], since[0]);
+            if (deletedRows.isEmpty()) {
+                return Optional.empty();
+            }
+            deleted = deletedRows.get();
+            if (reloadOnDelete && !deleted.isEmpty()) {
+                full = true;
+                deleted = Collections.emptyList();
+            }
+        }
+
+        Optional<List<T>> items = changedSince.apply(full ? ALL_ROWS : since[0]);
+        if (items.isEmpty()) {
+            return Optional.empty();
+        }
+        logger.debug("Синхронизация {}: {} -> {}, полная: {}, строк: {}, удалено: {}",
+                entity, updatedSince, cursor, full, items.get().size(), deleted.size());
+        return Optional.of(new ReferenceDelta<>(entity, cursor, full, items.get(), deleted));
+    }
+
+    private Optional<List<User>> findUsersChangedSince(long version) {
+        Optional<List<User>> users = referenceSyncDao.findUsersChangedSince(version);
+        // Пароли клиенту не передаются и на диске не сохраняются
+        users.ifPresent(list -> list.forEach(user -> user.setPassword(null)));
+        return users;
+    }
+
+    private static String format(long[] versions) {
+        StringBuilder cursor = new StringBuilder();
+        for (long version : versions) {
+            if (cursor.length() > 0) {
+                cursor.append('.');
+            }
+            cursor.append(version);
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * @return версии из строки клиента или null, если строки нет или она от другого справочника
+     */
+    private static long[] parse(String updatedSince, int length) {
+        if (updatedSince == null || updatedSince.isBlank()) {
+            return null;
+        }
+        String[] parts = updatedSince.split("\\.");
+        if (parts.length != length) {
+            return null;
+        }
+        long[] versions = new long[length];
+        try {
+            for (int i = 0; i < length; i++) {
+                versions[i] = Long.parseLong(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,56 @@
+package server.service;
+
+import common.model.ReportJob;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис фоновых заданий на отчеты: постановка в очередь, состояние, отмена и результат.
+ * Задания выполняет {@link server.job.ReportJobWorker}.
+ */
+public interface ReportJobService {
+    /**
+     * Ставит задание в очередь
+     * @param type тип отчета из {@link ReportService#PDF_REPORT_TYPES}
+     * @param format формат результата: {@link ReportJob#FORMAT_JSON}, {@link ReportJob#FORMAT_CSV} или
+     *               {@link ReportJob#FORMAT_PDF}; для {@link ReportService#RECEIPTS_REPORT} - только PDF
+     * @param fromDate начальная дата периода
+     * @param toDate конечная дата периода
+     * @param priority приоритет или null для приоритета по умолчанию
+     * @param userId ID пользователя, поставившего задание, или null
+     * @return поставленное задание или пустой Optional, если его не удалось сохранить
+     * @throws IllegalArgumentException если тип, формат или период заданы неверно
+     * @throws IllegalStateException если у пользователя слишком много незавершенных заданий
+     */
+    Optional<ReportJob> submit(String type, String format, LocalDate fromDate, LocalDate toDate, Integer priority,
+                               Long userId);
+
+    /**
+     * @param id ID задания
+     * @return задание или пустой Optional, если не найдено или уже удалено по сроку хранения
+     */
+    Optional<ReportJob> getJob(Long id);
+
+    /**
+     * @param userId ID пользователя или null для заданий всех пользователей
+     * @return последние задания, новые первыми
+     */
+    List<ReportJob> getRecentJobs(Long userId);
+
+    /**
+     * Отменяет задание, которое еще не начало выполняться
+     * @param id ID задания
+     * @return true, если задание отменено
+     */
+    boolean cancel(Long id);
+
+    /**
+     * @param id ID задания
+     * @return файл результата, если задание выполнено и еще не удалено; результат задания, выполненного
+     * другим экземпляром сервера, сначала копируется из БД
+     */
+    Optional<File> getResultFile(Long id);
+}
@@ -0,0 +1,158 @@
+package server.service;
+
+import common.model.ReportJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import server.db.dao.ReportJobDao;
+import server.db.dao.ReportJobDaoImpl;
+import server.job.ReportJobWorker;
+import server.util.ServerConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Реализация сервиса фоновых заданий на отчеты
+ */
+public class ReportJobServiceImpl implements ReportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobServiceImpl.class);
+    private static final int DEFAULT_PRIORITY = 5;
+    private static final int MAX_PRIORITY = 9;
+    private static final int RECENT_LIMIT = 50;
+
+    private final ReportJobDao jobDao;
+    private final int maxActivePerUser;
+    private final long ttlHours;
+
+    public ReportJobServiceImpl() {
+        this(new ReportJobDaoImpl(),
+                Math.max(1, ServerConfig.getInt("report.jobs.max.queued", 5)),
+                Math.max(1, ServerConfig.getInt("report.jobs.ttl.hours", 24)));
+    }
+
+    public ReportJobServiceImpl(ReportJobDao jobDao, int maxActivePerUser, long ttlHours) {
+        this.jobDao = jobDao;
+        this.maxActivePerUser = maxActivePerUser;
+        this.ttlHours = ttlHours;
+    }
+
+    @Override
+    public Optional<ReportJob> submit(String type, String format, LocalDate fromDate, LocalDate toDate,
+                                      Integer priority, Long userId) {
+        if (type == null || !ReportService.PDF_REPORT_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Неизвестный тип отчета: " + type);
+        }
+        boolean receipts = ReportService.RECEIPTS_REPORT.equals(type);
+        String resultFormat = format == null
+                ? (receipts ? ReportJob.FORMAT_PDF : ReportJob.FORMAT_JSON)
+                : format.toUpperCase();
+        if (!ReportJob.FORMAT_JSON.equals(resultFormat) && !ReportJob.FORMAT_CSV.equals(resultFormat)
+                && !ReportJob.FORMAT_PDF.equals(resultFormat)) {
+            throw new IllegalArgumentException("Неизвестный формат отчета: " + format);
+        }
+        if (receipts && !ReportJob.FORMAT_PDF.equals(resultFormat)) {
+            throw new IllegalArgumentException("Чеки формируются только в PDF");
+        }
+        if (fromDate == null || toDate == null || fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("Неверный период отчета");
+        }
+        // Ограничение не дает одному пользователю занять очередь: остальные задания ждали бы за его заданиями
+        if (userId != null && jobDao.countActive(userId) >= maxActivePerUser) {
+            throw new IllegalStateException("Слишком много незавершенных заданий на отчеты");
+        }
+
+        ReportJob job = new ReportJob();
+        job.setReportType(type);
+        job.setFormat(resultFormat);
+        job.setFromDate(fromDate);
+        job.setToDate(toDate);
+        job.setPriority(priority == null ? DEFAULT_PRIORITY : Math.max(0, Math.min(MAX_PRIORITY, priority)));
+        job.setRequestedBy(userId);
+
+        Optional<Long> id = jobDao.create(job);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        logger.info("Задание на отчет {} ({}) поставлено в очередь: {}", type, resultFormat, id.get());
+        ReportJobWorker.getInstance().wakeUp();
+        job.setId(id.get());
+        job.setStatus(ReportJob.STATUS_QUEUED);
+        return Optional.of(jobDao.findById(id.get()).orElse(job));
+    }
+
+    @Override
+    public Optional<ReportJob> getJob(Long id) {
+        return jobDao.findById(id);
+    }
+
+    @Override
+    public List<ReportJob> getRecentJobs(Long userId) {
+        return jobDao.findRecent(userId, RECENT_LIMIT);
+    }
+
+    @Override
+    public boolean cancel(Long id) {
+        boolean cancelled = jobDao.cancel(id, LocalDateTime.now().plusHours(ttlHours));
+        if (cancelled) {
+            logger.info("Задание на отчет {} отменено", id);
+        }
+        return cancelled;
+    }
+
+    @Override
+    public Optional<File> getResultFile(Long id) {
+        Optional<ReportJob> done = jobDao.findById(id)
+                .filter(job -> ReportJob.STATUS_DONE.equals(job.getStatus()) && job.getResultFile() != null);
+        if (done.isEmpty()) {
+            return Optional.empty();
+        }
+        ReportJob job = done.get();
+        Path file = ReportJobWorker.resolveResult(job.getResultFile());
+        try {
+            if (Files.isRegularFile(file) && Objects.equals(Files.size(file), job.getResultSize())) {
+                return Optional.of(file.toFile());
+            }
+            return copyResult(job, file).map(Path::toFile);
+        } catch (IOException e) {
+            logger.error("Не удалось получить результат задания на отчет {}", id, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Копирует результат задания из БД в локальный файл: задание могло выполнить другой экземпляр сервера.
+     * Копия пишется во временный файл и переименовывается, поэтому одновременные скачивания не видят
+     * недописанный файл
+     */
+    private Optional<Path> copyResult(ReportJob job, Path file) throws IOException {
+        Path part = Files.createTempFile(file.getParent(), file.getFileName().toString(),
+                ReportJobWorker.PART_SUFFIX);
+        try {
+            long size;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                size = jobDao.readResult(job.getId(), out);
+            }
+            if (!Objects.equals(size, job.getResultSize())) {
+                // Задание выполнено до хранения результатов в БД или удалено во время чтения
+                logger.warn("Результат задания на отчет {} в БД неполон: {} из {} байт", job.getId(), size,
+                        job.getResultSize());
+                return Optional.empty();
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Результат задания на отчет {} скопирован из БД: {} байт", job.getId(), size);
+            return Optional.of(file);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+}
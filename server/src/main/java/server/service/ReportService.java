@@ -1,7 +1,13 @@
 package server.service;
 
 import server.handler.ReportHandler.PointsReportData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Set;
 
 /**
  * Сервис для работы с отчетами
@@ -46,4 +52,59 @@ public interface ReportService {
      * @return финансовый отчет
      */
     Object generateFinancialReport(LocalDate fromDate, LocalDate toDate);
-} 
\ No newline at end of file
+
+    /**
+     * Отчеты, доступные для выгрузки в CSV
+     */
+    Set<String> CSV_REPORT_TYPES = Set.of("points", "activity", "promotions", "promocodes", "financial");
+
+    /**
+     * Выгружает отчет в CSV (UTF-8 с BOM, разделитель ";") построчно из курсора БД,
+     * не собирая отчет в памяти
+     * @param type тип отчета из {@link #CSV_REPORT_TYPES}
+     * @param fromDate начальная дата периода
+     * @param toDate конечная дата периода
+     * @param out приемник CSV; первые байты пишутся только после выполнения запроса
+     * @return число строк данных
+     * @throws IllegalArgumentException если тип отчета неизвестен
+     * @throws SQLException при ошибке запроса
+     * @throws IOException если приемник закрыт, например клиент разорвал соединение
+     */
+    long writeCsv(String type, LocalDate fromDate, LocalDate toDate, Writer out) throws SQLException, IOException;
+
+    /**
+     * Пачка чеков за игровые сессии, завершенные за период; выгружается только в PDF
+     */
+    String RECEIPTS_REPORT = "receipts";
+
+    /**
+     * Отчеты, доступные для выгрузки в PDF: отчеты из {@link #CSV_REPORT_TYPES} и {@link #RECEIPTS_REPORT}
+     */
+    Set<String> PDF_REPORT_TYPES = Set.of("points", "activity", "promotions", "promocodes", "financial",
+            RECEIPTS_REPORT);
+
+    /**
+     * Выгружает отчет в PDF построчно из курсора БД: готовые страницы сразу пишутся в поток,
+     * поэтому память не зависит от размера отчета
+     * @param type тип отчета из {@link #PDF_REPORT_TYPES}
+     * @param fromDate начальная дата периода
+     * @param toDate конечная дата периода
+     * @param out приемник PDF; не закрывается, первые байты пишутся только после выполнения запроса
+     * @return число строк отчета или чеков
+     * @throws IllegalArgumentException если тип отчета неизвестен
+     * @throws SQLException при ошибке запроса
+     * @throws IOException если не найден шрифт или приемник закрыт
+     */
+    long writePdf(String type, LocalDate fromDate, LocalDate toDate, OutputStream out)
+            throws SQLException, IOException;
+
+    /**
+     * Выгружает чек за одну игровую сессию в PDF
+     * @param sessionId ID сессии
+     * @param out приемник PDF; не закрывается, ничего не пишется, если сессия не найдена
+     * @return true, если сессия найдена
+     * @throws SQLException при ошибке запроса
+     * @throws IOException если не найден шрифт или приемник закрыт
+     */
+    boolean writeReceipt(long sessionId, OutputStream out) throws SQLException, IOException;
+}
@@ -1,29 +1,67 @@
 package server.service;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import org.jdbi.v3.core.JdbiException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import server.db.DatabaseConfig;
+import server.db.QueryExecutor;
+import server.db.Workload;
 import server.handler.ReportHandler.PointsRecord;
 import server.handler.ReportHandler.PointsReportData;
+import server.pdf.PdfReceiptWriter;
+import server.pdf.PdfReportWriter;
+import server.util.ServerConfig;
 
 /**
  * Реализация сервиса для работы с отчетами
  */
 public class ReportServiceImpl implements ReportService {
     private static final Logger logger = LoggerFactory.getLogger(ReportServiceImpl.class);
+    // Строк, получаемых из курсора за одно обращение к БД при выгрузке CSV и PDF
+    private static final int CSV_FETCH_SIZE = Math.max(1, ServerConfig.getInt("report.csv.fetch.size", 1000));
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final DateTimeFormatter CSV_DATE_TIME = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    // Дробная часть через запятую - как ожидает Excel с русской локалью при разделителе ";"
+    private static final Locale CSV_LOCALE = Locale.forLanguageTag("ru-RU");
+    private static final Map<String, CsvReport> CSV_REPORTS = createCsvReports();
+    private static final String RECEIPT_SELECT = """
+            SELECT s.id, s.start_time, s.end_time, s.minutes, s.points_earned, s.price, s.computer_number,
+                c.number AS card_number, u.full_name
+            FROM sessions s
+            JOIN cards c ON c.id = s.card_id
+            JOIN users u ON u.id = s.user_id
+            """;
+    private static final String RECEIPTS_SQL = RECEIPT_SELECT + """
+            WHERE s.status = 'COMPLETED' AND s.end_time >= ? AND s.end_time < ?
+            ORDER BY s.end_time, s.id
+            """;
+    private static final String RECEIPT_BY_ID_SQL = RECEIPT_SELECT + "WHERE s.id = ?";
+    private static final String CLUB_SETTINGS_SQL =
+            "SELECT key, value FROM settings WHERE key IN ('club_name', 'club_address', 'club_phone')";
+
+    /**
+     * Исполнитель запросов пула отчетов (при настроенных репликах - с чтением с них)
+     */
+    private static QueryExecutor db() {
+        return QueryExecutor.getInstance(Workload.REPORTING);
+    }
 
     @Override
     public PointsReportData generatePointsReport(LocalDate fromDate, LocalDate toDate) {
@@ -47,31 +85,24 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY t.timestamp DESC
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setObject(1, fromDate.atStartOfDay());
-            stmt.setObject(2, toDate.plusDays(1).atStartOfDay());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
-                    String date = timestamp.format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
-                    String cardNumber = rs.getString("card_number");
-                    String userName = rs.getString("user_name");
-                    int points = rs.getInt("points");
-                    String description = rs.getString("description");
-                    String type = rs.getString("type");
-                    
-                    PointsRecord record = new PointsRecord(date, cardNumber, userName, points, description, type, description);
-                    records.add(record);
-                    
-                    // Суммируем баллы по дням
-                    pointsByDay.merge(date, Math.abs(points), Integer::sum);
-                }
-            }
-            
-        } catch (SQLException e) {
+        try {
+            db().stream(query, (rs, ctx) -> {
+                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+                String date = timestamp.format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+                String cardNumber = rs.getString("card_number");
+                String userName = rs.getString("user_name");
+                int points = rs.getInt("points");
+                String description = rs.getString("description");
+                String type = rs.getString("type");
+                
+                return new PointsRecord(date, cardNumber, userName, points, description, type, description);
+            }, record -> {
+                records.add(record);
+                
+                // Суммируем баллы по дням
+                pointsByDay.merge(record.getDate(), Math.abs(record.getPoints()), Integer::sum);
+            }, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении данных для отчета о баллах", e);
         }
         
@@ -104,32 +135,22 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY sessions_count DESC
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(userQuery)) {
-            
-            stmt.setObject(1, fromDate.atStartOfDay());
-            stmt.setObject(2, toDate.plusDays(1).atStartOfDay());
-            stmt.setObject(3, fromDate.atStartOfDay());
-            stmt.setObject(4, toDate.plusDays(1).atStartOfDay());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> userRecord = new HashMap<>();
-                    String username = rs.getString("username");
-                    int sessionsCount = rs.getInt("sessions_count");
-                    
-                    userRecord.put("username", username);
-                    userRecord.put("lastLogin", rs.getTimestamp("last_login").toLocalDateTime().toString());
-                    userRecord.put("sessionsCount", sessionsCount);
-                    userRecord.put("totalMinutes", rs.getInt("total_minutes"));
-                    userRecord.put("pointsEarned", rs.getInt("points_earned"));
-                    userRecord.put("pointsSpent", rs.getInt("points_spent"));
-                    
-                    userRecords.add(userRecord);
-                    sessionsByUser.put(username, sessionsCount);
-                }
-            }
-        } catch (SQLException e) {
+        try {
+            db().stream(userQuery, (rs, ctx) -> {
+                Map<String, Object> userRecord = new HashMap<>();
+                userRecord.put("username", rs.getString("username"));
+                userRecord.put("lastLogin", rs.getTimestamp("last_login").toLocalDateTime().toString());
+                userRecord.put("sessionsCount", rs.getInt("sessions_count"));
+                userRecord.put("totalMinutes", rs.getInt("total_minutes"));
+                userRecord.put("pointsEarned", rs.getInt("points_earned"));
+                userRecord.put("pointsSpent", rs.getInt("points_spent"));
+                return userRecord;
+            }, userRecord -> {
+                userRecords.add(userRecord);
+                sessionsByUser.put((String) userRecord.get("username"), (Integer) userRecord.get("sessionsCount"));
+            }, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(),
+                    fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении данных активности пользователей", e);
         }
         
@@ -144,20 +165,12 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY session_date
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(dailyQuery)) {
-            
-            stmt.setObject(1, fromDate.atStartOfDay());
-            stmt.setObject(2, toDate.plusDays(1).atStartOfDay());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String date = rs.getDate("session_date").toString();
-                    int count = rs.getInt("session_count");
-                    activityByDay.put(date, count);
-                }
-            }
-        } catch (SQLException e) {
+        try {
+            db().stream(dailyQuery, (rs, ctx) -> Map.entry(rs.getDate("session_date").toString(),
+                            rs.getInt("session_count")),
+                    day -> activityByDay.put(day.getKey(), day.getValue()),
+                    fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении ежедневной активности", e);
         }
         
@@ -192,39 +205,33 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY participants_count DESC
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setObject(1, toDate);
-            stmt.setObject(2, fromDate);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> record = new HashMap<>();
-                    String name = rs.getString("name");
-                    int participants = rs.getInt("participants_count");
-                    int bonusPct = rs.getInt("bonus_pct");
-                    
-                    // Расчет эффективности на основе бонусного процента и участников
-                    double effectiveness = participants > 0 ? Math.min(1.0, participants / 100.0 * bonusPct / 10.0) : 0.0;
-                    
-                    record.put("name", name);
-                    record.put("description", rs.getString("description"));
-                    record.put("startDate", rs.getDate("start_date").toString());
-                    record.put("endDate", rs.getDate("end_date").toString());
-            record.put("participantsCount", participants);
-            record.put("effectiveness", effectiveness);
-            
-            promotionRecords.add(record);
-                    popularityByPromotion.put(name, participants);
-                    
-                    // Группируем по типу бонуса
-                    String promotionType = bonusPct >= 20 ? "Высокий бонус" : 
-                                         bonusPct >= 10 ? "Средний бонус" : "Низкий бонус";
-                    effectivenessByType.merge(promotionType, effectiveness, (old, val) -> (old + val) / 2);
-                }
-            }
-        } catch (SQLException e) {
+        try {
+            db().stream(query, (rs, ctx) -> {
+                Map<String, Object> record = new HashMap<>();
+                int participants = rs.getInt("participants_count");
+                int bonusPct = rs.getInt("bonus_pct");
+                
+                // Расчет эффективности на основе бонусного процента и участников
+                double effectiveness = participants > 0 ? Math.min(1.0, participants / 100.0 * bonusPct / 10.0) : 0.0;
+                
+                record.put("name", rs.getString("name"));
+                record.put("description", rs.getString("description"));
+                record.put("startDate", rs.getDate("start_date").toString());
+                record.put("endDate", rs.getDate("end_date").toString());
+                record.put("participantsCount", participants);
+                record.put("effectiveness", effectiveness);
+                
+                // Группируем по типу бонуса
+                String promotionType = bonusPct >= 20 ? "Высокий бонус" : 
+                                     bonusPct >= 10 ? "Средний бонус" : "Низкий бонус";
+                return new ReportRow(record, promotionType, participants, false);
+            }, row -> {
+                promotionRecords.add(row.values);
+                popularityByPromotion.put((String) row.values.get("name"), row.count);
+                effectivenessByType.merge(row.group, (Double) row.values.get("effectiveness"),
+                        (old, val) -> (old + val) / 2);
+            }, toDate, fromDate);
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении данных отчета по акциям", e);
         }
         
@@ -262,48 +269,46 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY pc.used_date DESC NULLS LAST
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setObject(1, fromDate);
-            stmt.setObject(2, fromDate.atStartOfDay());
-            stmt.setObject(3, toDate.plusDays(1).atStartOfDay());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String code = rs.getString("code");
-                    boolean isUsed = rs.getBoolean("is_used");
-                    int bonusPct = rs.getInt("bonus_pct");
-                    
-                    totalPromos++;
-                    if (!isUsed && rs.getDate("expiry_date").toLocalDate().isAfter(LocalDate.now())) {
-                        activePromos++;
-                    }
-                    if (isUsed) {
-                        usedPromos++;
-                    }
-                    
-                    Map<String, Object> record = new HashMap<>();
-            record.put("code", code);
-                    record.put("description", "Промокод для акции: " + rs.getString("promotion_name"));
-            record.put("validFrom", fromDate.toString());
-                    record.put("validTo", rs.getDate("expiry_date").toString());
-                    record.put("usageCount", isUsed ? 1 : 0);
-                    record.put("discountValue", (double) bonusPct);
-            
-            promoCodeRecords.add(record);
-                    usageByCode.put(code, isUsed ? 1 : 0);
-                    
-                    // Группируем по типу скидки
-                    String type = bonusPct >= 20 ? "Высокая скидка" : 
-                                 bonusPct >= 10 ? "Средняя скидка" : "Низкая скидка";
-                    distributionByType.merge(type, 1, Integer::sum);
-                }
-            }
-        } catch (SQLException e) {
+        List<ReportRow> rows = new ArrayList<>();
+        try {
+            rows = db().list(query, (rs, ctx) -> {
+                String code = rs.getString("code");
+                boolean isUsed = rs.getBoolean("is_used");
+                int bonusPct = rs.getInt("bonus_pct");
+                
+                Map<String, Object> record = new HashMap<>();
+                record.put("code", code);
+                record.put("description", "Промокод для акции: " + rs.getString("promotion_name"));
+                record.put("validFrom", fromDate.toString());
+                record.put("validTo", rs.getDate("expiry_date").toString());
+                record.put("usageCount", isUsed ? 1 : 0);
+                record.put("discountValue", (double) bonusPct);
+                
+                // Группируем по типу скидки
+                String type = bonusPct >= 20 ? "Высокая скидка" : 
+                             bonusPct >= 10 ? "Средняя скидка" : "Низкая скидка";
+                boolean active = !isUsed && rs.getDate("expiry_date").toLocalDate().isAfter(LocalDate.now());
+                return new ReportRow(record, type, isUsed ? 1 : 0, active);
+            }, fromDate, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении данных отчета по промокодам", e);
         }
         
+        for (ReportRow row : rows) {
+            boolean isUsed = row.count > 0;
+            totalPromos++;
+            if (row.active) {
+                activePromos++;
+            }
+            if (isUsed) {
+                usedPromos++;
+            }
+            
+            promoCodeRecords.add(row.values);
+            usageByCode.put((String) row.values.get("code"), row.count);
+            distributionByType.merge(row.group, 1, Integer::sum);
+        }
+        
         double conversionRate = activePromos > 0 ? (double) usedPromos / activePromos : 0.0;
         
         report.put("records", promoCodeRecords);
@@ -341,37 +346,34 @@ public class ReportServiceImpl implements ReportService {
             ORDER BY session_date
         """;
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sessionQuery)) {
-            
-            stmt.setObject(1, fromDate.atStartOfDay());
-            stmt.setObject(2, toDate.plusDays(1).atStartOfDay());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String date = rs.getDate("session_date").toString();
-                    double revenue = rs.getDouble("daily_revenue");
-                    int transactions = rs.getInt("session_count");
+        List<ReportRow> dailyRows = new ArrayList<>();
+        try {
+            dailyRows = db().list(sessionQuery, (rs, ctx) -> {
+                double revenue = rs.getDouble("daily_revenue");
                 
                 Map<String, Object> record = new HashMap<>();
-                    record.put("date", date);
-                    record.put("category", "Игровые сессии");
+                record.put("date", rs.getDate("session_date").toString());
+                record.put("category", "Игровые сессии");
                 record.put("revenue", revenue);
-                    record.put("expenses", revenue * 0.3); // Предполагаем 30% расходов
-                    record.put("profit", revenue * 0.7);
-                
-                financialRecords.add(record);
-                    revenueByDay.merge(date, revenue, Double::sum);
-                    revenueByCategory.merge("Игровые сессии", revenue, Double::sum);
-                
-                totalRevenue += revenue;
-                totalTransactions += transactions;
-                }
-            }
-        } catch (SQLException e) {
+                record.put("expenses", revenue * 0.3); // Предполагаем 30% расходов
+                record.put("profit", revenue * 0.7);
+                return new ReportRow(record, "Игровые сессии", rs.getInt("session_count"), false);
+            }, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        } catch (JdbiException e) {
             logger.error("Ошибка при получении финансовых данных по сессиям", e);
         }
         
+        for (ReportRow row : dailyRows) {
+            double revenue = (Double) row.values.get("revenue");
+            
+            financialRecords.add(row.values);
+            revenueByDay.merge((String) row.values.get("date"), revenue, Double::sum);
+            revenueByCategory.merge(row.group, revenue, Double::sum);
+            
+            totalRevenue += revenue;
+            totalTransactions += row.count;
+        }
+        
         double averageTransaction = totalTransactions > 0 ? totalRevenue / totalTransactions : 0.0;
         double netProfit = totalRevenue * 0.7; // 70% прибыль
         
@@ -385,4 +387,369 @@ public class ReportServiceImpl implements ReportService {
         
         return report;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public long writeCsv(String type, LocalDate fromDate, LocalDate toDate, Writer out)
+            throws SQLException, IOException {
+        CsvReport report = CSV_REPORTS.get(type);
+        if (report == null) {
+            throw new IllegalArgumentException("Неизвестный тип отчета: " + type);
+        }
+        logger.debug("Выгрузка отчета {} в CSV с {} по {}", type, fromDate, toDate);
+        
+        long started = System.nanoTime();
+        long rows = streamRows(report.sql, report.binder, fromDate, toDate, report.row, new RowSink<>() {
+            @Override
+            public void begin() throws IOException {
+                // BOM для корректного открытия кириллицы в Excel
+                out.write('\uFEFF');
+                out.write(report.header);
+                out.write('\n');
+            }
+            
+            @Override
+            public void row(Object[] values) throws IOException {
+                writeCsvLine(out, values);
+            }
+            
+            @Override
+            public void end() throws IOException {
+                out.flush();
+            }
+        });
+        logger.info("Отчет {} выгружен в CSV за {} мс: строк {}", type,
+                (System.nanoTime() - started) / 1_000_000, rows);
+        return rows;
+    }
+    
+    @Override
+    public long writePdf(String type, LocalDate fromDate, LocalDate toDate, OutputStream out)
+            throws SQLException, IOException {
+        long started = System.nanoTime();
+        long rows;
+        if (RECEIPTS_REPORT.equals(type)) {
+            logger.debug("Выгрузка чеков в PDF с {} по {}", fromDate, toDate);
+            rows = streamRows(RECEIPTS_SQL, (from, to) -> new Object[] {from.atStartOfDay(), to.plusDays(1).atStartOfDay()},
+                    fromDate, toDate, ReportServiceImpl::readReceipt, new ReceiptSink(out, true, readClubSettings()));
+        } else {
+            CsvReport report = CSV_REPORTS.get(type);
+            if (report == null || !PdfReportWriter.supports(type)) {
+                throw new IllegalArgumentException("Неизвестный тип отчета: " + type);
+            }
+            logger.debug("Выгрузка отчета {} в PDF с {} по {}", type, fromDate, toDate);
+            rows = streamRows(report.sql, report.binder, fromDate, toDate, report.row, new RowSink<>() {
+                private PdfReportWriter writer;
+                
+                @Override
+                public void begin() throws IOException {
+                    writer = new PdfReportWriter(out, type, report.header.split(";"), fromDate, toDate);
+                }
+                
+                @Override
+                public void row(Object[] values) {
+                    writer.addRow(values);
+                }
+                
+                @Override
+                public void end() throws IOException {
+                    writer.finish();
+                    out.flush();
+                }
+            });
+        }
+        logger.info("Отчет {} выгружен в PDF за {} мс: строк {}", type,
+                (System.nanoTime() - started) / 1_000_000, rows);
+        return rows;
+    }
+    
+    @Override
+    public boolean writeReceipt(long sessionId, OutputStream out) throws SQLException, IOException {
+        logger.debug("Выгрузка чека за сессию {} в PDF", sessionId);
+        return streamRows(RECEIPT_BY_ID_SQL, (from, to) -> new Object[] {sessionId}, null, null,
+                ReportServiceImpl::readReceipt, new ReceiptSink(out, false, readClubSettings())) > 0;
+    }
+    
+    /**
+     * Выполняет запрос отчета и передает строки приемнику по мере чтения из курсора,
+     * не собирая результат в памяти. Приемник начинает запись только после выполнения запроса:
+     * при ошибке запроса клиенту еще можно ответить кодом ошибки
+     * @return число строк
+     */
+    private static <T> long streamRows(String sql, ParameterBinder binder, LocalDate fromDate, LocalDate toDate,
+                                       RowReader<T> reader, RowSink<T> sink) throws SQLException, IOException {
+        long[] rows = {0};
+        boolean[] begun = {false};
+        try {
+            db().withFetchSize(CSV_FETCH_SIZE).stream(sql, (rs, ctx) -> reader.read(rs), value -> {
+                try {
+                    if (!begun[0]) {
+                        begun[0] = true;
+                        sink.begin();
+                    }
+                    sink.row(value);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, binder.bind(fromDate, toDate));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (JdbiException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        if (!begun[0]) {
+            sink.begin();
+        }
+        sink.end();
+        return rows[0];
+    }
+    
+    /**
+     * Реквизиты клуба для чеков; читаются до выгрузки, чтобы не занимать второе соединение
+     * пула, пока открыт курсор
+     */
+    private static Map<String, String> readClubSettings() throws SQLException {
+        Map<String, String> club = new HashMap<>();
+        try {
+            db().stream(CLUB_SETTINGS_SQL, (rs, ctx) -> Map.entry(rs.getString("key"), rs.getString("value")),
+                    setting -> club.put(setting.getKey(), setting.getValue()));
+        } catch (JdbiException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        return club;
+    }
+    
+    private static PdfReceiptWriter.Receipt readReceipt(ResultSet rs) throws SQLException {
+        Timestamp start = rs.getTimestamp("start_time");
+        Timestamp end = rs.getTimestamp("end_time");
+        return new PdfReceiptWriter.Receipt(rs.getLong("id"), rs.getString("card_number"),
+                rs.getString("full_name"), (Integer) rs.getObject("computer_number"),
+                start != null ? start.toLocalDateTime() : null, end != null ? end.toLocalDateTime() : null,
+                rs.getInt("minutes"), rs.getInt("points_earned"), rs.getDouble("price"));
+    }
+    
+    private static void writeCsvLine(Writer out, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(';');
+            }
+            Object value = values[i];
+            String text;
+            if (value == null) {
+                text = "";
+            } else if (value instanceof Double) {
+                text = String.format(CSV_LOCALE, "%.2f", (Double) value);
+            } else {
+                text = value.toString();
+            }
+            if (text.indexOf(';') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0
+                    || text.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(text.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(text);
+            }
+        }
+        out.write('\n');
+    }
+    
+    private static String formatDate(Date date) {
+        return date != null ? date.toLocalDate().format(CSV_DATE) : null;
+    }
+    
+    private static String formatDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().format(CSV_DATE_TIME) : null;
+    }
+    
+    /**
+     * Запросы выгрузки CSV: те же выборки, что у отчетов в JSON, но без агрегации в памяти
+     */
+    private static Map<String, CsvReport> createCsvReports() {
+        Map<String, CsvReport> reports = new HashMap<>();
+        
+        reports.put("points", new CsvReport("""
+                SELECT t.timestamp, c.number AS card_number, u.login AS user_name, t.points, t.type, t.description
+                FROM transactions t
+                JOIN cards c ON t.card_id = c.id
+                JOIN users u ON c.user_id = u.id
+                WHERE t.timestamp >= ? AND t.timestamp < ?
+                ORDER BY t.timestamp DESC
+                """,
+                "Дата;Номер карты;Имя пользователя;Баллы;Тип;Описание",
+                (from, to) -> new Object[] {from.atStartOfDay(), to.plusDays(1).atStartOfDay()},
+                rs -> new Object[] {formatDateTime(rs.getTimestamp("timestamp")), rs.getString("card_number"),
+                        rs.getString("user_name"), rs.getInt("points"), rs.getString("type"),
+                        rs.getString("description")}));
+        
+        reports.put("activity", new CsvReport("""
+                SELECT
+                    u.login AS username,
+                    u.registration_date,
+                    COUNT(s.id) AS sessions_count,
+                    COALESCE(SUM(s.minutes), 0) AS total_minutes,
+                    COALESCE(SUM(CASE WHEN t.points > 0 THEN t.points ELSE 0 END), 0) AS points_earned,
+                    COALESCE(SUM(CASE WHEN t.points < 0 THEN ABS(t.points) ELSE 0 END), 0) AS points_spent
+                FROM users u
+                LEFT JOIN cards c ON c.user_id = u.id
+                LEFT JOIN sessions s ON s.card_id = c.id AND s.start_time BETWEEN ? AND ?
+                LEFT JOIN transactions t ON t.card_id = c.id AND t.timestamp BETWEEN ? AND ?
+                GROUP BY u.id, u.login, u.registration_date
+                ORDER BY sessions_count DESC
+                """,
+                "Имя пользователя;Дата регистрации;Количество сессий;Общее время (мин.);Заработано баллов;Потрачено баллов",
+                (from, to) -> new Object[] {from.atStartOfDay(), to.plusDays(1).atStartOfDay(),
+                        from.atStartOfDay(), to.plusDays(1).atStartOfDay()},
+                rs -> new Object[] {rs.getString("username"), formatDateTime(rs.getTimestamp("registration_date")),
+                        rs.getInt("sessions_count"), rs.getLong("total_minutes"), rs.getLong("points_earned"),
+                        rs.getLong("points_spent")}));
+        
+        reports.put("promotions", new CsvReport("""
+                SELECT p.name, p.description, p.start_date, p.end_date, p.bonus_pct, COUNT(cp.id) AS participants_count
+                FROM promotions p
+                LEFT JOIN card_promotions cp ON cp.promotion_id = p.id
+                WHERE p.start_date <= ? AND p.end_date >= ?
+                GROUP BY p.id, p.name, p.description, p.start_date, p.end_date, p.bonus_pct
+                ORDER BY participants_count DESC
+                """,
+                "Название;Описание;Дата начала;Дата окончания;Бонус, %;Количество участников",
+                (from, to) -> new Object[] {to, from},
+                rs -> new Object[] {rs.getString("name"), rs.getString("description"),
+                        formatDate(rs.getDate("start_date")), formatDate(rs.getDate("end_date")),
+                        rs.getInt("bonus_pct"), rs.getInt("participants_count")}));
+        
+        reports.put("promocodes", new CsvReport("""
+                SELECT pc.code, p.name AS promotion_name, pc.expiry_date, pc.is_used, pc.used_date, p.bonus_pct
+                FROM promo_codes pc
+                JOIN promotions p ON pc.promotion_id = p.id
+                WHERE pc.expiry_date >= ? OR pc.used_date BETWEEN ? AND ?
+                ORDER BY pc.used_date DESC NULLS LAST
+                """,
+                "Код;Акция;Действует до;Использован;Дата использования;Бонус, %",
+                (from, to) -> new Object[] {from, from.atStartOfDay(), to.plusDays(1).atStartOfDay()},
+                rs -> new Object[] {rs.getString("code"), rs.getString("promotion_name"),
+                        formatDate(rs.getDate("expiry_date")), rs.getBoolean("is_used") ? "Да" : "Нет",
+                        formatDateTime(rs.getTimestamp("used_date")), rs.getInt("bonus_pct")}));
+        
+        reports.put("financial", new CsvReport("""
+                SELECT DATE(s.start_time) AS session_date, COUNT(*) AS session_count, SUM(s.price) AS daily_revenue
+                FROM sessions s
+                WHERE s.start_time BETWEEN ? AND ? AND s.price IS NOT NULL
+                GROUP BY DATE(s.start_time)
+                ORDER BY session_date
+                """,
+                "Дата;Категория;Количество сессий;Выручка;Расходы;Прибыль",
+                (from, to) -> new Object[] {from.atStartOfDay(), to.plusDays(1).atStartOfDay()},
+                rs -> {
+                    // Расходы и прибыль - те же 30% и 70% выручки, что в финансовом отчете
+                    double revenue = rs.getDouble("daily_revenue");
+                    return new Object[] {formatDate(rs.getDate("session_date")), "Игровые сессии",
+                            rs.getInt("session_count"), revenue, revenue * 0.3, revenue * 0.7};
+                }));
+        
+        return reports;
+    }
+    
+    /**
+     * Параметры запроса отчета по порядку
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        Object[] bind(LocalDate fromDate, LocalDate toDate);
+    }
+    
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * Приемник строк отчета: начало вызывается после выполнения запроса, до первой строки
+     */
+    private interface RowSink<T> {
+        void begin() throws IOException;
+        
+        void row(T value) throws IOException;
+        
+        void end() throws IOException;
+    }
+    
+    /**
+     * Строка отчета в JSON и данные для итогов отчета, которых нет в самой строке
+     */
+    private static final class ReportRow {
+        final Map<String, Object> values;
+        // Группа для распределения в итогах (тип бонуса, тип скидки, категория дохода)
+        final String group;
+        // Участники акции, использования промокода или сессии за день
+        final int count;
+        final boolean active;
+        
+        ReportRow(Map<String, Object> values, String group, int count, boolean active) {
+            this.values = values;
+            this.group = group;
+            this.count = count;
+            this.active = active;
+        }
+    }
+    
+    /**
+     * Запрос выгрузки CSV, заголовок и преобразование строки результата в поля
+     */
+    private static final class CsvReport {
+        final String sql;
+        final String header;
+        final ParameterBinder binder;
+        final RowReader<Object[]> row;
+        
+        CsvReport(String sql, String header, ParameterBinder binder, RowReader<Object[]> row) {
+            this.sql = sql;
+            this.header = header;
+            this.binder = binder;
+            this.row = row;
+        }
+    }
+    
+    /**
+     * Запись чеков в PDF. Реквизиты клуба читаются один раз на пачку; документ начинается
+     * с первого чека, а для пустой пачки - только если пустой документ допустим
+     */
+    private static final class ReceiptSink implements RowSink<PdfReceiptWriter.Receipt> {
+        private final OutputStream out;
+        private final boolean allowEmpty;
+        private final Map<String, String> club;
+        private PdfReceiptWriter writer;
+        
+        ReceiptSink(OutputStream out, boolean allowEmpty, Map<String, String> club) {
+            this.out = out;
+            this.allowEmpty = allowEmpty;
+            this.club = club;
+        }
+        
+        @Override
+        public void begin() {
+        }
+        
+        @Override
+        public void row(PdfReceiptWriter.Receipt receipt) throws IOException {
+            writer().addReceipt(receipt);
+        }
+        
+        @Override
+        public void end() throws IOException {
+            if (writer == null && !allowEmpty) {
+                return;
+            }
+            writer().finish();
+            out.flush();
+        }
+        
+        private PdfReceiptWriter writer() throws IOException {
+            if (writer == null) {
+                writer = new PdfReceiptWriter(out, club.getOrDefault("club_name", "Компьютерный клуб"),
+                        club.get("club_address"), club.get("club_phone"));
+            }
+            return writer;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package server.service;
 
+import common.dto.ChangeEvent;
 import common.model.Card;
 import common.model.Session;
 import common.model.User;
@@ -10,6 +11,8 @@ import server.db.dao.CardDao;
 import server.db.dao.CardDaoImpl;
 import server.db.dao.SessionDao;
 import server.db.dao.SessionDaoImpl;
+import server.event.EventBus;
+import server.job.SessionExpiryManager;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
@@ -80,9 +83,17 @@ public class SessionServiceImpl implements SessionService {
             // Вручную копируем поля, не хранящиеся в БД
             createdSession.setComputerInfo(computerInfo);
             createdSession.setStatus("ACTIVE");
+            createdSession.setCardId(cardId);
             
             logger.info("Создана новая сессия: {}", createdSession.getId());
             
+            // Ставим срок сессии в колесо таймеров для автоматического завершения
+            SessionExpiryManager.getInstance().register(createdSession);
+            EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.SESSION_STARTED, createdSession.getId())
+                    .with("cardId", cardId)
+                    .with("minutes", minutes)
+                    .with("computerInfo", computerInfo));
+            
             // Добавляем запись в аудит, если есть пользователь staff
             if (staffUser != null && auditService != null) {
                 String actionDetails = String.format(
@@ -174,15 +185,28 @@ public class SessionServiceImpl implements SessionService {
             int earnedPoints = (int) (actualMinutes * Constants.POINTS_PER_HOUR / 60);
             session.setPoints(earnedPoints);
             
-            // Обновляем сессию
-            boolean updated = sessionDao.finishSession(sessionId, endTime, earnedPoints);
+            // Завершаем сессию и начисляем баллы на карту одной транзакцией.
+            // Ошибка БД попадает в catch ниже и возвращает пустой результат, а не найденную сессию
+            Long cardId = session.getCard().getId();
+            boolean updated = sessionDao.finishSession(sessionId, cardId, endTime, earnedPoints);
             if (!updated) {
-                logger.error("Не удалось обновить сессию {}", sessionId);
-                return Optional.empty();
+                // Сессию успели завершить таймер или другой оператор: баллы уже начислены
+                logger.debug("Сессия {} уже завершена", sessionId);
+                return sessionDao.findById(sessionId);
             }
+            SessionExpiryManager.getInstance().cancel(sessionId);
             
-            // Начисляем баллы на карту
-            cardService.addPoints(session.getCard().getId(), earnedPoints);
+            if (earnedPoints > 0) {
+                // Уровень карты пересчитывается по новому балансу
+                cardService.updateTierBasedOnPoints(cardId).ifPresent(card ->
+                        EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.POINTS_CHANGED, cardId)
+                                .with("points", card.getPoints())
+                                .with("level", card.getLevel())));
+            }
+            EventBus.getInstance().publish(new ChangeEvent(ChangeEvent.Type.SESSION_FINISHED, sessionId)
+                    .with("cardId", cardId)
+                    .with("points", earnedPoints)
+                    .with("status", session.getStatus()));
             
             logger.info("Сессия {} завершена. Начислено {} баллов", sessionId, earnedPoints);
             
@@ -219,6 +243,7 @@ public class SessionServiceImpl implements SessionService {
         try {
             boolean deleted = sessionDao.deleteById(id);
             if (deleted) {
+                SessionExpiryManager.getInstance().cancel(id);
                 logger.info("Сессия удалена: {}", id);
             } else {
                 logger.error("Не удалось удалить сессию: {}", id);
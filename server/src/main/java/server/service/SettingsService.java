@@ -13,6 +13,7 @@ public interface SettingsService {
     /**
      * Получает все настройки
      * @return карта настроек (ключ -&gt; значение)
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД
      */
     Map<String, Setting> getAllSettings();
 
@@ -73,20 +73,15 @@ public class SettingsServiceImpl implements SettingsService {
     
     @Override
     public Map<String, Setting> getAllSettings() {
-        try {
-            List<Setting> settingsList = settingDao.findAll();
-            Map<String, Setting> result = new HashMap<>();
-            
-            for (Setting setting : settingsList) {
-                result.put(setting.getKey(), setting);
-            }
-            
-            logger.debug("Получены все настройки из базы данных. Количество: {}", result.size());
-            return result;
-        } catch (Exception e) {
-            logger.error("Ошибка при получении всех настроек из базы данных", e);
-            return new HashMap<>();
+        List<Setting> settingsList = settingDao.findAll();
+        Map<String, Setting> result = new HashMap<>();
+        
+        for (Setting setting : settingsList) {
+            result.put(setting.getKey(), setting);
         }
+        
+        logger.debug("Получены все настройки из базы данных. Количество: {}", result.size());
+        return result;
     }
     
     @Override
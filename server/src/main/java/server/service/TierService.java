@@ -35,6 +35,7 @@ public interface TierService {
     /**
      * Получить все уровни
      * @return список всех уровней
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД
      */
     List<Tier> getAllTiers();
     
@@ -18,6 +18,20 @@ public interface UserService {
      */
     AuthResponse authenticate(AuthRequest authRequest);
     
+    /**
+     * Получение пользователя по токену, выданному любым экземпляром сервера
+     * @param token токен из ответа аутентификации
+     * @return пользователь или пустой Optional, если токен не найден или истек
+     */
+    Optional<User> findUserByToken(String token);
+    
+    /**
+     * Выход из системы: токен перестает действовать на всех экземплярах сервера
+     * @param token токен
+     * @return true, если токен был действующим
+     */
+    boolean logout(String token);
+    
     /**
      * Создание нового пользователя
      * @param user пользователь
@@ -66,6 +80,7 @@ public interface UserService {
     /**
      * Получение всех пользователей
      * @return список всех пользователей
+     * @throws org.jdbi.v3.core.JdbiException при ошибке БД
      */
     List<User> getAllUsers();
     
@@ -5,10 +5,16 @@ import common.dto.AuthResponse;
 import common.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import server.cluster.ClusterNode;
+import server.db.dao.AuthTokenDao;
+import server.db.dao.AuthTokenDaoImpl;
+import server.db.dao.LocalAuthTokenDao;
 import server.db.dao.UserDao;
 import server.db.dao.UserDaoImpl;
+import server.util.ServerConfig;
 import server.util.TokenGenerator;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,14 +24,30 @@ import java.util.UUID;
  */
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    private static final long TOKEN_TTL_SECONDS =
+            Math.max(60, ServerConfig.getInt("security.jwt.expiration", 86400));
     private final UserDao userDao;
+    private final AuthTokenDao tokenDao;
     
     public UserServiceImpl() {
-        this.userDao = new UserDaoImpl();
+        this(new UserDaoImpl(), defaultTokenDao());
     }
     
     public UserServiceImpl(UserDao userDao) {
+        this(userDao, defaultTokenDao());
+    }
+    
+    public UserServiceImpl(UserDao userDao, AuthTokenDao tokenDao) {
         this.userDao = userDao;
+        this.tokenDao = tokenDao;
+    }
+    
+    /**
+     * Токены хранятся в общей таблице auth_tokens только в режиме нескольких экземпляров,
+     * одному экземпляру достаточно памяти процесса
+     */
+    private static AuthTokenDao defaultTokenDao() {
+        return ClusterNode.isEnabled() ? new AuthTokenDaoImpl() : LocalAuthTokenDao.getInstance();
     }
 
     @Override
@@ -51,6 +73,11 @@ public class UserServiceImpl implements UserService {
             logger.info("Пользователь успешно аутентифицирован: {}", user.getLogin());
             
             String token = TokenGenerator.generateToken();
+            // В режиме нескольких экземпляров токен хранится в БД, чтобы его принимал любой экземпляр за балансировщиком
+            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(TOKEN_TTL_SECONDS);
+            if (!tokenDao.save(TokenGenerator.hash(token), user.getId(), expiresAt, ClusterNode.getId())) {
+                return AuthResponse.error("Ошибка аутентификации");
+            }
             
             return AuthResponse.success(token, user);
         } catch (Exception e) {
@@ -63,6 +90,22 @@ public class UserServiceImpl implements UserService {
         return UUID.randomUUID().toString();
     }
 
+    @Override
+    public Optional<User> findUserByToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        return tokenDao.findUserId(TokenGenerator.hash(token)).flatMap(userDao::findById);
+    }
+
+    @Override
+    public boolean logout(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        return tokenDao.delete(TokenGenerator.hash(token));
+    }
+
     @Override
     public User createUser(User user, String password) {
         logger.debug("Creating new user with separate password: {}", user.getLogin());
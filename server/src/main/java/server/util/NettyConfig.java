@@ -0,0 +1,156 @@
+package server.util;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Параметры сетевого уровня Netty из config.properties.
+ * Транспорт выбирается автоматически: нативный epoll на Linux, если библиотека загрузилась,
+ * иначе NIO. Значение 0 для числа потоков и размеров буферов означает значение по умолчанию
+ * Netty или ОС.
+ */
+public final class NettyConfig {
+    private static final Logger logger = LoggerFactory.getLogger(NettyConfig.class);
+
+    private final boolean epoll;
+    private final int bossThreads;
+    private final int workerThreads;
+    private final int backlog;
+    private final boolean tcpNoDelay;
+    private final int receiveBuffer;
+    private final int sendBuffer;
+    private final ByteBufAllocator allocator;
+    private final WriteBufferWaterMark writeBufferWaterMark;
+    private final int maxContentLength;
+
+    private NettyConfig() {
+        this.epoll = selectEpoll(ServerConfig.getString("server.transport", "auto").trim().toLowerCase(Locale.ROOT));
+        this.bossThreads = Math.max(1, ServerConfig.getInt("server.boss.threads", 1));
+        this.workerThreads = Math.max(0, ServerConfig.getInt("server.worker.threads", 0));
+        this.backlog = Math.max(1, ServerConfig.getInt("server.backlog", 128));
+        this.tcpNoDelay = ServerConfig.getBoolean("server.tcp.nodelay", true);
+        this.receiveBuffer = Math.max(0, ServerConfig.getInt("server.socket.rcvbuf", 0));
+        this.sendBuffer = Math.max(0, ServerConfig.getInt("server.socket.sndbuf", 0));
+        this.allocator = selectAllocator(ServerConfig.getString("server.allocator", "pooled").trim().toLowerCase(Locale.ROOT));
+        int low = Math.max(1, ServerConfig.getInt("server.write.buffer.low", 32 * 1024));
+        int high = Math.max(low, ServerConfig.getInt("server.write.buffer.high", 64 * 1024));
+        this.writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+        this.maxContentLength = Math.max(1024, ServerConfig.getInt("server.max.content.length", 1024 * 1024));
+    }
+
+    /**
+     * Читает параметры из config.properties
+     * @return параметры сетевого уровня
+     */
+    public static NettyConfig load() {
+        return new NettyConfig();
+    }
+
+    private static boolean selectEpoll(String transport) {
+        switch (transport) {
+            case "nio":
+                return false;
+            case "epoll":
+                if (!Epoll.isAvailable()) {
+                    logger.warn("Транспорт epoll недоступен, используется NIO: {}", Epoll.unavailabilityCause().toString());
+                }
+                return Epoll.isAvailable();
+            default:
+                if (!"auto".equals(transport)) {
+                    logger.warn("Неизвестный транспорт {}, выбирается автоматически", transport);
+                }
+                return Epoll.isAvailable();
+        }
+    }
+
+    private static ByteBufAllocator selectAllocator(String allocator) {
+        if ("unpooled".equals(allocator)) {
+            return UnpooledByteBufAllocator.DEFAULT;
+        }
+        if (!"pooled".equals(allocator)) {
+            logger.warn("Неизвестный аллокатор {}, используется pooled", allocator);
+        }
+        return PooledByteBufAllocator.DEFAULT;
+    }
+
+    /**
+     * @return группа потоков, принимающих соединения
+     */
+    public EventLoopGroup newBossGroup() {
+        return epoll ? new EpollEventLoopGroup(bossThreads) : new NioEventLoopGroup(bossThreads);
+    }
+
+    /**
+     * @return группа потоков, обслуживающих соединения
+     */
+    public EventLoopGroup newWorkerGroup() {
+        return epoll ? new EpollEventLoopGroup(workerThreads) : new NioEventLoopGroup(workerThreads);
+    }
+
+    /**
+     * @return класс серверного канала для выбранного транспорта
+     */
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * Устанавливает параметры сокетов и каналов
+     * @param bootstrap настраиваемый ServerBootstrap
+     */
+    public void apply(ServerBootstrap bootstrap) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, backlog)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
+        if (receiveBuffer > 0) {
+            // Для принятых соединений размер окна приема задается на слушающем сокете
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBuffer);
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, receiveBuffer);
+        }
+        if (sendBuffer > 0) {
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, sendBuffer);
+        }
+    }
+
+    /**
+     * @return максимальный размер тела запроса в байтах
+     */
+    public int getMaxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * @param workerGroup созданная группа рабочих потоков (нужна фактическая численность)
+     * @return описание действующих параметров для журнала запуска
+     */
+    public String describe(EventLoopGroup workerGroup) {
+        int workers = 0;
+        for (Object ignored : workerGroup) {
+            workers++;
+        }
+        return String.format("транспорт %s, потоков приема %d, рабочих потоков %d, backlog %d, TCP_NODELAY %s, "
+                        + "SO_RCVBUF %s, SO_SNDBUF %s, аллокатор %s, очередь записи %d-%d байт, тело запроса до %d байт",
+                epoll ? "epoll" : "nio", bossThreads, workers, backlog, tcpNoDelay,
+                receiveBuffer > 0 ? receiveBuffer : "по умолчанию", sendBuffer > 0 ? sendBuffer : "по умолчанию",
+                allocator instanceof PooledByteBufAllocator ? "pooled" : "unpooled",
+                writeBufferWaterMark.low(), writeBufferWaterMark.high(), maxContentLength);
+    }
+}
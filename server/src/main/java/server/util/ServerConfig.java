@@ -0,0 +1,74 @@
+package server.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Доступ к параметрам сервера из файла config.properties
+ */
+public class ServerConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ServerConfig.class);
+    private static final String PROPS_FILE = "config.properties";
+
+    private static final Properties props = new Properties();
+
+    static {
+        try (InputStream in = ServerConfig.class.getClassLoader().getResourceAsStream(PROPS_FILE)) {
+            if (in != null) {
+                props.load(in);
+            } else {
+                logger.warn("Файл '{}' не найден в classpath, используются значения по умолчанию", PROPS_FILE);
+            }
+        } catch (IOException e) {
+            logger.error("Ошибка при загрузке файла настроек: {}", PROPS_FILE, e);
+        }
+    }
+
+    private ServerConfig() {
+    }
+
+    /**
+     * Получить строковый параметр
+     * @param key ключ параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или значение по умолчанию
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, props.getProperty(key));
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Получить целочисленный параметр
+     * @param key ключ параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или значение по умолчанию, если параметр не задан или некорректен
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Некорректное значение параметра {}: {}. Используется {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Получить логический параметр
+     * @param key ключ параметра
+     * @param defaultValue значение по умолчанию
+     * @return значение параметра или значение по умолчанию
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
@@ -1,7 +1,11 @@
 package server.util;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HexFormat;
 
 /**
  * Простой генератор токенов для аутентификации.
@@ -18,4 +22,19 @@ public class TokenGenerator {
         secureRandom.nextBytes(randomBytes);
         return Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Хэш токена для хранения в БД: сам токен на сервере не сохраняется.
+     * @param token токен
+     * @return SHA-256 токена в шестнадцатеричном виде (64 символа)
+     */
+    public static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязателен для любой реализации Java
+            throw new IllegalStateException(e);
+        }
+    }
+} 
@@ -14,6 +14,11 @@ SET client_encoding = 'UTF8';
 -- УДАЛЕНИЕ СУЩЕСТВУЮЩИХ ТАБЛИЦ
 -- ==========================================
 
+DROP TABLE IF EXISTS reference_deletions CASCADE;
+DROP TABLE IF EXISTS report_job_results CASCADE;
+DROP TABLE IF EXISTS report_jobs CASCADE;
+DROP TABLE IF EXISTS backup_changes CASCADE;
+DROP TABLE IF EXISTS auth_tokens CASCADE;
 DROP TABLE IF EXISTS audit_log CASCADE;
 DROP TABLE IF EXISTS offline_queue CASCADE;
 DROP TABLE IF EXISTS report_cache CASCADE;
@@ -21,6 +26,7 @@ DROP TABLE IF EXISTS backups CASCADE;
 DROP TABLE IF EXISTS card_promotions CASCADE;
 DROP TABLE IF EXISTS promo_codes CASCADE;
 DROP TABLE IF EXISTS promotions CASCADE;
+DROP TABLE IF EXISTS point_lots CASCADE;
 DROP TABLE IF EXISTS transactions CASCADE;
 DROP TABLE IF EXISTS sessions CASCADE;
 DROP TABLE IF EXISTS cards CASCADE;
@@ -28,6 +34,7 @@ DROP TABLE IF EXISTS users CASCADE;
 DROP TABLE IF EXISTS tiers CASCADE;
 DROP TABLE IF EXISTS roles CASCADE;
 DROP TABLE IF EXISTS settings CASCADE;
+DROP TABLE IF EXISTS table_versions CASCADE;
 
 -- ==========================================
 -- СОЗДАНИЕ ТАБЛИЦ
@@ -52,7 +59,8 @@ CREATE TABLE users (
     phone VARCHAR(20),
     registration_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     last_login TIMESTAMP,
-    is_active BOOLEAN DEFAULT TRUE
+    is_active BOOLEAN DEFAULT TRUE,
+    row_version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Уровни лояльности
@@ -63,7 +71,8 @@ CREATE TABLE tiers (
     discount_pct INTEGER NOT NULL,
     description TEXT,
     color VARCHAR(20),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    row_version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Карты клиентов
@@ -91,7 +100,7 @@ CREATE TABLE sessions (
     points_earned INTEGER DEFAULT 0,
     price DECIMAL(10, 2) NOT NULL DEFAULT 0,
     computer_number INTEGER,
-    status VARCHAR(20) DEFAULT 'ACTIVE',
+    status VARCHAR(20) DEFAULT 'ACTIVE', -- 'ACTIVE', 'COMPLETED', 'EXPIRED'
     created_by INTEGER REFERENCES users(id),
     notes TEXT
 );
@@ -100,7 +109,7 @@ CREATE TABLE sessions (
 CREATE TABLE transactions (
     id SERIAL PRIMARY KEY,
     card_id INTEGER NOT NULL REFERENCES cards(id),
-    type VARCHAR(20) NOT NULL, -- 'EARN', 'REDEEM', 'ADJUST', 'BONUS'
+    type VARCHAR(20) NOT NULL, -- 'EARN', 'REDEEM', 'ADJUST', 'BONUS', 'EXPIRY'
     points INTEGER NOT NULL,
     timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     description VARCHAR(255),
@@ -110,6 +119,16 @@ CREATE TABLE transactions (
     promo_code_id INTEGER
 );
 
+-- Партии начисленных баллов (списываются по FIFO, сгорают через POINTS_EXPIRY_MONTHS)
+CREATE TABLE point_lots (
+    id BIGSERIAL PRIMARY KEY,
+    card_id INTEGER NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    earned_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    points_earned INTEGER NOT NULL,
+    points_remaining INTEGER NOT NULL CHECK (points_remaining >= 0)
+);
+
 -- Акции и промо-кампании
 CREATE TABLE promotions (
     id SERIAL PRIMARY KEY,
@@ -124,7 +143,8 @@ CREATE TABLE promotions (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     max_uses INTEGER,
     min_points_required INTEGER DEFAULT 0,
-    usage_count INTEGER DEFAULT 0
+    usage_count INTEGER DEFAULT 0,
+    row_version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Участие карт в акциях
@@ -154,7 +174,8 @@ CREATE TABLE promo_codes (
     discount_percent DECIMAL(5, 2) DEFAULT 0,
     uses_limit INTEGER DEFAULT 1,
     uses_count INTEGER DEFAULT 0,
-    is_active BOOLEAN DEFAULT TRUE
+    is_active BOOLEAN DEFAULT TRUE,
+    row_version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Настройки системы
@@ -165,20 +186,27 @@ CREATE TABLE settings (
     description VARCHAR(255),
     category VARCHAR(50) DEFAULT 'general',
     last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_by INTEGER REFERENCES users(id)
+    updated_by INTEGER REFERENCES users(id),
+    row_version BIGINT NOT NULL DEFAULT 0
 );
 
--- Резервные копии
+-- Резервные копии (каталог не входит в копии; created_by не внешний ключ, чтобы каталог
+-- не очищался при восстановлении таблицы users)
 CREATE TABLE backups (
     id SERIAL PRIMARY KEY,
-    filename VARCHAR(255) NOT NULL,
+    filename VARCHAR(255) NOT NULL UNIQUE,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    created_by INTEGER REFERENCES users(id),
+    created_by INTEGER,
     file_size BIGINT NOT NULL,
     file_path VARCHAR(500),
     backup_type VARCHAR(50) DEFAULT 'manual',
     is_valid BOOLEAN NOT NULL DEFAULT TRUE,
-    description TEXT
+    description TEXT,
+    backup_kind VARCHAR(20) NOT NULL DEFAULT 'FULL', -- 'FULL', 'INCREMENTAL'
+    parent_id INTEGER REFERENCES backups(id),
+    base_id INTEGER REFERENCES backups(id),
+    sha256 CHAR(64),
+    tx_snapshot TEXT -- снимок транзакций, от которого считаются изменения следующей копии
 );
 
 -- Кэш отчетов
@@ -221,6 +249,70 @@ CREATE TABLE audit_log (
     new_values TEXT
 );
 
+-- Версии справочных таблиц (ETag для условных GET-запросов)
+CREATE TABLE table_versions (
+    table_name VARCHAR(64) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT (EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000)::BIGINT
+);
+
+-- Токены входа, общие для всех экземпляров сервера (хранится SHA-256 токена)
+CREATE TABLE auth_tokens (
+    token_hash CHAR(64) PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    node_id VARCHAR(100)
+);
+
+-- Журнал изменений для инкрементных копий (строка без ключа означает TRUNCATE таблицы)
+CREATE TABLE backup_changes (
+    id BIGSERIAL PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_key TEXT,
+    txid BIGINT NOT NULL DEFAULT txid_current()
+);
+
+-- Фоновые задания на отчеты (результат хранится в report_job_results).
+-- Не входит в копии, поэтому автор задания не является внешним ключом
+CREATE TABLE report_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    report_type VARCHAR(30) NOT NULL, -- 'points', 'activity', 'promotions', 'promocodes', 'financial', 'receipts'
+    format VARCHAR(10) NOT NULL DEFAULT 'JSON', -- 'JSON', 'CSV', 'PDF'
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED', -- 'QUEUED', 'RUNNING', 'DONE', 'FAILED', 'CANCELLED'
+    priority INTEGER NOT NULL DEFAULT 5,
+    requested_by INTEGER,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    node_id VARCHAR(100),
+    result_file VARCHAR(255),
+    result_size BIGINT,
+    error_message TEXT,
+    expires_at TIMESTAMP
+);
+
+-- Результаты выполненных заданий на отчеты частями по 1 МБ: их отдает любой экземпляр сервера.
+-- Части удаляются вместе с заданием. Не входит в копии
+CREATE TABLE report_job_results (
+    job_id BIGINT NOT NULL REFERENCES report_jobs(id) ON DELETE CASCADE,
+    chunk_no INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    PRIMARY KEY (job_id, chunk_no)
+);
+
+-- Удаленные строки справочников для синхронизации клиентов по изменениям. Строка без row_id означает,
+-- что таблица очищена или восстановлена из копии и клиенты должны загрузить ее заново.
+-- Не входит в резервные копии
+CREATE TABLE reference_deletions (
+    id BIGSERIAL PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_id BIGINT,
+    version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- ==========================================
 -- СОЗДАНИЕ ИНДЕКСОВ ДЛЯ ПРОИЗВОДИТЕЛЬНОСТИ
 -- ==========================================
@@ -230,15 +322,31 @@ CREATE INDEX idx_cards_user_id ON cards(user_id);
 CREATE INDEX idx_sessions_card_id ON sessions(card_id);
 CREATE INDEX idx_sessions_start_time ON sessions(start_time);
 CREATE INDEX idx_sessions_status ON sessions(status);
+CREATE INDEX idx_sessions_active_card ON sessions(card_id) WHERE status = 'ACTIVE' AND end_time IS NULL;
 CREATE INDEX idx_transactions_card_id ON transactions(card_id);
 CREATE INDEX idx_transactions_timestamp ON transactions(timestamp);
 CREATE INDEX idx_transactions_type ON transactions(type);
+CREATE INDEX idx_point_lots_card_fifo ON point_lots(card_id, earned_at, id) WHERE points_remaining > 0;
+CREATE INDEX idx_point_lots_expires ON point_lots(expires_at, card_id) WHERE points_remaining > 0;
 CREATE INDEX idx_promotions_dates ON promotions(start_date, end_date);
 CREATE INDEX idx_promotions_active ON promotions(is_active);
 CREATE INDEX idx_promo_codes_code ON promo_codes(code);
 CREATE INDEX idx_promo_codes_active ON promo_codes(is_active);
 CREATE INDEX idx_audit_log_timestamp ON audit_log(timestamp);
 CREATE INDEX idx_audit_log_user_id ON audit_log(user_id);
+CREATE INDEX idx_auth_tokens_expires ON auth_tokens(expires_at);
+CREATE INDEX idx_auth_tokens_user_id ON auth_tokens(user_id);
+CREATE INDEX idx_backups_parent_id ON backups(parent_id);
+CREATE INDEX idx_backup_changes_table ON backup_changes(table_name);
+CREATE INDEX idx_report_jobs_queue ON report_jobs(priority DESC, created_at, id) WHERE status = 'QUEUED';
+CREATE INDEX idx_report_jobs_running ON report_jobs(requested_by) WHERE status = 'RUNNING';
+CREATE INDEX idx_report_jobs_expires ON report_jobs(expires_at);
+CREATE INDEX idx_users_row_version ON users(row_version);
+CREATE INDEX idx_tiers_row_version ON tiers(row_version);
+CREATE INDEX idx_promotions_row_version ON promotions(row_version);
+CREATE INDEX idx_promo_codes_row_version ON promo_codes(row_version);
+CREATE INDEX idx_settings_row_version ON settings(row_version);
+CREATE INDEX idx_reference_deletions_version ON reference_deletions(table_name, version);
 
 -- ==========================================
 -- ЗАПОЛНЕНИЕ НАЧАЛЬНЫМИ ДАННЫМИ
@@ -383,6 +491,12 @@ SELECT setval('promotions_id_seq', (SELECT MAX(id) FROM promotions));
 SELECT setval('promo_codes_id_seq', (SELECT MAX(id) FROM promo_codes));
 SELECT setval('settings_id_seq', (SELECT MAX(id) FROM settings));
 
+-- Начальные партии баллов: текущий баланс карт считается начисленным в момент инициализации
+INSERT INTO point_lots (card_id, earned_at, expires_at, points_earned, points_remaining)
+SELECT id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + INTERVAL '12 months', points, points
+FROM cards
+WHERE points > 0;
+
 -- ==========================================
 -- СОЗДАНИЕ ПРЕДСТАВЛЕНИЙ ДЛЯ ОТЧЕТОВ
 -- ==========================================
@@ -495,6 +609,164 @@ CREATE TRIGGER trigger_update_card_tier
     FOR EACH ROW
     EXECUTE FUNCTION update_card_tier();
 
+-- Функция для учета версий справочных таблиц: один UPDATE на оператор
+CREATE OR REPLACE FUNCTION bump_table_version() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+INSERT INTO table_versions (table_name)
+VALUES ('roles'), ('users'), ('tiers'), ('promotions'), ('promo_codes'), ('settings');
+
+-- Триггеры версий справочных таблиц
+CREATE TRIGGER trigger_roles_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON roles
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+CREATE TRIGGER trigger_users_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON users
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+CREATE TRIGGER trigger_tiers_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON tiers
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+CREATE TRIGGER trigger_promotions_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON promotions
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+CREATE TRIGGER trigger_promo_codes_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON promo_codes
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+CREATE TRIGGER trigger_settings_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON settings
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+-- Номер версии строки берется из table_versions: блокировка строки table_versions держится до конца
+-- транзакции, поэтому изменения одной таблицы фиксируются в порядке возрастания номеров и клиент,
+-- получивший версию N, не пропустит изменение с меньшим номером
+CREATE OR REPLACE FUNCTION stamp_row_version() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT;
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME
+    RETURNING version INTO current_version;
+    NEW.row_version := COALESCE(current_version, 0);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION log_reference_deletion() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT;
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME
+    RETURNING version INTO current_version;
+    -- При восстановлении из копии table_versions очищается тем же TRUNCATE
+    IF current_version IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO reference_deletions (table_name, row_id, version) VALUES (TG_TABLE_NAME, OLD.id, current_version);
+    ELSE
+        INSERT INTO reference_deletions (table_name, version) VALUES (TG_TABLE_NAME, current_version);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Принудительная полная загрузка справочников всеми клиентами (после восстановления из копии).
+-- Версии переводятся не ниже текущего времени в миллисекундах, чтобы не совпасть ни с одной версией,
+-- уже полученной клиентами до восстановления
+CREATE OR REPLACE FUNCTION reset_reference_sync() RETURNS VOID AS $$
+    UPDATE table_versions
+    SET version = GREATEST(version + 1, (EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000)::BIGINT)
+    WHERE table_name IN ('roles', 'users', 'tiers', 'promotions', 'promo_codes', 'settings');
+    INSERT INTO reference_deletions (table_name, version)
+    SELECT table_name, version FROM table_versions
+    WHERE table_name IN ('users', 'tiers', 'promotions', 'promo_codes', 'settings');
+$$ LANGUAGE sql;
+
+-- Триггеры версий строк и удалений справочников (после начальных данных: их строки имеют версию 0)
+DO $$
+DECLARE
+    tracked TEXT;
+BEGIN
+    FOREACH tracked IN ARRAY ARRAY['users', 'tiers', 'promotions', 'promo_codes', 'settings']
+    LOOP
+        EXECUTE format('CREATE TRIGGER %I BEFORE INSERT OR UPDATE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION stamp_row_version()',
+                       'trigger_' || tracked || '_row_version', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER DELETE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION log_reference_deletion()',
+                       'trigger_' || tracked || '_deletion', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER TRUNCATE ON %I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION log_reference_deletion()',
+                       'trigger_' || tracked || '_deletion_truncate', tracked);
+    END LOOP;
+END;
+$$;
+
+-- Отметка полной загрузки: клиенты, синхронизированные с прежней базой, загрузят справочники заново
+SELECT reset_reference_sync();
+
+-- Функция журнала изменений для инкрементных копий; аргумент - имя столбца первичного ключа
+CREATE OR REPLACE FUNCTION log_backup_change() RETURNS TRIGGER AS $$
+DECLARE
+    old_key TEXT;
+    new_key TEXT;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO backup_changes (table_name) VALUES (TG_TABLE_NAME);
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        old_key := to_jsonb(OLD) ->> TG_ARGV[0];
+        INSERT INTO backup_changes (table_name, row_key) VALUES (TG_TABLE_NAME, old_key);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        new_key := to_jsonb(NEW) ->> TG_ARGV[0];
+        IF new_key IS DISTINCT FROM old_key THEN
+            INSERT INTO backup_changes (table_name, row_key) VALUES (TG_TABLE_NAME, new_key);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Триггеры журнала изменений (создаются после начальных данных: их покрывает первая полная копия)
+DO $$
+DECLARE
+    tracked RECORD;
+BEGIN
+    FOR tracked IN
+        SELECT * FROM (VALUES
+            ('roles', 'id'), ('users', 'id'), ('tiers', 'id'), ('cards', 'id'), ('sessions', 'id'),
+            ('transactions', 'id'), ('point_lots', 'id'), ('promotions', 'id'), ('card_promotions', 'id'),
+            ('promo_codes', 'id'), ('settings', 'id'), ('report_cache', 'id'), ('offline_queue', 'id'),
+            ('audit_log', 'id'), ('table_versions', 'table_name'), ('auth_tokens', 'token_hash')
+        ) AS t(table_name, key_column)
+    LOOP
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION log_backup_change(%L)',
+                       'trigger_' || tracked.table_name || '_backup', tracked.table_name, tracked.key_column);
+        EXECUTE format('CREATE TRIGGER %I AFTER TRUNCATE ON %I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION log_backup_change(%L)',
+                       'trigger_' || tracked.table_name || '_backup_truncate', tracked.table_name,
+                       tracked.key_column);
+    END LOOP;
+END;
+$$;
+
 -- ==========================================
 -- ПРАВА ДОСТУПА (при необходимости)
 -- ==========================================
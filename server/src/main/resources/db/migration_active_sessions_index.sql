@@ -0,0 +1,10 @@
+-- ==========================================
+-- МИГРАЦИЯ: ИНДЕКС АКТИВНЫХ СЕССИЙ
+-- Для баз, созданных до появления индекса idx_sessions_active_card
+-- ==========================================
+
+-- Частичный индекс для загрузки активных сессий при старте сервера (таймер автозавершения)
+-- и поиска активных сессий карты. CONCURRENTLY не блокирует запись в sessions на работающей базе,
+-- поэтому скрипт нельзя выполнять внутри транзакции
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sessions_active_card
+    ON sessions(card_id) WHERE status = 'ACTIVE' AND end_time IS NULL;
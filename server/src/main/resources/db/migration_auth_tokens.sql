@@ -0,0 +1,17 @@
+-- ==========================================
+-- МИГРАЦИЯ: ОБЩЕЕ ХРАНИЛИЩЕ ТОКЕНОВ ВХОДА
+-- Для баз, созданных до появления таблицы auth_tokens
+-- ==========================================
+
+-- Токены входа, общие для всех экземпляров сервера за балансировщиком.
+-- Хранится SHA-256 токена: утечка таблицы не дает готовых токенов
+CREATE TABLE IF NOT EXISTS auth_tokens (
+    token_hash CHAR(64) PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    node_id VARCHAR(100)
+);
+
+CREATE INDEX IF NOT EXISTS idx_auth_tokens_expires ON auth_tokens(expires_at);
+CREATE INDEX IF NOT EXISTS idx_auth_tokens_user_id ON auth_tokens(user_id);
@@ -0,0 +1,78 @@
+-- ==========================================
+-- МИГРАЦИЯ: ИНКРЕМЕНТНЫЕ РЕЗЕРВНЫЕ КОПИИ
+-- Для баз, созданных до появления таблицы backup_changes
+-- ==========================================
+
+-- Каталог копий: вид копии, цепочка и снимок транзакций, от которого считаются следующие изменения.
+-- Каталог не входит в копии и не должен очищаться при восстановлении таблицы users (TRUNCATE ... CASCADE),
+-- поэтому ссылка на автора копии не является внешним ключом
+ALTER TABLE backups DROP CONSTRAINT IF EXISTS backups_created_by_fkey;
+ALTER TABLE backups ADD COLUMN IF NOT EXISTS backup_kind VARCHAR(20) NOT NULL DEFAULT 'FULL';
+ALTER TABLE backups ADD COLUMN IF NOT EXISTS parent_id INTEGER REFERENCES backups(id);
+ALTER TABLE backups ADD COLUMN IF NOT EXISTS base_id INTEGER REFERENCES backups(id);
+ALTER TABLE backups ADD COLUMN IF NOT EXISTS sha256 CHAR(64);
+ALTER TABLE backups ADD COLUMN IF NOT EXISTS tx_snapshot TEXT;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_backups_filename ON backups(filename);
+CREATE INDEX IF NOT EXISTS idx_backups_parent_id ON backups(parent_id);
+
+-- Журнал изменений для инкрементных копий: таблица, первичный ключ строки и транзакция.
+-- Строка без ключа означает TRUNCATE таблицы
+CREATE TABLE IF NOT EXISTS backup_changes (
+    id BIGSERIAL PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_key TEXT,
+    txid BIGINT NOT NULL DEFAULT txid_current()
+);
+
+CREATE INDEX IF NOT EXISTS idx_backup_changes_table ON backup_changes(table_name);
+
+-- Аргумент триггера - имя столбца первичного ключа
+CREATE OR REPLACE FUNCTION log_backup_change() RETURNS TRIGGER AS $$
+DECLARE
+    old_key TEXT;
+    new_key TEXT;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO backup_changes (table_name) VALUES (TG_TABLE_NAME);
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        old_key := to_jsonb(OLD) ->> TG_ARGV[0];
+        INSERT INTO backup_changes (table_name, row_key) VALUES (TG_TABLE_NAME, old_key);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        new_key := to_jsonb(NEW) ->> TG_ARGV[0];
+        IF new_key IS DISTINCT FROM old_key THEN
+            INSERT INTO backup_changes (table_name, row_key) VALUES (TG_TABLE_NAME, new_key);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    tracked RECORD;
+BEGIN
+    FOR tracked IN
+        SELECT * FROM (VALUES
+            ('roles', 'id'), ('users', 'id'), ('tiers', 'id'), ('cards', 'id'), ('sessions', 'id'),
+            ('transactions', 'id'), ('point_lots', 'id'), ('promotions', 'id'), ('card_promotions', 'id'),
+            ('promo_codes', 'id'), ('settings', 'id'), ('report_cache', 'id'), ('offline_queue', 'id'),
+            ('audit_log', 'id'), ('table_versions', 'table_name'), ('auth_tokens', 'token_hash')
+        ) AS t(table_name, key_column)
+    LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trigger_' || tracked.table_name || '_backup',
+                       tracked.table_name);
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION log_backup_change(%L)',
+                       'trigger_' || tracked.table_name || '_backup', tracked.table_name, tracked.key_column);
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trigger_' || tracked.table_name || '_backup_truncate',
+                       tracked.table_name);
+        EXECUTE format('CREATE TRIGGER %I AFTER TRUNCATE ON %I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION log_backup_change(%L)',
+                       'trigger_' || tracked.table_name || '_backup_truncate', tracked.table_name,
+                       tracked.key_column);
+    END LOOP;
+END;
+$$;
@@ -0,0 +1,23 @@
+-- ==========================================
+-- МИГРАЦИЯ: ПАРТИИ БАЛЛОВ ДЛЯ СГОРАНИЯ ПО FIFO
+-- Для баз, созданных до появления таблицы point_lots
+-- ==========================================
+
+CREATE TABLE IF NOT EXISTS point_lots (
+    id BIGSERIAL PRIMARY KEY,
+    card_id INTEGER NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    earned_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    points_earned INTEGER NOT NULL,
+    points_remaining INTEGER NOT NULL CHECK (points_remaining >= 0)
+);
+
+CREATE INDEX IF NOT EXISTS idx_point_lots_card_fifo ON point_lots(card_id, earned_at, id) WHERE points_remaining > 0;
+CREATE INDEX IF NOT EXISTS idx_point_lots_expires ON point_lots(expires_at, card_id) WHERE points_remaining > 0;
+
+-- Текущий баланс карт без партий переносится одной партией со сроком от момента миграции
+INSERT INTO point_lots (card_id, earned_at, expires_at, points_earned, points_remaining)
+SELECT c.id, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP + INTERVAL '12 months', c.points, c.points
+FROM cards c
+WHERE c.points > 0
+  AND NOT EXISTS (SELECT 1 FROM point_lots pl WHERE pl.card_id = c.id);
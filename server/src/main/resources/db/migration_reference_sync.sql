@@ -0,0 +1,101 @@
+-- ==========================================
+-- МИГРАЦИЯ: СИНХРОНИЗАЦИЯ СПРАВОЧНИКОВ ПО ИЗМЕНЕНИЯМ
+-- Для баз, созданных до появления столбцов row_version и таблицы reference_deletions.
+-- Требует migration_table_versions.sql
+-- ==========================================
+
+-- Версия строки - номер версии таблицы (table_versions) на момент последнего изменения строки.
+-- Строки, не менявшиеся после миграции, имеют версию 0 и приходят клиенту при полной загрузке
+ALTER TABLE users ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE tiers ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE promotions ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE promo_codes ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE settings ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_users_row_version ON users(row_version);
+CREATE INDEX IF NOT EXISTS idx_tiers_row_version ON tiers(row_version);
+CREATE INDEX IF NOT EXISTS idx_promotions_row_version ON promotions(row_version);
+CREATE INDEX IF NOT EXISTS idx_promo_codes_row_version ON promo_codes(row_version);
+CREATE INDEX IF NOT EXISTS idx_settings_row_version ON settings(row_version);
+
+-- Удаленные строки справочников. Строка без row_id означает, что таблица очищена или восстановлена
+-- из копии и клиенты с более ранней версией должны загрузить ее заново. Не входит в резервные копии
+CREATE TABLE IF NOT EXISTS reference_deletions (
+    id BIGSERIAL PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_id BIGINT,
+    version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_reference_deletions_version ON reference_deletions(table_name, version);
+
+-- Номер версии строки берется из table_versions: блокировка строки table_versions держится до конца
+-- транзакции, поэтому изменения одной таблицы фиксируются в порядке возрастания номеров и клиент,
+-- получивший версию N, не пропустит изменение с меньшим номером
+CREATE OR REPLACE FUNCTION stamp_row_version() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT;
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME
+    RETURNING version INTO current_version;
+    NEW.row_version := COALESCE(current_version, 0);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION log_reference_deletion() RETURNS TRIGGER AS $$
+DECLARE
+    current_version BIGINT;
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME
+    RETURNING version INTO current_version;
+    -- При восстановлении из копии table_versions очищается тем же TRUNCATE
+    IF current_version IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO reference_deletions (table_name, row_id, version) VALUES (TG_TABLE_NAME, OLD.id, current_version);
+    ELSE
+        INSERT INTO reference_deletions (table_name, version) VALUES (TG_TABLE_NAME, current_version);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Принудительная полная загрузка справочников всеми клиентами (после восстановления из копии).
+-- Версии переводятся не ниже текущего времени в миллисекундах, чтобы не совпасть ни с одной версией,
+-- уже полученной клиентами до восстановления
+CREATE OR REPLACE FUNCTION reset_reference_sync() RETURNS VOID AS $$
+    UPDATE table_versions
+    SET version = GREATEST(version + 1, (EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000)::BIGINT)
+    WHERE table_name IN ('roles', 'users', 'tiers', 'promotions', 'promo_codes', 'settings');
+    INSERT INTO reference_deletions (table_name, version)
+    SELECT table_name, version FROM table_versions
+    WHERE table_name IN ('users', 'tiers', 'promotions', 'promo_codes', 'settings');
+$$ LANGUAGE sql;
+
+DO $$
+DECLARE
+    tracked TEXT;
+BEGIN
+    FOREACH tracked IN ARRAY ARRAY['users', 'tiers', 'promotions', 'promo_codes', 'settings']
+    LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trigger_' || tracked || '_row_version', tracked);
+        EXECUTE format('CREATE TRIGGER %I BEFORE INSERT OR UPDATE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION stamp_row_version()',
+                       'trigger_' || tracked || '_row_version', tracked);
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trigger_' || tracked || '_deletion', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER DELETE ON %I '
+                       'FOR EACH ROW EXECUTE FUNCTION log_reference_deletion()',
+                       'trigger_' || tracked || '_deletion', tracked);
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', 'trigger_' || tracked || '_deletion_truncate', tracked);
+        EXECUTE format('CREATE TRIGGER %I AFTER TRUNCATE ON %I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION log_reference_deletion()',
+                       'trigger_' || tracked || '_deletion_truncate', tracked);
+    END LOOP;
+END;
+$$;
+
+-- Клиенты, синхронизированные с другой базой, загрузят справочники заново
+SELECT reset_reference_sync();
@@ -0,0 +1,13 @@
+-- ==========================================
+-- МИГРАЦИЯ: РЕЗУЛЬТАТЫ ЗАДАНИЙ НА ОТЧЕТЫ В БД
+-- Для баз, созданных до появления таблицы report_job_results (после migration_report_jobs.sql)
+-- ==========================================
+
+-- Результаты выполненных заданий частями по 1 МБ: их отдает любой экземпляр сервера, а не только
+-- выполнивший задание. Части удаляются вместе с заданием. Не входит в резервные копии
+CREATE TABLE IF NOT EXISTS report_job_results (
+    job_id BIGINT NOT NULL REFERENCES report_jobs(id) ON DELETE CASCADE,
+    chunk_no INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    PRIMARY KEY (job_id, chunk_no)
+);
@@ -0,0 +1,31 @@
+-- ==========================================
+-- МИГРАЦИЯ: ФОНОВЫЕ ЗАДАНИЯ НА ОТЧЕТЫ
+-- Для баз, созданных до появления таблицы report_jobs
+-- ==========================================
+
+-- Очередь заданий на отчеты и сведения о готовых результатах (файлы в директории report.files.path).
+-- Очередь не входит в резервные копии и не должна очищаться при восстановлении таблицы users
+-- (TRUNCATE ... CASCADE), поэтому ссылка на автора задания не является внешним ключом
+CREATE TABLE IF NOT EXISTS report_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    report_type VARCHAR(30) NOT NULL,
+    format VARCHAR(10) NOT NULL DEFAULT 'JSON',
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    priority INTEGER NOT NULL DEFAULT 5,
+    requested_by INTEGER,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    node_id VARCHAR(100),
+    result_file VARCHAR(255),
+    result_size BIGINT,
+    error_message TEXT,
+    expires_at TIMESTAMP
+);
+
+-- Выбор следующего задания: по приоритету, затем по времени постановки
+CREATE INDEX IF NOT EXISTS idx_report_jobs_queue ON report_jobs(priority DESC, created_at, id) WHERE status = 'QUEUED';
+CREATE INDEX IF NOT EXISTS idx_report_jobs_running ON report_jobs(requested_by) WHERE status = 'RUNNING';
+CREATE INDEX IF NOT EXISTS idx_report_jobs_expires ON report_jobs(expires_at);
@@ -0,0 +1,59 @@
+-- ==========================================
+-- МИГРАЦИЯ: ВЕРСИИ СПРАВОЧНЫХ ТАБЛИЦ ДЛЯ ETAG
+-- Для баз, созданных до появления таблицы table_versions
+-- ==========================================
+
+-- Номер версии растет при любом изменении таблицы. Начальное значение - время создания записи
+-- в миллисекундах, поэтому после пересоздания базы номера не совпадут с закэшированными клиентами
+CREATE TABLE IF NOT EXISTS table_versions (
+    table_name VARCHAR(64) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT (EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000)::BIGINT
+);
+
+INSERT INTO table_versions (table_name)
+VALUES ('roles'), ('users'), ('tiers'), ('promotions'), ('promo_codes'), ('settings')
+ON CONFLICT (table_name) DO NOTHING;
+
+-- Один UPDATE на оператор, а не на каждую строку
+CREATE OR REPLACE FUNCTION bump_table_version() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE table_versions SET version = version + 1 WHERE table_name = TG_TABLE_NAME;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trigger_roles_version ON roles;
+CREATE TRIGGER trigger_roles_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON roles
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trigger_users_version ON users;
+CREATE TRIGGER trigger_users_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON users
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trigger_tiers_version ON tiers;
+CREATE TRIGGER trigger_tiers_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON tiers
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trigger_promotions_version ON promotions;
+CREATE TRIGGER trigger_promotions_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON promotions
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trigger_promo_codes_version ON promo_codes;
+CREATE TRIGGER trigger_promo_codes_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON promo_codes
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trigger_settings_version ON settings;
+CREATE TRIGGER trigger_settings_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON settings
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION bump_table_version();